@@ -0,0 +1,118 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationResponse;
+import com.cardengine.authorization.AuthorizationService;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded authorization throughput with and without account lanes.
+ *
+ * All benchmark threads authorize against a shared pool of accounts, so
+ * several threads regularly hit the same account. Without lanes those
+ * collisions surface as optimistic locking retries (and occasional
+ * conflicts that exhaust the retries, counted in {@code conflicts}); with
+ * lanes they are queued on the account's lane instead.
+ *
+ * Run with increasing thread counts to see how each mode scales, e.g.
+ * {@code -Djmh.args="AccountLaneBenchmark -t 8"} for 1, 2, 4, 8 ... threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class AccountLaneBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"false", "true"})
+        public boolean lanesEnabled;
+
+        /**
+         * Number of distinct accounts the threads authorize against.
+         */
+        @Param({"4", "256"})
+        public int accounts;
+
+        ConfigurableApplicationContext context;
+        AuthorizationService authorizationService;
+        Card[] cards;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = EngineContext.start(Map.of("card-engine.accounts.lanes.enabled", lanesEnabled));
+            authorizationService = context.getBean(AuthorizationService.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void issueCards() {
+            AccountService accountService = context.getBean(AccountService.class);
+            CardService cardService = context.getBean(CardService.class);
+
+            cards = new Card[accounts];
+            for (int i = 0; i < accounts; i++) {
+                InternalLedgerAccount account = accountService.createInternalLedgerAccount(
+                    "bench-owner",
+                    Money.of("1000000000.00", Currency.USD)
+                );
+                cards[i] = cardService.issueCard(
+                    "Bench User",
+                    "4242",
+                    LocalDate.now().plusYears(2),
+                    account.getAccountId(),
+                    "bench-owner"
+                );
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long conflicts;
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorize(Engine engine, Outcomes outcomes) {
+        Card card = engine.cards[ThreadLocalRandom.current().nextInt(engine.cards.length)];
+        AuthorizationRequest request = AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(card.getCardId())
+            .amount(Money.of("12.34", Currency.USD))
+            .merchantName("Bench Merchant")
+            .merchantCategoryCode("5411")
+            .merchantCountry("US")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+
+        try {
+            return engine.authorizationService.authorize(request);
+        } catch (OptimisticLockingFailureException e) {
+            outcomes.conflicts++;
+            return null;
+        }
+    }
+}
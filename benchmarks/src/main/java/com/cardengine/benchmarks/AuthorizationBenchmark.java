@@ -0,0 +1,92 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationResponse;
+import com.cardengine.authorization.AuthorizationService;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link AuthorizationService#authorize} against internal ledger
+ * accounts on H2: card lookup, rules, account reserve, authorization and
+ * ledger writes in one transaction.
+ *
+ * Each benchmark thread authorizes against its own card and account, created
+ * fresh every iteration so the reserve map does not grow across iterations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        ConfigurableApplicationContext context;
+        AuthorizationService authorizationService;
+        AccountService accountService;
+        CardService cardService;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = EngineContext.start();
+            authorizationService = context.getBean(AuthorizationService.class);
+            accountService = context.getBean(AccountService.class);
+            cardService = context.getBean(CardService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cardholder {
+
+        Card card;
+
+        @Setup(Level.Iteration)
+        public void issueCard(Engine engine) {
+            InternalLedgerAccount account = engine.accountService.createInternalLedgerAccount(
+                "bench-owner",
+                Money.of("1000000000.00", Currency.USD)
+            );
+            card = engine.cardService.issueCard(
+                "Bench User",
+                "4242",
+                LocalDate.now().plusYears(2),
+                account.getAccountId(),
+                "bench-owner"
+            );
+        }
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorize(Engine engine, Cardholder cardholder) {
+        AuthorizationRequest request = AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(cardholder.card.getCardId())
+            .amount(Money.of("12.34", Currency.USD))
+            .merchantName("Bench Merchant")
+            .merchantCategoryCode("5411")
+            .merchantCountry("US")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+
+        return engine.authorizationService.authorize(request);
+    }
+}
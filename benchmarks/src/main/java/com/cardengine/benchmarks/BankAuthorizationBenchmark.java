@@ -0,0 +1,101 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationResponse;
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.BankAuthorizationService;
+import com.cardengine.bank.BankCardIssuanceService;
+import com.cardengine.bank.mock.MockBankAccountAdapter;
+import com.cardengine.bank.resilience.ResilientBankAccountAdapter;
+import com.cardengine.cards.Card;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link BankAuthorizationService#authorize} against the in-memory
+ * {@link MockBankAccountAdapter}, with a configurable simulated bank core
+ * round-trip so the cost of holding a database transaction open across a
+ * remote call shows up in throughput and tail latency.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class BankAuthorizationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        /**
+         * Simulated bank core latency per call, in milliseconds.
+         */
+        @Param({"0", "5"})
+        public long bankLatencyMillis;
+
+        ConfigurableApplicationContext context;
+        BankAuthorizationService bankAuthorizationService;
+        BankCardIssuanceService cardIssuanceService;
+        MockBankAccountAdapter bank;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = EngineContext.start(EngineContext.MockBankConfiguration.class);
+            bankAuthorizationService = context.getBean(BankAuthorizationService.class);
+            cardIssuanceService = context.getBean(BankCardIssuanceService.class);
+            bank = (MockBankAccountAdapter) ResilientBankAccountAdapter.unwrap(
+                context.getBean(BankAccountAdapter.class));
+            bank.setLatency(Duration.ofMillis(bankLatencyMillis));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cardholder {
+
+        Card card;
+
+        @Setup(Level.Iteration)
+        public void issueCard(Engine engine) {
+            String bankAccountRef = "BENCH-" + UUID.randomUUID();
+            engine.bank.createAccount(bankAccountRef, new BigDecimal("1000000000.00"));
+
+            card = engine.cardIssuanceService.issueCardForBankAccount(
+                "bench-client",
+                bankAccountRef,
+                "Bench User",
+                LocalDate.now().plusYears(2),
+                "benchmark"
+            );
+            engine.cardIssuanceService.activateCard(card.getCardId());
+        }
+    }
+
+    @Benchmark
+    public AuthorizationResponse authorize(Engine engine, Cardholder cardholder) {
+        AuthorizationRequest request = AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(cardholder.card.getCardId())
+            .amount(Money.of("12.34", Currency.USD))
+            .merchantName("Bench Merchant")
+            .merchantCategoryCode("5411")
+            .merchantCountry("US")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+
+        return engine.bankAuthorizationService.authorize(request);
+    }
+}
@@ -0,0 +1,47 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.accounts.BaseAccount;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BaseAccount#reserve} and release on a detached account, with a
+ * configurable number of reserves already outstanding (available balance is
+ * derived from the sum of all active reserves).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BaseAccountBenchmark {
+
+    private static final String AUTHORIZATION_ID = "bench-auth";
+
+    @Param({"0", "100"})
+    public int activeReserves;
+
+    private BaseAccount account;
+    private Money amount;
+
+    @Setup
+    public void setUp() {
+        account = new InternalLedgerAccount("bench-owner", Money.of("1000000000.00", Currency.USD));
+        amount = Money.of("12.34", Currency.USD);
+        for (int i = 0; i < activeReserves; i++) {
+            account.reserve(amount, "outstanding-" + i);
+        }
+    }
+
+    @Benchmark
+    public Money reserveAndRelease() {
+        account.reserve(amount, AUTHORIZATION_ID);
+        account.release(amount, AUTHORIZATION_ID);
+        return account.getBalance();
+    }
+}
@@ -0,0 +1,111 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.common.MinorUnits;
+import com.cardengine.rules.MccSet;
+import com.cardengine.rules.RuleExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RuleExpression} compiled from the rule language next to the same
+ * condition written by hand the way the built-in rules are.
+ *
+ * The approved request evaluates every comparison; the declined one stops at
+ * the MCC list. With {@code otherRules} > 0, other expressions are run first
+ * so the shared and/or/not call sites see several lambda classes, as they do
+ * in a node with many rules defined.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DeclarativeRuleBenchmark {
+
+    private static final String CONDITION =
+        "mcc in [7995, 6211, \"3000-3350\"] or (amount > 500 and country != \"US\")";
+
+    private static final String[] OTHER_RULES = {
+        "amount >= 10000",
+        "currency = \"GBP\" and amount > 2000",
+        "country in [\"KP\", \"IR\", \"SY\"]",
+        "not (mcc = 5411) and merchant = \"Blocked Merchant\"",
+        "program = \"teen\" and mcc in [5813, 5921]",
+        "city = \"Nowhere\" or amount < 0.01",
+        "card in [\"lost-1\", \"lost-2\"]",
+        "mcc not in [5411, 5412] and amount > 900 and country = \"US\"",
+        "currency in [\"USDC\", \"USDT\"] and amount > 100",
+        "not merchant in [\"A\", \"B\"] and (amount == 1 or amount == 2)"
+    };
+
+    /**
+     * 5411 abroad below the amount threshold is approved; 7995 is declined.
+     */
+    @Param({"5411", "7995"})
+    public String merchantCategoryCode;
+
+    @Param({"0", "10"})
+    public int otherRules;
+
+    private RuleExpression compiled;
+    private HandWritten handWritten;
+    private AuthorizationRequest request;
+
+    @Setup
+    public void setUp() {
+        compiled = RuleExpression.compile(CONDITION);
+        handWritten = new HandWritten();
+        request = AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(UUID.randomUUID().toString())
+            .amount(Money.of("120.00", Currency.EUR))
+            .merchantName("Bench Merchant")
+            .merchantCategoryCode(merchantCategoryCode)
+            .merchantCountry("FR")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+
+        for (int i = 0; i < otherRules; i++) {
+            RuleExpression other = RuleExpression.compile(OTHER_RULES[i]);
+            for (int n = 0; n < 100_000; n++) {
+                other.matches(request);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.matches(request);
+    }
+
+    @Benchmark
+    public boolean handWritten() {
+        return handWritten.matches(request);
+    }
+
+    /**
+     * {@link #CONDITION} as a rule class would implement it.
+     */
+    private static final class HandWritten {
+
+        private final long[] threshold = MinorUnits.forEachCurrency(new BigDecimal("500"));
+
+        boolean matches(AuthorizationRequest request) {
+            int code = MccSet.code(request.getMerchantCategoryCode());
+            if (code == 7995 || code == 6211 || (code >= 3000 && code <= 3350)) {
+                return true;
+            }
+            Money amount = request.getAmount();
+            return amount.toMinorUnits() > threshold[amount.getCurrency().ordinal()]
+                && !"US".equals(request.getMerchantCountry());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.CardEngineApplication;
+import com.cardengine.bank.mock.MockBankAccountAdapter;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots the card engine for a benchmark fork.
+ *
+ * Uses the "test" profile (H2 in-memory database), no web server, and rule
+ * limits high enough that the rules engine never declines benchmark traffic,
+ * so every invocation exercises the full approval path.
+ */
+final class EngineContext {
+
+    private EngineContext() {
+    }
+
+    static ConfigurableApplicationContext start(Class<?>... extraSources) {
+        return start(Map.of(), extraSources);
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides, Class<?>... extraSources) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("card-engine.rules.transaction-limit-default", "1000000000.00");
+        properties.put("card-engine.rules.daily-limit-default", "1000000000000.00");
+        properties.put("card-engine.rules.velocity-max-per-minute", Integer.MAX_VALUE);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.cardengine", "WARN");
+        properties.putAll(overrides);
+
+        Class<?>[] sources = new Class<?>[extraSources.length + 1];
+        sources[0] = CardEngineApplication.class;
+        System.arraycopy(extraSources, 0, sources, 1, extraSources.length);
+
+        return new SpringApplicationBuilder(sources)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .properties(properties)
+            .run();
+    }
+
+    /**
+     * Registers the in-memory bank core in place of the Fineract adapter.
+     * Not a @Configuration class so component scanning does not pick it up
+     * for benchmarks that do not ask for it.
+     */
+    static class MockBankConfiguration {
+
+        @Bean
+        @Primary
+        MockBankAccountAdapter mockBankAccountAdapter() {
+            return new MockBankAccountAdapter();
+        }
+    }
+}
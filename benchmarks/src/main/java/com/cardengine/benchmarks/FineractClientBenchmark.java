@@ -0,0 +1,132 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.providers.fineract.FineractClient;
+import com.cardengine.providers.fineract.FineractDTOs;
+import com.cardengine.providers.fineract.FineractTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@link FineractClient} balance inquiries under concurrent load against a
+ * local stub of the Fineract API, with a configurable server latency.
+ *
+ * {@code unpooled} is the client's previous transport (a bare
+ * {@code RestTemplate}) for comparison. {@code asyncFanOut} issues
+ * {@code FAN_OUT} async inquiries per operation and waits for all of them.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class FineractClientBenchmark {
+
+    private static final int FAN_OUT = 8;
+    private static final byte[] BALANCE = ("{\"savingsId\":100,\"accountBalance\":1000.00,"
+        + "\"availableBalance\":900.00,\"currency\":\"USD\"}").getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class StubFineract {
+
+        /**
+         * Simulated Fineract latency per call, in milliseconds.
+         */
+        @Param({"0", "2"})
+        public long serverLatencyMillis;
+
+        HttpServer server;
+        ExecutorService serverExecutor;
+        FineractTransport transport;
+        FineractClient client;
+        RestTemplate unpooled;
+        String balanceUrl;
+        HttpEntity<Void> unpooledRequest;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            // Without TCP_NODELAY the JDK server's split header/body writes stall on delayed ACKs
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+            serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+            server.setExecutor(serverExecutor);
+            server.createContext("/api/savingsaccounts/", this::respond);
+            server.start();
+
+            String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+            transport = new FineractTransport(64, 64, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(1), Duration.ofSeconds(5));
+            client = new FineractClient(transport, baseUrl, "default", "mifos", "password");
+
+            unpooled = new RestTemplate();
+            balanceUrl = baseUrl + "/savingsaccounts/100";
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBasicAuth("mifos", "password");
+            headers.set("Fineract-Platform-TenantId", "default");
+            unpooledRequest = new HttpEntity<>(headers);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            transport.shutdown();
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+
+        private void respond(HttpExchange exchange) throws IOException {
+            exchange.getRequestBody().readAllBytes();
+            if (serverLatencyMillis > 0) {
+                try {
+                    Thread.sleep(serverLatencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BALANCE.length);
+            exchange.getResponseBody().write(BALANCE);
+            exchange.close();
+        }
+    }
+
+    @Benchmark
+    public FineractDTOs.AccountBalance pooled(StubFineract fineract) {
+        return fineract.client.getAccountBalance(100L);
+    }
+
+    @Benchmark
+    public FineractDTOs.AccountBalance unpooled(StubFineract fineract) {
+        return fineract.unpooled.exchange(fineract.balanceUrl, HttpMethod.GET,
+            fineract.unpooledRequest, FineractDTOs.AccountBalance.class).getBody();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public List<FineractDTOs.AccountBalance> asyncFanOut(StubFineract fineract) {
+        List<CompletableFuture<FineractDTOs.AccountBalance>> futures = IntStream.range(0, FAN_OUT)
+            .mapToObj(i -> fineract.client.getAccountBalanceAsync(100L))
+            .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+}
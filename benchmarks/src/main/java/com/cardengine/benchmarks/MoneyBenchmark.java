@@ -0,0 +1,75 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Money} arithmetic as used on the authorization path: parsing request
+ * amounts, available-balance subtraction and limit comparisons, next to the
+ * same operations on minor units. Run with {@code -prof gc} to compare
+ * allocation per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private Money balance;
+    private Money amount;
+    private long balanceMinorUnits;
+    private long amountMinorUnits;
+
+    @Setup
+    public void setUp() {
+        balance = Money.of("1000.00", Currency.USD);
+        amount = Money.of("12.34", Currency.USD);
+        balanceMinorUnits = balance.toMinorUnits();
+        amountMinorUnits = amount.toMinorUnits();
+    }
+
+    @Benchmark
+    public Money parse() {
+        return Money.of("12.34", Currency.USD);
+    }
+
+    @Benchmark
+    public Money add() {
+        return balance.add(amount);
+    }
+
+    @Benchmark
+    public Money subtract() {
+        return balance.subtract(amount);
+    }
+
+    @Benchmark
+    public boolean isLessThan() {
+        return balance.isLessThan(amount);
+    }
+
+    @Benchmark
+    public long toMinorUnits() {
+        return amount.toMinorUnits();
+    }
+
+    @Benchmark
+    public long addMinorUnits() {
+        return balanceMinorUnits + amountMinorUnits;
+    }
+
+    @Benchmark
+    public long subtractMinorUnits() {
+        return balanceMinorUnits - amountMinorUnits;
+    }
+
+    @Benchmark
+    public boolean isLessThanMinorUnits() {
+        return balanceMinorUnits < amountMinorUnits;
+    }
+}
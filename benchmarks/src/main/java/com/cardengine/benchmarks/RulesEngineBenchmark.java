@@ -0,0 +1,62 @@
+package com.cardengine.benchmarks;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.rules.RuleResult;
+import com.cardengine.rules.RulesEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RulesEngine#evaluateRules} with the production rule set wired by
+ * Spring. The approved MCC runs every rule; the blocked MCC shows the cost of
+ * an early decline.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RulesEngineBenchmark {
+
+    /**
+     * 5411 (grocery) is approved; 7995 (gambling) is blocked by MCCBlockingRule.
+     */
+    @Param({"5411", "7995"})
+    public String merchantCategoryCode;
+
+    private ConfigurableApplicationContext context;
+    private RulesEngine rulesEngine;
+    private AuthorizationRequest request;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = EngineContext.start();
+        rulesEngine = context.getBean(RulesEngine.class);
+        request = AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(UUID.randomUUID().toString())
+            .amount(Money.of("12.34", Currency.USD))
+            .merchantName("Bench Merchant")
+            .merchantCategoryCode(merchantCategoryCode)
+            .merchantCountry("US")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public RuleResult evaluateRules() {
+        return rulesEngine.evaluateRules(request);
+    }
+}
@@ -0,0 +1,15 @@
+-- Backfill accounts.version for databases where ddl-auto added it as a
+-- nullable column. Hibernate does not lock-check rows whose version is NULL,
+-- so concurrent writes to those accounts could overwrite each other.
+--
+-- ddl-auto: update does not alter existing columns, so run this once; it is
+-- safe to run again. New databases get NOT NULL DEFAULT 0 from the mapping.
+
+BEGIN;
+
+UPDATE accounts SET version = 0 WHERE version IS NULL;
+
+ALTER TABLE accounts ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE accounts ALTER COLUMN version SET NOT NULL;
+
+COMMIT;
@@ -0,0 +1,29 @@
+-- Backfill authorizations.account_bucket for rows written before the column
+-- existed. Without a bucket they all fall into expiry shard 0, so one node
+-- sweeps every legacy authorization.
+--
+-- The bucket is Authorization.accountBucket(): Java's String.hashCode() of
+-- the account ID, floor-modulo 1024. As 1024 divides 2^32, that equals the
+-- hash computed modulo 1024 throughout (account IDs are ASCII).
+--
+-- The application fills in missing buckets on its first expiry sweep; run
+-- this once beforehand on large tables instead. It is safe to run again.
+
+CREATE OR REPLACE FUNCTION pg_temp.account_bucket(account_id text) RETURNS integer AS $$
+DECLARE
+    bucket integer := 0;
+BEGIN
+    FOR i IN 1..length(account_id) LOOP
+        bucket := (bucket * 31 + ascii(substr(account_id, i, 1))) % 1024;
+    END LOOP;
+    RETURN bucket;
+END
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+BEGIN;
+
+UPDATE authorizations
+SET account_bucket = pg_temp.account_bucket(account_id)
+WHERE account_bucket IS NULL AND account_id IS NOT NULL;
+
+COMMIT;
@@ -0,0 +1,15 @@
+-- Allow the in-flight Fineract hold statuses (REVERSING, DEBITING,
+-- RELEASING) on databases created before them. Hibernate adds a check
+-- constraint listing the enum's values when it creates the table, and
+-- ddl-auto: update does not widen it, so recording a claim would fail.
+--
+-- Run this once before deploying; it is safe to run again.
+
+BEGIN;
+
+ALTER TABLE fineract_auth_holds DROP CONSTRAINT IF EXISTS fineract_auth_holds_status_check;
+
+ALTER TABLE fineract_auth_holds ADD CONSTRAINT fineract_auth_holds_status_check
+    CHECK (status IN ('ACTIVE', 'REVERSING', 'REVERSED', 'DEBITING', 'COMMITTED', 'RELEASING', 'RELEASED'));
+
+COMMIT;
@@ -0,0 +1,21 @@
+-- Backfill the version column of the hold tables for databases where
+-- ddl-auto added it as a nullable column. Hibernate does not lock-check rows
+-- whose version is NULL, and Spring Data treats an entity with an assigned
+-- ID and a NULL version as new, so saving one of these rows would fail.
+--
+-- ddl-auto: update does not alter existing columns, so run this once; it is
+-- safe to run again. New databases get NOT NULL DEFAULT 0 from the mapping.
+
+BEGIN;
+
+UPDATE stand_in_holds SET version = 0 WHERE version IS NULL;
+
+ALTER TABLE stand_in_holds ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE stand_in_holds ALTER COLUMN version SET NOT NULL;
+
+UPDATE fineract_auth_holds SET version = 0 WHERE version IS NULL;
+
+ALTER TABLE fineract_auth_holds ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE fineract_auth_holds ALTER COLUMN version SET NOT NULL;
+
+COMMIT;
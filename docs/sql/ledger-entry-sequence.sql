@@ -0,0 +1,26 @@
+-- Add entry_sequence to a ledger_entries table already partitioned by
+-- docs/sql/partition-tables.sql. ddl-auto: update adds it as an identity
+-- column, which partitioned tables do not support before PostgreSQL 17, so
+-- it is added here with a sequence default. Unpartitioned tables need
+-- nothing: the identity column numbers existing rows when it is added.
+--
+-- Existing rows are numbered in creation order. Run once, before starting
+-- instances that poll by entry_sequence.
+
+BEGIN;
+
+CREATE SEQUENCE ledger_entries_entry_sequence_seq;
+ALTER TABLE ledger_entries ADD COLUMN entry_sequence bigint;
+ALTER SEQUENCE ledger_entries_entry_sequence_seq OWNED BY ledger_entries.entry_sequence;
+
+UPDATE ledger_entries e SET entry_sequence = numbered.n
+FROM (SELECT entry_id, created_at, row_number() OVER (ORDER BY created_at, entry_id) AS n
+      FROM ledger_entries) numbered
+WHERE e.entry_id = numbered.entry_id AND e.created_at = numbered.created_at;
+
+SELECT setval('ledger_entries_entry_sequence_seq', coalesce(max(entry_sequence), 0) + 1, false) FROM ledger_entries;
+ALTER TABLE ledger_entries ALTER COLUMN entry_sequence SET DEFAULT nextval('ledger_entries_entry_sequence_seq');
+
+CREATE INDEX idx_ledger_entry_sequence ON ledger_entries (entry_sequence);
+
+COMMIT;
@@ -0,0 +1,104 @@
+-- Convert ledger_entries and authorizations to tables range-partitioned by
+-- month on created_at, for PartitionMaintenance (card-engine.partitioning).
+--
+-- Requires PostgreSQL 14 or later. Run once with the application stopped;
+-- existing rows are copied into monthly partitions.
+--
+-- A unique constraint on a partitioned table must include the partition key,
+-- so primary keys become (id, created_at). Idempotency keys are instead
+-- enforced by idempotency_keys, an unpartitioned table with one row per key:
+-- a trigger inserts into it in the same transaction as each row, so a
+-- duplicate key fails the insert with a unique violation, whatever month
+-- the first row is in. Its rows outlive archived partitions, so a key stays
+-- taken after its row has moved to the cold archive.
+
+BEGIN;
+
+UPDATE authorizations SET created_at = coalesce(updated_at, now()) WHERE created_at IS NULL;
+
+DO $$
+DECLARE
+    spec   text[];
+    tbl    text;
+    id_col text;
+    first  date;
+    month  date;
+BEGIN
+    FOREACH spec SLICE 1 IN ARRAY ARRAY[
+        ARRAY['ledger_entries', 'entry_id'],
+        ARRAY['authorizations', 'authorization_id']]
+    LOOP
+        tbl := spec[1];
+        id_col := spec[2];
+
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, tbl || '_unpartitioned');
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (created_at)',
+            tbl, tbl || '_unpartitioned');
+        EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (%I, created_at)', tbl, id_col);
+
+        EXECUTE format('SELECT date_trunc(''month'', coalesce(min(created_at), now()) AT TIME ZONE ''UTC'')::date FROM %I',
+            tbl || '_unpartitioned') INTO first;
+        month := first;
+        WHILE month <= (date_trunc('month', now() AT TIME ZONE 'UTC') + interval '3 months')::date LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                tbl || '_p' || to_char(month, 'YYYY_MM'), tbl,
+                month::text || ' 00:00:00+00', (month + interval '1 month')::date::text || ' 00:00:00+00');
+            month := (month + interval '1 month')::date;
+        END LOOP;
+
+        EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, tbl || '_unpartitioned');
+        EXECUTE format('DROP TABLE %I', tbl || '_unpartitioned');
+    END LOOP;
+END $$;
+
+-- entry_sequence was an identity column of the unpartitioned table; identity
+-- columns on partitioned tables need PostgreSQL 17, so use a sequence default
+CREATE SEQUENCE ledger_entries_entry_sequence_seq OWNED BY ledger_entries.entry_sequence;
+SELECT setval('ledger_entries_entry_sequence_seq', coalesce(max(entry_sequence), 0) + 1, false) FROM ledger_entries;
+ALTER TABLE ledger_entries ALTER COLUMN entry_sequence SET DEFAULT nextval('ledger_entries_entry_sequence_seq');
+
+-- Same index names as the entity mappings, so schema updates leave them alone
+CREATE INDEX idx_ledger_transaction_id ON ledger_entries (transaction_id);
+CREATE INDEX idx_ledger_authorization_id ON ledger_entries (authorization_id);
+CREATE INDEX idx_ledger_account_created_at ON ledger_entries (account_id, created_at, entry_id);
+CREATE INDEX idx_ledger_card_created_at ON ledger_entries (card_id, created_at, entry_id);
+CREATE INDEX idx_ledger_created_at ON ledger_entries (created_at);
+CREATE INDEX idx_ledger_idempotency_key ON ledger_entries (idempotency_key);
+CREATE INDEX idx_ledger_entry_sequence ON ledger_entries (entry_sequence);
+
+CREATE INDEX idx_auth_card_id ON authorizations (card_id);
+CREATE INDEX idx_auth_account_id ON authorizations (account_id);
+CREATE INDEX idx_auth_created_at ON authorizations (created_at);
+CREATE INDEX idx_auth_status_created_at ON authorizations (status, created_at);
+CREATE INDEX idx_auth_idempotency_key ON authorizations (idempotency_key);
+
+CREATE TABLE idempotency_keys (
+    table_name      text        NOT NULL,
+    idempotency_key text        NOT NULL,
+    created_at      timestamptz NOT NULL,
+    PRIMARY KEY (table_name, idempotency_key)
+);
+
+INSERT INTO idempotency_keys (table_name, idempotency_key, created_at)
+SELECT 'ledger_entries', idempotency_key, created_at FROM ledger_entries WHERE idempotency_key IS NOT NULL;
+INSERT INTO idempotency_keys (table_name, idempotency_key, created_at)
+SELECT 'authorizations', idempotency_key, created_at FROM authorizations WHERE idempotency_key IS NOT NULL;
+
+CREATE FUNCTION claim_idempotency_key() RETURNS trigger AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        -- Raises unique_violation (23505) for a key already taken
+        INSERT INTO idempotency_keys (table_name, idempotency_key, created_at)
+        VALUES (TG_ARGV[0], NEW.idempotency_key, NEW.created_at);
+    END IF;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
+
+-- Row triggers on the parent apply to every partition, present and future.
+-- The parent's name is passed in: TG_TABLE_NAME would be the partition's.
+CREATE TRIGGER ledger_entries_idempotency_key BEFORE INSERT ON ledger_entries
+    FOR EACH ROW EXECUTE FUNCTION claim_idempotency_key('ledger_entries');
+CREATE TRIGGER authorizations_idempotency_key BEFORE INSERT ON authorizations
+    FOR EACH ROW EXECUTE FUNCTION claim_idempotency_key('authorizations');
+
+COMMIT;
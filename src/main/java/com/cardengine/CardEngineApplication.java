@@ -2,6 +2,7 @@ package com.cardengine;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Card Engine.
@@ -11,6 +12,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * compliance and issuing to external providers.
  */
 @SpringBootApplication
+@EnableScheduling
 public class CardEngineApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,176 @@
+package com.cardengine.accounts;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer execution lanes for account balance mutations.
+ *
+ * When enabled, every reserve/commit/release/deposit for an account is run on
+ * the lane its account ID hashes to. Each lane is a single platform thread
+ * draining a FIFO mailbox, so mutations of one account are applied one at a
+ * time in arrival order without contending on the account row, while
+ * different accounts proceed in parallel across lanes. Lane work is JDBC in a
+ * transaction, which would pin a virtual thread to its carrier.
+ *
+ * Work is run inline (on the calling thread) when lanes are disabled, when
+ * the caller already owns a transaction (the work must join it), when the
+ * caller is itself running on a lane, or when the account is not known.
+ *
+ * The account is never looked up just to pick a lane. Callers pass the
+ * account they already know, or the one this node last saw for the card or
+ * authorization (see {@link #rememberCard} and {@link #rememberAuthorization},
+ * called by the work itself once it has loaded them). These routes are a
+ * bounded LRU of card-engine.accounts.lanes.routes entries each; a stale route
+ * only sends the work to the wrong lane, where the version check below
+ * still catches a conflicting write.
+ *
+ * BaseAccount carries a @Version column, so a conflicting write that slips
+ * past the lanes (e.g. another instance) fails with an optimistic locking
+ * error instead of silently losing a reservation. Inline work that does not
+ * join an outer transaction is retried a bounded number of times on such
+ * conflicts.
+ */
+@Component
+@Slf4j
+public class AccountLaneExecutor {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final ThreadLocal<Boolean> ON_LANE = ThreadLocal.withInitial(() -> false);
+
+    private final boolean enabled;
+    private final ExecutorService[] lanes;
+    private final Map<String, String> cardAccounts;
+    private final Map<String, String> authorizationAccounts;
+
+    public AccountLaneExecutor(
+            @Value("${card-engine.accounts.lanes.enabled:false}") boolean enabled,
+            @Value("${card-engine.accounts.lanes.count:64}") int laneCount,
+            @Value("${card-engine.accounts.lanes.routes:100000}") int routes) {
+
+        this.enabled = enabled;
+        this.lanes = new ExecutorService[enabled ? laneCount : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("account-lane-" + i).daemon().factory());
+        }
+        this.cardAccounts = routes(enabled ? routes : 0);
+        this.authorizationAccounts = routes(enabled ? routes : 0);
+
+        log.info("Account lanes {}", enabled ? "enabled with " + laneCount + " lanes" : "disabled");
+    }
+
+    /**
+     * Run a balance mutation for an account.
+     *
+     * @param accountId the account the work mutates, or null if the caller
+     *                  does not know it (the work then runs inline)
+     * @param work      the mutation, including its own transaction boundary
+     * @return the result of the work
+     */
+    public <T> T execute(String accountId, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || ON_LANE.get()) {
+            return work.get();
+        }
+        if (!enabled || accountId == null) {
+            return withRetry(work);
+        }
+
+        ExecutorService lane = laneFor(accountId);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                ON_LANE.set(true);
+                try {
+                    return withRetry(work);
+                } finally {
+                    ON_LANE.set(false);
+                }
+            }, lane).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The account this node last saw a card's authorizations reserve from, or null.
+     */
+    public String accountOfCard(String cardId) {
+        return enabled ? cardAccounts.get(cardId) : null;
+    }
+
+    /**
+     * The account of an authorization this node has handled, or null.
+     */
+    public String accountOfAuthorization(String authorizationId) {
+        return enabled ? authorizationAccounts.get(authorizationId) : null;
+    }
+
+    public void rememberCard(String cardId, String accountId) {
+        if (enabled) {
+            cardAccounts.put(cardId, accountId);
+        }
+    }
+
+    public void rememberAuthorization(String authorizationId, String accountId) {
+        if (enabled) {
+            authorizationAccounts.put(authorizationId, accountId);
+        }
+    }
+
+    private static Map<String, String> routes(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private ExecutorService laneFor(String accountId) {
+        return lanes[Math.floorMod(accountId.hashCode(), lanes.length)];
+    }
+
+    private <T> T withRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Concurrent account update, retrying (attempt {})", attempt);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
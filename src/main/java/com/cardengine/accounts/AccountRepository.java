@@ -1,8 +1,10 @@
 package com.cardengine.accounts;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +17,9 @@ public interface AccountRepository extends JpaRepository<BaseAccount, String> {
     Optional<BaseAccount> findByAccountId(String accountId);
 
     List<BaseAccount> findByOwnerId(String ownerId);
+
+    List<BaseAccount> findByAccountIdIn(Collection<String> accountIds);
+
+    @Query("select a.accountId from BaseAccount a")
+    List<String> findAllAccountIds();
 }
@@ -0,0 +1,50 @@
+package com.cardengine.accounts;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Funds reserved on an account for one open authorization.
+ *
+ * Rows are loaded individually on demand (see {@link ReserveRows}); the
+ * account's running total lives in accounts.reserved_total.
+ */
+@Entity
+@Table(name = "account_reserves", indexes = {
+    @Index(name = "idx_reserve_account_id", columnList = "account_id")
+})
+@Data
+@NoArgsConstructor
+public class AccountReserve {
+
+    @Id
+    @Column(name = "authorization_id")
+    private String authorizationId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BaseAccount account;
+
+    @Column(name = "reserved_amount", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public AccountReserve(BaseAccount account, String authorizationId, BigDecimal amount) {
+        this.account = account;
+        this.authorizationId = authorizationId;
+        this.amount = amount;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,47 @@
+package com.cardengine.accounts;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives loaded and newly persisted (at persist, before the insert) accounts repository-backed access to their
+ * reserve rows, so a reserve, commit or release reads or writes only the row
+ * of its own authorization.
+ *
+ * Instantiated by Hibernate through Spring; the repository is resolved on
+ * first use because it depends on the entity manager factory being built.
+ */
+@Component
+public class AccountReserveListener {
+
+    private final ObjectProvider<AccountReserveRepository> reserveRepository;
+
+    public AccountReserveListener(ObjectProvider<AccountReserveRepository> reserveRepository) {
+        this.reserveRepository = reserveRepository;
+    }
+
+    @PostLoad
+    @PrePersist
+    void attach(BaseAccount account) {
+        account.attachReserveRows(new ReserveRows() {
+            @Override
+            public AccountReserve find(String authorizationId) {
+                return reserveRepository.getObject().findById(authorizationId)
+                    .filter(reserve -> reserve.getAccount().getAccountId().equals(account.getAccountId()))
+                    .orElse(null);
+            }
+
+            @Override
+            public void add(AccountReserve reserve) {
+                reserveRepository.getObject().save(reserve);
+            }
+
+            @Override
+            public void remove(AccountReserve reserve) {
+                reserveRepository.getObject().delete(reserve);
+            }
+        });
+    }
+}
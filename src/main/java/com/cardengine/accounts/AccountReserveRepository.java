@@ -0,0 +1,38 @@
+package com.cardengine.accounts;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Repository for individual account reserve rows.
+ */
+@Repository
+public interface AccountReserveRepository extends JpaRepository<AccountReserve, String> {
+
+    @Query("select coalesce(sum(r.amount), 0) from AccountReserve r where r.account.accountId = :accountId")
+    BigDecimal sumByAccountId(String accountId);
+
+    /**
+     * Accounts whose persisted reserved_total differs from the sum of their reserve rows.
+     */
+    @Query("""
+        select a.accountId as accountId, a.reservedTotal as reservedTotal,
+               coalesce(sum(r.amount), 0) as reserveSum
+        from BaseAccount a left join AccountReserve r on r.account = a
+        group by a.accountId, a.reservedTotal
+        having a.reservedTotal is null or a.reservedTotal <> coalesce(sum(r.amount), 0)
+        """)
+    List<ReservedTotalMismatch> findReservedTotalMismatches();
+
+    interface ReservedTotalMismatch {
+        String getAccountId();
+
+        BigDecimal getReservedTotal();
+
+        BigDecimal getReserveSum();
+    }
+}
@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -19,6 +20,8 @@ import java.util.List;
 public class AccountService {
 
     private final AccountRepository accountRepository;
+    private final AccountLaneExecutor accountLanes;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     public InternalLedgerAccount createInternalLedgerAccount(String ownerId, Money initialBalance) {
@@ -58,12 +61,14 @@ public class AccountService {
         return accountRepository.findByOwnerId(ownerId);
     }
 
-    @Transactional
     public void deposit(String accountId, Money amount) {
-        BaseAccount account = accountRepository.findByAccountId(accountId)
-            .orElseThrow(() -> new AccountNotFoundException(accountId));
-        account.deposit(amount);
-        accountRepository.save(account);
-        log.info("Deposited {} {} to account {}", amount.getAmount(), amount.getCurrency(), accountId);
+        accountLanes.execute(accountId, () -> transactionTemplate.execute(status -> {
+            BaseAccount account = accountRepository.findByAccountId(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+            account.deposit(amount);
+            accountRepository.save(account);
+            log.info("Deposited {} {} to account {}", amount.getAmount(), amount.getCurrency(), accountId);
+            return null;
+        }));
     }
 }
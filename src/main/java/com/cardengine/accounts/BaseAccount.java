@@ -1,11 +1,19 @@
 package com.cardengine.accounts;
 
 import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
 import com.cardengine.common.Money;
 import com.cardengine.common.exception.InsufficientFundsException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -16,8 +24,20 @@ import java.util.UUID;
 /**
  * Base entity for all account implementations.
  * Provides common fields and reserve tracking logic.
+ *
+ * The sum of open reserves is persisted in reserved_total and maintained on
+ * every reserve/commit/release, so balance checks never need the reserve
+ * rows. Individual reserves are not a mapped collection: reserve, commit and
+ * release each read or write the single row of their authorization through
+ * {@link ReserveRows}, instead of loading every open hold. Accounts that were
+ * never persisted (tests, benchmarks) keep their rows in memory and cannot
+ * be persisted once they hold any.
+ *
+ * Availability checks run in minor units; the reserved total is converted
+ * once per value of the persisted column and kept in step with it.
  */
 @Entity
+@EntityListeners(AccountReserveListener.class)
 @Table(name = "accounts")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "account_type", discriminatorType = DiscriminatorType.STRING)
@@ -28,6 +48,17 @@ public abstract class BaseAccount implements Account {
     @Id
     private String accountId;
 
+    /**
+     * Optimistic lock. NOT NULL DEFAULT 0 so rows created before the column
+     * existed start at 0; databases where it was added as nullable need
+     * docs/sql/account-version-backfill.sql. Kept a wrapper so that a null
+     * version still marks a new entity for Spring Data (persist, not merge).
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "account_type", insertable = false, updatable = false)
     private AccountType accountType;
@@ -41,11 +72,32 @@ public abstract class BaseAccount implements Account {
     })
     private Money balance;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "account_reserves", joinColumns = @JoinColumn(name = "account_id"))
-    @MapKeyColumn(name = "authorization_id")
-    @Column(name = "reserved_amount")
-    private Map<String, BigDecimal> reserves = new HashMap<>();
+    @Column(name = "reserved_total")
+    private BigDecimal reservedTotal = BigDecimal.ZERO;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient long reservedMinorUnits;
+
+    /**
+     * The reservedTotal instance reservedMinorUnits was derived from. Hibernate
+     * assigns a new instance whenever it hydrates the field (load, refresh,
+     * merge), so a mismatch means the cached value is stale.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient BigDecimal reservedMinorUnitsOf;
+
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ReserveRows reserves = new DetachedReserveRows();
 
     @Column(name = "created_at")
     private Instant createdAt;
@@ -80,65 +132,120 @@ public abstract class BaseAccount implements Account {
 
     @Override
     public Money getReservedBalance() {
-        BigDecimal totalReserved = reserves.values().stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return Money.of(totalReserved, balance.getCurrency());
+        return Money.of(reservedTotal, balance.getCurrency());
     }
 
     @Override
     public void reserve(Money amount, String authorizationId) {
-        if (reserves.containsKey(authorizationId)) {
+        checkCurrency(amount);
+        if (reserves.find(authorizationId) != null) {
             throw new IllegalStateException("Authorization already has reserved funds: " + authorizationId);
         }
 
-        Money available = getBalance();
-        if (available.isLessThan(amount)) {
-            throw new InsufficientFundsException(accountId, amount, available);
+        long requested = amount.toMinorUnits();
+        long reserved = reservedMinorUnits();
+        if (balance.toMinorUnits() - reserved < requested) {
+            throw new InsufficientFundsException(accountId, amount, getBalance());
         }
 
-        reserves.put(authorizationId, amount.getAmount());
+        reserves.add(new AccountReserve(this, authorizationId, amount.getAmount()));
+        updateReservedTotal(reservedTotal.add(amount.getAmount()), reserved + requested);
         this.updatedAt = Instant.now();
     }
 
     @Override
     public void commit(Money amount, String authorizationId) {
-        BigDecimal reserved = reserves.get(authorizationId);
-        if (reserved == null) {
+        checkCurrency(amount);
+        AccountReserve reserve = reserves.find(authorizationId);
+        if (reserve == null) {
             throw new IllegalStateException("No reserved funds for authorization: " + authorizationId);
         }
 
-        Money reservedMoney = Money.of(reserved, balance.getCurrency());
-        if (amount.isGreaterThan(reservedMoney)) {
+        long reservedAmount = MinorUnits.fromDecimal(reserve.getAmount(), getCurrency());
+        if (amount.toMinorUnits() > reservedAmount) {
             throw new IllegalArgumentException("Cannot commit more than reserved amount");
         }
 
         // Deduct from balance and remove from reserves
         balance = balance.subtract(amount);
-        reserves.remove(authorizationId);
-        this.updatedAt = Instant.now();
+        removeReserve(reserve, reservedAmount);
     }
 
     @Override
     public void release(Money amount, String authorizationId) {
-        BigDecimal reserved = reserves.get(authorizationId);
-        if (reserved == null) {
+        AccountReserve reserve = reserves.find(authorizationId);
+        if (reserve == null) {
             throw new IllegalStateException("No reserved funds for authorization: " + authorizationId);
         }
 
-        Money reservedMoney = Money.of(reserved, balance.getCurrency());
-        if (!amount.equals(reservedMoney)) {
+        long reservedAmount = MinorUnits.fromDecimal(reserve.getAmount(), getCurrency());
+        if (amount.getCurrency() != getCurrency() || amount.toMinorUnits() != reservedAmount) {
             throw new IllegalArgumentException("Release amount must match reserved amount");
         }
 
-        reserves.remove(authorizationId);
-        this.updatedAt = Instant.now();
+        removeReserve(reserve, reservedAmount);
     }
 
     public void deposit(Money amount) {
-        if (!amount.getCurrency().equals(this.balance.getCurrency())) {
-            throw new IllegalArgumentException("Currency mismatch");
-        }
+        checkCurrency(amount);
         this.balance = this.balance.add(amount);
         this.updatedAt = Instant.now();
     }
+
+    private void updateReservedTotal(BigDecimal reservedTotal, long reservedMinorUnits) {
+        this.reservedTotal = reservedTotal;
+        this.reservedMinorUnits = reservedMinorUnits;
+        this.reservedMinorUnitsOf = reservedTotal;
+    }
+
+    void attachReserveRows(ReserveRows reserveRows) {
+        if (reserves instanceof DetachedReserveRows detached && !detached.rows.isEmpty()) {
+            throw new IllegalStateException("Account " + accountId + " has reserves made before it was persisted");
+        }
+        this.reserves = reserveRows;
+    }
+
+    private long reservedMinorUnits() {
+        BigDecimal total = reservedTotal;
+        if (total != reservedMinorUnitsOf) {
+            updateReservedTotal(total, MinorUnits.fromDecimal(total, getCurrency()));
+        }
+        return reservedMinorUnits;
+    }
+
+    private void removeReserve(AccountReserve reserve, long reservedAmount) {
+        long reserved = reservedMinorUnits();
+        reserves.remove(reserve);
+        updateReservedTotal(reservedTotal.subtract(reserve.getAmount()), reserved - reservedAmount);
+        this.updatedAt = Instant.now();
+    }
+
+    private void checkCurrency(Money amount) {
+        if (amount.getCurrency() != getCurrency()) {
+            throw new IllegalArgumentException("Currency mismatch");
+        }
+    }
+
+    /**
+     * Reserve rows of an account that is not managed by JPA.
+     */
+    private static final class DetachedReserveRows implements ReserveRows {
+
+        private final Map<String, AccountReserve> rows = new HashMap<>();
+
+        @Override
+        public AccountReserve find(String authorizationId) {
+            return rows.get(authorizationId);
+        }
+
+        @Override
+        public void add(AccountReserve reserve) {
+            rows.put(reserve.getAuthorizationId(), reserve);
+        }
+
+        @Override
+        public void remove(AccountReserve reserve) {
+            rows.remove(reserve.getAuthorizationId());
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package com.cardengine.accounts;
+
+/**
+ * Access to an account's reserve rows one authorization at a time.
+ *
+ * Managed accounts read and write rows through the repository (see
+ * {@link AccountReserveListener}); accounts that were never persisted keep
+ * them in memory.
+ */
+interface ReserveRows {
+
+    AccountReserve find(String authorizationId);
+
+    void add(AccountReserve reserve);
+
+    void remove(AccountReserve reserve);
+}
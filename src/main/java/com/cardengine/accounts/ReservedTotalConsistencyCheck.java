@@ -0,0 +1,103 @@
+package com.cardengine.accounts;
+
+import com.cardengine.accounts.AccountReserveRepository.ReservedTotalMismatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Verifies that every account's persisted reserved_total equals the sum of
+ * its reserve rows.
+ *
+ * Runs periodically; mismatches are logged and counted in
+ * cardengine.accounts.reserved_total.mismatches, and recomputed from the
+ * reserve rows when repair is enabled. Accounts written before
+ * reserved_total existed (null total) are always initialized at startup.
+ */
+@Component
+@Slf4j
+public class ReservedTotalConsistencyCheck {
+
+    private final AccountRepository accountRepository;
+    private final AccountReserveRepository reserveRepository;
+    private final AccountLaneExecutor accountLanes;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter mismatches;
+    private final boolean repair;
+
+    public ReservedTotalConsistencyCheck(
+            AccountRepository accountRepository,
+            AccountReserveRepository reserveRepository,
+            AccountLaneExecutor accountLanes,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.accounts.reserve-check.repair:false}") boolean repair) {
+
+        this.accountRepository = accountRepository;
+        this.reserveRepository = reserveRepository;
+        this.accountLanes = accountLanes;
+        this.transactionTemplate = transactionTemplate;
+        this.repair = repair;
+        this.mismatches = Counter.builder("cardengine.accounts.reserved_total.mismatches")
+            .description("Accounts whose reserved_total did not match their reserve rows")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void initializeMissingTotals() {
+        for (ReservedTotalMismatch mismatch : reserveRepository.findReservedTotalMismatches()) {
+            if (mismatch.getReservedTotal() == null) {
+                recompute(mismatch.getAccountId());
+            }
+        }
+    }
+
+    /**
+     * Check all accounts.
+     *
+     * @return number of mismatched accounts found
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.accounts.reserve-check.interval:PT1H}",
+        fixedDelayString = "${card-engine.accounts.reserve-check.interval:PT1H}")
+    public int check() {
+        List<ReservedTotalMismatch> found = reserveRepository.findReservedTotalMismatches();
+
+        for (ReservedTotalMismatch mismatch : found) {
+            mismatches.increment();
+            log.error("Reserved total mismatch on account {}: reserved_total={}, sum of reserves={}",
+                mismatch.getAccountId(), mismatch.getReservedTotal(), mismatch.getReserveSum());
+            if (repair) {
+                recompute(mismatch.getAccountId());
+            }
+        }
+
+        if (found.isEmpty()) {
+            log.debug("Reserved totals consistent");
+        }
+        return found.size();
+    }
+
+    private void recompute(String accountId) {
+        accountLanes.execute(accountId, () -> transactionTemplate.execute(status -> {
+            accountRepository.findByAccountId(accountId).ifPresent(account -> {
+                BigDecimal sum = reserveRepository.sumByAccountId(accountId);
+                if (account.getReservedTotal() == null || account.getReservedTotal().compareTo(sum) != 0) {
+                    log.info("Recomputed reserved total for account {}: {} -> {}",
+                        accountId, account.getReservedTotal(), sum);
+                    account.setReservedTotal(sum);
+                    accountRepository.save(account);
+                }
+            });
+            return null;
+        }));
+    }
+}
@@ -8,16 +8,24 @@ import com.cardengine.api.dto.CreateAccountRequest;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.Money;
 import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerPage;
 import com.cardengine.ledger.LedgerService;
+import com.cardengine.ledger.projection.LedgerSummary;
+import com.cardengine.ledger.snapshot.LedgerBalance;
+import com.cardengine.ledger.snapshot.LedgerSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -31,6 +39,8 @@ public class AccountController {
 
     private final AccountService accountService;
     private final LedgerService ledgerService;
+    private final LedgerSnapshotService ledgerSnapshotService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new account")
@@ -101,4 +111,35 @@ public class AccountController {
         List<LedgerEntry> entries = ledgerService.getAccountLedger(accountId);
         return ResponseEntity.ok(entries);
     }
+
+    @GetMapping("/{accountId}/ledger/summary")
+    @Operation(summary = "Get ledger totals for an account")
+    public ResponseEntity<LedgerSummary> getAccountLedgerSummary(@PathVariable String accountId) {
+        return ResponseEntity.ok(ledgerService.getAccountSummary(accountId));
+    }
+
+    @GetMapping("/{accountId}/ledger/balance")
+    @Operation(summary = "Get the balance of an account reconstructed from its ledger, now or at a point in time")
+    public ResponseEntity<LedgerBalance> getAccountLedgerBalance(
+            @PathVariable String accountId,
+            @RequestParam(required = false) Instant at) {
+        Account account = accountService.getAccount(accountId);
+        return ResponseEntity.ok(ledgerSnapshotService.balanceAt(
+            accountId, account.getCurrency(), at != null ? at : Instant.now()));
+    }
+
+    @GetMapping("/{accountId}/ledger/page")
+    @Operation(summary = "Get one page of ledger entries for an account, newest first")
+    public ResponseEntity<LedgerPage> getAccountLedgerPage(
+            @PathVariable String accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(ledgerService.getAccountLedgerPage(accountId, cursor, limit));
+    }
+
+    @GetMapping(value = "/{accountId}/ledger/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all ledger entries for an account as NDJSON, newest first")
+    public ResponseEntity<StreamingResponseBody> streamAccountLedger(@PathVariable String accountId) {
+        return LedgerStreams.ndjson(objectMapper, consumer -> ledgerService.streamAccountLedger(accountId, consumer));
+    }
 }
@@ -4,14 +4,19 @@ import com.cardengine.api.dto.CreateCardRequest;
 import com.cardengine.cards.Card;
 import com.cardengine.cards.CardService;
 import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerPage;
 import com.cardengine.ledger.LedgerService;
+import com.cardengine.ledger.projection.LedgerSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,6 +31,7 @@ public class CardController {
 
     private final CardService cardService;
     private final LedgerService ledgerService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Issue a new card")
@@ -35,7 +41,9 @@ public class CardController {
             request.getLast4(),
             request.getExpirationDate(),
             request.getFundingAccountId(),
-            request.getOwnerId()
+            request.getOwnerId(),
+            request.getCardToken(),
+            request.getProgramId()
         );
         return ResponseEntity.status(HttpStatus.CREATED).body(card);
     }
@@ -81,4 +89,25 @@ public class CardController {
         List<LedgerEntry> entries = ledgerService.getCardLedger(cardId);
         return ResponseEntity.ok(entries);
     }
+
+    @GetMapping("/{cardId}/transactions/summary")
+    @Operation(summary = "Get transaction totals for a card")
+    public ResponseEntity<LedgerSummary> getCardTransactionSummary(@PathVariable String cardId) {
+        return ResponseEntity.ok(ledgerService.getCardSummary(cardId));
+    }
+
+    @GetMapping("/{cardId}/transactions/page")
+    @Operation(summary = "Get one page of transactions for a card, newest first")
+    public ResponseEntity<LedgerPage> getCardTransactionsPage(
+            @PathVariable String cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(ledgerService.getCardLedgerPage(cardId, cursor, limit));
+    }
+
+    @GetMapping(value = "/{cardId}/transactions/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all transactions for a card as NDJSON, newest first")
+    public ResponseEntity<StreamingResponseBody> streamCardTransactions(@PathVariable String cardId) {
+        return LedgerStreams.ndjson(objectMapper, consumer -> ledgerService.streamCardLedger(cardId, consumer));
+    }
 }
@@ -0,0 +1,44 @@
+package com.cardengine.api.controller;
+
+import com.cardengine.ledger.LedgerEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes ledger entries as newline-delimited JSON, one entry per line, as
+ * they are read, so a history of any length is sent in constant memory.
+ */
+final class LedgerStreams {
+
+    private LedgerStreams() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper,
+                                                        ToLongFunction<Consumer<LedgerEntry>> source) {
+        StreamingResponseBody body = out -> {
+            OutputStream buffered = new BufferedOutputStream(out);
+            source.applyAsLong(entry -> {
+                try {
+                    // writeValue(OutputStream) would close the response stream
+                    buffered.write(objectMapper.writeValueAsBytes(entry));
+                    buffered.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            buffered.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+}
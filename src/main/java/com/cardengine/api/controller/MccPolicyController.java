@@ -0,0 +1,49 @@
+package com.cardengine.api.controller;
+
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardProgram;
+import com.cardengine.rules.MccPolicy;
+import com.cardengine.rules.MccPolicyMode;
+import com.cardengine.rules.MccPolicyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST API for merchant category (MCC) policies.
+ */
+@RestController
+@RequestMapping("/api/v1/mcc-policies")
+@RequiredArgsConstructor
+@Tag(name = "MCC Policies", description = "Merchant category allow and block lists")
+public class MccPolicyController {
+
+    private final MccPolicyService mccPolicyService;
+
+    @PutMapping("/{policyId}")
+    @Operation(summary = "Create or replace an MCC policy (codes like 5411,5812-5814)")
+    public ResponseEntity<MccPolicy> savePolicy(
+            @PathVariable String policyId,
+            @RequestParam MccPolicyMode mode,
+            @RequestParam String codes) {
+        return ResponseEntity.ok(mccPolicyService.savePolicy(policyId, mode, codes));
+    }
+
+    @PutMapping("/cards/{cardId}")
+    @Operation(summary = "Assign an MCC policy to a card; omit policyId to use the program's")
+    public ResponseEntity<Card> assignToCard(
+            @PathVariable String cardId,
+            @RequestParam(required = false) String policyId) {
+        return ResponseEntity.ok(mccPolicyService.assignToCard(cardId, policyId));
+    }
+
+    @PutMapping("/programs/{programId}")
+    @Operation(summary = "Assign an MCC policy to a card program; omit policyId to use the default")
+    public ResponseEntity<CardProgram> assignToProgram(
+            @PathVariable String programId,
+            @RequestParam(required = false) String policyId) {
+        return ResponseEntity.ok(mccPolicyService.assignToProgram(programId, policyId));
+    }
+}
@@ -0,0 +1,47 @@
+package com.cardengine.api.controller;
+
+import com.cardengine.rules.RuleDefinition;
+import com.cardengine.rules.RuleDefinitionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST API for declarative rules, e.g.
+ * {@code mcc in [7995, 6211] or (amount > 500 and country != "US")}.
+ */
+@RestController
+@RequestMapping("/api/v1/rule-definitions")
+@RequiredArgsConstructor
+@Tag(name = "Rule Definitions", description = "Decline rules defined at runtime in the rule expression language")
+public class RuleDefinitionController {
+
+    private final RuleDefinitionService ruleDefinitionService;
+
+    @GetMapping
+    @Operation(summary = "List declarative rules")
+    public ResponseEntity<List<RuleDefinition>> getRules() {
+        return ResponseEntity.ok(ruleDefinitionService.getRules());
+    }
+
+    @PutMapping("/{name}")
+    @Operation(summary = "Create or replace a rule declining authorizations that match the expression")
+    public ResponseEntity<RuleDefinition> saveRule(
+            @PathVariable String name,
+            @RequestParam String expression,
+            @RequestParam(required = false) String reason,
+            @RequestParam(defaultValue = "true") boolean enabled) {
+        return ResponseEntity.ok(ruleDefinitionService.saveRule(name, expression, reason, enabled));
+    }
+
+    @DeleteMapping("/{name}")
+    @Operation(summary = "Delete a rule")
+    public ResponseEntity<Void> deleteRule(@PathVariable String name) {
+        ruleDefinitionService.deleteRule(name);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.cardengine.api.controller;
+
+import com.cardengine.rules.RuleLimitOverride;
+import com.cardengine.rules.RuleLimitScope;
+import com.cardengine.rules.RuleLimitService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+/**
+ * REST API for rule limit overrides.
+ *
+ * Omitted limits are inherited: card, then program, then global, then the
+ * configured defaults.
+ */
+@RestController
+@RequestMapping("/api/v1/rule-limits")
+@RequiredArgsConstructor
+@Tag(name = "Rule Limits", description = "Runtime overrides of transaction, daily and velocity limits")
+public class RuleLimitController {
+
+    private final RuleLimitService ruleLimitService;
+
+    @PutMapping("/{scope}")
+    @Operation(summary = "Set limits for a scope (GLOBAL, or PROGRAM/CARD with subjectId)")
+    public ResponseEntity<RuleLimitOverride> setOverride(
+            @PathVariable RuleLimitScope scope,
+            @RequestParam(required = false) String subjectId,
+            @RequestParam(required = false) BigDecimal transactionLimit,
+            @RequestParam(required = false) BigDecimal dailyLimit,
+            @RequestParam(required = false) Integer velocityMaxPerMinute) {
+        return ResponseEntity.ok(ruleLimitService.setOverride(
+            scope, subjectId, transactionLimit, dailyLimit, velocityMaxPerMinute));
+    }
+
+    @DeleteMapping("/{scope}")
+    @Operation(summary = "Remove the limits for a scope")
+    public ResponseEntity<Void> clearOverride(
+            @PathVariable RuleLimitScope scope,
+            @RequestParam(required = false) String subjectId) {
+        ruleLimitService.clearOverride(scope, subjectId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.cardengine.api.controller;
+
+import com.cardengine.rules.BacktestJob;
+import com.cardengine.rules.BacktestRequest;
+import com.cardengine.rules.RuleBacktester;
+import com.cardengine.rules.ShadowRuleEvaluator;
+import com.cardengine.rules.ShadowStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * REST API for rules engine diagnostics.
+ */
+@RestController
+@RequestMapping("/api/v1/rules")
+@RequiredArgsConstructor
+@Tag(name = "Rules", description = "Rules engine diagnostics")
+public class RulesController {
+
+    private final ShadowRuleEvaluator shadowRuleEvaluator;
+    private final RuleBacktester ruleBacktester;
+
+    @GetMapping("/shadow/stats")
+    @Operation(summary = "Agreement between the live and challenger rule sets since startup")
+    public ResponseEntity<ShadowStats> getShadowStats() {
+        return ResponseEntity.ok(shadowRuleEvaluator.getStats());
+    }
+
+    @PostMapping("/backtest")
+    @Operation(summary = "Queue a replay of authorizations created in [from, to) through the current and proposed rules")
+    public ResponseEntity<BacktestJob> backtest(
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(required = false) BigDecimal transactionLimit,
+            @RequestParam(required = false) BigDecimal dailyLimit,
+            @RequestParam(required = false) Integer velocityMaxPerMinute,
+            @RequestParam(defaultValue = "false") boolean shadowRules) {
+        BacktestJob job = ruleBacktester.submit(new BacktestRequest(
+            from, to, transactionLimit, dailyLimit, velocityMaxPerMinute, shadowRules));
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/v1/rules/backtest/" + job.jobId()))
+            .body(job);
+    }
+
+    @GetMapping("/backtest/{jobId}")
+    @Operation(summary = "Status of a backtest job, with its report once completed")
+    public ResponseEntity<BacktestJob> getBacktest(@PathVariable String jobId) {
+        return ResponseEntity.ok(ruleBacktester.job(jobId));
+    }
+}
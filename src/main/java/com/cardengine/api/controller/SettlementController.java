@@ -3,16 +3,22 @@ package com.cardengine.api.controller;
 import com.cardengine.common.Currency;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.Money;
+import com.cardengine.settlement.ClearingFileProcessor;
 import com.cardengine.settlement.ClearingRequest;
 import com.cardengine.settlement.ReversalRequest;
 import com.cardengine.settlement.SettlementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 /**
  * REST API for settlement operations.
@@ -24,6 +30,7 @@ import java.math.BigDecimal;
 public class SettlementController {
 
     private final SettlementService settlementService;
+    private final ClearingFileProcessor clearingFileProcessor;
 
     @PostMapping("/clear/{authorizationId}")
     @Operation(summary = "Clear (settle) an authorized transaction")
@@ -65,4 +72,14 @@ public class SettlementController {
         settlementService.reverseTransaction(request);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping(value = "/clearing-files", consumes = "text/csv", produces = "text/csv")
+    @Operation(summary = "Ingest a clearing file",
+        description = "Streams a CSV clearing file (authorization_id,amount,currency,idempotency_key) "
+            + "and returns a per-record CSV report")
+    public void ingestClearingFile(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        clearingFileProcessor.process(new InputStreamReader(body, StandardCharsets.UTF_8), response.getWriter());
+    }
 }
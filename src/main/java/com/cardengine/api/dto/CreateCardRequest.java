@@ -3,6 +3,7 @@ package com.cardengine.api.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.time.LocalDate;
@@ -28,4 +29,16 @@ public class CreateCardRequest {
 
     @NotBlank(message = "Owner ID is required")
     private String ownerId;
+
+    /**
+     * Processor card token. Optional; generated if not supplied.
+     */
+    @Size(max = 64, message = "Card token must be at most 64 characters")
+    private String cardToken;
+
+    /**
+     * Card program to issue the card under. Optional.
+     */
+    @Size(max = 64, message = "Program ID must be at most 64 characters")
+    private String programId;
 }
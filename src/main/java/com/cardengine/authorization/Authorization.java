@@ -1,28 +1,39 @@
 package com.cardengine.authorization;
 
+import com.cardengine.common.Currency;
 import com.cardengine.common.Money;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Map;
 
 /**
  * Persisted authorization record.
  *
  * Tracks the lifecycle of a card authorization from initial approval
  * through clearing or release.
+ *
+ * Each authorization carries the bucket its account hashes to, so work
+ * spread over nodes by account (the expiry sweep) can select its share in
+ * the database.
  */
 @Entity
 @Table(name = "authorizations", indexes = {
     @Index(name = "idx_auth_card_id", columnList = "card_id"),
     @Index(name = "idx_auth_account_id", columnList = "account_id"),
-    @Index(name = "idx_auth_created_at", columnList = "created_at")
+    @Index(name = "idx_auth_created_at", columnList = "created_at"),
+    @Index(name = "idx_auth_status_created_at", columnList = "status, created_at"),
+    @Index(name = "idx_auth_idempotency_key", columnList = "idempotency_key", unique = true)
 })
 @Data
 @NoArgsConstructor
 public class Authorization {
 
+    public static final int ACCOUNT_BUCKETS = 1024;
+
     @Id
     private String authorizationId;
 
@@ -30,6 +41,9 @@ public class Authorization {
 
     private String accountId;
 
+    @Column(name = "account_bucket")
+    private Integer accountBucket;
+
     @Embedded
     @AttributeOverrides({
         @AttributeOverride(name = "amount", column = @Column(name = "amount")),
@@ -70,6 +84,7 @@ public class Authorization {
         this.authorizationId = authorizationId;
         this.cardId = cardId;
         this.accountId = accountId;
+        this.accountBucket = accountBucket(accountId);
         this.amount = amount;
         this.status = status;
         this.merchantName = merchantName;
@@ -81,6 +96,47 @@ public class Authorization {
         this.updatedAt = Instant.now();
     }
 
+    /**
+     * Rebuild an authorization from a row of an archived authorizations partition.
+     */
+    public static Authorization fromArchive(Map<String, String> row) {
+        Authorization authorization = new Authorization();
+        authorization.authorizationId = row.get("authorization_id");
+        authorization.cardId = row.get("card_id");
+        authorization.accountId = row.get("account_id");
+        authorization.accountBucket = accountBucket(authorization.accountId);
+        authorization.amount = money(row.get("amount"), row.get("currency"));
+        authorization.clearedAmount = money(row.get("cleared_amount"), row.get("cleared_currency"));
+        authorization.status = AuthorizationStatus.valueOf(row.get("status"));
+        authorization.merchantName = row.get("merchant_name");
+        authorization.merchantCategoryCode = row.get("merchant_category_code");
+        authorization.merchantCity = row.get("merchant_city");
+        authorization.merchantCountry = row.get("merchant_country");
+        authorization.declineReason = row.get("decline_reason");
+        authorization.idempotencyKey = row.get("idempotency_key");
+        authorization.createdAt = instant(row.get("created_at"));
+        authorization.updatedAt = instant(row.get("updated_at"));
+        return authorization;
+    }
+
+    /**
+     * Bucket an account's authorizations are kept in, 0 to ACCOUNT_BUCKETS - 1
+     * (null without an account).
+     */
+    public static Integer accountBucket(String accountId) {
+        return accountId != null ? Math.floorMod(accountId.hashCode(), ACCOUNT_BUCKETS) : null;
+    }
+
+    private static Money money(String amount, String currency) {
+        return amount != null && currency != null
+            ? Money.of(new BigDecimal(amount), Currency.valueOf(currency))
+            : null;
+    }
+
+    private static Instant instant(String value) {
+        return value != null ? Instant.parse(value) : null;
+    }
+
     public void decline(String reason) {
         this.status = AuthorizationStatus.DECLINED;
         this.declineReason = reason;
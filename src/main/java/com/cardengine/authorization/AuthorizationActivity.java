@@ -0,0 +1,14 @@
+package com.cardengine.authorization;
+
+import com.cardengine.common.Currency;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The columns of an authorization that per-card activity is built from,
+ * read without loading the entity.
+ */
+public record AuthorizationActivity(String cardId, Instant createdAt, AuthorizationStatus status,
+                                    BigDecimal amount, Currency currency) {
+}
@@ -1,11 +1,17 @@
 package com.cardengine.authorization;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for authorization persistence.
@@ -21,5 +27,45 @@ public interface AuthorizationRepository extends JpaRepository<Authorization, St
 
     List<Authorization> findByCardIdAndCreatedAtAfter(String cardId, Instant after);
 
+    List<Authorization> findByCreatedAtAfter(Instant after);
+
     List<Authorization> findByAccountId(String accountId);
+
+    /**
+     * Stream the activity of authorizations created after a point in time
+     * (used to rebuild the card activity store).
+     * Must be consumed inside a transaction.
+     */
+    @Query("select new com.cardengine.authorization.AuthorizationActivity("
+        + "a.cardId, a.createdAt, a.status, a.amount.amount, a.amount.currency) "
+        + "from Authorization a where a.createdAt > :after")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<AuthorizationActivity> streamActivityCreatedAfter(Instant after);
+
+    List<Authorization> findByAuthorizationIdIn(Collection<String> authorizationIds);
+
+    /**
+     * Owning account of each authorization, without loading the entities
+     * (used to partition clearing files by account).
+     */
+    @Query("select a.authorizationId as authorizationId, a.accountId as accountId "
+        + "from Authorization a where a.authorizationId in :authorizationIds")
+    List<AuthorizationAccount> findAccountIds(Collection<String> authorizationIds);
+
+    long countByCreatedAtAfter(Instant after);
+
+    /**
+     * Stream the idempotency keys of authorizations created after a point in
+     * time (used to rebuild the idempotency filter).
+     * Must be consumed inside a transaction.
+     */
+    @Query("select a.idempotencyKey from Authorization a where a.createdAt > :after")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamIdempotencyKeysCreatedAfter(Instant after);
+
+    interface AuthorizationAccount {
+        String getAuthorizationId();
+
+        String getAccountId();
+    }
 }
@@ -13,7 +13,7 @@ import lombok.NoArgsConstructor;
  * or network (e.g., Visa, Mastercard).
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class AuthorizationRequest {
@@ -28,6 +28,11 @@ public class AuthorizationRequest {
      */
     private String cardId;
 
+    /**
+     * Card program of the card, filled in from the card before the rules run.
+     */
+    private String programId;
+
     /**
      * Transaction amount.
      */
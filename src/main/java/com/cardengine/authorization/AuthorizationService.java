@@ -1,19 +1,27 @@
 package com.cardengine.authorization;
 
 import com.cardengine.accounts.Account;
+import com.cardengine.accounts.AccountLaneExecutor;
 import com.cardengine.accounts.AccountService;
 import com.cardengine.cards.Card;
 import com.cardengine.cards.CardService;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.exception.InsufficientFundsException;
+import com.cardengine.common.idempotency.IdempotencyRegistry;
+import com.cardengine.common.idempotency.IdempotencyScope;
 import com.cardengine.common.exception.TransactionDeclinedException;
 import com.cardengine.ledger.LedgerService;
+import com.cardengine.rules.CardActivityStore;
 import com.cardengine.rules.RuleResult;
 import com.cardengine.rules.RulesEngine;
+import com.cardengine.storage.ColdArchive;
+import com.cardengine.storage.PartitionedTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -26,6 +34,10 @@ import java.util.Optional;
  * 3. Reserve funds from backing account
  * 4. Record authorization in ledger
  * 5. Return approved/declined response
+ *
+ * Steps 1-4 run in one transaction on the funding account's lane
+ * (see {@link AccountLaneExecutor}) once this node has seen the card;
+ * the first authorization of a card runs inline.
  */
 @Service
 @RequiredArgsConstructor
@@ -37,21 +49,36 @@ public class AuthorizationService {
     private final LedgerService ledgerService;
     private final RulesEngine rulesEngine;
     private final AuthorizationRepository authorizationRepository;
+    private final CardActivityStore cardActivityStore;
+    private final AccountLaneExecutor accountLanes;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final ColdArchive coldArchive;
 
-    @Transactional
     public AuthorizationResponse authorize(AuthorizationRequest request) {
         IdempotencyKey.validate(request.getIdempotencyKey());
 
+        try {
+            return accountLanes.execute(
+                accountLanes.accountOfCard(request.getCardId()),
+                () -> transactionTemplate.execute(status -> processAuthorization(request))
+            );
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same idempotency key committed first
+            return authorizationRepository.findByIdempotencyKey(request.getIdempotencyKey())
+                .map(AuthorizationService::toResponse)
+                .orElseThrow(() -> e);
+        }
+    }
+
+    private AuthorizationResponse processAuthorization(AuthorizationRequest request) {
         // Check for duplicate request
-        Optional<Authorization> existing = authorizationRepository
-            .findByIdempotencyKey(request.getIdempotencyKey());
+        Optional<AuthorizationResponse> existing = idempotencyRegistry.find(
+            IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), AuthorizationResponse.class,
+            key -> authorizationRepository.findByIdempotencyKey(key).map(AuthorizationService::toResponse));
         if (existing.isPresent()) {
             log.info("Duplicate authorization request: {}", request.getAuthorizationId());
-            return AuthorizationResponse.builder()
-                .authorizationId(existing.get().getAuthorizationId())
-                .status(existing.get().getStatus())
-                .declineReason(existing.get().getDeclineReason())
-                .build();
+            return existing.get();
         }
 
         log.info("Processing authorization {} for card {} amount {} {}",
@@ -63,7 +90,10 @@ public class AuthorizationService {
             Card card = cardService.getCard(request.getCardId());
             validateCardState(card);
 
+            accountLanes.rememberCard(card.getCardId(), card.getFundingAccountId());
+
             // Step 2: Run rules engine
+            request.setProgramId(card.getProgramId());
             RuleResult ruleResult = rulesEngine.evaluateRules(request);
             if (!ruleResult.isApproved()) {
                 return declineAuthorization(request, card, ruleResult.getReason());
@@ -96,9 +126,13 @@ public class AuthorizationService {
                 request.getIdempotencyKey()
             );
             authorizationRepository.save(authorization);
+            cardActivityStore.recordAuthorization(authorization);
+            accountLanes.rememberAuthorization(authorization.getAuthorizationId(), account.getAccountId());
 
             log.info("Authorization {} APPROVED", request.getAuthorizationId());
-            return AuthorizationResponse.approved(request.getAuthorizationId());
+            AuthorizationResponse response = AuthorizationResponse.approved(request.getAuthorizationId());
+            idempotencyRegistry.record(IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), response);
+            return response;
 
         } catch (InsufficientFundsException e) {
             log.info("Authorization {} DECLINED: {}", request.getAuthorizationId(), e.getMessage());
@@ -137,13 +171,28 @@ public class AuthorizationService {
         );
         authorization.decline(reason);
         authorizationRepository.save(authorization);
+        cardActivityStore.recordAuthorization(authorization);
+
+        AuthorizationResponse response = AuthorizationResponse.declined(request.getAuthorizationId(), reason);
+        idempotencyRegistry.record(IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), response);
+        return response;
+    }
 
-        return AuthorizationResponse.declined(request.getAuthorizationId(), reason);
+    private static AuthorizationResponse toResponse(Authorization authorization) {
+        return AuthorizationResponse.builder()
+            .authorizationId(authorization.getAuthorizationId())
+            .status(authorization.getStatus())
+            .declineReason(authorization.getDeclineReason())
+            .build();
     }
 
     @Transactional(readOnly = true)
     public Authorization getAuthorization(String authorizationId) {
         return authorizationRepository.findByAuthorizationId(authorizationId)
+            .or(() -> coldArchive.find(PartitionedTable.AUTHORIZATIONS, "authorization_id", authorizationId)
+                .stream()
+                .findFirst()
+                .map(Authorization::fromArchive))
             .orElseThrow(() -> new IllegalArgumentException("Authorization not found: " + authorizationId));
     }
 }
@@ -1,17 +1,25 @@
 package com.cardengine.bank;
 
 import com.cardengine.authorization.*;
+import com.cardengine.bank.standin.LatencyBudget;
+import com.cardengine.bank.standin.StandInDecision;
+import com.cardengine.bank.standin.StandInService;
 import com.cardengine.cards.Card;
 import com.cardengine.cards.CardRepository;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.exception.TransactionDeclinedException;
+import com.cardengine.common.idempotency.IdempotencyRegistry;
+import com.cardengine.common.idempotency.IdempotencyScope;
 import com.cardengine.ledger.LedgerService;
+import com.cardengine.rules.CardActivityStore;
 import com.cardengine.rules.RuleResult;
 import com.cardengine.rules.RulesEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -36,6 +44,12 @@ import java.util.Optional;
  * 6. Record authorization locally
  * 7. Return APPROVED or DECLINED
  *
+ * STAND-IN:
+ * With card-engine.bank.stand-in.enabled, step 5 waits for the bank core
+ * only as long as the authorization's latency budget allows. If the core is
+ * too slow, the authorization is decided locally and the hold is queued
+ * (see {@link StandInService}).
+ *
  * IMPORTANT:
  * The bank core is the authoritative system.
  * Local database only tracks authorization status for correlation.
@@ -51,17 +65,43 @@ public class BankAuthorizationService {
     private final RulesEngine rulesEngine;
     private final AuthorizationRepository authorizationRepository;
     private final LedgerService ledgerService;
+    private final CardActivityStore cardActivityStore;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final StandInService standInService;
 
-    @Transactional
     public AuthorizationResponse authorize(AuthorizationRequest request) {
         IdempotencyKey.validate(request.getIdempotencyKey());
+        LatencyBudget budget = standInService.startBudget();
+
+        try {
+            return transactionTemplate.execute(status -> processAuthorization(request, budget));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same idempotency key committed first
+            Authorization original = authorizationRepository
+                .findByIdempotencyKey(request.getIdempotencyKey())
+                .orElseThrow(() -> e);
+            if (original.getAuthorizationId().equals(request.getAuthorizationId())) {
+                // A retry of the same authorization: the hold under this reference is the winner's
+                log.info("Duplicate authorization lost the race, keeping the hold: authId={}",
+                    request.getAuthorizationId());
+            } else {
+                releaseOrphanedHold(request);
+            }
+            return buildResponse(original);
+        } finally {
+            standInService.complete(budget);
+        }
+    }
 
+    private AuthorizationResponse processAuthorization(AuthorizationRequest request, LatencyBudget budget) {
         // Check for duplicate request
-        Optional<Authorization> existing = authorizationRepository
-            .findByIdempotencyKey(request.getIdempotencyKey());
+        Optional<AuthorizationResponse> existing = idempotencyRegistry.find(
+            IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), AuthorizationResponse.class,
+            key -> authorizationRepository.findByIdempotencyKey(key).map(this::buildResponse));
         if (existing.isPresent()) {
             log.info("Duplicate authorization request: {}", request.getAuthorizationId());
-            return buildResponse(existing.get());
+            return existing.get();
         }
 
         log.info("Processing bank authorization: authId={}, cardId={}, amount={} {}",
@@ -81,18 +121,26 @@ public class BankAuthorizationService {
                     "No bank account linked to card"));
 
             // Step 3: Run rules engine
+            request.setProgramId(card.getProgramId());
             RuleResult ruleResult = rulesEngine.evaluateRules(request);
             if (!ruleResult.isApproved()) {
                 return declineAuthorization(request, mapping, ruleResult.getReason());
             }
 
-            // Step 4: Place hold in bank core
+            // Step 4: Place hold in bank core (or decide in stand-in if it is too slow or unavailable)
             try {
-                bankAccountAdapter.placeHold(
-                    mapping.getBankAccountRef(),
-                    request.getAmount(),
-                    request.getAuthorizationId()
-                );
+                if (!placeHold(mapping, request, budget)) {
+                    StandInDecision decision = standInService.decide(
+                        mapping.getBankAccountRef(), request.getAmount(), request.getAuthorizationId());
+                    if (!decision.isApproved()) {
+                        return declineAuthorization(request, mapping, decision.getReason());
+                    }
+                }
+            } catch (BankCoreUnavailableException e) {
+                // Circuit open or bulkhead full: the core was not called
+                log.warn("Bank core unavailable, declining: authId={}, reason={}",
+                    request.getAuthorizationId(), e.getReason());
+                return declineAuthorization(request, mapping, e.getMessage());
             } catch (Exception e) {
                 log.error("Bank core rejected hold: authId={}", request.getAuthorizationId(), e);
                 return declineAuthorization(request, mapping,
@@ -113,6 +161,7 @@ public class BankAuthorizationService {
                 request.getIdempotencyKey()
             );
             authorizationRepository.save(authorization);
+            cardActivityStore.recordAuthorization(authorization);
 
             // Step 6: Record in local ledger (audit trail, not balance tracking)
             ledgerService.recordAuthHold(
@@ -124,7 +173,9 @@ public class BankAuthorizationService {
             );
 
             log.info("Bank authorization APPROVED: authId={}", request.getAuthorizationId());
-            return AuthorizationResponse.approved(request.getAuthorizationId());
+            AuthorizationResponse response = AuthorizationResponse.approved(request.getAuthorizationId());
+            idempotencyRegistry.record(IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), response);
+            return response;
 
         } catch (TransactionDeclinedException e) {
             log.info("Authorization DECLINED: authId={}, reason={}",
@@ -137,6 +188,29 @@ public class BankAuthorizationService {
         }
     }
 
+    /**
+     * @return true if the hold was placed, false if the bank core ran out of budget
+     */
+    private boolean placeHold(BankAccountMapping mapping, AuthorizationRequest request, LatencyBudget budget) {
+        if (!standInService.isEnabled()) {
+            bankAccountAdapter.placeHold(
+                mapping.getBankAccountRef(),
+                request.getAmount(),
+                request.getAuthorizationId()
+            );
+            return true;
+        }
+        try {
+            return standInService.placeHold(
+                mapping.getBankAccountRef(), request.getAmount(), request.getAuthorizationId(), budget);
+        } catch (BankCoreUnavailableException e) {
+            // Core is known to be down: decide in stand-in without waiting on it
+            log.debug("Bank core unavailable ({}), deciding in stand-in: authId={}",
+                e.getReason(), request.getAuthorizationId());
+            return false;
+        }
+    }
+
     private void validateCardState(Card card) {
         if (!card.isActive()) {
             throw new TransactionDeclinedException("Card is not active: " + card.getState());
@@ -167,8 +241,27 @@ public class BankAuthorizationService {
         );
         authorization.decline(reason);
         authorizationRepository.save(authorization);
+        cardActivityStore.recordAuthorization(authorization);
 
-        return AuthorizationResponse.declined(request.getAuthorizationId(), reason);
+        AuthorizationResponse response = AuthorizationResponse.declined(request.getAuthorizationId(), reason);
+        idempotencyRegistry.record(IdempotencyScope.AUTHORIZATION, request.getIdempotencyKey(), response);
+        return response;
+    }
+
+    /**
+     * Release the bank hold placed by a request that lost an idempotency race.
+     * Only called when the loser has its own authorization ID: holds are keyed
+     * by it, so a retry with the winner's ID placed nothing of its own.
+     */
+    private void releaseOrphanedHold(AuthorizationRequest request) {
+        mappingRepository.findByCardId(request.getCardId()).ifPresent(mapping -> {
+            try {
+                bankAccountAdapter.releaseHold(
+                    mapping.getBankAccountRef(), request.getAmount(), request.getAuthorizationId());
+            } catch (Exception e) {
+                log.error("Failed to release orphaned hold: authId={}", request.getAuthorizationId(), e);
+            }
+        });
     }
 
     private AuthorizationResponse buildResponse(Authorization auth) {
@@ -2,6 +2,7 @@ package com.cardengine.bank;
 
 import com.cardengine.cards.Card;
 import com.cardengine.cards.CardRepository;
+import com.cardengine.cards.CardTokenIndex;
 import com.cardengine.cards.CardState;
 import com.cardengine.common.Money;
 import lombok.RequiredArgsConstructor;
@@ -39,6 +40,7 @@ import java.util.UUID;
 public class BankCardIssuanceService {
 
     private final CardRepository cardRepository;
+    private final CardTokenIndex cardTokenIndex;
     private final BankAccountMappingRepository mappingRepository;
     private final BankAccountAdapter bankAccountAdapter;
 
@@ -84,12 +86,14 @@ public class BankCardIssuanceService {
         card.setCardId(cardId);
         card.setCardholderName(cardholderName);
         card.setLast4(last4);
+        card.setCardToken(Card.generateToken());
         card.setExpirationDate(expirationDate);
         card.setState(CardState.FROZEN);  // Start inactive for security
         card.setOwnerId(bankClientRef);  // Link to bank client
         card.setFundingAccountId(bankAccountRef);  // Temporary - will use mapping
 
         cardRepository.save(card);
+        cardTokenIndex.evict(card);
 
         // Create immutable mapping to bank account
         BankAccountMapping mapping = new BankAccountMapping(
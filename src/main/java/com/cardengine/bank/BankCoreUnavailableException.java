@@ -0,0 +1,30 @@
+package com.cardengine.bank;
+
+/**
+ * Thrown without calling the bank core because it is known to be degraded:
+ * the circuit breaker is open or the operation's bulkhead is full.
+ *
+ * Callers can treat this as a fast, definite "core unavailable" and decline
+ * (or decide in stand-in) instead of waiting on the core.
+ */
+public class BankCoreUnavailableException extends BankCoreException {
+
+    /**
+     * Why the call was not made. Used as the decline code.
+     */
+    public enum Reason {
+        CIRCUIT_OPEN,
+        BULKHEAD_FULL
+    }
+
+    private final Reason reason;
+
+    public BankCoreUnavailableException(Reason reason, String bankAccountRef, String operation) {
+        super("Bank core unavailable (" + reason + ")", bankAccountRef, operation);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -3,9 +3,12 @@ package com.cardengine.bank;
 import com.cardengine.authorization.Authorization;
 import com.cardengine.authorization.AuthorizationRepository;
 import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.outbox.BankOutbox;
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.bank.standin.StandInReconciler;
 import com.cardengine.common.IdempotencyKey;
-import com.cardengine.ledger.LedgerRepository;
 import com.cardengine.ledger.LedgerService;
+import com.cardengine.rules.CardActivityStore;
 import com.cardengine.settlement.ClearingRequest;
 import com.cardengine.settlement.ReversalRequest;
 import lombok.RequiredArgsConstructor;
@@ -34,6 +37,19 @@ import org.springframework.transaction.annotation.Transactional;
  * 2. Credit funds back in bank core (reversal)
  * 3. Update local authorization status
  *
+ * BANK OUTBOX:
+ * With card-engine.bank.outbox.enabled (the default), clearing and release
+ * do not call the bank core themselves. They queue the commit or release in
+ * the bank outbox, in the same transaction as the local changes, and return;
+ * BankOutboxDispatcher makes the call shortly after, retrying until the core
+ * accepts it. When disabled, the calls are made inline as before.
+ *
+ * IDEMPOTENCY:
+ * Clearing and release check for a duplicate in the database, not just in
+ * the node-local idempotency filter, before calling the bank core: a key
+ * first seen by another instance would otherwise reach the core before the
+ * unique index on ledger_entries.idempotency_key rejects it.
+ *
  * IMPORTANT:
  * Bank core is the system of record.
  * All balance changes happen in the bank core, not locally.
@@ -47,14 +63,16 @@ public class BankSettlementService {
     private final BankAccountMappingRepository mappingRepository;
     private final BankAccountAdapter bankAccountAdapter;
     private final LedgerService ledgerService;
-    private final LedgerRepository ledgerRepository;
+    private final CardActivityStore cardActivityStore;
+    private final StandInReconciler standInReconciler;
+    private final BankOutbox bankOutbox;
 
     @Transactional
     public void clearTransaction(ClearingRequest request) {
         IdempotencyKey.validate(request.getIdempotencyKey());
 
-        // Check for duplicate
-        if (ledgerRepository.findByIdempotencyKey(request.getIdempotencyKey()).isPresent()) {
+        // Check for duplicate (in the database too: the bank core call cannot be undone)
+        if (ledgerService.findRecordedTransactionId(request.getIdempotencyKey()).isPresent()) {
             log.info("Duplicate clearing request: {}", request.getAuthorizationId());
             return;
         }
@@ -84,16 +102,22 @@ public class BankSettlementService {
         // Get bank account reference
         String bankAccountRef = authorization.getAccountId();  // This is bank account ref
 
-        // Commit debit in bank core
-        try {
-            bankAccountAdapter.commitDebit(
-                bankAccountRef,
-                request.getClearingAmount(),
-                request.getAuthorizationId()
-            );
-        } catch (Exception e) {
-            log.error("Bank core rejected clearing: authId={}", request.getAuthorizationId(), e);
-            throw new RuntimeException("Bank declined clearing: " + e.getMessage(), e);
+        // Commit debit in bank core (placing a hold still owed from stand-in first)
+        if (bankOutbox.isEnabled()) {
+            bankOutbox.enqueue(BankOutboxOperation.COMMIT_DEBIT, bankAccountRef,
+                request.getClearingAmount(), request.getAuthorizationId());
+        } else {
+            try {
+                standInReconciler.placeBeforeClearing(request.getAuthorizationId());
+                bankAccountAdapter.commitDebit(
+                    bankAccountRef,
+                    request.getClearingAmount(),
+                    request.getAuthorizationId()
+                );
+            } catch (Exception e) {
+                log.error("Bank core rejected clearing: authId={}", request.getAuthorizationId(), e);
+                throw new RuntimeException("Bank declined clearing: " + e.getMessage(), e);
+            }
         }
 
         // Record in local ledger (audit trail)
@@ -116,8 +140,8 @@ public class BankSettlementService {
     public void releaseAuthorization(String authorizationId, String idempotencyKey) {
         IdempotencyKey.validate(idempotencyKey);
 
-        // Check for duplicate
-        if (ledgerRepository.findByIdempotencyKey(idempotencyKey).isPresent()) {
+        // Check for duplicate (in the database too: the bank core call cannot be undone)
+        if (ledgerService.findRecordedTransactionId(idempotencyKey).isPresent()) {
             log.info("Duplicate release request: {}", authorizationId);
             return;
         }
@@ -136,17 +160,48 @@ public class BankSettlementService {
             return;  // Idempotent
         }
 
-        // Release hold in bank core
+        applyRelease(authorization, idempotencyKey);
+        authorizationRepository.save(authorization);
+
+        log.info("Bank authorization released: {}", authorizationId);
+    }
+
+    /**
+     * Whether clearing and release queue their bank call in the outbox (true)
+     * or make it inline, inside the caller's transaction (false).
+     */
+    public boolean queuesBankCalls() {
+        return bankOutbox.isEnabled();
+    }
+
+    /**
+     * Release an already loaded, approved authorization: release the hold in
+     * the bank core (or queue the release), record the ledger entry and mark
+     * the authorization released.
+     *
+     * Shared by single release requests and the expiry sweep; the caller
+     * owns the transaction.
+     */
+    public void applyRelease(Authorization authorization, String idempotencyKey) {
+        String authorizationId = authorization.getAuthorizationId();
+
+        // Release hold in bank core (and drop a hold still owed from stand-in)
         String bankAccountRef = authorization.getAccountId();
-        try {
-            bankAccountAdapter.releaseHold(
-                bankAccountRef,
-                authorization.getAmount(),
-                authorizationId
-            );
-        } catch (Exception e) {
-            log.error("Error releasing hold in bank core: authId={}", authorizationId, e);
-            // Continue anyway - update local state
+        standInReconciler.cancel(authorizationId);
+        if (bankOutbox.isEnabled()) {
+            bankOutbox.enqueue(BankOutboxOperation.RELEASE_HOLD, bankAccountRef,
+                authorization.getAmount(), authorizationId);
+        } else {
+            try {
+                bankAccountAdapter.releaseHold(
+                    bankAccountRef,
+                    authorization.getAmount(),
+                    authorizationId
+                );
+            } catch (Exception e) {
+                log.error("Error releasing hold in bank core: authId={}", authorizationId, e);
+                // Continue anyway - update local state
+            }
         }
 
         // Record in ledger
@@ -160,9 +215,7 @@ public class BankSettlementService {
 
         // Update authorization
         authorization.release();
-        authorizationRepository.save(authorization);
-
-        log.info("Bank authorization released: {}", authorizationId);
+        cardActivityStore.recordRelease(authorization);
     }
 
     @Transactional
@@ -170,7 +223,7 @@ public class BankSettlementService {
         IdempotencyKey.validate(request.getIdempotencyKey());
 
         // Check for duplicate
-        if (ledgerRepository.findByIdempotencyKey(request.getIdempotencyKey()).isPresent()) {
+        if (ledgerService.findTransactionId(request.getIdempotencyKey()).isPresent()) {
             log.info("Duplicate reversal request: {}", request.getAuthorizationId());
             return;
         }
@@ -218,6 +271,7 @@ public class BankSettlementService {
         // Update authorization
         authorization.reverse();
         authorizationRepository.save(authorization);
+        cardActivityStore.recordReversal(authorization);
 
         log.info("Bank reversal recorded: authId={}", request.getAuthorizationId());
     }
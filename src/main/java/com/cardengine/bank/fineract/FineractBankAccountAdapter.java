@@ -6,14 +6,17 @@ import com.cardengine.common.Currency;
 import com.cardengine.common.Money;
 import com.cardengine.common.exception.InsufficientFundsException;
 import com.cardengine.providers.fineract.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Apache Fineract implementation of BankAccountAdapter.
@@ -52,17 +55,37 @@ import java.util.Optional;
  * - Is auditable in Fineract's journal
  * - Prevents duplicate debits
  *
+ * BALANCE CHECKS:
+ * The sufficiency check in placeHold() is answered by FineractShadowBalances,
+ * a local balance seeded from Fineract and adjusted by the holds placed here,
+ * so an authorization makes one Fineract call instead of two.
+ *
+ * HOLD RECORDS:
+ * The hold record is written in its own transaction as soon as the journal
+ * entry exists. Once Fineract has the entry, the record must survive even
+ * if the caller's transaction rolls back (e.g. it lost an idempotency race),
+ * otherwise releaseHold() finds nothing to reverse and the funds stay held.
+ *
+ * The reversal and the withdrawal are claimed the same way: the hold moves
+ * to REVERSING, DEBITING or RELEASING in its own transaction before the call
+ * is made, and to the next status once it returns. The version makes a
+ * concurrent commit or release fail at the claim, and a retry that finds a
+ * claimed hold resends the call with the same Idempotency-Key (the
+ * authorization ID plus "-REVERSE" or "-DEBIT"), which Fineract answers with
+ * the first result instead of posting again.
+ *
  * NOTE FOR OTHER BANKS:
  * If your core banking system supports native holds/reservations,
  * use those instead of this shadow transaction approach.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class FineractBankAccountAdapter implements BankAccountAdapter {
 
     private final FineractClient fineractClient;
     private final FineractAuthHoldRepository holdRepository;
+    private final FineractShadowBalances shadowBalances;
+    private final TransactionTemplate holdRecordTemplate;
 
     // GL account for holding reserved funds (configured via application.yml)
     private Long cardAuthHoldsGLAccountId;
@@ -70,6 +93,18 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
     private static final DateTimeFormatter FINERACT_DATE_FORMAT =
         DateTimeFormatter.ofPattern("dd MMMM yyyy");
 
+    public FineractBankAccountAdapter(
+            FineractClient fineractClient,
+            FineractAuthHoldRepository holdRepository,
+            FineractShadowBalances shadowBalances,
+            PlatformTransactionManager transactionManager) {
+        this.fineractClient = fineractClient;
+        this.holdRepository = holdRepository;
+        this.shadowBalances = shadowBalances;
+        this.holdRecordTemplate = new TransactionTemplate(transactionManager);
+        this.holdRecordTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     @Override
     public Money getAvailableBalance(String accountRef) {
         log.debug("Fetching balance from Fineract for account: {}", accountRef);
@@ -112,14 +147,14 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
             return;
         }
 
+        Long savingsAccountId = null;
+        boolean reserved = false;
         try {
-            Long savingsAccountId = parseAccountRef(accountRef);
+            savingsAccountId = parseAccountRef(accountRef);
 
-            // Check available balance first
-            Money availableBalance = getAvailableBalance(accountRef);
-            if (availableBalance.isLessThan(amount)) {
-                throw new InsufficientFundsException(accountRef, amount, availableBalance);
-            }
+            // Check available balance first (against the shadow balance)
+            shadowBalances.reserve(savingsAccountId, accountRef, amount);
+            reserved = true;
 
             // Create shadow journal entry to hold funds
             // DEBIT: Savings account (reduces available balance)
@@ -146,7 +181,7 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
             FineractDTOs.JournalEntryResponse journalResponse =
                 fineractClient.createJournalEntry(journalRequest);
 
-            // Store hold reference
+            // Store hold reference, committed independently of the caller
             FineractAuthHold hold = new FineractAuthHold(
                 referenceId,
                 savingsAccountId,
@@ -154,7 +189,7 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
                 amount.getAmount(),
                 amount.getCurrency().name()
             );
-            holdRepository.save(hold);
+            holdRecordTemplate.executeWithoutResult(status -> holdRepository.save(hold));
 
             log.info("Hold placed successfully: ref={}, journalId={}",
                 referenceId, journalResponse.getTransactionId());
@@ -162,6 +197,10 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
         } catch (InsufficientFundsException e) {
             throw e;  // Re-throw as-is
         } catch (Exception e) {
+            if (reserved) {
+                // The hold may or may not exist in Fineract now: reload the balance next time
+                shadowBalances.invalidate(savingsAccountId);
+            }
             log.error("Error placing hold in Fineract: ref={}", referenceId, e);
             throw new BankCoreException(
                 "Failed to place hold in Fineract: " + e.getMessage(),
@@ -181,7 +220,7 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
             Long savingsAccountId = parseAccountRef(accountRef);
 
             // Find the hold record
-            FineractAuthHold hold = holdRepository.findByAuthorizationId(referenceId)
+            FineractAuthHold hold = loadHold(referenceId)
                 .orElseThrow(() -> new IllegalStateException(
                     "No hold found for reference: " + referenceId));
 
@@ -190,7 +229,10 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
                 return;  // Idempotent
             }
 
-            if (hold.getStatus() != FineractAuthHold.HoldStatus.ACTIVE) {
+            if (hold.getStatus() != FineractAuthHold.HoldStatus.ACTIVE
+                    && hold.getStatus() != FineractAuthHold.HoldStatus.REVERSING
+                    && hold.getStatus() != FineractAuthHold.HoldStatus.REVERSED
+                    && hold.getStatus() != FineractAuthHold.HoldStatus.DEBITING) {
                 throw new IllegalStateException(
                     "Hold is not active: " + hold.getStatus());
             }
@@ -206,10 +248,21 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
             }
 
             // Step 1: Reverse the hold journal entry
-            // This returns funds from CARD_AUTH_HOLDS back to available balance
-            reverseHoldJournalEntry(hold, referenceId);
+            // This returns funds from CARD_AUTH_HOLDS back to available balance.
+            // Claimed before the call; a REVERSING hold is a reversal that may
+            // have been sent, so it is resent under the same key.
+            if (hold.getStatus() == FineractAuthHold.HoldStatus.ACTIVE) {
+                hold = recordStatus(hold, FineractAuthHold::markReversing);
+            }
+            if (hold.getStatus() == FineractAuthHold.HoldStatus.REVERSING) {
+                reverseHoldJournalEntry(hold, referenceId);
+                hold = recordStatus(hold, FineractAuthHold::markReversed);
+            }
 
-            // Step 2: Make actual debit (withdrawal)
+            // Step 2: Make actual debit (withdrawal), claimed the same way
+            if (hold.getStatus() == FineractAuthHold.HoldStatus.REVERSED) {
+                hold = recordStatus(hold, FineractAuthHold::markDebiting);
+            }
             FineractDTOs.SavingsTransactionRequest debitRequest =
                 FineractDTOs.SavingsTransactionRequest.builder()
                     .transactionDate(LocalDate.now().format(FINERACT_DATE_FORMAT))
@@ -218,15 +271,16 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
                     .referenceNumber(referenceId)
                     .build();
 
-            fineractClient.debitAccount(savingsAccountId, debitRequest);
+            fineractClient.debitAccount(savingsAccountId, debitRequest, referenceId + "-DEBIT");
 
             // Step 3: Mark hold as committed
-            hold.markCommitted();
-            holdRepository.save(hold);
+            recordStatus(hold, FineractAuthHold::markCommitted);
+            shadowBalances.committed(savingsAccountId, heldAmount, amount);
 
             log.info("Debit committed successfully: ref={}", referenceId);
 
         } catch (Exception e) {
+            invalidateShadow(accountRef);
             log.error("Error committing debit in Fineract: ref={}", referenceId, e);
             throw new BankCoreException(
                 "Failed to commit debit in Fineract: " + e.getMessage(),
@@ -243,7 +297,7 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
 
         try {
             // Find the hold record
-            Optional<FineractAuthHold> holdOpt = holdRepository.findByAuthorizationId(referenceId);
+            Optional<FineractAuthHold> holdOpt = loadHold(referenceId);
 
             if (holdOpt.isEmpty()) {
                 log.warn("No hold found for reference: {}", referenceId);
@@ -257,22 +311,28 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
                 return;  // Idempotent
             }
 
-            if (hold.getStatus() != FineractAuthHold.HoldStatus.ACTIVE) {
+            if (hold.getStatus() != FineractAuthHold.HoldStatus.ACTIVE
+                    && hold.getStatus() != FineractAuthHold.HoldStatus.RELEASING) {
                 log.warn("Hold is not active, status={}: ref={}",
                     hold.getStatus(), referenceId);
                 return;  // Don't fail, just log
             }
 
-            // Reverse the hold journal entry
+            // Claim the release, then reverse the hold journal entry
+            if (hold.getStatus() == FineractAuthHold.HoldStatus.ACTIVE) {
+                hold = recordStatus(hold, FineractAuthHold::markReleasing);
+            }
             reverseHoldJournalEntry(hold, referenceId);
 
             // Mark as released
-            hold.markReleased();
-            holdRepository.save(hold);
+            hold = recordStatus(hold, FineractAuthHold::markReleased);
+            shadowBalances.restore(hold.getFineractAccountId(),
+                Money.of(hold.getHoldAmount(), Currency.valueOf(hold.getCurrency())));
 
             log.info("Hold released successfully: ref={}", referenceId);
 
         } catch (Exception e) {
+            invalidateShadow(accountRef);
             log.error("Error releasing hold in Fineract: ref={}", referenceId, e);
             throw new BankCoreException(
                 "Failed to release hold in Fineract: " + e.getMessage(),
@@ -291,18 +351,36 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
     @Override
     public boolean isHealthy() {
         try {
-            // Attempt a simple API call to check connectivity
-            // In production, might have a dedicated health endpoint
-            return fineractClient != null;
+            // Authenticated read of the head office: checks connectivity, credentials and tenant
+            return fineractClient.ping();
         } catch (Exception e) {
             log.error("Fineract health check failed", e);
             return false;
         }
     }
 
+    /**
+     * Load a hold outside the caller's persistence context, so the status
+     * changes recorded by recordStatus() never leave a stale managed copy
+     * for the caller's transaction to flush.
+     */
+    private Optional<FineractAuthHold> loadHold(String referenceId) {
+        return holdRecordTemplate.execute(status -> holdRepository.findByAuthorizationId(referenceId));
+    }
+
+    /**
+     * Apply a status change and commit it in its own transaction, before or
+     * after the Fineract call it covers. Fails on a concurrent change.
+     */
+    private FineractAuthHold recordStatus(FineractAuthHold hold, Consumer<FineractAuthHold> change) {
+        change.accept(hold);
+        return holdRecordTemplate.execute(status -> holdRepository.save(hold));
+    }
+
     /**
      * Reverse a hold journal entry in Fineract.
-     * Creates an offsetting entry that cancels the original.
+     * Creates an offsetting entry that cancels the original; the entry's
+     * reference doubles as the idempotency key, so a resent reversal posts once.
      */
     private void reverseHoldJournalEntry(FineractAuthHold hold, String referenceId) {
         log.debug("Reversing hold journal entry: journalId={}, ref={}",
@@ -331,7 +409,18 @@ public class FineractBankAccountAdapter implements BankAccountAdapter {
                 })
                 .build();
 
-        fineractClient.createJournalEntry(reverseRequest);
+        fineractClient.createJournalEntry(reverseRequest, referenceId + "-REVERSE");
+    }
+
+    /**
+     * Drop the shadow balance after a failed call that may have partly applied.
+     */
+    private void invalidateShadow(String accountRef) {
+        try {
+            shadowBalances.invalidate(parseAccountRef(accountRef));
+        } catch (IllegalArgumentException e) {
+            // Nothing cached for an invalid reference
+        }
     }
 
     /**
@@ -0,0 +1,278 @@
+package com.cardengine.bank.fineract;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.common.exception.InsufficientFundsException;
+import com.cardengine.providers.fineract.FineractClient;
+import com.cardengine.providers.fineract.FineractDTOs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hold-aware shadow of Fineract available balances.
+ *
+ * Each savings account's available balance is loaded from Fineract once and
+ * then kept locally: holds placed by this instance decrement it, released
+ * holds and commits give the difference back. The sufficiency check for a
+ * new hold is answered from the shadow, so an authorization costs one
+ * Fineract call (the hold journal entry) instead of two.
+ *
+ * Shadows older than refresh-after are refreshed from Fineract in the
+ * background while still being used. Shadows older than max-staleness are
+ * not trusted: the balance is reloaded before deciding. A shadow that says
+ * "insufficient" is confirmed against Fineract before declining, so deposits
+ * made directly in the core do not cause false declines.
+ *
+ * Holds placed while a refresh is in flight are re-applied on top of the
+ * refreshed value. If Fineract already counted such a hold it is subtracted
+ * twice until the next refresh, which errs towards declining. Holds placed
+ * by other instances are only seen on refresh; max-staleness bounds how long
+ * that can be.
+ *
+ * On every refresh the difference between the shadow and Fineract is
+ * recorded as cardengine.fineract.shadow_balance.drift.
+ */
+@Component
+@Slf4j
+public class FineractShadowBalances {
+
+    private final FineractClient fineractClient;
+    private final boolean enabled;
+    private final Duration refreshAfter;
+    private final Duration maxStaleness;
+    private final boolean confirmDeclines;
+
+    private final Map<Long, Shadow> shadows = new ConcurrentHashMap<>();
+    private final DistributionSummary drift;
+    private final Counter localChecks;
+    private final Counter coreChecks;
+    private final Counter refreshFailures;
+
+    public FineractShadowBalances(
+            FineractClient fineractClient,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.fineract.shadow-balance.enabled:true}") boolean enabled,
+            @Value("${card-engine.fineract.shadow-balance.refresh-after:5s}") Duration refreshAfter,
+            @Value("${card-engine.fineract.shadow-balance.max-staleness:30s}") Duration maxStaleness,
+            @Value("${card-engine.fineract.shadow-balance.confirm-declines:true}") boolean confirmDeclines) {
+
+        this.fineractClient = fineractClient;
+        this.enabled = enabled;
+        this.refreshAfter = refreshAfter;
+        this.maxStaleness = maxStaleness;
+        this.confirmDeclines = confirmDeclines;
+
+        this.drift = DistributionSummary.builder("cardengine.fineract.shadow_balance.drift")
+            .description("Absolute difference between shadow and Fineract available balance on refresh")
+            .baseUnit("minor_units")
+            .register(meterRegistry);
+        this.localChecks = checks(meterRegistry, "shadow");
+        this.coreChecks = checks(meterRegistry, "core");
+        this.refreshFailures = Counter.builder("cardengine.fineract.shadow_balance.refresh_failures")
+            .description("Background shadow balance refreshes that failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Check that the account covers the amount and take it off the shadow.
+     *
+     * @throws InsufficientFundsException if the available balance is too low
+     */
+    public void reserve(Long savingsAccountId, String accountRef, Money amount) {
+        if (!enabled) {
+            coreChecks.increment();
+            Money available = toMoney(fineractClient.getAccountBalance(savingsAccountId));
+            if (available.isLessThan(amount)) {
+                throw new InsufficientFundsException(accountRef, amount, available);
+            }
+            return;
+        }
+
+        Shadow shadow = shadows.computeIfAbsent(savingsAccountId, id -> new Shadow());
+        boolean loaded = false;
+        if (shadow.olderThan(maxStaleness)) {
+            load(savingsAccountId, shadow);
+            loaded = true;
+        } else if (shadow.olderThan(refreshAfter)) {
+            refreshAsync(savingsAccountId, shadow);
+        }
+
+        long requested = amount.toMinorUnits();
+        if (shadow.tryTake(amount.getCurrency(), requested)) {
+            (loaded ? coreChecks : localChecks).increment();
+            return;
+        }
+        if (confirmDeclines && !loaded) {
+            load(savingsAccountId, shadow);
+            loaded = true;
+            if (shadow.tryTake(amount.getCurrency(), requested)) {
+                coreChecks.increment();
+                return;
+            }
+        }
+
+        (loaded ? coreChecks : localChecks).increment();
+        throw new InsufficientFundsException(accountRef, amount, shadow.available());
+    }
+
+    /**
+     * Give an amount back to the shadow: a hold that failed to place or was released.
+     */
+    public void restore(Long savingsAccountId, Money amount) {
+        adjust(savingsAccountId, amount.toMinorUnits());
+    }
+
+    /**
+     * Settle a committed hold: the hold is reversed and the cleared amount debited.
+     */
+    public void committed(Long savingsAccountId, Money heldAmount, Money clearedAmount) {
+        adjust(savingsAccountId, heldAmount.toMinorUnits() - clearedAmount.toMinorUnits());
+    }
+
+    /**
+     * Drop the shadow for an account so the next check reloads it.
+     */
+    public void invalidate(Long savingsAccountId) {
+        shadows.remove(savingsAccountId);
+    }
+
+    private void adjust(Long savingsAccountId, long delta) {
+        Shadow shadow = shadows.get(savingsAccountId);
+        if (shadow != null) {
+            shadow.adjust(delta);
+        }
+    }
+
+    private void load(Long savingsAccountId, Shadow shadow) {
+        long sequence = shadow.startRefresh();
+        apply(savingsAccountId, shadow, sequence, fineractClient.getAccountBalance(savingsAccountId));
+    }
+
+    private void refreshAsync(Long savingsAccountId, Shadow shadow) {
+        if (!shadow.claimRefresh()) {
+            return;
+        }
+        long sequence = shadow.startRefresh();
+        fineractClient.getAccountBalanceAsync(savingsAccountId).whenComplete((balance, error) -> {
+            if (error != null) {
+                refreshFailures.increment();
+                shadow.refreshFailed();
+                log.debug("Could not refresh shadow balance for {}: {}", savingsAccountId, error.getMessage());
+            } else {
+                apply(savingsAccountId, shadow, sequence, balance);
+            }
+        });
+    }
+
+    private void apply(Long savingsAccountId, Shadow shadow, long sequence, FineractDTOs.AccountBalance balance) {
+        Money core = toMoney(balance);
+        long difference = shadow.refresh(core.getCurrency(), core.toMinorUnits(), sequence);
+        if (difference != Shadow.FIRST_LOAD) {
+            drift.record(Math.abs(difference));
+            if (difference != 0) {
+                log.debug("Shadow balance drift for {}: {} minor units", savingsAccountId, difference);
+            }
+        }
+    }
+
+    private static Money toMoney(FineractDTOs.AccountBalance balance) {
+        return Money.of(balance.getAvailableBalance(), parseCurrency(balance.getCurrency()));
+    }
+
+    private static Currency parseCurrency(String currencyCode) {
+        try {
+            return Currency.valueOf(currencyCode);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Currency.USD;
+        }
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("cardengine.fineract.shadow_balance.checks")
+            .description("Hold sufficiency checks by where the balance came from")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Shadow of one account. All fields are guarded by the instance lock.
+     */
+    private static final class Shadow {
+
+        static final long FIRST_LOAD = Long.MIN_VALUE;
+
+        Currency currency;
+        long available;
+        Instant refreshedAt;
+        boolean refreshing;
+        // Sum of local adjustments ever made, used to re-apply those made during a refresh
+        long adjustments;
+
+        synchronized boolean olderThan(Duration age) {
+            return refreshedAt == null || !refreshedAt.plus(age).isAfter(Instant.now());
+        }
+
+        synchronized boolean claimRefresh() {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void refreshFailed() {
+            refreshing = false;
+        }
+
+        synchronized long startRefresh() {
+            return adjustments;
+        }
+
+        /**
+         * Replace the shadow with the core value plus adjustments made since
+         * the refresh started. Returns the drift, or FIRST_LOAD.
+         */
+        synchronized long refresh(Currency coreCurrency, long coreAvailable, long sequence) {
+            long refreshed = coreAvailable + (adjustments - sequence);
+            long difference = refreshedAt == null || currency != coreCurrency
+                ? FIRST_LOAD
+                : refreshed - available;
+            currency = coreCurrency;
+            available = refreshed;
+            refreshedAt = Instant.now();
+            refreshing = false;
+            return difference;
+        }
+
+        synchronized boolean tryTake(Currency requestCurrency, long amount) {
+            if (requestCurrency != currency) {
+                throw new IllegalArgumentException(
+                    "Currency mismatch: " + currency + " vs " + requestCurrency);
+            }
+            if (available < amount) {
+                return false;
+            }
+            available -= amount;
+            adjustments -= amount;
+            return true;
+        }
+
+        synchronized void adjust(long delta) {
+            available += delta;
+            adjustments += delta;
+        }
+
+        synchronized Money available() {
+            return Money.ofMinorUnits(available, currency);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.cardengine.common.exception.InsufficientFundsException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,12 +37,18 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     // Active holds (referenceId → HoldInfo)
     private final Map<String, HoldInfo> activeHolds = new ConcurrentHashMap<>();
 
+    // Running total of active holds per account (accountRef → held amount)
+    private final Map<String, BigDecimal> heldAmounts = new ConcurrentHashMap<>();
+
     // Currency for all accounts (simplified for mock)
     private final Currency defaultCurrency;
 
     // Simulate health status
     private boolean healthy = true;
 
+    // Simulated round-trip latency applied to every bank core call
+    private volatile Duration latency = Duration.ZERO;
+
     public MockBankAccountAdapter() {
         this(Currency.USD);
     }
@@ -62,7 +69,11 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     @Override
     public Money getAvailableBalance(String accountRef) {
         log.debug("Mock: Getting balance for account {}", accountRef);
+        simulateLatency();
+        return calculateAvailable(accountRef);
+    }
 
+    private Money calculateAvailable(String accountRef) {
         if (!accountBalances.containsKey(accountRef)) {
             throw new BankCoreException(
                 "Account not found in mock bank",
@@ -83,6 +94,7 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     public void placeHold(String accountRef, Money amount, String referenceId) {
         log.info("Mock: Placing hold on account {}, amount {} {}, ref={}",
             accountRef, amount.getAmount(), amount.getCurrency(), referenceId);
+        simulateLatency();
 
         // Idempotency check
         if (activeHolds.containsKey(referenceId)) {
@@ -91,7 +103,7 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
         }
 
         // Check sufficient funds
-        Money available = getAvailableBalance(accountRef);
+        Money available = calculateAvailable(accountRef);
         if (available.isLessThan(amount)) {
             throw new InsufficientFundsException(accountRef, amount, available);
         }
@@ -102,6 +114,7 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
             amount.getAmount(),
             amount.getCurrency()
         ));
+        heldAmounts.merge(accountRef, amount.getAmount(), BigDecimal::add);
 
         log.debug("Hold placed: {}", referenceId);
     }
@@ -110,6 +123,7 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     public void commitDebit(String accountRef, Money amount, String referenceId) {
         log.info("Mock: Committing debit on account {}, amount {} {}, ref={}",
             accountRef, amount.getAmount(), amount.getCurrency(), referenceId);
+        simulateLatency();
 
         HoldInfo hold = activeHolds.get(referenceId);
         if (hold == null) {
@@ -122,7 +136,7 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
         }
 
         // Release hold
-        activeHolds.remove(referenceId);
+        removeHold(referenceId);
 
         // Debit account
         BigDecimal currentBalance = accountBalances.get(accountRef);
@@ -135,9 +149,10 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     @Override
     public void releaseHold(String accountRef, Money amount, String referenceId) {
         log.info("Mock: Releasing hold on account {}, ref={}", accountRef, referenceId);
+        simulateLatency();
 
         // Idempotent - safe to call even if hold doesn't exist
-        activeHolds.remove(referenceId);
+        removeHold(referenceId);
 
         log.debug("Hold released: {}", referenceId);
     }
@@ -156,10 +171,27 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
      * Calculate total amount held for an account.
      */
     private BigDecimal calculateHeldAmount(String accountRef) {
-        return activeHolds.values().stream()
-            .filter(hold -> hold.accountRef.equals(accountRef))
-            .map(hold -> hold.amount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return heldAmounts.getOrDefault(accountRef, BigDecimal.ZERO);
+    }
+
+    private void removeHold(String referenceId) {
+        HoldInfo hold = activeHolds.remove(referenceId);
+        if (hold != null) {
+            heldAmounts.merge(hold.accountRef, hold.amount.negate(), BigDecimal::add);
+        }
+    }
+
+    private void simulateLatency() {
+        Duration delay = latency;
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankCoreException("Interrupted while simulating latency", null, "simulateLatency", e);
+        }
     }
 
     /**
@@ -169,6 +201,13 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
         this.healthy = healthy;
     }
 
+    /**
+     * Set simulated latency for every bank core call (for benchmarks and timeout tests).
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
     /**
      * Get all active hold references (for testing).
      */
@@ -182,7 +221,9 @@ public class MockBankAccountAdapter implements BankAccountAdapter {
     public void reset() {
         accountBalances.clear();
         activeHolds.clear();
+        heldAmounts.clear();
         healthy = true;
+        latency = Duration.ZERO;
     }
 
     /**
@@ -0,0 +1,44 @@
+package com.cardengine.bank.outbox;
+
+import com.cardengine.common.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Queues bank core calls in the caller's transaction.
+ *
+ * Settlement writes the outbox entry together with its authorization and
+ * ledger changes, so either both happen or neither does, and returns
+ * without waiting on the bank core. {@link BankOutboxDispatcher} makes the
+ * call afterwards.
+ */
+@Component
+@Slf4j
+public class BankOutbox {
+
+    private final BankOutboxRepository repository;
+    private final boolean enabled;
+
+    public BankOutbox(
+            BankOutboxRepository repository,
+            @Value("${card-engine.bank.outbox.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether settlement should queue bank core calls instead of making them inline.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(BankOutboxOperation operation, String accountRef, Money amount, String referenceId) {
+        repository.save(new BankOutboxEntry(operation, accountRef, referenceId, amount));
+        log.debug("Queued bank core call: {} ref={}, account={}", operation, referenceId, accountRef);
+    }
+}
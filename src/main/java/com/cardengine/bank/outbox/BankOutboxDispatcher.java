@@ -0,0 +1,255 @@
+package com.cardengine.bank.outbox;
+
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.standin.StandInReconciler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends queued bank outbox entries to the bank core.
+ *
+ * Each run loads the oldest pending entries (up to batch-size) and groups
+ * them by account. Accounts are drained in parallel; entries of one account
+ * are sent one at a time in id order, and a failure stops that account for
+ * this run, so a release never overtakes the clearing queued before it.
+ *
+ * Several nodes may dispatch. Before sending, a node claims an account's
+ * due entries in id order (IN_FLIGHT, with its ID and a lease), stopping at
+ * the first one another node got first; entries claimed but not sent are
+ * given back. Other nodes skip an account's entries queued after one still
+ * in flight. A node that dies mid-send loses its entries when the lease
+ * runs out, and they are replayed.
+ *
+ * Failed calls are retried with exponential backoff. After max-attempts the
+ * entry is marked FAILED and the account's later entries proceed; failed
+ * entries need manual follow-up.
+ *
+ * Bank calls are made outside any database transaction, so an entry
+ * interrupted between the bank call and being marked delivered is replayed
+ * and its call can reach the bank core twice. Adapters must make that
+ * harmless: a hold already committed or released is not touched again, and
+ * the Fineract adapter records each step before making it and sends an
+ * idempotency key derived from the authorization ID. That last part relies
+ * on the core honouring the key; a core that does not may apply a replayed
+ * call twice.
+ */
+@Component
+@Slf4j
+public class BankOutboxDispatcher {
+
+    private final BankOutboxRepository repository;
+    private final BankAccountAdapter bankAccountAdapter;
+    private final StandInReconciler standInReconciler;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final String node = UUID.randomUUID().toString();
+
+    private final ExecutorService workers;
+    private final AtomicLong pending = new AtomicLong();
+    private final Map<BankOutboxOperation, Timer> lag = new EnumMap<>(BankOutboxOperation.class);
+
+    public BankOutboxDispatcher(
+            BankOutboxRepository repository,
+            BankAccountAdapter bankAccountAdapter,
+            StandInReconciler standInReconciler,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.bank.outbox.batch-size:100}") int batchSize,
+            @Value("${card-engine.bank.outbox.concurrency:16}") int concurrency,
+            @Value("${card-engine.bank.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${card-engine.bank.outbox.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${card-engine.bank.outbox.max-backoff:5m}") Duration maxBackoff,
+            @Value("${card-engine.bank.outbox.claim-lease:5m}") Duration lease) {
+
+        this.repository = repository;
+        this.bankAccountAdapter = bankAccountAdapter;
+        this.standInReconciler = standInReconciler;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.workers = Executors.newFixedThreadPool(concurrency,
+            Thread.ofVirtual().name("bank-outbox-", 0).factory());
+
+        for (BankOutboxOperation operation : BankOutboxOperation.values()) {
+            lag.put(operation, Timer.builder("cardengine.bank.outbox.lag")
+                .description("Time from queueing a bank core call to its delivery")
+                .tag("operation", operation.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        Gauge.builder("cardengine.bank.outbox.pending", pending, AtomicLong::get)
+            .description("Bank outbox entries waiting for delivery")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Deliver one batch of pending entries.
+     *
+     * @return number of entries delivered
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.bank.outbox.dispatch-interval:PT0.5S}",
+        fixedDelayString = "${card-engine.bank.outbox.dispatch-interval:PT0.5S}")
+    public int dispatch() {
+        List<BankOutboxEntry> batch = repository.findDispatchable(Instant.now(), PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            pending.set(0);
+            return 0;
+        }
+
+        Map<String, List<BankOutboxEntry>> byAccount = new LinkedHashMap<>();
+        for (BankOutboxEntry entry : batch) {
+            byAccount.computeIfAbsent(entry.getAccountRef(), ref -> new ArrayList<>()).add(entry);
+        }
+
+        Instant now = Instant.now();
+        List<Callable<Integer>> accounts = new ArrayList<>(byAccount.size());
+        for (List<BankOutboxEntry> entries : byAccount.values()) {
+            accounts.add(() -> drainAccount(entries, now));
+        }
+
+        int delivered = 0;
+        try {
+            for (Future<Integer> result : workers.invokeAll(accounts)) {
+                delivered += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Bank outbox dispatch failed", e.getCause());
+        }
+
+        pending.set(repository.countByStatus(BankOutboxStatus.PENDING));
+        if (delivered > 0) {
+            log.info("Delivered {} bank outbox entries ({} accounts, {} pending)",
+                delivered, byAccount.size(), pending.get());
+        }
+        return delivered;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private int drainAccount(List<BankOutboxEntry> entries, Instant now) {
+        List<BankOutboxEntry> claimed = claim(entries, now);
+        int delivered = 0;
+        for (BankOutboxEntry entry : claimed) {
+            if (!deliver(entry)) {
+                break;
+            }
+            delivered++;
+        }
+        for (BankOutboxEntry entry : claimed.subList(Math.min(delivered + 1, claimed.size()), claimed.size())) {
+            entry.unclaim();
+            repository.save(entry);
+        }
+        return delivered;
+    }
+
+    /**
+     * Claim the leading due entries of an account, in id order.
+     */
+    private List<BankOutboxEntry> claim(List<BankOutboxEntry> entries, Instant now) {
+        Instant leaseUntil = now.plus(lease);
+        List<BankOutboxEntry> claimed = new ArrayList<>(entries.size());
+        for (BankOutboxEntry entry : entries) {
+            // An earlier entry backing off, or claimed by another node, holds up the rest of the account
+            if (!entry.isDue(now) || repository.claim(entry.getId(), node, now, leaseUntil) == 0) {
+                break;
+            }
+            entry.claimed(node, leaseUntil);
+            claimed.add(entry);
+        }
+        return claimed;
+    }
+
+    private boolean deliver(BankOutboxEntry entry) {
+        try {
+            switch (entry.getOperation()) {
+                case COMMIT_DEBIT -> {
+                    // A hold approved in stand-in may not be in the core yet
+                    transactionTemplate.executeWithoutResult(status ->
+                        standInReconciler.placeBeforeClearing(entry.getReferenceId()));
+                    bankAccountAdapter.commitDebit(
+                        entry.getAccountRef(), entry.getAmount(), entry.getReferenceId());
+                }
+                case RELEASE_HOLD -> bankAccountAdapter.releaseHold(
+                    entry.getAccountRef(), entry.getAmount(), entry.getReferenceId());
+            }
+        } catch (RuntimeException e) {
+            fail(entry, e);
+            return false;
+        }
+
+        entry.markDelivered();
+        repository.save(entry);
+        lag.get(entry.getOperation()).record(Duration.between(entry.getCreatedAt(), Instant.now()));
+        outcome(entry, "delivered");
+        return true;
+    }
+
+    private void fail(BankOutboxEntry entry, RuntimeException e) {
+        if (entry.getAttempts() + 1 >= maxAttempts) {
+            entry.markFailed(e.getMessage());
+            log.error("Bank outbox entry failed permanently after {} attempts: {} ref={}, account={}",
+                entry.getAttempts(), entry.getOperation(), entry.getReferenceId(), entry.getAccountRef(), e);
+            outcome(entry, "failed");
+        } else {
+            Duration backoff = backoff(entry.getAttempts());
+            entry.recordFailedAttempt(e.getMessage(), Instant.now().plus(backoff));
+            log.warn("Bank outbox entry not delivered, retrying in {} ms: {} ref={}, attempt={}, error={}",
+                backoff.toMillis(), entry.getOperation(), entry.getReferenceId(), entry.getAttempts(),
+                e.getMessage());
+            outcome(entry, "retry");
+        }
+        repository.save(entry);
+    }
+
+    private Duration backoff(int previousAttempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(previousAttempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private void outcome(BankOutboxEntry entry, String outcome) {
+        Counter.builder("cardengine.bank.outbox.dispatched")
+            .description("Bank outbox delivery attempts by outcome")
+            .tag("operation", entry.getOperation().name().toLowerCase())
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,145 @@
+package com.cardengine.bank.outbox;
+
+import com.cardengine.common.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A bank core call owed for a local settlement change.
+ *
+ * Written in the same transaction as the authorization and ledger update,
+ * and sent to the bank core later by {@link BankOutboxDispatcher}. Entries
+ * for one account are delivered in id order.
+ *
+ * A dispatching node claims an entry (IN_FLIGHT, owner and lease, see
+ * {@link BankOutboxRepository#claim}) before calling the bank core, so no two
+ * nodes send it at once.
+ */
+@Entity
+@Table(name = "bank_outbox",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_bank_outbox_reference_operation", columnNames = {"reference_id", "operation"}),
+    indexes = {
+        @Index(name = "idx_bank_outbox_status_id", columnList = "status, id"),
+        @Index(name = "idx_bank_outbox_account_status", columnList = "account_ref, status")
+    })
+@Data
+@NoArgsConstructor
+public class BankOutboxEntry {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BankOutboxOperation operation;
+
+    @Column(name = "account_ref", nullable = false)
+    private String accountRef;
+
+    /**
+     * Authorization ID, passed to the adapter as the reference.
+     */
+    @Column(name = "reference_id", nullable = false)
+    private String referenceId;
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "amount", column = @Column(name = "amount")),
+        @AttributeOverride(name = "currency", column = @Column(name = "currency"))
+    })
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BankOutboxStatus status;
+
+    private int attempts;
+
+    @Column(name = "last_error", length = MAX_ERROR_LENGTH)
+    private String lastError;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    /**
+     * Node sending (or last sending) the entry.
+     */
+    private String owner;
+
+    /**
+     * While IN_FLIGHT, other nodes leave the entry (and later entries of its account) alone until then.
+     */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public BankOutboxEntry(BankOutboxOperation operation, String accountRef, String referenceId, Money amount) {
+        this.operation = operation;
+        this.accountRef = accountRef;
+        this.referenceId = referenceId;
+        this.amount = amount;
+        this.status = BankOutboxStatus.PENDING;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public boolean isDue(Instant now) {
+        return nextAttemptAt == null || !nextAttemptAt.isAfter(now);
+    }
+
+    /**
+     * Mirror a successful {@link BankOutboxRepository#claim} on this copy.
+     */
+    public void claimed(String owner, Instant leaseUntil) {
+        this.status = BankOutboxStatus.IN_FLIGHT;
+        this.owner = owner;
+        this.leaseUntil = leaseUntil;
+    }
+
+    /**
+     * Give a claimed entry back without sending it.
+     */
+    public void unclaim() {
+        this.status = BankOutboxStatus.PENDING;
+        this.leaseUntil = null;
+    }
+
+    public void markDelivered() {
+        this.status = BankOutboxStatus.DELIVERED;
+        this.leaseUntil = null;
+        this.updatedAt = Instant.now();
+    }
+
+    public void recordFailedAttempt(String error, Instant retryAt) {
+        this.attempts++;
+        this.lastError = truncate(error);
+        this.nextAttemptAt = retryAt;
+        this.status = BankOutboxStatus.PENDING;
+        this.leaseUntil = null;
+        this.updatedAt = Instant.now();
+    }
+
+    public void markFailed(String error) {
+        this.attempts++;
+        this.lastError = truncate(error);
+        this.status = BankOutboxStatus.FAILED;
+        this.leaseUntil = null;
+        this.updatedAt = Instant.now();
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
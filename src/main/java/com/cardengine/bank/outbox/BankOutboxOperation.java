@@ -0,0 +1,9 @@
+package com.cardengine.bank.outbox;
+
+/**
+ * Bank core calls that can be deferred to the outbox.
+ */
+public enum BankOutboxOperation {
+    COMMIT_DEBIT,   // Clearing: debit the held amount
+    RELEASE_HOLD    // Release: drop the hold
+}
@@ -0,0 +1,57 @@
+package com.cardengine.bank.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for bank core calls waiting in the outbox.
+ */
+@Repository
+public interface BankOutboxRepository extends JpaRepository<BankOutboxEntry, Long> {
+
+    /**
+     * Entries that may be sent now, oldest first: PENDING ones and IN_FLIGHT
+     * ones whose lease ran out, skipping every entry queued after one that
+     * another node is still sending for the same account.
+     */
+    @Query("""
+        select e from BankOutboxEntry e
+        where (e.status = com.cardengine.bank.outbox.BankOutboxStatus.PENDING
+            or (e.status = com.cardengine.bank.outbox.BankOutboxStatus.IN_FLIGHT and e.leaseUntil < :now))
+        and not exists (
+            select o.id from BankOutboxEntry o
+            where o.accountRef = e.accountRef and o.id < e.id
+            and o.status = com.cardengine.bank.outbox.BankOutboxStatus.IN_FLIGHT and o.leaseUntil >= :now)
+        order by e.id
+        """)
+    List<BankOutboxEntry> findDispatchable(Instant now, Pageable pageable);
+
+    /**
+     * Take an entry for sending: one conditional update.
+     *
+     * @return 1 if claimed, 0 if another node claimed or finished it first
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update BankOutboxEntry e
+        set e.status = com.cardengine.bank.outbox.BankOutboxStatus.IN_FLIGHT,
+            e.owner = :owner, e.leaseUntil = :leaseUntil
+        where e.id = :id
+        and (e.status = com.cardengine.bank.outbox.BankOutboxStatus.PENDING
+            or (e.status = com.cardengine.bank.outbox.BankOutboxStatus.IN_FLIGHT and e.leaseUntil < :now))
+        """)
+    int claim(Long id, String owner, Instant now, Instant leaseUntil);
+
+    Optional<BankOutboxEntry> findByReferenceIdAndOperation(String referenceId, BankOutboxOperation operation);
+
+    long countByStatus(BankOutboxStatus status);
+}
@@ -0,0 +1,11 @@
+package com.cardengine.bank.outbox;
+
+/**
+ * Delivery status of a bank outbox entry.
+ */
+public enum BankOutboxStatus {
+    PENDING,    // Waiting to be sent to the bank core (or retried)
+    IN_FLIGHT,  // Claimed by a node that is sending it; free again once its lease runs out
+    DELIVERED,  // Bank core accepted the call
+    FAILED      // Gave up after max attempts; needs manual follow-up
+}
@@ -0,0 +1,34 @@
+package com.cardengine.bank.resilience;
+
+import com.cardengine.bank.BankAccountAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps every {@link BankAccountAdapter} bean in a
+ * {@link ResilientBankAccountAdapter}, so services injecting the adapter get
+ * the circuit breaker and bulkheads without knowing about them.
+ *
+ * Use {@link ResilientBankAccountAdapter#unwrap} to reach the adapter itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class BankAdapterResiliencePostProcessor implements BeanPostProcessor {
+
+    // Resolved lazily: post-processors are created before regular beans
+    private final ObjectProvider<BankResilienceSettings> settings;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof BankAccountAdapter adapter
+                && !(bean instanceof ResilientBankAccountAdapter)
+                && settings.getObject().isEnabled()) {
+            return new ResilientBankAccountAdapter(adapter, settings.getObject(), meterRegistry.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,29 @@
+package com.cardengine.bank.resilience;
+
+import com.cardengine.bank.BankAccountAdapter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically probes each bank core behind a {@link ResilientBankAccountAdapter}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BankCoreHealthProbe {
+
+    private final List<BankAccountAdapter> adapters;
+
+    @Scheduled(
+        initialDelayString = "${card-engine.bank.resilience.health-probe.interval:PT5S}",
+        fixedDelayString = "${card-engine.bank.resilience.health-probe.interval:PT5S}")
+    public void probe() {
+        for (BankAccountAdapter adapter : adapters) {
+            if (adapter instanceof ResilientBankAccountAdapter resilient) {
+                resilient.probe();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cardengine.bank.resilience;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the resilience layer around bank account adapters.
+ */
+@Component
+@Getter
+public class BankResilienceSettings {
+
+    private final boolean enabled;
+    private final int failureRateThreshold;
+    private final Duration slowCallThreshold;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final int placeHoldConcurrency;
+    private final int commitDebitConcurrency;
+    private final int releaseHoldConcurrency;
+    private final int balanceConcurrency;
+    private final Duration bulkheadMaxWait;
+    private final Duration healthProbeTimeout;
+    private final int healthProbeFailureThreshold;
+
+    public BankResilienceSettings(
+            @Value("${card-engine.bank.resilience.enabled:true}") boolean enabled,
+            @Value("${card-engine.bank.resilience.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${card-engine.bank.resilience.slow-call-threshold:2s}") Duration slowCallThreshold,
+            @Value("${card-engine.bank.resilience.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${card-engine.bank.resilience.minimum-calls:20}") int minimumCalls,
+            @Value("${card-engine.bank.resilience.open-duration:10s}") Duration openDuration,
+            @Value("${card-engine.bank.resilience.half-open-calls:5}") int halfOpenCalls,
+            @Value("${card-engine.bank.resilience.bulkhead.place-hold:64}") int placeHoldConcurrency,
+            @Value("${card-engine.bank.resilience.bulkhead.commit-debit:32}") int commitDebitConcurrency,
+            @Value("${card-engine.bank.resilience.bulkhead.release-hold:32}") int releaseHoldConcurrency,
+            @Value("${card-engine.bank.resilience.bulkhead.balance:32}") int balanceConcurrency,
+            @Value("${card-engine.bank.resilience.bulkhead.max-wait:0ms}") Duration bulkheadMaxWait,
+            @Value("${card-engine.bank.resilience.health-probe.timeout:1s}") Duration healthProbeTimeout,
+            @Value("${card-engine.bank.resilience.health-probe.failure-threshold:2}") int healthProbeFailureThreshold) {
+
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThreshold = slowCallThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.placeHoldConcurrency = placeHoldConcurrency;
+        this.commitDebitConcurrency = commitDebitConcurrency;
+        this.releaseHoldConcurrency = releaseHoldConcurrency;
+        this.balanceConcurrency = balanceConcurrency;
+        this.bulkheadMaxWait = bulkheadMaxWait;
+        this.healthProbeTimeout = healthProbeTimeout;
+        this.healthProbeFailureThreshold = healthProbeFailureThreshold;
+    }
+
+    CircuitBreaker newCircuitBreaker() {
+        return new CircuitBreaker(failureRateThreshold, slowCallThreshold, slidingWindowSize,
+            minimumCalls, openDuration, halfOpenCalls);
+    }
+}
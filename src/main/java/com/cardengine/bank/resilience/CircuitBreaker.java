@@ -0,0 +1,160 @@
+package com.cardengine.bank.resilience;
+
+import java.time.Duration;
+
+/**
+ * Failure-rate circuit breaker over a count-based sliding window.
+ *
+ * CLOSED: calls go through; the outcome of the last slidingWindowSize calls
+ * is kept. Once at least minimumCalls are recorded and the share of failed
+ * or slow calls reaches failureRateThreshold, the breaker opens.
+ *
+ * OPEN: calls are rejected without reaching the bank core. After
+ * openDuration the next call moves the breaker to HALF_OPEN.
+ *
+ * HALF_OPEN: halfOpenCalls trial calls are let through. If their failure
+ * rate is below the threshold the breaker closes, otherwise it opens again.
+ *
+ * A slow call (longer than slowCallThreshold) counts as a failure: a core
+ * that answers in ten seconds is as harmful to the authorization path as
+ * one that does not answer.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final long slowCallThresholdNanos;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    // Ring buffer of recent outcomes, true = failed or slow
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+
+    public CircuitBreaker(int failureRateThreshold, Duration slowCallThreshold, int slidingWindowSize,
+                          int minimumCalls, Duration openDuration, int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.outcomes = new boolean[slidingWindowSize];
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Ask to make a call. Every permitted call must be followed by
+     * {@link #onSuccess} or {@link #onFailure}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Record a call that completed, slow calls count as failures.
+     */
+    public void onSuccess(long durationNanos) {
+        record(durationNanos >= slowCallThresholdNanos);
+    }
+
+    /**
+     * Record a call that failed.
+     */
+    public void onFailure() {
+        record(true);
+    }
+
+    /**
+     * Open the breaker without waiting for calls to fail (e.g. the health
+     * probe found the core down).
+     */
+    public synchronized void open() {
+        if (state != State.OPEN) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Let trial calls through now instead of waiting out the open duration
+     * (e.g. the health probe found the core back).
+     */
+    public synchronized void halfOpen() {
+        if (state == State.OPEN) {
+            transitionTo(State.HALF_OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Failure rate of the recorded calls in percent, or -1 below minimumCalls.
+     */
+    public synchronized float getFailureRate() {
+        return recorded < minimumCalls ? -1 : failures * 100f / recorded;
+    }
+
+    private synchronized void record(boolean failed) {
+        if (state == State.OPEN) {
+            // Call was permitted before the breaker opened
+            return;
+        }
+
+        if (recorded == outcomes.length) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % outcomes.length;
+
+        if (state == State.HALF_OPEN) {
+            if (recorded >= halfOpenCalls) {
+                transitionTo(failures * 100 >= failureRateThreshold * recorded ? State.OPEN : State.CLOSED);
+            }
+        } else if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        state = next;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (next == State.HALF_OPEN) {
+            halfOpenPermits = halfOpenCalls;
+        }
+    }
+}
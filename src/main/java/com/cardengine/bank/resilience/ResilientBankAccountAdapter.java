@@ -0,0 +1,278 @@
+package com.cardengine.bank.resilience;
+
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.BankCoreUnavailableException;
+import com.cardengine.common.Money;
+import com.cardengine.common.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker and bulkheads around a {@link BankAccountAdapter}.
+ *
+ * Every call to the bank core goes through:
+ * - a bulkhead per operation, limiting how many calls of that operation can
+ *   be in flight at once. When it is full the call is rejected immediately,
+ *   so a slow core ties up at most that many request threads;
+ * - one circuit breaker for the core. When too many recent calls failed or
+ *   were slow it opens, and calls are rejected without reaching the core
+ *   until it has had time to recover.
+ *
+ * Rejected calls throw {@link BankCoreUnavailableException}, whose reason
+ * doubles as the decline code. Business outcomes (insufficient funds, an
+ * unknown hold) count as successful calls: the core answered.
+ *
+ * {@link #probe()} actively checks the core through the adapter's
+ * isHealthy(). Repeated probe failures open the breaker before traffic has
+ * to discover the outage; a successful probe while open lets trial calls
+ * through early. It is run on a schedule by {@link BankCoreHealthProbe}.
+ *
+ * Applied to every BankAccountAdapter bean by
+ * {@link BankAdapterResiliencePostProcessor}.
+ */
+@Slf4j
+public class ResilientBankAccountAdapter implements BankAccountAdapter {
+
+    /**
+     * Bank core operations, each with its own bulkhead.
+     */
+    public enum Operation {
+        BALANCE("getAvailableBalance"),
+        PLACE_HOLD("placeHold"),
+        COMMIT_DEBIT("commitDebit"),
+        RELEASE_HOLD("releaseHold");
+
+        private final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+    }
+
+    private final BankAccountAdapter delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<Operation, Bulkhead> bulkheads = new EnumMap<>(Operation.class);
+    private final long bulkheadMaxWaitNanos;
+    private final Duration probeTimeout;
+    private final int probeFailureThreshold;
+
+    private volatile boolean healthy = true;
+    private int consecutiveProbeFailures;
+
+    public ResilientBankAccountAdapter(BankAccountAdapter delegate, BankResilienceSettings settings,
+                                       MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = settings.newCircuitBreaker();
+        this.bulkheadMaxWaitNanos = settings.getBulkheadMaxWait().toNanos();
+        this.probeTimeout = settings.getHealthProbeTimeout();
+        this.probeFailureThreshold = settings.getHealthProbeFailureThreshold();
+
+        String adapter = delegate.getAdapterName();
+        bulkheads.put(Operation.BALANCE,
+            new Bulkhead(Operation.BALANCE, settings.getBalanceConcurrency(), adapter, meterRegistry));
+        bulkheads.put(Operation.PLACE_HOLD,
+            new Bulkhead(Operation.PLACE_HOLD, settings.getPlaceHoldConcurrency(), adapter, meterRegistry));
+        bulkheads.put(Operation.COMMIT_DEBIT,
+            new Bulkhead(Operation.COMMIT_DEBIT, settings.getCommitDebitConcurrency(), adapter, meterRegistry));
+        bulkheads.put(Operation.RELEASE_HOLD,
+            new Bulkhead(Operation.RELEASE_HOLD, settings.getReleaseHoldConcurrency(), adapter, meterRegistry));
+
+        Gauge.builder("cardengine.bank.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("Bank core circuit breaker state: 0 closed, 1 half-open, 2 open")
+            .tag("adapter", adapter)
+            .register(meterRegistry);
+        Gauge.builder("cardengine.bank.circuit.failure_rate", circuitBreaker, CircuitBreaker::getFailureRate)
+            .description("Failure rate in percent over the breaker's sliding window, -1 until enough calls")
+            .tag("adapter", adapter)
+            .register(meterRegistry);
+        Gauge.builder("cardengine.bank.core.healthy", this, resilient -> resilient.isHealthy() ? 1 : 0)
+            .description("Whether the bank core passed its last health probe and the breaker is not open")
+            .tag("adapter", adapter)
+            .register(meterRegistry);
+    }
+
+    /**
+     * The adapter behind a possibly resilient one.
+     */
+    public static BankAccountAdapter unwrap(BankAccountAdapter adapter) {
+        return adapter instanceof ResilientBankAccountAdapter resilient ? resilient.delegate : adapter;
+    }
+
+    @Override
+    public Money getAvailableBalance(String accountRef) {
+        return call(Operation.BALANCE, accountRef, () -> delegate.getAvailableBalance(accountRef));
+    }
+
+    @Override
+    public void placeHold(String accountRef, Money amount, String referenceId) {
+        call(Operation.PLACE_HOLD, accountRef, () -> {
+            delegate.placeHold(accountRef, amount, referenceId);
+            return null;
+        });
+    }
+
+    @Override
+    public void commitDebit(String accountRef, Money amount, String referenceId) {
+        call(Operation.COMMIT_DEBIT, accountRef, () -> {
+            delegate.commitDebit(accountRef, amount, referenceId);
+            return null;
+        });
+    }
+
+    @Override
+    public void releaseHold(String accountRef, Money amount, String referenceId) {
+        call(Operation.RELEASE_HOLD, accountRef, () -> {
+            delegate.releaseHold(accountRef, amount, referenceId);
+            return null;
+        });
+    }
+
+    @Override
+    public String getAdapterName() {
+        return delegate.getAdapterName();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy && circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Check the bank core through the adapter, within the probe timeout.
+     *
+     * @return whether the core answered as healthy
+     */
+    public boolean probe() {
+        boolean up;
+        try {
+            up = CompletableFuture.supplyAsync(delegate::isHealthy,
+                    task -> Thread.ofVirtual().name("bank-health-probe").start(task))
+                .get(probeTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            up = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return healthy;
+        }
+
+        synchronized (this) {
+            if (up) {
+                consecutiveProbeFailures = 0;
+                if (!healthy) {
+                    log.info("Bank core {} is healthy again", getAdapterName());
+                }
+                healthy = true;
+                circuitBreaker.halfOpen();
+            } else if (++consecutiveProbeFailures >= probeFailureThreshold) {
+                if (healthy) {
+                    log.warn("Bank core {} failed {} health probes, opening circuit",
+                        getAdapterName(), consecutiveProbeFailures);
+                }
+                healthy = false;
+                circuitBreaker.open();
+            }
+        }
+        return up;
+    }
+
+    private <T> T call(Operation operation, String accountRef, Supplier<T> call) {
+        Bulkhead bulkhead = bulkheads.get(operation);
+        if (!bulkhead.tryAcquire(bulkheadMaxWaitNanos)) {
+            bulkhead.rejected.increment();
+            throw new BankCoreUnavailableException(
+                BankCoreUnavailableException.Reason.BULKHEAD_FULL, accountRef, operation.methodName);
+        }
+
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                bulkhead.shortCircuited.increment();
+                throw new BankCoreUnavailableException(
+                    BankCoreUnavailableException.Reason.CIRCUIT_OPEN, accountRef, operation.methodName);
+            }
+
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                bulkhead.succeeded.increment();
+                return result;
+            } catch (InsufficientFundsException | IllegalArgumentException | IllegalStateException e) {
+                // The core answered; the request was refused on its merits
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                bulkhead.succeeded.increment();
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                bulkhead.failed.increment();
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static final class Bulkhead {
+
+        final Semaphore permits;
+        final Counter succeeded;
+        final Counter failed;
+        final Counter rejected;
+        final Counter shortCircuited;
+
+        Bulkhead(Operation operation, int concurrency, String adapter, MeterRegistry meterRegistry) {
+            this.permits = new Semaphore(concurrency);
+            this.succeeded = calls(meterRegistry, adapter, operation, "success");
+            this.failed = calls(meterRegistry, adapter, operation, "failure");
+            this.rejected = calls(meterRegistry, adapter, operation, "bulkhead_full");
+            this.shortCircuited = calls(meterRegistry, adapter, operation, "circuit_open");
+
+            Gauge.builder("cardengine.bank.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Free bulkhead slots for bank core calls")
+                .tag("adapter", adapter)
+                .tag("operation", operation.methodName)
+                .register(meterRegistry);
+        }
+
+        boolean tryAcquire(long maxWaitNanos) {
+            if (maxWaitNanos <= 0) {
+                return permits.tryAcquire();
+            }
+            try {
+                return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        private static Counter calls(MeterRegistry meterRegistry, String adapter, Operation operation,
+                                     String outcome) {
+            return Counter.builder("cardengine.bank.calls")
+                .description("Bank core calls by outcome")
+                .tag("adapter", adapter)
+                .tag("operation", operation.methodName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.cardengine.bank.standin;
+
+import java.time.Duration;
+
+/**
+ * Time budget for answering one authorization.
+ *
+ * Started when the request arrives; each stage that calls out of process is
+ * given its own limit, capped by whatever is left of the overall budget.
+ */
+public final class LatencyBudget {
+
+    private final long startNanos;
+    private final long budgetNanos;
+
+    private LatencyBudget(Duration budget) {
+        this.startNanos = System.nanoTime();
+        this.budgetNanos = budget.toNanos();
+    }
+
+    public static LatencyBudget start(Duration budget) {
+        return new LatencyBudget(budget);
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, budgetNanos - (System.nanoTime() - startNanos)));
+    }
+
+    /**
+     * Time a stage may take: its own limit, or less if the budget is nearly spent.
+     */
+    public Duration forStage(Duration stageLimit) {
+        Duration remaining = remaining();
+        return stageLimit.compareTo(remaining) < 0 ? stageLimit : remaining;
+    }
+
+    public boolean isExceeded() {
+        return System.nanoTime() - startNanos > budgetNanos;
+    }
+}
@@ -0,0 +1,20 @@
+package com.cardengine.bank.standin;
+
+import lombok.Value;
+
+/**
+ * Outcome of deciding an authorization without the bank core.
+ */
+@Value
+public class StandInDecision {
+    boolean approved;
+    String reason;
+
+    public static StandInDecision approve() {
+        return new StandInDecision(true, null);
+    }
+
+    public static StandInDecision decline(String reason) {
+        return new StandInDecision(false, reason);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cardengine.bank.standin;
+
+import com.cardengine.common.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * A bank hold owed for an authorization approved in stand-in.
+ *
+ * Written in the authorization's transaction and placed in the bank core
+ * later by {@link StandInReconciler}. A node claims a pending hold (owner
+ * and lease, see {@link StandInHoldRepository#claim}) before calling the
+ * bank core for it, and the version rejects a second status change made
+ * from a stale copy, e.g. a release cancelling a hold that was just placed.
+ */
+@Entity
+@Table(name = "stand_in_holds", indexes = {
+    @Index(name = "idx_stand_in_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_stand_in_account_status", columnList = "account_ref, status")
+})
+@Data
+@NoArgsConstructor
+public class StandInHold {
+
+    @Id
+    @Column(name = "authorization_id")
+    private String authorizationId;
+
+    @Column(name = "account_ref", nullable = false)
+    private String accountRef;
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "amount", column = @Column(name = "amount")),
+        @AttributeOverride(name = "currency", column = @Column(name = "currency"))
+    })
+    private Money amount;
+
+    /**
+     * Optimistic lock; see docs/sql/hold-version-backfill.sql for databases
+     * created before the column existed.
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    @Enumerated(EnumType.STRING)
+    private StandInHoldStatus status;
+
+    private int attempts;
+
+    private String lastError;
+
+    /**
+     * Node placing (or last placing) the hold in the bank core.
+     */
+    private String owner;
+
+    /**
+     * Other nodes leave the hold alone until then.
+     */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public StandInHold(String authorizationId, String accountRef, Money amount) {
+        this.authorizationId = authorizationId;
+        this.accountRef = accountRef;
+        this.amount = amount;
+        this.status = StandInHoldStatus.PENDING;
+        this.createdAt = Instant.now();
+        this.updatedAt = Instant.now();
+    }
+
+    public boolean isPending() {
+        return status == StandInHoldStatus.PENDING;
+    }
+
+    public void markPlaced() {
+        transition(StandInHoldStatus.PLACED);
+    }
+
+    public void markRejected(String reason) {
+        this.lastError = reason;
+        transition(StandInHoldStatus.REJECTED);
+    }
+
+    public void markCancelled() {
+        transition(StandInHoldStatus.CANCELLED);
+    }
+
+    public void recordFailedAttempt(String error) {
+        this.attempts++;
+        this.lastError = error;
+        this.leaseUntil = null;  // Any node may retry it
+        this.updatedAt = Instant.now();
+    }
+
+    private void transition(StandInHoldStatus next) {
+        if (status != StandInHoldStatus.PENDING) {
+            throw new IllegalStateException("Stand-in hold already " + status + ": " + authorizationId);
+        }
+        this.status = next;
+        this.updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,56 @@
+package com.cardengine.bank.standin;
+
+import com.cardengine.common.Currency;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for holds approved in stand-in.
+ */
+@Repository
+public interface StandInHoldRepository extends JpaRepository<StandInHold, String> {
+
+    List<StandInHold> findByStatus(StandInHoldStatus status);
+
+    List<StandInHold> findByStatusOrderByCreatedAtAsc(StandInHoldStatus status, Pageable pageable);
+
+    /**
+     * Outstanding stand-in exposure of an account: the amounts of its pending holds.
+     */
+    @Query("""
+        select coalesce(sum(h.amount.amount), 0) from StandInHold h
+        where h.accountRef = :accountRef and h.amount.currency = :currency
+        and h.status = com.cardengine.bank.standin.StandInHoldStatus.PENDING
+        """)
+    BigDecimal sumPending(String accountRef, Currency currency);
+
+    @Query("""
+        select coalesce(sum(h.amount.amount), 0) from StandInHold h
+        where h.amount.currency = :currency
+        and h.status = com.cardengine.bank.standin.StandInHoldStatus.PENDING
+        """)
+    BigDecimal sumAllPending(Currency currency);
+
+    /**
+     * Take a pending hold no other node holds a lease on.
+     *
+     * @return 1 if claimed, 0 if it is no longer pending or another node has it
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update StandInHold h set h.owner = :owner, h.leaseUntil = :leaseUntil
+        where h.authorizationId = :authorizationId
+        and h.status = com.cardengine.bank.standin.StandInHoldStatus.PENDING
+        and (h.leaseUntil is null or h.leaseUntil < :now)
+        """)
+    int claim(String authorizationId, String owner, Instant now, Instant leaseUntil);
+}
@@ -0,0 +1,11 @@
+package com.cardengine.bank.standin;
+
+/**
+ * Lifecycle of a hold approved in stand-in.
+ */
+public enum StandInHoldStatus {
+    PENDING,    // Approved locally; hold not yet placed in the bank core
+    PLACED,     // Hold placed in the bank core
+    REJECTED,   // Bank core refused the hold (e.g. insufficient funds)
+    CANCELLED   // Authorization released before the hold was placed
+}
@@ -0,0 +1,204 @@
+package com.cardengine.bank.standin;
+
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.common.TransactionCallbacks;
+import com.cardengine.common.exception.InsufficientFundsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Places holds for authorizations approved in stand-in.
+ *
+ * Runs periodically over PENDING holds, oldest first, each in its own
+ * transaction:
+ * - authorization no longer APPROVED or CLEARED (released) → CANCELLED, no
+ *   hold needed;
+ * - bank core places the hold → PLACED;
+ * - bank core refuses it for insufficient funds → REJECTED (the stand-in
+ *   approval stands; the shortfall is the issuer's exposure);
+ * - any other failure → stays PENDING and is retried next run.
+ *
+ * Several nodes may run this. Each hold is claimed with a lease before the
+ * bank core is called, so only one node places it; a node that dies
+ * mid-call loses the hold when the lease runs out. The hold's version
+ * catches a release that cancels it while it is being placed: the
+ * reconciler's update fails and the hold it just placed is released again.
+ *
+ * Settlement also calls in: clearing places a pending hold first so the
+ * core can debit against it (from the bank outbox when it is enabled), and
+ * a release cancels it.
+ */
+@Component
+@Slf4j
+public class StandInReconciler {
+
+    private final StandInHoldRepository holdRepository;
+    private final AuthorizationRepository authorizationRepository;
+    private final BankAccountAdapter bankAccountAdapter;
+    private final StandInService standInService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration lease;
+    private final String node = UUID.randomUUID().toString();
+
+    public StandInReconciler(
+            StandInHoldRepository holdRepository,
+            AuthorizationRepository authorizationRepository,
+            BankAccountAdapter bankAccountAdapter,
+            StandInService standInService,
+            TransactionTemplate transactionTemplate,
+            @Value("${card-engine.bank.stand-in.reconcile-batch-size:100}") int batchSize,
+            @Value("${card-engine.bank.stand-in.claim-lease:1m}") Duration lease) {
+
+        this.holdRepository = holdRepository;
+        this.authorizationRepository = authorizationRepository;
+        this.bankAccountAdapter = bankAccountAdapter;
+        this.standInService = standInService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    /**
+     * Reconcile one batch of pending holds.
+     *
+     * @return number of holds that are no longer pending
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.bank.stand-in.reconcile-interval:PT10S}",
+        fixedDelayString = "${card-engine.bank.stand-in.reconcile-interval:PT10S}")
+    public int reconcile() {
+        List<String> pending = holdRepository
+            .findByStatusOrderByCreatedAtAsc(StandInHoldStatus.PENDING, PageRequest.of(0, batchSize))
+            .stream()
+            .map(StandInHold::getAuthorizationId)
+            .toList();
+
+        int resolved = 0;
+        for (String authorizationId : pending) {
+            if (!claim(authorizationId)) {
+                continue;  // Resolved meanwhile, or another node is placing it
+            }
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> reconcile(authorizationId)))) {
+                    resolved++;
+                }
+            } catch (OptimisticLockingFailureException e) {
+                log.warn("Stand-in hold changed while being placed: authId={}", authorizationId);
+                releaseIfCancelled(authorizationId);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            log.info("Reconciled stand-in holds: {} of {} resolved", resolved, pending.size());
+        }
+        return resolved;
+    }
+
+    /**
+     * Place the pending hold for an authorization before it is cleared.
+     * Failures propagate so the clearing is retried, including when another
+     * node is placing the hold right now.
+     */
+    public void placeBeforeClearing(String authorizationId) {
+        holdRepository.findById(authorizationId)
+            .filter(StandInHold::isPending)
+            .ifPresent(hold -> {
+                if (!claim(authorizationId)) {
+                    throw new IllegalStateException("Stand-in hold is being placed: " + authorizationId);
+                }
+                bankAccountAdapter.placeHold(hold.getAccountRef(), hold.getAmount(), authorizationId);
+                resolve(hold, StandInHoldStatus.PLACED, null);
+            });
+    }
+
+    /**
+     * Cancel the pending hold for an authorization that is being released.
+     */
+    public void cancel(String authorizationId) {
+        holdRepository.findById(authorizationId)
+            .filter(StandInHold::isPending)
+            .ifPresent(hold -> resolve(hold, StandInHoldStatus.CANCELLED, null));
+    }
+
+    private boolean claim(String authorizationId) {
+        Instant now = Instant.now();
+        return holdRepository.claim(authorizationId, node, now, now.plus(lease)) == 1;
+    }
+
+    /**
+     * Undo a hold placed for an authorization released while it was being placed.
+     */
+    private void releaseIfCancelled(String authorizationId) {
+        holdRepository.findById(authorizationId)
+            .filter(hold -> hold.getStatus() == StandInHoldStatus.CANCELLED)
+            .ifPresent(hold -> {
+                try {
+                    bankAccountAdapter.releaseHold(hold.getAccountRef(), hold.getAmount(), authorizationId);
+                } catch (RuntimeException e) {
+                    log.error("Failed to release hold of cancelled stand-in hold: authId={}", authorizationId, e);
+                }
+            });
+    }
+
+    private boolean reconcile(String authorizationId) {
+        StandInHold hold = holdRepository.findById(authorizationId)
+            .filter(StandInHold::isPending)
+            .orElse(null);
+        if (hold == null) {
+            return false;
+        }
+
+        // A CLEARED authorization may still owe its hold: the outbox commits the debit later
+        boolean holdNeeded = authorizationRepository.findByAuthorizationId(authorizationId)
+            .map(authorization -> authorization.getStatus() == AuthorizationStatus.APPROVED
+                || authorization.getStatus() == AuthorizationStatus.CLEARED)
+            .orElse(false);
+        if (!holdNeeded) {
+            resolve(hold, StandInHoldStatus.CANCELLED, null);
+            return true;
+        }
+
+        try {
+            bankAccountAdapter.placeHold(hold.getAccountRef(), hold.getAmount(), authorizationId);
+            resolve(hold, StandInHoldStatus.PLACED, null);
+            return true;
+
+        } catch (InsufficientFundsException e) {
+            log.warn("Bank core rejected stand-in hold: authId={}, reason={}", authorizationId, e.getMessage());
+            resolve(hold, StandInHoldStatus.REJECTED, e.getMessage());
+            return true;
+
+        } catch (RuntimeException e) {
+            log.warn("Stand-in hold not placed yet: authId={}, attempt={}, error={}",
+                authorizationId, hold.getAttempts() + 1, e.getMessage());
+            hold.recordFailedAttempt(e.getMessage());
+            holdRepository.save(hold);
+            standInService.reconciliation("retry");
+            return false;
+        }
+    }
+
+    private void resolve(StandInHold hold, StandInHoldStatus outcome, String reason) {
+        switch (outcome) {
+            case PLACED -> hold.markPlaced();
+            case REJECTED -> hold.markRejected(reason);
+            case CANCELLED -> hold.markCancelled();
+            default -> throw new IllegalArgumentException("Not a final status: " + outcome);
+        }
+        holdRepository.save(hold);
+        TransactionCallbacks.afterCommit(() -> standInService.reconciliation(outcome.name().toLowerCase()));
+    }
+}
@@ -0,0 +1,322 @@
+package com.cardengine.bank.standin;
+
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.BankCoreException;
+import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
+import com.cardengine.common.Money;
+import com.cardengine.common.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deadline-aware hold placement with stand-in processing (STIP).
+ *
+ * When enabled, bank authorizations run against a {@link LatencyBudget}.
+ * The bank core hold is placed on a separate thread and awaited for at most
+ * the hold stage's share of the budget. If the core does not answer in time
+ * the authorization is decided locally instead:
+ * - the amount must be within the stand-in transaction limit;
+ * - outstanding stand-in exposure on the account, plus the amount, must be
+ *   within the stand-in account limit. Exposure is the sum of the account's
+ *   PENDING stand-in holds in the database, written by any node, plus the
+ *   decisions of this node whose transactions have not committed yet; it
+ *   drops when a hold is resolved, whichever node resolves it;
+ * - if a recent cached balance is known, it must cover the amount after
+ *   subtracting that exposure.
+ *
+ * Approved stand-in authorizations write a PENDING {@link StandInHold} that
+ * {@link StandInReconciler} places in the core later. A timed-out hold call
+ * that succeeds late either fulfils its pending hold or, if the authorization
+ * was declined, is released again.
+ *
+ * Balances are cached from the core in the background after successful
+ * online holds, at most once per balance TTL per account.
+ */
+@Component
+@Slf4j
+public class StandInService {
+
+    private final BankAccountAdapter bankAccountAdapter;
+    private final StandInHoldRepository holdRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration authorizationBudget;
+    private final Duration holdTimeout;
+    private final Duration balanceTtl;
+    private final long[] transactionLimit;
+    private final long[] accountLimit;
+
+    private final ExecutorService bankCalls =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bank-call-", 0).factory());
+    // Account -> minor units approved by this node whose holds are not committed yet
+    private final Map<String, Long> uncommitted = new ConcurrentHashMap<>();
+    private final Map<String, CachedBalance> balances = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter budgetExceeded;
+
+    public StandInService(
+            BankAccountAdapter bankAccountAdapter,
+            StandInHoldRepository holdRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.bank.stand-in.enabled:false}") boolean enabled,
+            @Value("${card-engine.bank.stand-in.authorization-budget:450ms}") Duration authorizationBudget,
+            @Value("${card-engine.bank.stand-in.hold-timeout:300ms}") Duration holdTimeout,
+            @Value("${card-engine.bank.stand-in.balance-ttl:5m}") Duration balanceTtl,
+            @Value("${card-engine.bank.stand-in.transaction-limit:100.00}") BigDecimal transactionLimit,
+            @Value("${card-engine.bank.stand-in.account-limit:500.00}") BigDecimal accountLimit) {
+
+        this.bankAccountAdapter = bankAccountAdapter;
+        this.holdRepository = holdRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.authorizationBudget = authorizationBudget;
+        this.holdTimeout = holdTimeout;
+        this.balanceTtl = balanceTtl;
+        this.transactionLimit = MinorUnits.forEachCurrency(transactionLimit);
+        this.accountLimit = MinorUnits.forEachCurrency(accountLimit);
+
+        this.budgetExceeded = Counter.builder("cardengine.bank.authorization.budget_exceeded")
+            .description("Bank authorizations that took longer than their latency budget")
+            .register(meterRegistry);
+        Gauge.builder("cardengine.bank.stand_in.exposure", this, StandInService::pendingExposure)
+            .description("Outstanding stand-in exposure in minor units (pending stand-in holds)")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LatencyBudget startBudget() {
+        return LatencyBudget.start(authorizationBudget);
+    }
+
+    /**
+     * Record how the authorization did against its budget.
+     */
+    public void complete(LatencyBudget budget) {
+        if (budget.isExceeded()) {
+            budgetExceeded.increment();
+            log.warn("Bank authorization exceeded latency budget: {} ms", budget.elapsed().toMillis());
+        }
+    }
+
+    /**
+     * Place a hold in the bank core within the hold stage's budget.
+     *
+     * @return true if the hold was placed, false if the core did not answer in time
+     * @throws RuntimeException whatever the adapter threw (e.g. insufficient funds)
+     */
+    public boolean placeHold(String accountRef, Money amount, String authorizationId, LatencyBudget budget) {
+        Duration wait = budget.forStage(holdTimeout);
+        long start = System.nanoTime();
+        CompletableFuture<Void> call = CompletableFuture.runAsync(
+            () -> bankAccountAdapter.placeHold(accountRef, amount, authorizationId), bankCalls);
+
+        try {
+            call.get(wait.toNanos(), TimeUnit.NANOSECONDS);
+            recordHold("placed", start);
+            refreshBalanceIfStale(accountRef);
+            return true;
+
+        } catch (TimeoutException e) {
+            recordHold("timeout", start);
+            log.warn("Bank core did not place hold within {} ms: authId={}", wait.toMillis(), authorizationId);
+            call.whenComplete((placed, failure) -> {
+                if (failure != null) {
+                    log.info("Timed-out bank hold failed, nothing to undo: authId={}, error={}",
+                        authorizationId, failure.getMessage());
+                    return;
+                }
+                try {
+                    onLateHold(accountRef, amount, authorizationId);
+                } catch (RuntimeException lateFailure) {
+                    reconciliation("late_failed");
+                    log.error("Failed to settle late bank hold: authId={}", authorizationId, lateFailure);
+                }
+            });
+            return false;
+
+        } catch (ExecutionException e) {
+            recordHold("declined", start);
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new BankCoreException("Hold failed: " + e.getCause().getMessage(),
+                accountRef, "placeHold", e.getCause());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankCoreException("Interrupted waiting for bank core", accountRef, "placeHold", e);
+        }
+    }
+
+    /**
+     * Decide an authorization without the bank core. If approved, reserves
+     * stand-in exposure and queues the hold (in the caller's transaction).
+     */
+    public StandInDecision decide(String accountRef, Money amount, String authorizationId) {
+        Currency currency = amount.getCurrency();
+        long requested = amount.toMinorUnits();
+
+        if (requested > transactionLimit[currency.ordinal()]) {
+            return decision("over_transaction_limit",
+                StandInDecision.decline("Bank core unavailable: amount exceeds stand-in limit"));
+        }
+
+        long pending = MinorUnits.fromDecimal(holdRepository.sumPending(accountRef, currency), currency);
+        long reserved = pending + uncommitted.merge(accountRef, requested, Long::sum);
+        if (reserved > accountLimit[currency.ordinal()]) {
+            unreserve(accountRef, requested);
+            return decision("over_account_limit",
+                StandInDecision.decline("Bank core unavailable: stand-in exposure limit reached"));
+        }
+
+        Optional<Long> cached = cachedAvailable(accountRef, currency);
+        if (cached.isPresent() && cached.get() - reserved < 0) {
+            unreserve(accountRef, requested);
+            return decision("insufficient_cached_balance",
+                StandInDecision.decline("Insufficient funds (stand-in)"));
+        }
+
+        TransactionCallbacks.afterRollback(() -> unreserve(accountRef, requested));
+        holdRepository.save(new StandInHold(authorizationId, accountRef, amount));
+        // Once committed the hold counts as pending in the database
+        TransactionCallbacks.afterCommit(() -> unreserve(accountRef, requested));
+
+        log.info("Authorization approved in stand-in: authId={}, account={}, amount={} {}",
+            authorizationId, accountRef, amount.getAmount(), currency);
+        return decision("none", StandInDecision.approve());
+    }
+
+    private void unreserve(String accountRef, long minorUnits) {
+        uncommitted.computeIfPresent(accountRef, (ref, total) -> total == minorUnits ? null : total - minorUnits);
+    }
+
+    /**
+     * Record a balance read from the bank core.
+     */
+    public void updateBalance(String accountRef, Money available) {
+        balances.put(accountRef, new CachedBalance(available, Instant.now()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bankCalls.shutdownNow();
+    }
+
+    private void onLateHold(String accountRef, Money amount, String authorizationId) {
+        boolean fulfilled = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+            holdRepository.findById(authorizationId)
+                .filter(StandInHold::isPending)
+                .map(hold -> {
+                    hold.markPlaced();
+                    holdRepository.save(hold);
+                    return true;
+                })
+                .orElse(false)));
+
+        if (fulfilled) {
+            reconciliation("late_placed");
+            log.info("Late bank hold fulfilled stand-in hold: authId={}", authorizationId);
+            return;
+        }
+
+        // Declined (or not yet committed; the reconciler will place it again)
+        bankAccountAdapter.releaseHold(accountRef, amount, authorizationId);
+        reconciliation("late_released");
+        log.info("Released late bank hold: authId={}", authorizationId);
+    }
+
+    private long pendingExposure() {
+        long total = 0;
+        for (Currency currency : Currency.values()) {
+            total += MinorUnits.fromDecimal(holdRepository.sumAllPending(currency), currency);
+        }
+        return total;
+    }
+
+    private Optional<Long> cachedAvailable(String accountRef, Currency currency) {
+        CachedBalance cached = balances.get(accountRef);
+        if (cached == null
+                || cached.available.getCurrency() != currency
+                || cached.fetchedAt.plus(balanceTtl).isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(cached.available.toMinorUnits());
+    }
+
+    private void refreshBalanceIfStale(String accountRef) {
+        CachedBalance cached = balances.get(accountRef);
+        boolean stale = cached == null || cached.fetchedAt.plus(balanceTtl).isBefore(Instant.now());
+        if (!stale || !refreshing.add(accountRef)) {
+            return;
+        }
+        bankCalls.execute(() -> {
+            try {
+                updateBalance(accountRef, bankAccountAdapter.getAvailableBalance(accountRef));
+            } catch (RuntimeException e) {
+                log.debug("Could not refresh cached balance for {}: {}", accountRef, e.getMessage());
+            } finally {
+                refreshing.remove(accountRef);
+            }
+        });
+    }
+
+    private void recordHold(String outcome, long startNanos) {
+        Timer.builder("cardengine.bank.hold.duration")
+            .description("Time waited for the bank core to place a hold")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private StandInDecision decision(String reason, StandInDecision decision) {
+        Counter.builder("cardengine.bank.stand_in.decisions")
+            .description("Authorizations decided in stand-in")
+            .tag("decision", decision.isApproved() ? "approved" : "declined")
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+        return decision;
+    }
+
+    void reconciliation(String outcome) {
+        Counter.builder("cardengine.bank.stand_in.reconciliations")
+            .description("Stand-in holds by reconciliation outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    @lombok.Value
+    private static class CachedBalance {
+        Money available;
+        Instant fetchedAt;
+    }
+}
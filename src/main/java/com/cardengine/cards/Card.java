@@ -16,7 +16,13 @@ import java.util.UUID;
  * Each card is backed by exactly one funding account (MVP constraint).
  */
 @Entity
-@Table(name = "cards")
+@Table(name = "cards", indexes = {
+    @Index(name = "idx_card_token", columnList = "card_token", unique = true),
+    @Index(name = "idx_card_last4", columnList = "last4"),
+    @Index(name = "idx_card_program", columnList = "program_id"),
+    @Index(name = "idx_card_mcc_policy", columnList = "mcc_policy_id"),
+    @Index(name = "idx_card_updated_at", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 public class Card {
@@ -33,6 +39,13 @@ public class Card {
      */
     private String last4;
 
+    /**
+     * Processor token identifying this card in webhooks.
+     * Opaque and unique; generated at issuance unless the processor supplies one.
+     */
+    @Column(name = "card_token")
+    private String cardToken;
+
     /**
      * Expiration date of the card.
      */
@@ -55,6 +68,18 @@ public class Card {
      */
     private String ownerId;
 
+    /**
+     * Card program this card was issued under, if any.
+     */
+    @Column(name = "program_id")
+    private String programId;
+
+    /**
+     * MCC policy for this card; overrides the program's policy when set.
+     */
+    @Column(name = "mcc_policy_id")
+    private String mccPolicyId;
+
     @Column(name = "created_at")
     private Instant createdAt;
 
@@ -63,9 +88,15 @@ public class Card {
 
     public Card(String cardholderName, String last4, LocalDate expirationDate,
                 String fundingAccountId, String ownerId) {
+        this(cardholderName, last4, expirationDate, fundingAccountId, ownerId, generateToken());
+    }
+
+    public Card(String cardholderName, String last4, LocalDate expirationDate,
+                String fundingAccountId, String ownerId, String cardToken) {
         this.cardId = UUID.randomUUID().toString();
         this.cardholderName = cardholderName;
         this.last4 = last4;
+        this.cardToken = cardToken;
         this.expirationDate = expirationDate;
         this.fundingAccountId = fundingAccountId;
         this.ownerId = ownerId;
@@ -74,6 +105,11 @@ public class Card {
         this.updatedAt = Instant.now();
     }
 
+    public void assignMccPolicy(String mccPolicyId) {
+        this.mccPolicyId = mccPolicyId;
+        this.updatedAt = Instant.now();
+    }
+
     public void freeze() {
         if (state == CardState.CLOSED) {
             throw new InvalidCardStateException(cardId, state.name(), "freeze");
@@ -105,4 +141,11 @@ public class Card {
     public boolean isExpired() {
         return LocalDate.now().isAfter(expirationDate);
     }
+
+    /**
+     * Generate a new opaque card token.
+     */
+    public static String generateToken() {
+        return "tok_" + UUID.randomUUID().toString().replace("-", "");
+    }
 }
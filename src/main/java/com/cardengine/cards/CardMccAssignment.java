@@ -0,0 +1,7 @@
+package com.cardengine.cards;
+
+/**
+ * The columns of a card that decide its MCC policy.
+ */
+public record CardMccAssignment(String cardId, String programId, String mccPolicyId) {
+}
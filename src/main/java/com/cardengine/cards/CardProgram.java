@@ -0,0 +1,41 @@
+package com.cardengine.cards;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A group of cards issued under the same product, e.g. a corporate expense
+ * program. Cards join a program at issuance.
+ *
+ * The program's MCC policy applies to every card in it that has no policy
+ * of its own.
+ */
+@Entity
+@Table(name = "card_programs", indexes = {
+    @Index(name = "idx_card_program_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+public class CardProgram {
+
+    @Id
+    private String programId;
+
+    private String mccPolicyId;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public CardProgram(String programId) {
+        this.programId = programId;
+        this.updatedAt = Instant.now();
+    }
+
+    public void assignMccPolicy(String mccPolicyId) {
+        this.mccPolicyId = mccPolicyId;
+        this.updatedAt = Instant.now();
+    }
+}
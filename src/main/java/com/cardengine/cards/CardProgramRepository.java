@@ -0,0 +1,16 @@
+package com.cardengine.cards;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for card programs.
+ */
+@Repository
+public interface CardProgramRepository extends JpaRepository<CardProgram, String> {
+
+    List<CardProgram> findByUpdatedAtGreaterThanEqual(Instant since);
+}
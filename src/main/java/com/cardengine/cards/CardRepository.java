@@ -1,8 +1,13 @@
 package com.cardengine.cards;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +19,37 @@ public interface CardRepository extends JpaRepository<Card, String> {
 
     Optional<Card> findByCardId(String cardId);
 
+    Optional<Card> findByCardToken(String cardToken);
+
+    /**
+     * At most two cards with these last four digits: enough to tell a unique match from an ambiguous one.
+     */
+    List<Card> findTop2ByLast4(String last4);
+
     List<Card> findByOwnerId(String ownerId);
 
     List<Card> findByFundingAccountId(String fundingAccountId);
+
+    // MCC policy assignments, paged by card ID (keyset: pass the last card ID seen, "" to start)
+
+    @Query("select new com.cardengine.cards.CardMccAssignment(c.cardId, c.programId, c.mccPolicyId)"
+        + " from Card c where (c.programId is not null or c.mccPolicyId is not null)"
+        + " and c.cardId > :after order by c.cardId")
+    List<CardMccAssignment> findMccAssignments(@Param("after") String after, Pageable page);
+
+    @Query("select new com.cardengine.cards.CardMccAssignment(c.cardId, c.programId, c.mccPolicyId)"
+        + " from Card c where c.updatedAt >= :since and c.cardId > :after order by c.cardId")
+    List<CardMccAssignment> findMccAssignmentsUpdatedSince(
+        @Param("since") Instant since, @Param("after") String after, Pageable page);
+
+    @Query("select new com.cardengine.cards.CardMccAssignment(c.cardId, c.programId, c.mccPolicyId)"
+        + " from Card c where c.mccPolicyId in :policyIds and c.cardId > :after order by c.cardId")
+    List<CardMccAssignment> findMccAssignmentsByPolicy(
+        @Param("policyIds") Collection<String> policyIds, @Param("after") String after, Pageable page);
+
+    @Query("select new com.cardengine.cards.CardMccAssignment(c.cardId, c.programId, c.mccPolicyId)"
+        + " from Card c where c.programId in :programIds and c.mccPolicyId is null"
+        + " and c.cardId > :after order by c.cardId")
+    List<CardMccAssignment> findMccAssignmentsByProgram(
+        @Param("programIds") Collection<String> programIds, @Param("after") String after, Pageable page);
 }
@@ -3,6 +3,7 @@ package com.cardengine.cards;
 import com.cardengine.accounts.Account;
 import com.cardengine.accounts.AccountService;
 import com.cardengine.common.exception.CardNotFoundException;
+import com.cardengine.rules.MccPolicyStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -21,15 +22,41 @@ public class CardService {
 
     private final CardRepository cardRepository;
     private final AccountService accountService;
+    private final CardTokenIndex cardTokenIndex;
+    private final MccPolicyStore mccPolicyStore;
 
     @Transactional
     public Card issueCard(String cardholderName, String last4, LocalDate expirationDate,
                           String fundingAccountId, String ownerId) {
+        return issueCard(cardholderName, last4, expirationDate, fundingAccountId, ownerId, null);
+    }
+
+    /**
+     * Issue a card with a processor-supplied token (generated if null).
+     */
+    @Transactional
+    public Card issueCard(String cardholderName, String last4, LocalDate expirationDate,
+                          String fundingAccountId, String ownerId, String cardToken) {
+        return issueCard(cardholderName, last4, expirationDate, fundingAccountId, ownerId, cardToken, null);
+    }
+
+    /**
+     * Issue a card under a card program (none if null), whose MCC policy then applies to it.
+     */
+    @Transactional
+    public Card issueCard(String cardholderName, String last4, LocalDate expirationDate,
+                          String fundingAccountId, String ownerId, String cardToken, String programId) {
         // Validate that the funding account exists
         Account account = accountService.getAccount(fundingAccountId);
 
-        Card card = new Card(cardholderName, last4, expirationDate, fundingAccountId, ownerId);
+        Card card = new Card(cardholderName, last4, expirationDate, fundingAccountId, ownerId,
+            cardToken != null ? cardToken : Card.generateToken());
+        card.setProgramId(programId);
         cardRepository.save(card);
+        cardTokenIndex.evict(card);
+        if (programId != null) {
+            mccPolicyStore.cardChanged(card);
+        }
 
         log.info("Issued card {} for {} backed by {} account {}",
             card.getCardId(), cardholderName, account.getAccountType(), fundingAccountId);
@@ -69,6 +96,7 @@ public class CardService {
         Card card = getCard(cardId);
         card.close();
         cardRepository.save(card);
+        cardTokenIndex.evict(card);
         log.info("Closed card {}", cardId);
     }
 }
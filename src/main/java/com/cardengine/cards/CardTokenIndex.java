@@ -0,0 +1,91 @@
+package com.cardengine.cards;
+
+import com.cardengine.common.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves processor card tokens to card IDs.
+ *
+ * Lookups go through a bounded LRU cache (token → cardId) backed by the
+ * unique index on cards.card_token. Tokens that match no card_token are
+ * treated as legacy last4 tokens and resolved through the last4 index,
+ * which keeps webhooks working for cards issued before tokens existed.
+ * last4 is not unique: a legacy token that matches more than one card is
+ * rejected rather than attached to an arbitrary card, and never cached.
+ *
+ * Entries for a card are evicted when it is issued or closed, both
+ * immediately and again after the transaction commits.
+ */
+@Component
+@Slf4j
+public class CardTokenIndex {
+
+    private final CardRepository cardRepository;
+    private final Map<String, String> cache;
+
+    public CardTokenIndex(
+            CardRepository cardRepository,
+            @Value("${card-engine.cards.token-cache-size:100000}") int capacity) {
+        this.cardRepository = cardRepository;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Resolve a card token to its card ID.
+     *
+     * @throws IllegalArgumentException if the token is a legacy last4 shared by several cards
+     */
+    public Optional<String> resolve(String cardToken) {
+        String cached = cache.get(cardToken);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<String> cardId = cardRepository.findByCardToken(cardToken)
+            .or(() -> findByLast4(cardToken))
+            .map(Card::getCardId);
+
+        cardId.ifPresent(id -> cache.put(cardToken, id));
+        return cardId;
+    }
+
+    private Optional<Card> findByLast4(String last4) {
+        List<Card> cards = cardRepository.findTop2ByLast4(last4);
+        if (cards.size() > 1) {
+            log.warn("Card token {} matches more than one card by last4; rejecting", last4);
+            throw new IllegalArgumentException("Card token is ambiguous: " + last4);
+        }
+        return cards.stream().findFirst();
+    }
+
+    /**
+     * Drop cached entries that may point at (or be shadowed by) this card.
+     */
+    public void evict(Card card) {
+        evictNow(card);
+        TransactionCallbacks.afterCommit(() -> evictNow(card));
+    }
+
+    private void evictNow(Card card) {
+        if (card.getCardToken() != null) {
+            cache.remove(card.getCardToken());
+        }
+        if (card.getLast4() != null) {
+            cache.remove(card.getLast4());
+        }
+        log.debug("Evicted token index entries for card {}", card.getCardId());
+    }
+}
@@ -3,11 +3,25 @@ package com.cardengine.common;
 /**
  * Supported currencies in the card engine.
  * In production, this could be extended or replaced with ISO 4217 currency codes.
+ *
+ * Each currency carries its minor-unit exponent (digits after the decimal
+ * point). Stablecoins are handled at cent precision here, matching the
+ * two-decimal amount columns.
  */
 public enum Currency {
-    USD,
-    EUR,
-    GBP,
-    USDC,  // Stablecoin example
-    USDT   // Stablecoin example
+    USD(2),
+    EUR(2),
+    GBP(2),
+    USDC(2),  // Stablecoin example
+    USDT(2);  // Stablecoin example
+
+    private final int exponent;
+
+    Currency(int exponent) {
+        this.exponent = exponent;
+    }
+
+    public int getExponent() {
+        return exponent;
+    }
 }
@@ -0,0 +1,51 @@
+package com.cardengine.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between decimal amounts and {@code long} minor units
+ * (cents for USD), using the currency's exponent.
+ *
+ * Rules, reservations and running aggregates work on minor units so that
+ * additions and comparisons on the hot path are plain {@code long}
+ * arithmetic. {@link Money} remains the type at the API and JPA boundaries;
+ * convert with {@link Money#toMinorUnits()} and {@link Money#ofMinorUnits}.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    /**
+     * Convert a decimal amount to minor units, rounding HALF_UP to the
+     * currency's exponent like {@link Money#of(BigDecimal, Currency)}.
+     *
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long fromDecimal(BigDecimal amount, Currency currency) {
+        return amount.setScale(currency.getExponent(), RoundingMode.HALF_UP)
+            .unscaledValue()
+            .longValueExact();
+    }
+
+    /**
+     * Convert minor units back to a decimal amount at the currency's scale.
+     */
+    public static BigDecimal toDecimal(long minorUnits, Currency currency) {
+        return BigDecimal.valueOf(minorUnits, currency.getExponent());
+    }
+
+    /**
+     * Convert a decimal amount to minor units for every currency, indexed by
+     * {@link Currency#ordinal()}. Used for currency-less configured limits.
+     */
+    public static long[] forEachCurrency(BigDecimal amount) {
+        Currency[] currencies = Currency.values();
+        long[] result = new long[currencies.length];
+        for (Currency currency : currencies) {
+            result[currency.ordinal()] = fromDecimal(amount, currency);
+        }
+        return result;
+    }
+}
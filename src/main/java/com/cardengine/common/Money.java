@@ -3,9 +3,12 @@ package com.cardengine.common;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,18 +16,32 @@ import java.math.RoundingMode;
 /**
  * Immutable value object representing a monetary amount with currency.
  * Uses BigDecimal for precise decimal arithmetic required in financial systems.
+ *
+ * The amount in minor units is computed on first use and cached, so repeated
+ * limit and balance checks against the same Money do not allocate.
  */
 @Embeddable
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Money {
 
+    private static final long MINOR_UNITS_UNSET = Long.MIN_VALUE;
+
     private BigDecimal amount;
 
     @Enumerated(EnumType.STRING)
     private Currency currency;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile long minorUnits = MINOR_UNITS_UNSET;
+
+    public Money(BigDecimal amount, Currency currency) {
+        this.amount = amount;
+        this.currency = currency;
+    }
+
     public static Money of(BigDecimal amount, Currency currency) {
         if (amount == null) {
             throw new IllegalArgumentException("Amount cannot be null");
@@ -32,17 +49,47 @@ public class Money {
         if (currency == null) {
             throw new IllegalArgumentException("Currency cannot be null");
         }
-        return new Money(amount.setScale(2, RoundingMode.HALF_UP), currency);
+        return new Money(amount.setScale(currency.getExponent(), RoundingMode.HALF_UP), currency);
     }
 
     public static Money of(String amount, Currency currency) {
         return of(new BigDecimal(amount), currency);
     }
 
+    public static Money ofMinorUnits(long minorUnits, Currency currency) {
+        Money money = of(MinorUnits.toDecimal(minorUnits, currency), currency);
+        money.minorUnits = minorUnits;
+        return money;
+    }
+
     public static Money zero(Currency currency) {
         return of(BigDecimal.ZERO, currency);
     }
 
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        this.minorUnits = MINOR_UNITS_UNSET;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+        this.minorUnits = MINOR_UNITS_UNSET;
+    }
+
+    /**
+     * Amount in minor units of the currency (e.g. cents).
+     *
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public long toMinorUnits() {
+        long cached = minorUnits;
+        if (cached == MINOR_UNITS_UNSET) {
+            cached = MinorUnits.fromDecimal(amount, currency);
+            minorUnits = cached;
+        }
+        return cached;
+    }
+
     public Money add(Money other) {
         validateSameCurrency(other);
         return new Money(this.amount.add(other.amount), this.currency);
@@ -55,7 +102,7 @@ public class Money {
 
     public Money multiply(BigDecimal multiplier) {
         return new Money(
-            this.amount.multiply(multiplier).setScale(2, RoundingMode.HALF_UP),
+            this.amount.multiply(multiplier).setScale(currency.getExponent(), RoundingMode.HALF_UP),
             this.currency
         );
     }
@@ -0,0 +1,231 @@
+package com.cardengine.common.idempotency;
+
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.common.TransactionCallbacks;
+import com.cardengine.ledger.LedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Fast path for idempotency checks.
+ *
+ * For each scope keeps a Bloom filter of the keys recorded recently and a
+ * bounded LRU of recent key → result. A lookup for a key the filter has
+ * never seen (the common case: a first-time request) returns immediately
+ * without touching the database. Possible duplicates are answered from the
+ * LRU, and only fall back to the database query on a cache miss.
+ *
+ * Keys are added to the filter as soon as they are recorded (a filter entry
+ * for a rolled-back request only costs one extra query later). Results are
+ * added to the LRU after the transaction commits. The unique index on
+ * idempotency_key remains the authority: keys written by another instance
+ * after this one started are caught there.
+ *
+ * Each scope has two filters, current and previous, rotated every
+ * card-engine.idempotency.window: the previous one is dropped and a new one
+ * is sized from the keys the current one took in its window, so the false
+ * positive rate stays near its target as traffic grows. A key is covered
+ * for at least one window after it is recorded; older duplicates pass the
+ * filter and are caught by the unique index, like keys from another
+ * instance. At startup the current filter is sized from, and filled with,
+ * the keys of the last window only.
+ */
+@Component
+@Slf4j
+public class IdempotencyRegistry {
+
+    /**
+     * Room for growth when sizing a filter from the previous window's keys.
+     */
+    private static final double HEADROOM = 1.5;
+
+    private final AuthorizationRepository authorizationRepository;
+    private final LedgerRepository ledgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final Duration window;
+    private final Map<IdempotencyScope, ScopeState> scopes = new EnumMap<>(IdempotencyScope.class);
+
+    public IdempotencyRegistry(
+            AuthorizationRepository authorizationRepository,
+            LedgerRepository ledgerRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.idempotency.expected-keys:1000000}") long expectedKeys,
+            @Value("${card-engine.idempotency.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${card-engine.idempotency.recent-results:10000}") int recentResults,
+            @Value("${card-engine.idempotency.window:P1D}") Duration window) {
+
+        this.authorizationRepository = authorizationRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+        this.window = window;
+
+        for (IdempotencyScope scope : IdempotencyScope.values()) {
+            scopes.put(scope, new ScopeState(scope, newFilter(0), recentResults, meterRegistry));
+        }
+    }
+
+    /**
+     * Find the result previously recorded for a key.
+     *
+     * @param loader database lookup, only called when the key may have been seen
+     *               and its result is not cached
+     */
+    public <T> Optional<T> find(IdempotencyScope scope, String key, Class<T> resultType,
+                                Function<String, Optional<T>> loader) {
+        ScopeState state = scopes.get(scope);
+
+        if (!state.filters.mightContain(key)) {
+            state.filterMisses.increment();
+            return Optional.empty();
+        }
+
+        Object cached = state.recent.get(key);
+        if (resultType.isInstance(cached)) {
+            state.cacheHits.increment();
+            return Optional.of(resultType.cast(cached));
+        }
+
+        Optional<T> loaded = loader.apply(key);
+        if (loaded.isPresent()) {
+            state.databaseHits.increment();
+            state.recent.put(key, loaded.get());
+        } else {
+            state.falsePositives.increment();
+        }
+        return loaded;
+    }
+
+    /**
+     * Record the result of processing a key.
+     */
+    public void record(IdempotencyScope scope, String key, Object result) {
+        ScopeState state = scopes.get(scope);
+        state.filters.current().put(key);
+        TransactionCallbacks.afterCommit(() -> state.recent.put(key, result));
+    }
+
+    /**
+     * Rebuild the filters from the idempotency keys persisted in the last window.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Instant since = Instant.now().minus(window);
+        long authorizationKeys = transactionTemplate.execute(status ->
+            load(IdempotencyScope.AUTHORIZATION, authorizationRepository.countByCreatedAtAfter(since),
+                authorizationRepository.streamIdempotencyKeysCreatedAfter(since)));
+        long ledgerKeys = transactionTemplate.execute(status ->
+            load(IdempotencyScope.LEDGER, ledgerRepository.countByCreatedAtAfter(since),
+                ledgerRepository.streamIdempotencyKeysCreatedAfter(since)));
+
+        log.info("Loaded idempotency filters: {} authorization keys, {} ledger keys since {}",
+            authorizationKeys, ledgerKeys, since);
+    }
+
+    /**
+     * Start a new window: drop the previous filter and size the next one from
+     * the keys the current one took.
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.idempotency.window:P1D}",
+        fixedRateString = "${card-engine.idempotency.window:P1D}")
+    public void rotate() {
+        for (Map.Entry<IdempotencyScope, ScopeState> entry : scopes.entrySet()) {
+            ScopeState state = entry.getValue();
+            BloomFilter current = state.filters.current();
+            state.filters = new Filters(newFilter(current.insertions()), current);
+            log.info("Rotated {} idempotency filter: {} keys last window, next sized for {}",
+                entry.getKey(), current.insertions(), sizeFor(current.insertions()));
+        }
+    }
+
+    private long load(IdempotencyScope scope, long count, Stream<String> keys) {
+        ScopeState state = scopes.get(scope);
+        BloomFilter filter = newFilter(count);
+        try (keys) {
+            keys.filter(Objects::nonNull).forEach(filter::put);
+        }
+        // Keep keys recorded while loading
+        state.filters = new Filters(filter, state.filters.current());
+        return filter.insertions();
+    }
+
+    private BloomFilter newFilter(long lastWindowKeys) {
+        return new BloomFilter(sizeFor(lastWindowKeys), falsePositiveRate);
+    }
+
+    private long sizeFor(long lastWindowKeys) {
+        return Math.max(expectedKeys, (long) (lastWindowKeys * HEADROOM));
+    }
+
+    /**
+     * The filter keys are recorded in, and the one from the previous window.
+     */
+    private record Filters(BloomFilter current, BloomFilter previous) {
+
+        boolean mightContain(String key) {
+            return current.mightContain(key) || (previous != null && previous.mightContain(key));
+        }
+    }
+
+    private static final class ScopeState {
+
+        volatile Filters filters;
+        final Map<String, Object> recent;
+        final Counter filterMisses;
+        final Counter cacheHits;
+        final Counter databaseHits;
+        final Counter falsePositives;
+
+        ScopeState(IdempotencyScope scope, BloomFilter filter, int recentResults, MeterRegistry meterRegistry) {
+            this.filters = new Filters(filter, null);
+            this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                    return size() > recentResults;
+                }
+            });
+
+            String tag = scope.name().toLowerCase();
+            this.filterMisses = lookups(meterRegistry, tag, "filter_miss");
+            this.cacheHits = lookups(meterRegistry, tag, "cache_hit");
+            this.databaseHits = lookups(meterRegistry, tag, "database_hit");
+            this.falsePositives = lookups(meterRegistry, tag, "false_positive");
+
+            Gauge.builder("cardengine.idempotency.filter.keys", this, state -> state.filters.current().insertions())
+                .description("Keys inserted into the current window's idempotency Bloom filter")
+                .tag("scope", tag)
+                .register(meterRegistry);
+        }
+
+        private static Counter lookups(MeterRegistry meterRegistry, String scope, String result) {
+            return Counter.builder("cardengine.idempotency.lookups")
+                .description("Idempotency lookups by outcome")
+                .tag("scope", scope)
+                .tag("result", result)
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.cardengine.common.idempotency;
+
+/**
+ * Namespaces for idempotency keys. Each scope corresponds to the table
+ * whose unique idempotency_key column is authoritative for it.
+ */
+public enum IdempotencyScope {
+    /**
+     * Keys of authorization requests (authorizations table).
+     */
+    AUTHORIZATION,
+
+    /**
+     * Keys of ledger postings: holds, releases, clearings, reversals,
+     * deposits (ledger_entries table).
+     */
+    LEDGER
+}
@@ -0,0 +1,54 @@
+package com.cardengine.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a newest-first ledger listing: the (created_at, entry_id) of
+ * the last entry returned. The next page starts strictly after it.
+ *
+ * Encoded as an opaque URL-safe string for API clients.
+ */
+public record LedgerCursor(Instant createdAt, String entryId) {
+
+    public static LedgerCursor after(LedgerEntry entry) {
+        return new LedgerCursor(entry.getCreatedAt(), entry.getEntryId());
+    }
+
+    /**
+     * Decode a cursor from the API, or null for the first page.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static LedgerCursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid ledger cursor: " + encoded);
+            }
+            return new LedgerCursor(
+                Instant.parse(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid ledger cursor: " + encoded, e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((createdAt + "|" + entryId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether an entry comes after this cursor in newest-first order.
+     */
+    public boolean precedes(LedgerEntry entry) {
+        int byTime = entry.getCreatedAt().compareTo(createdAt);
+        return byTime < 0 || (byTime == 0 && entry.getEntryId().compareTo(entryId) < 0);
+    }
+}
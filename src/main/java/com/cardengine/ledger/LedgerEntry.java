@@ -1,11 +1,19 @@
 package com.cardengine.ledger;
 
+import com.cardengine.common.Currency;
 import com.cardengine.common.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -16,16 +24,22 @@ import java.util.UUID;
  * - One credit
  *
  * Ledger entries are never updated or deleted - they are append-only.
+ * New entries report themselves as new so that save() persists them directly
+ * (no select-before-insert), which lets inserts go out as JDBC batches.
  */
 @Entity
 @Table(name = "ledger_entries", indexes = {
     @Index(name = "idx_ledger_transaction_id", columnList = "transaction_id"),
-    @Index(name = "idx_ledger_account_id", columnList = "account_id"),
-    @Index(name = "idx_ledger_created_at", columnList = "created_at")
+    @Index(name = "idx_ledger_authorization_id", columnList = "authorization_id"),
+    @Index(name = "idx_ledger_account_created_at", columnList = "account_id, created_at, entry_id"),
+    @Index(name = "idx_ledger_card_created_at", columnList = "card_id, created_at, entry_id"),
+    @Index(name = "idx_ledger_created_at", columnList = "created_at"),
+    @Index(name = "idx_ledger_entry_sequence", columnList = "entry_sequence"),
+    @Index(name = "idx_ledger_idempotency_key", columnList = "idempotency_key", unique = true)
 })
 @Data
 @NoArgsConstructor
-public class LedgerEntry {
+public class LedgerEntry implements Persistable<String> {
 
     @Id
     private String entryId;
@@ -90,6 +104,20 @@ public class LedgerEntry {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    /**
+     * Position in insertion order, assigned by the database; the ledger
+     * projections read new entries by it. Numbers are taken at insert, so a
+     * lower one can commit after a higher one, and rolled-back inserts leave
+     * gaps. Not set on entries that have not been read back.
+     */
+    @Column(name = "entry_sequence", insertable = false, updatable = false,
+        columnDefinition = "bigint generated by default as identity")
+    private Long entrySequence;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean persisted;
+
     public LedgerEntry(String transactionId, String accountId, EntryType entryType,
                        Money amount, TransactionType transactionType,
                        String authorizationId, String cardId, String description,
@@ -107,6 +135,44 @@ public class LedgerEntry {
         this.createdAt = Instant.now();
     }
 
+    /**
+     * Rebuild an entry from a row of an archived ledger_entries partition.
+     */
+    public static LedgerEntry fromArchive(Map<String, String> row) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.entryId = row.get("entry_id");
+        entry.transactionId = row.get("transaction_id");
+        entry.accountId = row.get("account_id");
+        entry.entryType = EntryType.valueOf(row.get("entry_type"));
+        entry.amount = Money.of(new BigDecimal(row.get("amount")), Currency.valueOf(row.get("currency")));
+        entry.transactionType = TransactionType.valueOf(row.get("transaction_type"));
+        entry.authorizationId = row.get("authorization_id");
+        entry.cardId = row.get("card_id");
+        entry.description = row.get("description");
+        entry.idempotencyKey = row.get("idempotency_key");
+        entry.createdAt = Instant.parse(row.get("created_at"));
+        entry.persisted = true;
+        return entry;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return entryId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
     public enum EntryType {
         DEBIT,
         CREDIT
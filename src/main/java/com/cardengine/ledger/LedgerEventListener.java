@@ -0,0 +1,13 @@
+package com.cardengine.ledger;
+
+/**
+ * Consumer of the ledger event stream.
+ *
+ * Called once for every ledger entry after the transaction that wrote it
+ * commits, on the committing thread. Implementations must be fast and must
+ * tolerate seeing an entry twice (see {@link LedgerEventStream}).
+ */
+public interface LedgerEventListener {
+
+    void onAppend(LedgerEntry entry);
+}
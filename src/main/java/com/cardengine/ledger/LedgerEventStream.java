@@ -0,0 +1,74 @@
+package com.cardengine.ledger;
+
+import com.cardengine.common.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-process stream of ledger appends.
+ *
+ * {@link LedgerService} publishes every entry it saves. Listeners receive it
+ * once the transaction commits, so they never see an entry that was rolled
+ * back. The durable log behind the stream is the append-only ledger_entries
+ * table itself: listeners that keep state rebuild it from there by replay
+ * (see {@link com.cardengine.ledger.projection.LedgerProjections}), which may
+ * deliver an entry both from the replay and from the stream.
+ *
+ * A failing listener is logged and does not affect the others or the
+ * writer, whose transaction has already committed.
+ */
+@Component
+@Slf4j
+public class LedgerEventStream {
+
+    private final ObjectProvider<LedgerEventListener> listenerProvider;
+    private final Counter published;
+    private final Counter listenerFailures;
+
+    private volatile List<LedgerEventListener> listeners;
+
+    public LedgerEventStream(ObjectProvider<LedgerEventListener> listenerProvider, MeterRegistry meterRegistry) {
+        this.listenerProvider = listenerProvider;
+        this.published = Counter.builder("cardengine.ledger.events.published")
+            .description("Ledger entries delivered to the event stream")
+            .register(meterRegistry);
+        this.listenerFailures = Counter.builder("cardengine.ledger.events.listener_failures")
+            .description("Ledger event listener calls that threw")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Publish an entry saved in the current transaction.
+     */
+    public void publish(LedgerEntry entry) {
+        TransactionCallbacks.afterCommit(() -> deliver(entry));
+    }
+
+    private void deliver(LedgerEntry entry) {
+        for (LedgerEventListener listener : listeners()) {
+            try {
+                listener.onAppend(entry);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                log.error("Ledger event listener {} failed for entry {}",
+                    listener.getClass().getSimpleName(), entry.getEntryId(), e);
+            }
+        }
+        published.increment();
+    }
+
+    private List<LedgerEventListener> listeners() {
+        // Resolved lazily: listeners may themselves depend on the ledger
+        List<LedgerEventListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = listenerProvider.orderedStream().toList();
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cardengine.ledger;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of ledger entries, newest first.
+ */
+@Value
+public class LedgerPage {
+
+    List<LedgerEntry> entries;
+
+    /**
+     * Cursor for the next page, or null if this is the last one.
+     */
+    String nextCursor;
+}
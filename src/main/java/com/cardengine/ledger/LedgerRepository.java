@@ -1,10 +1,19 @@
 package com.cardengine.ledger;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for ledger entries.
@@ -20,5 +29,118 @@ public interface LedgerRepository extends JpaRepository<LedgerEntry, String> {
 
     List<LedgerEntry> findByCardId(String cardId);
 
+    // Keyset pages, newest first, served by the (account_id | card_id, created_at, entry_id) indexes
+
+    @Query("select e from LedgerEntry e where e.accountId = :accountId"
+        + " order by e.createdAt desc, e.entryId desc")
+    List<LedgerEntry> findAccountPage(@Param("accountId") String accountId, Pageable page);
+
+    @Query("select e from LedgerEntry e where e.accountId = :accountId"
+        + " and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.entryId < :entryId))"
+        + " order by e.createdAt desc, e.entryId desc")
+    List<LedgerEntry> findAccountPageAfter(@Param("accountId") String accountId,
+                                           @Param("createdAt") Instant createdAt,
+                                           @Param("entryId") String entryId,
+                                           Pageable page);
+
+    @Query("select e from LedgerEntry e where e.cardId = :cardId"
+        + " order by e.createdAt desc, e.entryId desc")
+    List<LedgerEntry> findCardPage(@Param("cardId") String cardId, Pageable page);
+
+    @Query("select e from LedgerEntry e where e.cardId = :cardId"
+        + " and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.entryId < :entryId))"
+        + " order by e.createdAt desc, e.entryId desc")
+    List<LedgerEntry> findCardPageAfter(@Param("cardId") String cardId,
+                                        @Param("createdAt") Instant createdAt,
+                                        @Param("entryId") String entryId,
+                                        Pageable page);
+
+    // Balance replay on top of a snapshot, oldest first, served by idx_ledger_account_created_at
+
+    /**
+     * Stream an account's entries after a position up to a time, oldest first.
+     * Must be consumed inside a transaction.
+     */
+    @Query("select e from LedgerEntry e where e.accountId = :accountId"
+        + " and (e.createdAt > :afterCreatedAt or (e.createdAt = :afterCreatedAt and e.entryId > :afterEntryId))"
+        + " and e.createdAt <= :through"
+        + " order by e.createdAt, e.entryId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<LedgerEntry> streamAccountEntriesBetween(@Param("accountId") String accountId,
+                                                    @Param("afterCreatedAt") Instant afterCreatedAt,
+                                                    @Param("afterEntryId") String afterEntryId,
+                                                    @Param("through") Instant through);
+
+    @Query("select count(e) from LedgerEntry e where e.accountId = :accountId"
+        + " and (e.createdAt > :afterCreatedAt or (e.createdAt = :afterCreatedAt and e.entryId > :afterEntryId))"
+        + " and e.createdAt <= :through")
+    long countAccountEntriesBetween(@Param("accountId") String accountId,
+                                   @Param("afterCreatedAt") Instant afterCreatedAt,
+                                   @Param("afterEntryId") String afterEntryId,
+                                   @Param("through") Instant through);
+
+    /**
+     * Accounts with entries created in (after, through].
+     */
+    @Query("select distinct e.accountId from LedgerEntry e where e.createdAt > :after and e.createdAt <= :through")
+    List<String> findAccountIdsWithEntriesBetween(@Param("after") Instant after, @Param("through") Instant through);
+
     Optional<LedgerEntry> findByIdempotencyKey(String idempotencyKey);
+
+    long countByCreatedAtAfter(Instant after);
+
+    /**
+     * Stream the idempotency keys of entries created after a point in time
+     * (used to rebuild the idempotency filter).
+     * Must be consumed inside a transaction.
+     */
+    @Query("select e.idempotencyKey from LedgerEntry e where e.createdAt > :after")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamIdempotencyKeysCreatedAfter(@Param("after") Instant after);
+
+    /**
+     * Entries with a sequence above a point, in sequence order (used to feed
+     * the ledger projections).
+     */
+    @Query("select e from LedgerEntry e where e.entrySequence > :after order by e.entrySequence")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<LedgerEntry> findSequencedAfter(@Param("after") long after, Pageable page);
+
+    /**
+     * Entries with the given sequences, for sequences the projections have
+     * not seen commit yet.
+     */
+    @Query("select e from LedgerEntry e where e.entrySequence in :sequences")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<LedgerEntry> findBySequenceIn(@Param("sequences") Collection<Long> sequences);
+
+    /**
+     * Sequences of the newest entries, highest first.
+     */
+    @Query("select e.entrySequence from LedgerEntry e where e.entrySequence is not null"
+        + " order by e.entrySequence desc")
+    List<Long> findNewestSequences(Pageable page);
+
+    // Totals per transaction type and currency, for keys the projections do not hold
+
+    @Query("select new com.cardengine.ledger.LedgerTotal(e.transactionType, e.amount.currency,"
+        + " sum(e.amount.amount), count(e), min(e.createdAt), max(e.createdAt))"
+        + " from LedgerEntry e where e.accountId = :accountId"
+        + " group by e.transactionType, e.amount.currency")
+    List<LedgerTotal> totalsByAccount(@Param("accountId") String accountId);
+
+    @Query("select new com.cardengine.ledger.LedgerTotal(e.transactionType, e.amount.currency,"
+        + " sum(e.amount.amount), count(e), min(e.createdAt), max(e.createdAt))"
+        + " from LedgerEntry e where e.cardId = :cardId"
+        + " group by e.transactionType, e.amount.currency")
+    List<LedgerTotal> totalsByCard(@Param("cardId") String cardId);
+
+    @Query("select e.entryId from LedgerEntry e where e.accountId = :accountId and e.entrySequence > :after")
+    List<String> findAccountEntryIdsSequencedAfter(@Param("accountId") String accountId, @Param("after") long after);
+
+    @Query("select e.entryId from LedgerEntry e where e.cardId = :cardId and e.entrySequence > :after")
+    List<String> findCardEntryIdsSequencedAfter(@Param("cardId") String cardId, @Param("after") long after);
 }
@@ -2,27 +2,96 @@ package com.cardengine.ledger;
 
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.Money;
+import com.cardengine.common.idempotency.IdempotencyRegistry;
+import com.cardengine.common.idempotency.IdempotencyScope;
+import com.cardengine.ledger.projection.LedgerProjections;
+import com.cardengine.ledger.projection.LedgerSummary;
+import com.cardengine.storage.ColdArchive;
+import com.cardengine.storage.PartitionedTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service for managing the double-entry ledger.
  *
  * All financial operations in the card engine are recorded as immutable
  * ledger entries following double-entry accounting principles.
+ *
+ * Every entry written is published on the {@link LedgerEventStream}. Account
+ * and card reads are answered by the {@link LedgerProjections} read models,
+ * falling back to the ledger table when a projection cannot serve them.
+ * Entries of archived partitions are read from the {@link ColdArchive} and
+ * returned after the live ones; summaries include their totals.
+ *
+ * For long histories, use the keyset pages (getAccountLedgerPage) or the
+ * streams (streamAccountLedger) rather than the full lists: a page is one
+ * index range scan however deep the cursor, and a stream reads the same
+ * pages one short transaction at a time, then the archive one file at a time.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LedgerService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final int STREAM_PAGE_SIZE = MAX_PAGE_SIZE;
+
+    private static final Comparator<LedgerEntry> NEWEST_FIRST = Comparator
+        .comparing(LedgerEntry::getCreatedAt)
+        .thenComparing(LedgerEntry::getEntryId)
+        .reversed();
+
     private final LedgerRepository ledgerRepository;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final LedgerEventStream ledgerEventStream;
+    private final LedgerProjections ledgerProjections;
+    private final ColdArchive coldArchive;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Find the ledger transaction already recorded for an idempotency key.
+     * First-time keys are answered from the idempotency filter without a query.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findTransactionId(String idempotencyKey) {
+        return idempotencyRegistry.find(IdempotencyScope.LEDGER, idempotencyKey, String.class,
+            key -> ledgerRepository.findByIdempotencyKey(key).map(LedgerEntry::getTransactionId));
+    }
+
+    /**
+     * Like {@link #findTransactionId}, but a key the filter has not seen is
+     * still looked up in the database.
+     *
+     * The filter only knows keys recorded by this instance (or present at
+     * startup), so a duplicate first handled by another instance passes it.
+     * Callers that make a remote call before their ledger entry is written,
+     * where the unique index would reject the duplicate too late, check here.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findRecordedTransactionId(String idempotencyKey) {
+        return findTransactionId(idempotencyKey)
+            .or(() -> ledgerRepository.findByIdempotencyKey(idempotencyKey).map(LedgerEntry::getTransactionId));
+    }
 
     /**
      * Record an authorization hold.
@@ -34,10 +103,10 @@ public class LedgerService {
         IdempotencyKey.validate(idempotencyKey);
 
         // Check for duplicate
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate auth hold request with idempotency key {}", idempotencyKey);
-            return existing.get().getTransactionId();
+            return existing.get();
         }
 
         String transactionId = UUID.randomUUID().toString();
@@ -56,7 +125,8 @@ public class LedgerService {
             idempotencyKey
         );
 
-        ledgerRepository.save(entry);
+        append(entry);
+        idempotencyRegistry.record(IdempotencyScope.LEDGER, idempotencyKey, transactionId);
 
         log.info("Recorded AUTH_HOLD: txn={}, auth={}, amount={} {}",
             transactionId, authorizationId, amount.getAmount(), amount.getCurrency());
@@ -73,10 +143,10 @@ public class LedgerService {
                                     String authorizationId, String idempotencyKey) {
         IdempotencyKey.validate(idempotencyKey);
 
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate auth release request with idempotency key {}", idempotencyKey);
-            return existing.get().getTransactionId();
+            return existing.get();
         }
 
         String transactionId = UUID.randomUUID().toString();
@@ -93,7 +163,8 @@ public class LedgerService {
             idempotencyKey
         );
 
-        ledgerRepository.save(entry);
+        append(entry);
+        idempotencyRegistry.record(IdempotencyScope.LEDGER, idempotencyKey, transactionId);
 
         log.info("Recorded AUTH_RELEASE: txn={}, auth={}, amount={} {}",
             transactionId, authorizationId, amount.getAmount(), amount.getCurrency());
@@ -110,10 +181,10 @@ public class LedgerService {
                                  String authorizationId, String idempotencyKey) {
         IdempotencyKey.validate(idempotencyKey);
 
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate clearing request with idempotency key {}", idempotencyKey);
-            return existing.get().getTransactionId();
+            return existing.get();
         }
 
         String transactionId = UUID.randomUUID().toString();
@@ -134,7 +205,8 @@ public class LedgerService {
         // Credit would go to merchant account (not implemented in MVP)
         // In production, there would be a corresponding credit entry
 
-        ledgerRepository.save(debit);
+        append(debit);
+        idempotencyRegistry.record(IdempotencyScope.LEDGER, idempotencyKey, transactionId);
 
         log.info("Recorded CLEARING_COMMIT: txn={}, auth={}, amount={} {}",
             transactionId, authorizationId, amount.getAmount(), amount.getCurrency());
@@ -150,10 +222,10 @@ public class LedgerService {
                                  String authorizationId, String idempotencyKey) {
         IdempotencyKey.validate(idempotencyKey);
 
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate reversal request with idempotency key {}", idempotencyKey);
-            return existing.get().getTransactionId();
+            return existing.get();
         }
 
         String transactionId = UUID.randomUUID().toString();
@@ -171,7 +243,8 @@ public class LedgerService {
             idempotencyKey
         );
 
-        ledgerRepository.save(credit);
+        append(credit);
+        idempotencyRegistry.record(IdempotencyScope.LEDGER, idempotencyKey, transactionId);
 
         log.info("Recorded REVERSAL: txn={}, auth={}, amount={} {}",
             transactionId, authorizationId, amount.getAmount(), amount.getCurrency());
@@ -187,10 +260,10 @@ public class LedgerService {
                                 String idempotencyKey) {
         IdempotencyKey.validate(idempotencyKey);
 
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate deposit request with idempotency key {}", idempotencyKey);
-            return existing.get().getTransactionId();
+            return existing.get();
         }
 
         String transactionId = UUID.randomUUID().toString();
@@ -207,7 +280,8 @@ public class LedgerService {
             idempotencyKey
         );
 
-        ledgerRepository.save(credit);
+        append(credit);
+        idempotencyRegistry.record(IdempotencyScope.LEDGER, idempotencyKey, transactionId);
 
         log.info("Recorded DEPOSIT: txn={}, account={}, amount={} {}",
             transactionId, accountId, amount.getAmount(), amount.getCurrency());
@@ -215,18 +289,207 @@ public class LedgerService {
         return transactionId;
     }
 
-    @Transactional(readOnly = true)
     public List<LedgerEntry> getAccountLedger(String accountId) {
-        return ledgerRepository.findByAccountIdOrderByCreatedAtDesc(accountId);
+        List<LedgerEntry> live = ledgerProjections.accountHistory(accountId)
+            .orElseGet(() -> ledgerRepository.findByAccountIdOrderByCreatedAtDesc(accountId));
+        return withArchived(live, "account_id", accountId);
     }
 
     @Transactional(readOnly = true)
     public List<LedgerEntry> getAuthorizationLedger(String authorizationId) {
-        return ledgerRepository.findByAuthorizationId(authorizationId);
+        return withArchived(ledgerRepository.findByAuthorizationId(authorizationId),
+            "authorization_id", authorizationId);
     }
 
-    @Transactional(readOnly = true)
     public List<LedgerEntry> getCardLedger(String cardId) {
-        return ledgerRepository.findByCardId(cardId);
+        List<LedgerEntry> live = ledgerProjections.cardHistory(cardId)
+            .orElseGet(() -> ledgerRepository.findByCardId(cardId));
+        return withArchived(live, "card_id", cardId);
+    }
+
+    /**
+     * One page of an account's entries, newest first.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public LedgerPage getAccountLedgerPage(String accountId, String cursor, int limit) {
+        return page(LedgerCursor.decode(cursor), limit, "account_id", accountId,
+            page -> ledgerRepository.findAccountPage(accountId, page),
+            (after, page) -> ledgerRepository.findAccountPageAfter(
+                accountId, after.createdAt(), after.entryId(), page));
+    }
+
+    /**
+     * One page of a card's entries, newest first.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public LedgerPage getCardLedgerPage(String cardId, String cursor, int limit) {
+        return page(LedgerCursor.decode(cursor), limit, "card_id", cardId,
+            page -> ledgerRepository.findCardPage(cardId, page),
+            (after, page) -> ledgerRepository.findCardPageAfter(
+                cardId, after.createdAt(), after.entryId(), page));
+    }
+
+    /**
+     * Pass every entry of an account to the consumer, newest first.
+     *
+     * @return number of entries
+     */
+    public long streamAccountLedger(String accountId, Consumer<LedgerEntry> consumer) {
+        return stream("account_id", accountId, consumer,
+            page -> ledgerRepository.findAccountPage(accountId, page),
+            (after, page) -> ledgerRepository.findAccountPageAfter(
+                accountId, after.createdAt(), after.entryId(), page));
+    }
+
+    /**
+     * Pass every entry of a card to the consumer, newest first.
+     *
+     * @return number of entries
+     */
+    public long streamCardLedger(String cardId, Consumer<LedgerEntry> consumer) {
+        return stream("card_id", cardId, consumer,
+            page -> ledgerRepository.findCardPage(cardId, page),
+            (after, page) -> ledgerRepository.findCardPageAfter(
+                cardId, after.createdAt(), after.entryId(), page));
+    }
+
+    /**
+     * Ledger totals of an account from the account projection, or aggregated
+     * by the table if the projection cannot serve it, plus its archived entries.
+     */
+    public LedgerSummary getAccountSummary(String accountId) {
+        LedgerSummary live = ledgerProjections.accountSummary(accountId)
+            .orElseGet(() -> LedgerSummary.fromTotals(accountId, ledgerRepository.totalsByAccount(accountId)));
+        return withArchived(live, "account_id", accountId);
+    }
+
+    /**
+     * Ledger totals of a card from the card projection, or aggregated by the
+     * table if the projection cannot serve it, plus its archived entries.
+     */
+    public LedgerSummary getCardSummary(String cardId) {
+        LedgerSummary live = ledgerProjections.cardSummary(cardId)
+            .orElseGet(() -> LedgerSummary.fromTotals(cardId, ledgerRepository.totalsByCard(cardId)));
+        return withArchived(live, "card_id", cardId);
+    }
+
+    /**
+     * Add the totals of archived entries to live ones. Archived months precede
+     * every live entry; entries at or after the first live one belong to a
+     * partition being archived, still counted in the live totals.
+     */
+    private LedgerSummary withArchived(LedgerSummary live, String column, String value) {
+        Instant firstLive = live.getFirstEntryAt();
+        LedgerSummary archived = LedgerSummary.of(live.getId(), archived(column, value)
+            .filter(entry -> firstLive == null || entry.getCreatedAt().isBefore(firstLive)));
+        return archived.getEntryCount() == 0 ? live : live.plus(archived);
+    }
+
+    /**
+     * Add archived entries matching the column, newest first, after the live ones.
+     * Entries of a partition being archived can be in both and are kept once.
+     */
+    private List<LedgerEntry> withArchived(List<LedgerEntry> live, String column, String value) {
+        List<Map<String, String>> archived = coldArchive.find(PartitionedTable.LEDGER_ENTRIES, column, value);
+        if (archived.isEmpty()) {
+            return live;
+        }
+
+        Set<String> liveIds = new HashSet<>();
+        for (LedgerEntry entry : live) {
+            liveIds.add(entry.getEntryId());
+        }
+        List<LedgerEntry> older = new ArrayList<>(archived.size());
+        for (Map<String, String> row : archived) {
+            if (!liveIds.contains(row.get("entry_id"))) {
+                older.add(LedgerEntry.fromArchive(row));
+            }
+        }
+        older.sort(NEWEST_FIRST);
+
+        List<LedgerEntry> all = new ArrayList<>(live.size() + older.size());
+        all.addAll(live);
+        all.addAll(older);
+        return all;
+    }
+
+    private LedgerPage page(LedgerCursor after, int limit, String column, String value,
+                            Function<Pageable, List<LedgerEntry>> first,
+                            BiFunction<LedgerCursor, Pageable, List<LedgerEntry>> next) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // One extra row tells whether another page follows
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<LedgerEntry> entries = new ArrayList<>(after == null ? first.apply(page) : next.apply(after, page));
+
+        // Archived entries are older than every live one: continue into them
+        if (entries.size() <= limit) {
+            LedgerCursor archiveAfter = entries.isEmpty() ? after : LedgerCursor.after(entries.get(entries.size() - 1));
+            archived(column, value)
+                .filter(entry -> archiveAfter == null || archiveAfter.precedes(entry))
+                .limit(limit + 1 - entries.size())
+                .forEach(entries::add);
+        }
+
+        if (entries.size() <= limit) {
+            return new LedgerPage(entries, null);
+        }
+        List<LedgerEntry> content = List.copyOf(entries.subList(0, limit));
+        return new LedgerPage(content, LedgerCursor.after(content.get(limit - 1)).encode());
+    }
+
+    /**
+     * Live entries in keyset pages, each read in its own short transaction,
+     * so a slow consumer holds no connection between pages; then archived
+     * entries, one file at a time.
+     */
+    private long stream(String column, String value, Consumer<LedgerEntry> consumer,
+                        Function<Pageable, List<LedgerEntry>> first,
+                        BiFunction<LedgerCursor, Pageable, List<LedgerEntry>> next) {
+        Pageable page = PageRequest.of(0, STREAM_PAGE_SIZE);
+        long count = 0;
+        LedgerCursor after = null;
+        List<LedgerEntry> entries;
+        do {
+            LedgerCursor from = after;
+            entries = transactionTemplate.execute(status -> from == null ? first.apply(page) : next.apply(from, page));
+            if (entries == null || entries.isEmpty()) {
+                break;
+            }
+            for (LedgerEntry entry : entries) {
+                consumer.accept(entry);
+                count++;
+            }
+            after = LedgerCursor.after(entries.get(entries.size() - 1));
+        } while (entries.size() == STREAM_PAGE_SIZE);
+
+        // Entries of a partition being archived can be in both: skip those already sent
+        LedgerCursor archiveAfter = after;
+        for (LedgerEntry entry : (Iterable<LedgerEntry>) archived(column, value)
+                .filter(entry -> archiveAfter == null || archiveAfter.precedes(entry))::iterator) {
+            consumer.accept(entry);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Archived entries matching the column, newest first. Files are one month
+     * each and read newest first, so sorting within each file is enough.
+     */
+    private Stream<LedgerEntry> archived(String column, String value) {
+        return coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, column, value)
+            .flatMap(rows -> rows.stream()
+                .map(LedgerEntry::fromArchive)
+                .sorted(NEWEST_FIRST));
+    }
+
+    private void append(LedgerEntry entry) {
+        ledgerRepository.save(entry);
+        ledgerEventStream.publish(entry);
     }
 }
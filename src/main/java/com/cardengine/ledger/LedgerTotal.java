@@ -0,0 +1,14 @@
+package com.cardengine.ledger;
+
+import com.cardengine.common.Currency;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Sum and count of one key's ledger entries of a transaction type and
+ * currency, aggregated by the database.
+ */
+public record LedgerTotal(TransactionType transactionType, Currency currency, BigDecimal amount,
+                          Long entryCount, Instant firstEntryAt, Instant lastEntryAt) {
+}
@@ -0,0 +1,463 @@
+package com.cardengine.ledger.projection;
+
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerEventListener;
+import com.cardengine.ledger.LedgerRepository;
+import com.cardengine.ledger.LedgerTotal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read models of the ledger, maintained from the ledger event stream and
+ * from the ledger table.
+ *
+ * Two projections are kept: per account and per card. Each holds a
+ * {@link LedgerView} per recently read key with running totals and recent
+ * history, so repeated ledger reads and summaries are answered from memory
+ * instead of querying ledger_entries. Histories longer than the history
+ * limit are read from the table.
+ *
+ * Views are loaded on first read from one snapshot of the table: totals
+ * aggregated by the database and the newest entries. At most max-keys views
+ * are kept per projection; beyond that the least recently read ones are
+ * dropped after each poll and loaded again when next read.
+ *
+ * Entries written by this instance arrive from the event stream as they
+ * commit. All entries, including those of other instances, are read from
+ * ledger_entries every poll-interval in entry_sequence order, from the
+ * highest sequence read so far. Sequences are taken at insert, not commit,
+ * so a lower one can commit after a higher one was read: sequences skipped
+ * by a poll are remembered as gaps and read again by later polls until
+ * their entry shows up or gap-timeout passes (a rolled-back insert leaves a
+ * gap that never fills). IDs of entries applied by one path are remembered
+ * so the other does not apply them again.
+ *
+ * A view load holds the poll lock shared while it reads the highest
+ * sequence, the gaps and its snapshot, so no poll runs in between; entries
+ * of the snapshot that the poll has yet to read are skipped when it does.
+ *
+ * Reads made while a key is being loaded by another thread, or before the
+ * poll cursor is set at startup, return empty so callers read the table.
+ */
+@Component
+@Slf4j
+public class LedgerProjections implements LedgerEventListener {
+
+    // A polled entry can still arrive from the stream if its commit callback is slow
+    private static final Duration STREAM_LAG = Duration.ofMinutes(1);
+
+    private final LedgerRepository ledgerRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final boolean enabled;
+    private final int historyLimit;
+    private final int maxKeys;
+    private final Duration gapTimeout;
+    private final int pollBatchSize;
+    private final Counter expiredGaps;
+
+    private final Projection accounts;
+    private final Projection cards;
+
+    // Shared by view loads, exclusive for polls
+    private final ReentrantReadWriteLock pollLock = new ReentrantReadWriteLock();
+    // Highest entry sequence read by a poll
+    private volatile long cursor;
+    // Sequences below the cursor whose entries have not been read -> when first skipped
+    private final Map<Long, Instant> gaps = new ConcurrentHashMap<>();
+    // Entry ID -> when to forget it, for entries applied by the stream or a poll
+    private final Map<String, Instant> recentlyApplied = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public LedgerProjections(
+            LedgerRepository ledgerRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.ledger.projections.enabled:true}") boolean enabled,
+            @Value("${card-engine.ledger.projections.history-limit:100}") int historyLimit,
+            @Value("${card-engine.ledger.projections.max-keys:100000}") int maxKeys,
+            @Value("${card-engine.ledger.projections.gap-timeout:PT10M}") Duration gapTimeout,
+            @Value("${card-engine.ledger.projections.poll-batch-size:1000}") int pollBatchSize) {
+
+        this.ledgerRepository = ledgerRepository;
+        this.entityManager = entityManager;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        // Totals, newest entries and unread IDs of a view must come from one snapshot
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+        this.historyLimit = historyLimit;
+        this.maxKeys = maxKeys;
+        this.gapTimeout = gapTimeout;
+        this.pollBatchSize = pollBatchSize;
+
+        this.accounts = new Projection("account", meterRegistry, LedgerEntry::getAccountId,
+            ledgerRepository::totalsByAccount, ledgerRepository::findAccountPage,
+            ledgerRepository::findAccountEntryIdsSequencedAfter);
+        this.cards = new Projection("card", meterRegistry, LedgerEntry::getCardId,
+            ledgerRepository::totalsByCard, ledgerRepository::findCardPage,
+            ledgerRepository::findCardEntryIdsSequencedAfter);
+
+        this.expiredGaps = Counter.builder("cardengine.ledger.projection.expired_gaps")
+            .description("Entry sequences given up on by the projection poll after gap-timeout")
+            .register(meterRegistry);
+        Gauge.builder("cardengine.ledger.projection.gaps", gaps, Map::size)
+            .description("Entry sequences skipped by the projection poll and still read again")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Set the poll cursor to the highest sequence in the table. Sequences
+     * missing among the newest entries may belong to inserts still in
+     * flight and are polled as gaps.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> newest = readTemplate.execute(status ->
+            ledgerRepository.findNewestSequences(PageRequest.of(0, pollBatchSize)));
+        if (!newest.isEmpty()) {
+            cursor = newest.get(0);
+            Set<Long> present = new HashSet<>(newest);
+            Instant now = Instant.now();
+            for (long sequence = newest.get(newest.size() - 1); sequence < cursor; sequence++) {
+                if (!present.contains(sequence)) {
+                    gaps.put(sequence, now);
+                }
+            }
+        }
+        ready = true;
+        log.info("Ledger projections polling from entry sequence {} ({} gaps)", cursor, gaps.size());
+    }
+
+    @Override
+    public void onAppend(LedgerEntry entry) {
+        if (!enabled) {
+            return;
+        }
+        // Normally read by the next poll; kept until gap-timeout in case it lags
+        applyOnce(entry, gapTimeout);
+    }
+
+    /**
+     * Apply entries committed since the last poll, including those of other
+     * instances, then drop the least recently read views beyond max-keys.
+     *
+     * @return number of entries applied
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.ledger.projections.poll-interval:PT1S}",
+        fixedDelayString = "${card-engine.ledger.projections.poll-interval:PT1S}")
+    public int poll() {
+        if (!enabled || !ready) {
+            return 0;
+        }
+
+        int applied;
+        pollLock.writeLock().lock();
+        try {
+            applied = pollGaps() + pollNew();
+        } finally {
+            pollLock.writeLock().unlock();
+        }
+
+        Instant now = Instant.now();
+        recentlyApplied.values().removeIf(forgetAt -> forgetAt.isBefore(now));
+        accounts.trim();
+        cards.trim();
+
+        if (applied > 0) {
+            log.debug("Applied {} ledger entries from the table to projections", applied);
+        }
+        return applied;
+    }
+
+    /**
+     * Full history of an account, newest first, if the projection holds all of it.
+     */
+    public Optional<List<LedgerEntry>> accountHistory(String accountId) {
+        return accounts.view(accountId).flatMap(LedgerView::history);
+    }
+
+    /**
+     * Full history of a card, newest first, if the projection holds all of it.
+     */
+    public Optional<List<LedgerEntry>> cardHistory(String cardId) {
+        return cards.view(cardId).flatMap(LedgerView::history);
+    }
+
+    /**
+     * Ledger totals of an account, or empty if the projection cannot serve it.
+     */
+    public Optional<LedgerSummary> accountSummary(String accountId) {
+        return accounts.view(accountId).map(LedgerView::summary);
+    }
+
+    /**
+     * Ledger totals of a card, or empty if the projection cannot serve it.
+     */
+    public Optional<LedgerSummary> cardSummary(String cardId) {
+        return cards.view(cardId).map(LedgerView::summary);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public int getGapCount() {
+        return gaps.size();
+    }
+
+    /**
+     * Drop every view; each is loaded from the table again when next read.
+     *
+     * @return number of views dropped
+     */
+    public int evictAll() {
+        return accounts.clear() + cards.clear();
+    }
+
+    /**
+     * Read entries whose sequences were skipped by earlier polls, giving up
+     * on those older than gap-timeout.
+     */
+    private int pollGaps() {
+        if (gaps.isEmpty()) {
+            return 0;
+        }
+        Instant expireBefore = Instant.now().minus(gapTimeout);
+        int expired = 0;
+        for (var gap : List.copyOf(gaps.entrySet())) {
+            if (gap.getValue().isBefore(expireBefore)) {
+                gaps.remove(gap.getKey());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            expiredGaps.increment(expired);
+            log.debug("Gave up on {} skipped entry sequences after {}", expired, gapTimeout);
+        }
+
+        int applied = 0;
+        List<Long> pending = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < pending.size(); from += pollBatchSize) {
+            List<Long> batch = pending.subList(from, Math.min(from + pollBatchSize, pending.size()));
+            for (LedgerEntry entry : read(() -> ledgerRepository.findBySequenceIn(batch))) {
+                gaps.remove(entry.getEntrySequence());
+                if (applyOnce(entry, STREAM_LAG)) {
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Read entries above the cursor, remembering skipped sequences as gaps.
+     */
+    private int pollNew() {
+        int applied = 0;
+        List<LedgerEntry> page;
+        do {
+            long after = cursor;
+            page = read(() -> ledgerRepository.findSequencedAfter(after, PageRequest.of(0, pollBatchSize)));
+            Instant now = Instant.now();
+            for (LedgerEntry entry : page) {
+                for (long skipped = cursor + 1; skipped < entry.getEntrySequence(); skipped++) {
+                    gaps.put(skipped, now);
+                }
+                cursor = entry.getEntrySequence();
+                if (applyOnce(entry, STREAM_LAG)) {
+                    applied++;
+                }
+            }
+        } while (page.size() == pollBatchSize);
+        return applied;
+    }
+
+    /**
+     * One short read; entries are applied outside the transaction.
+     */
+    private List<LedgerEntry> read(Supplier<List<LedgerEntry>> query) {
+        return readTemplate.execute(status -> {
+            List<LedgerEntry> entries = query.get();
+            entries.forEach(entityManager::detach);
+            return entries;
+        });
+    }
+
+    /**
+     * Apply an entry to the views holding its account and card, unless the
+     * stream or a poll applied it already.
+     *
+     * @param remember how long to remember the entry for the other path
+     * @return false if it was already applied
+     */
+    private boolean applyOnce(LedgerEntry entry, Duration remember) {
+        if (recentlyApplied.putIfAbsent(entry.getEntryId(), Instant.now().plus(remember)) != null) {
+            // Each path sees an entry once: the second one to see it forgets it
+            recentlyApplied.remove(entry.getEntryId());
+            return false;
+        }
+        accounts.apply(entry);
+        cards.apply(entry);
+        return true;
+    }
+
+    private final class Projection {
+
+        final Map<String, LedgerView> views = new ConcurrentHashMap<>();
+        final Function<LedgerEntry, String> keyOf;
+        final Function<String, List<LedgerTotal>> totals;
+        final BiFunction<String, Pageable, List<LedgerEntry>> newest;
+        final BiFunction<String, Long, List<String>> idsSequencedAfter;
+        final Counter loads;
+        final Counter evictions;
+
+        Projection(String name,
+                   MeterRegistry meterRegistry,
+                   Function<LedgerEntry, String> keyOf,
+                   Function<String, List<LedgerTotal>> totals,
+                   BiFunction<String, Pageable, List<LedgerEntry>> newest,
+                   BiFunction<String, Long, List<String>> idsSequencedAfter) {
+            this.keyOf = keyOf;
+            this.totals = totals;
+            this.newest = newest;
+            this.idsSequencedAfter = idsSequencedAfter;
+            this.loads = Counter.builder("cardengine.ledger.projection.loads")
+                .description("Ledger views loaded from the table")
+                .tag("projection", name)
+                .register(meterRegistry);
+            this.evictions = Counter.builder("cardengine.ledger.projection.evictions")
+                .description("Ledger views dropped beyond max-keys")
+                .tag("projection", name)
+                .register(meterRegistry);
+            Gauge.builder("cardengine.ledger.projection.keys", views, Map::size)
+                .description("Keys held by the ledger projections")
+                .tag("projection", name)
+                .register(meterRegistry);
+        }
+
+        void apply(LedgerEntry entry) {
+            String key = keyOf.apply(entry);
+            if (key == null) {
+                return;
+            }
+            // Keys without a view are read from the table when first needed
+            LedgerView view = views.get(key);
+            if (view != null) {
+                view.apply(entry);
+            }
+        }
+
+        /**
+         * The view of a key, loaded from the table if not held.
+         */
+        Optional<LedgerView> view(String key) {
+            if (!enabled || !ready) {
+                return Optional.empty();
+            }
+            LedgerView view = views.get(key);
+            if (view == null) {
+                view = load(key);
+            }
+            if (view == null || !view.isLoaded()) {
+                return Optional.empty();
+            }
+            view.markRead();
+            return Optional.of(view);
+        }
+
+        /**
+         * Load a key from one snapshot of the table.
+         *
+         * @return the view, or null if another thread is loading it
+         */
+        private LedgerView load(String key) {
+            LedgerView view = LedgerView.loading(key, historyLimit);
+            pollLock.readLock().lock();
+            try {
+                LedgerView existing = views.putIfAbsent(key, view);
+                if (existing != null) {
+                    return existing;
+                }
+                // Entries above the oldest unread sequence may still be polled
+                long unreadAfter = gaps.keySet().stream().mapToLong(sequence -> sequence - 1)
+                    .reduce(cursor, Math::min);
+                snapshotTemplate.executeWithoutResult(status -> {
+                    List<LedgerTotal> keyTotals = totals.apply(key);
+                    List<LedgerEntry> keyNewest = newest.apply(key, PageRequest.of(0, historyLimit));
+                    keyNewest.forEach(entityManager::detach);
+                    view.load(keyTotals, keyNewest, idsSequencedAfter.apply(key, unreadAfter));
+                });
+                loads.increment();
+                return view;
+            } catch (RuntimeException e) {
+                views.remove(key, view);
+                throw e;
+            } finally {
+                pollLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Drop the least recently read views beyond max-keys.
+         */
+        void trim() {
+            int excess = views.size() - maxKeys;
+            if (excess <= 0) {
+                return;
+            }
+            List<LedgerView> oldest = views.values().stream()
+                .filter(LedgerView::isLoaded)
+                .sorted(Comparator.comparingLong(LedgerView::getLastReadNanos))
+                .limit(excess)
+                .toList();
+            oldest.forEach(view -> views.remove(view.getKey(), view));
+            evictions.increment(oldest.size());
+        }
+
+        int clear() {
+            int size = views.size();
+            views.clear();
+            return size;
+        }
+    }
+}
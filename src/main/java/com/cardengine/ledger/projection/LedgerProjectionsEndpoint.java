@@ -0,0 +1,39 @@
+package com.cardengine.ledger.projection;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint to inspect the ledger projections and drop their views.
+ *
+ * Not exposed over HTTP by default; add ledgerprojections to
+ * management.endpoints.web.exposure.include to use it.
+ */
+@Component
+@Endpoint(id = "ledgerprojections")
+@RequiredArgsConstructor
+public class LedgerProjectionsEndpoint {
+
+    private final LedgerProjections ledgerProjections;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of(
+            "ready", ledgerProjections.isReady(),
+            "cursor", ledgerProjections.getCursor(),
+            "gaps", ledgerProjections.getGapCount());
+    }
+
+    /**
+     * Drop every view; each is loaded from the ledger table again when next read.
+     */
+    @WriteOperation
+    public Map<String, Object> evict() {
+        return Map.of("evictedViews", ledgerProjections.evictAll());
+    }
+}
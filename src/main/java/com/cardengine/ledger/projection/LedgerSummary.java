@@ -0,0 +1,87 @@
+package com.cardengine.ledger.projection;
+
+import com.cardengine.common.Currency;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerTotal;
+import com.cardengine.ledger.TransactionType;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Ledger totals of one account or card, served from the ledger projections
+ * (live entries) plus the cold archive.
+ */
+@Value
+public class LedgerSummary {
+
+    /**
+     * Account ID or card ID.
+     */
+    String id;
+
+    long entryCount;
+
+    Instant firstEntryAt;
+
+    Instant lastEntryAt;
+
+    /**
+     * Sum of entry amounts per currency and transaction type.
+     */
+    Map<Currency, Map<TransactionType, BigDecimal>> totals;
+
+    /**
+     * Deposits and reversals less clearings and withdrawals, per currency.
+     */
+    Map<Currency, BigDecimal> postedBalance;
+
+    /**
+     * Totals aggregated by the database, for keys the projections do not hold.
+     */
+    public static LedgerSummary fromTotals(String id, Collection<LedgerTotal> totals) {
+        LedgerView view = new LedgerView(id, 0);
+        totals.forEach(view::add);
+        return view.summary();
+    }
+
+    /**
+     * Totals of entries read one at a time, e.g. from the cold archive.
+     */
+    public static LedgerSummary of(String id, Stream<LedgerEntry> entries) {
+        LedgerView view = new LedgerView(id, 0);
+        entries.forEach(view::apply);
+        return view.summary();
+    }
+
+    /**
+     * These totals together with those of other entries of the same key.
+     */
+    public LedgerSummary plus(LedgerSummary other) {
+        Map<Currency, Map<TransactionType, BigDecimal>> sum = new EnumMap<>(Currency.class);
+        for (Map<Currency, Map<TransactionType, BigDecimal>> part : List.of(totals, other.totals)) {
+            part.forEach((currency, byType) -> byType.forEach((type, amount) -> sum
+                .computeIfAbsent(currency, c -> new EnumMap<>(TransactionType.class))
+                .merge(type, amount, BigDecimal::add)));
+        }
+        Map<Currency, BigDecimal> posted = new EnumMap<>(Currency.class);
+        posted.putAll(postedBalance);
+        other.postedBalance.forEach((currency, amount) -> posted.merge(currency, amount, BigDecimal::add));
+        return new LedgerSummary(id, entryCount + other.entryCount,
+            earliest(firstEntryAt, other.firstEntryAt), latest(lastEntryAt, other.lastEntryAt), sum, posted);
+    }
+
+    private static Instant earliest(Instant a, Instant b) {
+        return a == null ? b : b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a == null ? b : b == null || a.isAfter(b) ? a : b;
+    }
+}
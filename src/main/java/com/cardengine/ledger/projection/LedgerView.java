@@ -0,0 +1,211 @@
+package com.cardengine.ledger.projection;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerTotal;
+import com.cardengine.ledger.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read model of the ledger entries of one account or card.
+ *
+ * Keeps running totals per transaction type and currency in minor units,
+ * and the most recent entries (newest first, up to the history limit).
+ * While every entry of the key fits in the limit the full history is served
+ * from here; older keys fall back to the ledger table for history.
+ *
+ * Applying an entry already among the recent ones is a no-op.
+ *
+ * Views held by the projections are loaded from a snapshot of the table:
+ * totals aggregated by the database plus the newest entries. Entries applied
+ * while the snapshot is read are held back and applied once it is loaded,
+ * skipping those the snapshot already counted.
+ */
+public class LedgerView {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final String key;
+    private final int historyLimit;
+
+    // totals[type][currency] in minor units
+    private final long[][] totals = new long[TYPES.length][CURRENCIES.length];
+    private final LinkedList<LedgerEntry> recent = new LinkedList<>();
+    private final Set<String> recentIds = new HashSet<>();
+    private long entryCount;
+    private Instant firstEntryAt;
+    private Instant lastEntryAt;
+
+    private boolean loaded;
+    // Entries applied before the view was loaded
+    private List<LedgerEntry> pending;
+    // IDs of entries counted by the snapshot that may still be applied
+    private final Set<String> snapshotIds = new HashSet<>();
+    private volatile long lastReadNanos = System.nanoTime();
+
+    LedgerView(String key, int historyLimit) {
+        this.key = key;
+        this.historyLimit = historyLimit;
+        this.loaded = true;
+    }
+
+    /**
+     * A view to be filled by {@link #load}; entries applied until then are held back.
+     */
+    static LedgerView loading(String key, int historyLimit) {
+        LedgerView view = new LedgerView(key, historyLimit);
+        view.loaded = false;
+        view.pending = new ArrayList<>();
+        return view;
+    }
+
+    /**
+     * Fill the view from a snapshot of the table, then apply the entries held back.
+     *
+     * @param totals      totals per transaction type and currency
+     * @param newest      newest entries, newest first, up to the history limit
+     * @param snapshotIds IDs of entries in the snapshot that may still be applied
+     */
+    synchronized void load(Collection<LedgerTotal> totals, List<LedgerEntry> newest, Collection<String> snapshotIds) {
+        totals.forEach(this::add);
+        for (LedgerEntry entry : newest) {
+            if (recent.size() < historyLimit) {
+                recent.addLast(entry);
+                recentIds.add(entry.getEntryId());
+            }
+        }
+        this.snapshotIds.addAll(snapshotIds);
+        loaded = true;
+        pending.forEach(this::apply);
+        pending = null;
+    }
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Add totals aggregated by the database.
+     */
+    synchronized void add(LedgerTotal total) {
+        Currency currency = total.currency();
+        totals[total.transactionType().ordinal()][currency.ordinal()] +=
+            MinorUnits.fromDecimal(total.amount(), currency);
+        entryCount += total.entryCount();
+        if (firstEntryAt == null || total.firstEntryAt().isBefore(firstEntryAt)) {
+            firstEntryAt = total.firstEntryAt();
+        }
+        if (lastEntryAt == null || total.lastEntryAt().isAfter(lastEntryAt)) {
+            lastEntryAt = total.lastEntryAt();
+        }
+    }
+
+    /**
+     * Apply an entry.
+     *
+     * @return false if the entry was already applied
+     */
+    synchronized boolean apply(LedgerEntry entry) {
+        if (!loaded) {
+            pending.add(entry);
+            return true;
+        }
+        if (recentIds.contains(entry.getEntryId()) || snapshotIds.remove(entry.getEntryId())) {
+            return false;
+        }
+
+        Currency currency = entry.getAmount().getCurrency();
+        totals[entry.getTransactionType().ordinal()][currency.ordinal()] += entry.getAmount().toMinorUnits();
+        entryCount++;
+        if (firstEntryAt == null || entry.getCreatedAt().isBefore(firstEntryAt)) {
+            firstEntryAt = entry.getCreatedAt();
+        }
+        if (lastEntryAt == null || entry.getCreatedAt().isAfter(lastEntryAt)) {
+            lastEntryAt = entry.getCreatedAt();
+        }
+
+        // Entries mostly arrive in order; walk from the newest end
+        ListIterator<LedgerEntry> position = recent.listIterator();
+        while (position.hasNext()) {
+            if (!position.next().getCreatedAt().isAfter(entry.getCreatedAt())) {
+                position.previous();
+                break;
+            }
+        }
+        position.add(entry);
+        recentIds.add(entry.getEntryId());
+
+        if (recent.size() > historyLimit) {
+            recentIds.remove(recent.removeLast().getEntryId());
+        }
+        return true;
+    }
+
+    /**
+     * All entries of this key, newest first, if they still fit in the history limit.
+     */
+    public synchronized Optional<List<LedgerEntry>> history() {
+        return entryCount == recent.size() ? Optional.of(new ArrayList<>(recent)) : Optional.empty();
+    }
+
+    /**
+     * Balance from posted movements: deposits and reversals less clearings and withdrawals.
+     */
+    public synchronized BigDecimal postedBalance(Currency currency) {
+        int c = currency.ordinal();
+        long posted = totals[TransactionType.DEPOSIT.ordinal()][c]
+            + totals[TransactionType.REVERSAL.ordinal()][c]
+            - totals[TransactionType.CLEARING_COMMIT.ordinal()][c]
+            - totals[TransactionType.WITHDRAWAL.ordinal()][c];
+        return MinorUnits.toDecimal(posted, currency);
+    }
+
+    public synchronized LedgerSummary summary() {
+        Map<Currency, Map<TransactionType, BigDecimal>> byCurrency = new EnumMap<>(Currency.class);
+        Map<Currency, BigDecimal> posted = new EnumMap<>(Currency.class);
+        for (Currency currency : CURRENCIES) {
+            Map<TransactionType, BigDecimal> byType = new EnumMap<>(TransactionType.class);
+            for (TransactionType type : TYPES) {
+                long total = totals[type.ordinal()][currency.ordinal()];
+                if (total != 0) {
+                    byType.put(type, MinorUnits.toDecimal(total, currency));
+                }
+            }
+            if (!byType.isEmpty()) {
+                byCurrency.put(currency, byType);
+                posted.put(currency, postedBalance(currency));
+            }
+        }
+        return new LedgerSummary(key, entryCount, firstEntryAt, lastEntryAt, byCurrency, posted);
+    }
+
+    public synchronized long getEntryCount() {
+        return entryCount;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void markRead() {
+        lastReadNanos = System.nanoTime();
+    }
+
+    long getLastReadNanos() {
+        return lastReadNanos;
+    }
+}
@@ -0,0 +1,37 @@
+package com.cardengine.ledger.snapshot;
+
+import com.cardengine.common.Money;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Balance of an account reconstructed from the ledger at a point in time.
+ */
+@Value
+public class LedgerBalance {
+
+    String accountId;
+
+    Instant at;
+
+    /**
+     * Deposits and reversals less clearings and withdrawals.
+     */
+    Money balance;
+
+    /**
+     * Holds less releases and clearings.
+     */
+    Money reserved;
+
+    /**
+     * Position of the snapshot the replay started from, null if none.
+     */
+    Instant snapshotAt;
+
+    /**
+     * Entries replayed on top of the snapshot.
+     */
+    long entriesReplayed;
+}
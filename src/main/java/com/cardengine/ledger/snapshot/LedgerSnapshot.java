@@ -0,0 +1,98 @@
+package com.cardengine.ledger.snapshot;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
+import com.cardengine.ledger.LedgerCursor;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Balance checkpoint of one account at a ledger position.
+ *
+ * Holds the account's balance and reserved totals from every entry up to
+ * and including (throughCreatedAt, throughEntryId), and the holds still
+ * open at that position. Reconstructing the
+ * balance at a later point only replays the entries after that position.
+ * Snapshots are written by {@link LedgerSnapshotService} and never updated.
+ */
+@Entity
+@Table(name = "ledger_snapshots", indexes = @Index(
+    name = "idx_ledger_snapshot_account_position",
+    columnList = "account_id, through_created_at, through_entry_id"))
+@Data
+@NoArgsConstructor
+public class LedgerSnapshot {
+
+    @Id
+    private String snapshotId;
+
+    @Column(name = "account_id", nullable = false)
+    private String accountId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Currency currency;
+
+    /**
+     * Deposits and reversals less clearings and withdrawals.
+     */
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    /**
+     * Holds less releases and clearings.
+     */
+    @Column(nullable = false)
+    private BigDecimal reserved;
+
+    /**
+     * Amount held per authorization not yet cleared or released. A clearing
+     * releases the whole hold, which may be more than the amount cleared.
+     */
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "ledger_snapshot_holds", joinColumns = @JoinColumn(name = "snapshot_id"))
+    @MapKeyColumn(name = "authorization_id")
+    @Column(name = "amount", nullable = false)
+    private Map<String, BigDecimal> openHolds = new HashMap<>();
+
+    /**
+     * Entries of the account up to this position.
+     */
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+
+    @Column(name = "through_created_at", nullable = false)
+    private Instant throughCreatedAt;
+
+    @Column(name = "through_entry_id", nullable = false)
+    private String throughEntryId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    LedgerSnapshot(String accountId, Currency currency, long balanceMinorUnits, long reservedMinorUnits,
+                   Map<String, Long> openHoldsMinorUnits, long entryCount, LedgerCursor through) {
+        this.snapshotId = UUID.randomUUID().toString();
+        this.accountId = accountId;
+        this.currency = currency;
+        this.balance = MinorUnits.toDecimal(balanceMinorUnits, currency);
+        this.reserved = MinorUnits.toDecimal(reservedMinorUnits, currency);
+        openHoldsMinorUnits.forEach((authorizationId, amount) ->
+            this.openHolds.put(authorizationId, MinorUnits.toDecimal(amount, currency)));
+        this.entryCount = entryCount;
+        this.throughCreatedAt = through.createdAt();
+        this.throughEntryId = through.entryId();
+        this.createdAt = Instant.now();
+    }
+
+    public LedgerCursor position() {
+        return new LedgerCursor(throughCreatedAt, throughEntryId);
+    }
+}
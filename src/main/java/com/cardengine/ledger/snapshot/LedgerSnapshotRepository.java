@@ -0,0 +1,29 @@
+package com.cardengine.ledger.snapshot;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository for ledger balance snapshots.
+ */
+@Repository
+public interface LedgerSnapshotRepository extends JpaRepository<LedgerSnapshot, String> {
+
+    /**
+     * Latest snapshot of an account whose position is at or before the given time.
+     */
+    Optional<LedgerSnapshot> findFirstByAccountIdAndThroughCreatedAtLessThanEqualOrderByThroughCreatedAtDescThroughEntryIdDesc(
+        String accountId, Instant at);
+
+    @Query("select max(s.throughCreatedAt) from LedgerSnapshot s")
+    Optional<Instant> findLatestPosition();
+
+    default Optional<LedgerSnapshot> findLatest(String accountId, Instant at) {
+        return findFirstByAccountIdAndThroughCreatedAtLessThanEqualOrderByThroughCreatedAtDescThroughEntryIdDesc(
+            accountId, at);
+    }
+}
@@ -0,0 +1,346 @@
+package com.cardengine.ledger.snapshot;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerCursor;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerRepository;
+import com.cardengine.storage.ColdArchive;
+import com.cardengine.storage.PartitionedTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Writes periodic balance snapshots of accounts and reconstructs balances
+ * from them.
+ *
+ * Each run covers the entries created since the previous run, up to now
+ * less settle-lag (entries are timestamped before their transaction
+ * commits, so the most recent ones may not be visible yet). Only accounts
+ * with entries in that window are looked at; an account gets a new snapshot
+ * once min-entries entries have accumulated since its last one. Accounts are
+ * processed in parallel, each in its own transaction. The end of a run in
+ * which every account succeeded is saved as a {@link LedgerSnapshotWatermark}
+ * for the next start.
+ *
+ * balanceAt() starts from the latest snapshot at or before the requested
+ * time and replays only the entries after it: archived ones from the
+ * {@link ColdArchive} first, then live ones. Replay tracks the amount held
+ * per authorization, since a clearing releases the whole hold.
+ */
+@Component
+@Slf4j
+public class LedgerSnapshotService {
+
+    private static final LedgerCursor START = new LedgerCursor(Instant.EPOCH, "");
+
+    private static final Comparator<LedgerEntry> OLDEST_FIRST = Comparator
+        .comparing(LedgerEntry::getCreatedAt)
+        .thenComparing(LedgerEntry::getEntryId);
+
+    private final LedgerRepository ledgerRepository;
+    private final LedgerSnapshotRepository snapshotRepository;
+    private final LedgerSnapshotWatermarkRepository watermarkRepository;
+    private final ColdArchive coldArchive;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration settleLag;
+    private final int minEntries;
+
+    private final ExecutorService workers;
+    private final Counter written;
+    private final Counter failures;
+    private final DistributionSummary replayed;
+
+    // Accounts whose snapshot failed, retried on the next run
+    private final Set<String> retry = ConcurrentHashMap.newKeySet();
+    private Instant watermark;
+
+    public LedgerSnapshotService(
+            LedgerRepository ledgerRepository,
+            LedgerSnapshotRepository snapshotRepository,
+            LedgerSnapshotWatermarkRepository watermarkRepository,
+            ColdArchive coldArchive,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.ledger.snapshots.enabled:true}") boolean enabled,
+            @Value("${card-engine.ledger.snapshots.settle-lag:1m}") Duration settleLag,
+            @Value("${card-engine.ledger.snapshots.min-entries:100}") int minEntries,
+            @Value("${card-engine.ledger.snapshots.concurrency:8}") int concurrency) {
+
+        this.ledgerRepository = ledgerRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.coldArchive = coldArchive;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.settleLag = settleLag;
+        this.minEntries = Math.max(1, minEntries);
+        this.workers = Executors.newFixedThreadPool(concurrency,
+            Thread.ofVirtual().name("ledger-snapshot-", 0).factory());
+
+        this.written = Counter.builder("cardengine.ledger.snapshots.written")
+            .description("Account balance snapshots written")
+            .register(meterRegistry);
+        this.failures = Counter.builder("cardengine.ledger.snapshots.failures")
+            .description("Accounts whose snapshot could not be written")
+            .register(meterRegistry);
+        this.replayed = DistributionSummary.builder("cardengine.ledger.snapshots.replayed")
+            .description("Ledger entries replayed on top of a snapshot per balance reconstruction")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${card-engine.ledger.snapshots.interval:PT1H}",
+        fixedDelayString = "${card-engine.ledger.snapshots.interval:PT1H}")
+    public void scheduledSnapshot() {
+        if (enabled) {
+            snapshot(Instant.now().minus(settleLag));
+        }
+    }
+
+    /**
+     * Snapshot accounts with entries created since the last run, up to the given time.
+     *
+     * @return number of snapshots written
+     */
+    public synchronized int snapshot(Instant through) {
+        Instant after = watermark != null
+            ? watermark
+            : watermarkRepository.findById(LedgerSnapshotWatermark.SNAPSHOTS)
+                .map(LedgerSnapshotWatermark::getThrough)
+                .or(snapshotRepository::findLatestPosition)
+                .orElse(Instant.EPOCH);
+        if (!through.isAfter(after)) {
+            return 0;
+        }
+
+        Set<String> accounts = new LinkedHashSet<>(retry);
+        retry.clear();
+        accounts.addAll(ledgerRepository.findAccountIdsWithEntriesBetween(after, through));
+
+        List<String> accountIds = new ArrayList<>(accounts);
+        List<Callable<Boolean>> tasks = new ArrayList<>(accountIds.size());
+        for (String accountId : accountIds) {
+            tasks.add(() -> snapshotAccount(accountId, through));
+        }
+
+        int count = 0;
+        try {
+            List<Future<Boolean>> results = workers.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    if (results.get(i).get()) {
+                        count++;
+                    }
+                } catch (ExecutionException e) {
+                    failures.increment();
+                    retry.add(accountIds.get(i));
+                    log.warn("Ledger snapshot of account {} failed", accountIds.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return count;
+        }
+
+        watermark = through;
+        if (retry.isEmpty()) {
+            // Failed accounts are only retried in memory: keep the saved watermark before them
+            watermarkRepository.save(new LedgerSnapshotWatermark(LedgerSnapshotWatermark.SNAPSHOTS, through));
+        }
+        written.increment(count);
+        if (count > 0) {
+            log.info("Wrote {} ledger snapshots through {} ({} accounts with new entries)",
+                count, through, accountIds.size());
+        }
+        return count;
+    }
+
+    /**
+     * Balance of an account from every entry created up to the given time.
+     *
+     * @param currency currency of the account
+     */
+    public LedgerBalance balanceAt(String accountId, Currency currency, Instant at) {
+        Replay replay = transactionTemplate.execute(status ->
+            replay(accountId, currency, snapshotRepository.findLatest(accountId, at), at));
+        return new LedgerBalance(accountId, at,
+            Money.ofMinorUnits(replay.balance, currency),
+            Money.ofMinorUnits(replay.reserved, currency),
+            replay.snapshotAt,
+            replay.replayed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private boolean snapshotAccount(String accountId, Instant through) {
+        Boolean snapshotted = transactionTemplate.execute(status -> {
+            Optional<LedgerSnapshot> previous = snapshotRepository.findLatest(accountId, through);
+            LedgerCursor from = previous.map(LedgerSnapshot::position).orElse(START);
+            long pending = ledgerRepository.countAccountEntriesBetween(
+                accountId, from.createdAt(), from.entryId(), through);
+            if (pending < minEntries) {
+                return false;
+            }
+
+            Replay replay = replay(accountId, null, previous, through);
+            snapshotRepository.save(new LedgerSnapshot(accountId, replay.currency,
+                replay.balance, replay.reserved, replay.openHolds, replay.entryCount, replay.position));
+            return true;
+        });
+        return Boolean.TRUE.equals(snapshotted);
+    }
+
+    private Replay replay(String accountId, Currency currency, Optional<LedgerSnapshot> from, Instant through) {
+        Replay replay = new Replay(accountId, currency, from.orElse(null));
+        // Archived months come before every live one
+        for (LedgerEntry entry : archived(accountId, replay.position != null ? replay.position : START, through)) {
+            replay.apply(entry);
+        }
+        LedgerCursor start = replay.position != null ? replay.position : START;
+        try (Stream<LedgerEntry> entries = ledgerRepository.streamAccountEntriesBetween(
+                accountId, start.createdAt(), start.entryId(), through)) {
+            entries.forEach(entry -> {
+                replay.apply(entry);
+                entityManager.detach(entry);
+            });
+        }
+        replayed.record(replay.replayed);
+        return replay;
+    }
+
+    /**
+     * Archived entries of an account after a position and up to a time,
+     * oldest first. Archives of months before the position are not read, so
+     * once a snapshot is newer than the archive this reads nothing.
+     */
+    private List<LedgerEntry> archived(String accountId, LedgerCursor after, Instant through) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", accountId, after.createdAt())
+            .forEach(rows -> {
+                for (Map<String, String> row : rows) {
+                    LedgerEntry entry = LedgerEntry.fromArchive(row);
+                    if (isAfter(entry, after) && !entry.getCreatedAt().isAfter(through)) {
+                        entries.add(entry);
+                    }
+                }
+            });
+        entries.sort(OLDEST_FIRST);
+        return entries;
+    }
+
+    private static boolean isAfter(LedgerEntry entry, LedgerCursor position) {
+        int byTime = entry.getCreatedAt().compareTo(position.createdAt());
+        return byTime > 0 || (byTime == 0 && entry.getEntryId().compareTo(position.entryId()) > 0);
+    }
+
+    /**
+     * Running balance and reserved totals, in minor units.
+     */
+    private static final class Replay {
+
+        final String accountId;
+        final Instant snapshotAt;
+        Currency currency;
+        long balance;
+        long reserved;
+        long entryCount;
+        long replayed;
+        LedgerCursor position;
+        final Map<String, Long> openHolds = new HashMap<>();
+
+        Replay(String accountId, Currency currency, LedgerSnapshot snapshot) {
+            this.accountId = accountId;
+            this.currency = currency;
+            if (snapshot == null) {
+                this.snapshotAt = null;
+                return;
+            }
+            checkCurrency(snapshot.getCurrency());
+            this.snapshotAt = snapshot.getThroughCreatedAt();
+            this.balance = Money.of(snapshot.getBalance(), snapshot.getCurrency()).toMinorUnits();
+            this.reserved = Money.of(snapshot.getReserved(), snapshot.getCurrency()).toMinorUnits();
+            snapshot.getOpenHolds().forEach((authorizationId, amount) ->
+                openHolds.put(authorizationId, Money.of(amount, snapshot.getCurrency()).toMinorUnits()));
+            this.entryCount = snapshot.getEntryCount();
+            this.position = snapshot.position();
+        }
+
+        void apply(LedgerEntry entry) {
+            checkCurrency(entry.getAmount().getCurrency());
+            long amount = entry.getAmount().toMinorUnits();
+            switch (entry.getTransactionType()) {
+                case DEPOSIT, REVERSAL -> balance += amount;
+                case WITHDRAWAL -> balance -= amount;
+                case AUTH_HOLD -> {
+                    reserved += amount;
+                    if (entry.getAuthorizationId() != null) {
+                        openHolds.merge(entry.getAuthorizationId(), amount, Long::sum);
+                    }
+                }
+                case AUTH_RELEASE -> reserved -= release(entry.getAuthorizationId(), amount);
+                case CLEARING_COMMIT -> {
+                    balance -= amount;
+                    if (entry.getAuthorizationId() != null) {
+                        reserved -= release(entry.getAuthorizationId(), amount);
+                    }
+                }
+            }
+            entryCount++;
+            replayed++;
+            position = LedgerCursor.after(entry);
+        }
+
+        /**
+         * The amount an authorization still holds, which clearing or releasing
+         * frees in full. A hold not seen by this replay (from a snapshot
+         * written before holds were tracked) frees the entry's own amount.
+         */
+        private long release(String authorizationId, long amount) {
+            Long held = authorizationId != null ? openHolds.remove(authorizationId) : null;
+            return held != null ? held : amount;
+        }
+
+        private void checkCurrency(Currency seen) {
+            if (currency == null) {
+                currency = seen;
+            } else if (currency != seen) {
+                throw new IllegalStateException(
+                    "Ledger of account " + accountId + " mixes " + currency + " and " + seen);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cardengine.ledger.snapshot;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * How far snapshot runs have looked for accounts with new entries.
+ *
+ * Written after each run in which every account succeeded, so a restart
+ * resumes where the last clean run stopped rather than from the newest
+ * snapshot, which falls far behind when runs write few snapshots.
+ */
+@Entity
+@Table(name = "ledger_snapshot_watermarks")
+@Data
+@NoArgsConstructor
+public class LedgerSnapshotWatermark {
+
+    static final String SNAPSHOTS = "ledger-snapshots";
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private Instant through;
+
+    LedgerSnapshotWatermark(String name, Instant through) {
+        this.name = name;
+        this.through = through;
+    }
+}
@@ -0,0 +1,11 @@
+package com.cardengine.ledger.snapshot;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the snapshot run watermark.
+ */
+@Repository
+public interface LedgerSnapshotWatermarkRepository extends JpaRepository<LedgerSnapshotWatermark, String> {
+}
@@ -3,6 +3,7 @@ package com.cardengine.providers.fineract;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -22,11 +23,14 @@ import java.time.Instant;
  * 3. On release(): Reverse the hold journal entry to return funds to user.
  *
  * This table tracks the mapping between authorization IDs and Fineract journal entries.
+ * The version makes a second, concurrent commit or release of the same hold
+ * fail when it records its status change, before it can debit a second time.
  */
 @Entity
 @Table(name = "fineract_auth_holds", indexes = {
     @Index(name = "idx_auth_hold_auth_id", columnList = "authorization_id"),
-    @Index(name = "idx_auth_hold_account_id", columnList = "fineract_account_id")
+    @Index(name = "idx_auth_hold_account_id", columnList = "fineract_account_id"),
+    @Index(name = "idx_auth_hold_updated_at", columnList = "updated_at")
 })
 @Data
 @NoArgsConstructor
@@ -74,15 +78,33 @@ public class FineractAuthHold {
     @Column(name = "status", nullable = false)
     private HoldStatus status;
 
+    /**
+     * Optimistic lock; see docs/sql/hold-version-backfill.sql for databases
+     * created before the column existed.
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     @Column(name = "created_at")
     private Instant createdAt;
 
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    /**
+     * The -ING statuses are recorded before the Fineract call they name, so
+     * a retry after a crash knows the call may have been made and resends it
+     * with the same idempotency key.
+     */
     public enum HoldStatus {
         ACTIVE,      // Hold is in place
+        REVERSING,   // Reversing the hold journal entry before the debit
+        REVERSED,    // Hold journal entry reversed, debit not made yet
+        DEBITING,    // Withdrawal sent or about to be
         COMMITTED,   // Hold was committed (cleared)
+        RELEASING,   // Reversing the hold journal entry to release it
         RELEASED     // Hold was released without clearing
     }
 
@@ -98,11 +120,31 @@ public class FineractAuthHold {
         this.updatedAt = Instant.now();
     }
 
+    public void markReversing() {
+        this.status = HoldStatus.REVERSING;
+        this.updatedAt = Instant.now();
+    }
+
+    public void markReversed() {
+        this.status = HoldStatus.REVERSED;
+        this.updatedAt = Instant.now();
+    }
+
+    public void markDebiting() {
+        this.status = HoldStatus.DEBITING;
+        this.updatedAt = Instant.now();
+    }
+
     public void markCommitted() {
         this.status = HoldStatus.COMMITTED;
         this.updatedAt = Instant.now();
     }
 
+    public void markReleasing() {
+        this.status = HoldStatus.RELEASING;
+        this.updatedAt = Instant.now();
+    }
+
     public void markReleased() {
         this.status = HoldStatus.RELEASED;
         this.updatedAt = Instant.now();
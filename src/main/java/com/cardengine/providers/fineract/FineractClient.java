@@ -4,41 +4,47 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * HTTP client for Apache Fineract API.
  *
  * Handles:
  * - Authentication (Basic Auth)
- * - HTTP requests/responses
+ * - HTTP requests/responses over the pooled FineractTransport
  * - Error handling
  * - Retry logic (if configured)
+ *
+ * Every call has a blocking and an async variant. The async variants run the
+ * same request on a virtual thread and complete exceptionally with the same
+ * RuntimeException the blocking call would throw.
  */
 @Component
 @Slf4j
 public class FineractClient {
 
-    private final RestTemplate restTemplate;
+    private final FineractTransport transport;
     private final String fineractBaseUrl;
     private final String tenantId;
-    private final String username;
-    private final String password;
+    private final String authorizationHeader;
 
     public FineractClient(
+            FineractTransport transport,
             @Value("${card-engine.fineract.base-url:http://localhost:8443/fineract-provider/api/v1}") String baseUrl,
             @Value("${card-engine.fineract.tenant:default}") String tenantId,
             @Value("${card-engine.fineract.username:mifos}") String username,
             @Value("${card-engine.fineract.password:password}") String password) {
 
-        this.restTemplate = new RestTemplate();
+        this.transport = transport;
         this.fineractBaseUrl = baseUrl;
         this.tenantId = tenantId;
-        this.username = username;
-        this.password = password;
+
+        // Basic Auth
+        String auth = username + ":" + password;
+        this.authorizationHeader = "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
 
         log.info("Fineract client initialized: baseUrl={}, tenant={}", baseUrl, tenantId);
     }
@@ -52,7 +58,8 @@ public class FineractClient {
         log.debug("Fetching account balance: accountId={}", savingsAccountId);
 
         try {
-            ResponseEntity<FineractDTOs.AccountBalance> response = restTemplate.exchange(
+            ResponseEntity<FineractDTOs.AccountBalance> response = transport
+                .restTemplate(FineractTransport.Operation.BALANCE_INQUIRY).exchange(
                 url,
                 HttpMethod.GET,
                 new HttpEntity<>(createHeaders()),
@@ -67,20 +74,37 @@ public class FineractClient {
         }
     }
 
+    /**
+     * Get account balance from Fineract without blocking the caller.
+     */
+    public CompletableFuture<FineractDTOs.AccountBalance> getAccountBalanceAsync(Long savingsAccountId) {
+        return transport.async(() -> getAccountBalance(savingsAccountId));
+    }
+
     /**
      * Create a journal entry in Fineract.
      * Used for auth holds and reversals.
      */
     public FineractDTOs.JournalEntryResponse createJournalEntry(FineractDTOs.JournalEntryRequest request) {
+        return createJournalEntry(request, null);
+    }
+
+    /**
+     * Create a journal entry in Fineract once per idempotency key: Fineract
+     * answers a repeated request with the result of the first.
+     */
+    public FineractDTOs.JournalEntryResponse createJournalEntry(FineractDTOs.JournalEntryRequest request,
+                                                                String idempotencyKey) {
         String url = fineractBaseUrl + "/journalentries";
 
         log.debug("Creating journal entry: reference={}", request.getReferenceNumber());
 
         try {
-            ResponseEntity<FineractDTOs.JournalEntryResponse> response = restTemplate.exchange(
+            ResponseEntity<FineractDTOs.JournalEntryResponse> response = transport
+                .restTemplate(FineractTransport.Operation.JOURNAL_ENTRY).exchange(
                 url,
                 HttpMethod.POST,
-                new HttpEntity<>(request, createHeaders()),
+                new HttpEntity<>(request, createHeaders(idempotencyKey)),
                 FineractDTOs.JournalEntryResponse.class
             );
 
@@ -93,22 +117,41 @@ public class FineractClient {
         }
     }
 
+    /**
+     * Create a journal entry in Fineract without blocking the caller.
+     */
+    public CompletableFuture<FineractDTOs.JournalEntryResponse> createJournalEntryAsync(
+            FineractDTOs.JournalEntryRequest request) {
+        return transport.async(() -> createJournalEntry(request));
+    }
+
     /**
      * Make a debit from savings account.
      */
     public FineractDTOs.SavingsTransactionResponse debitAccount(
             Long savingsAccountId,
             FineractDTOs.SavingsTransactionRequest request) {
+        return debitAccount(savingsAccountId, request, null);
+    }
+
+    /**
+     * Make a debit from savings account once per idempotency key.
+     */
+    public FineractDTOs.SavingsTransactionResponse debitAccount(
+            Long savingsAccountId,
+            FineractDTOs.SavingsTransactionRequest request,
+            String idempotencyKey) {
 
         String url = fineractBaseUrl + "/savingsaccounts/" + savingsAccountId + "/transactions?command=withdrawal";
 
         log.debug("Debiting account: accountId={}, amount={}", savingsAccountId, request.getTransactionAmount());
 
         try {
-            ResponseEntity<FineractDTOs.SavingsTransactionResponse> response = restTemplate.exchange(
+            ResponseEntity<FineractDTOs.SavingsTransactionResponse> response = transport
+                .restTemplate(FineractTransport.Operation.SAVINGS_TRANSACTION).exchange(
                 url,
                 HttpMethod.POST,
-                new HttpEntity<>(request, createHeaders()),
+                new HttpEntity<>(request, createHeaders(idempotencyKey)),
                 FineractDTOs.SavingsTransactionResponse.class
             );
 
@@ -120,6 +163,15 @@ public class FineractClient {
         }
     }
 
+    /**
+     * Make a debit from savings account without blocking the caller.
+     */
+    public CompletableFuture<FineractDTOs.SavingsTransactionResponse> debitAccountAsync(
+            Long savingsAccountId,
+            FineractDTOs.SavingsTransactionRequest request) {
+        return transport.async(() -> debitAccount(savingsAccountId, request));
+    }
+
     /**
      * Make a credit to savings account.
      * Used for reversals (refunds).
@@ -133,7 +185,8 @@ public class FineractClient {
         log.debug("Crediting account: accountId={}, amount={}", savingsAccountId, request.getTransactionAmount());
 
         try {
-            ResponseEntity<FineractDTOs.SavingsTransactionResponse> response = restTemplate.exchange(
+            ResponseEntity<FineractDTOs.SavingsTransactionResponse> response = transport
+                .restTemplate(FineractTransport.Operation.SAVINGS_TRANSACTION).exchange(
                 url,
                 HttpMethod.POST,
                 new HttpEntity<>(request, createHeaders()),
@@ -148,21 +201,58 @@ public class FineractClient {
         }
     }
 
+    /**
+     * Make a credit to savings account without blocking the caller.
+     */
+    public CompletableFuture<FineractDTOs.SavingsTransactionResponse> creditAccountAsync(
+            Long savingsAccountId,
+            FineractDTOs.SavingsTransactionRequest request) {
+        return transport.async(() -> creditAccount(savingsAccountId, request));
+    }
+
+    /**
+     * Check that Fineract is reachable and accepts our credentials and tenant,
+     * by reading the head office.
+     */
+    public boolean ping() {
+        String url = fineractBaseUrl + "/offices/1";
+
+        try {
+            return transport.restTemplate(FineractTransport.Operation.BALANCE_INQUIRY).exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(createHeaders()),
+                String.class
+            ).getStatusCode().is2xxSuccessful();
+
+        } catch (Exception e) {
+            log.debug("Fineract ping failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Create headers with Basic Auth and tenant ID.
      */
     private HttpHeaders createHeaders() {
+        return createHeaders(null);
+    }
+
+    /**
+     * Create headers with Basic Auth, tenant ID and, if given, the idempotency key.
+     */
+    private HttpHeaders createHeaders(String idempotencyKey) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-
-        // Basic Auth
-        String auth = username + ":" + password;
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-        headers.set("Authorization", "Basic " + encodedAuth);
+        headers.set("Authorization", authorizationHeader);
 
         // Fineract tenant header
         headers.set("Fineract-Platform-TenantId", tenantId);
 
+        if (idempotencyKey != null) {
+            headers.set("Idempotency-Key", idempotencyKey);
+        }
+
         return headers;
     }
 }
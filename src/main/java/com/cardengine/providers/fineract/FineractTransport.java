@@ -0,0 +1,152 @@
+package com.cardengine.providers.fineract;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * HTTP transport for the Fineract client.
+ *
+ * All calls share one pooled Apache HttpClient with keep-alive, so
+ * concurrent requests reuse open connections to Fineract instead of paying
+ * a TCP (and TLS) handshake per call. The pool is bounded: when every
+ * connection is busy, callers wait at most connection-request-timeout for
+ * one to be returned.
+ *
+ * Connect and read timeouts are set per operation. A balance inquiry sits
+ * on the authorization path and gets a short read timeout; journal entries
+ * and savings transactions move money and are given longer.
+ *
+ * Async calls run on virtual threads, so a caller can fan out several
+ * Fineract requests without holding a platform thread per request.
+ */
+@Component
+@Slf4j
+public class FineractTransport {
+
+    /**
+     * Fineract operations with their own timeouts.
+     */
+    public enum Operation {
+        BALANCE_INQUIRY,
+        JOURNAL_ENTRY,
+        SAVINGS_TRANSACTION
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<Operation, RestTemplate> restTemplates = new EnumMap<>(Operation.class);
+    private final ExecutorService asyncExecutor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fineract-call-", 0).factory());
+
+    public FineractTransport(
+            @Value("${card-engine.fineract.http.max-connections:64}") int maxConnections,
+            @Value("${card-engine.fineract.http.max-connections-per-route:64}") int maxConnectionsPerRoute,
+            @Value("${card-engine.fineract.http.connection-request-timeout:250ms}") Duration connectionRequestTimeout,
+            @Value("${card-engine.fineract.http.keep-alive:30s}") Duration keepAlive,
+            @Value("${card-engine.fineract.http.validate-after-inactivity:2s}") Duration validateAfterInactivity,
+            @Value("${card-engine.fineract.http.balance-inquiry.connect-timeout:500ms}") Duration balanceConnectTimeout,
+            @Value("${card-engine.fineract.http.balance-inquiry.read-timeout:2s}") Duration balanceReadTimeout,
+            @Value("${card-engine.fineract.http.journal-entry.connect-timeout:500ms}") Duration journalConnectTimeout,
+            @Value("${card-engine.fineract.http.journal-entry.read-timeout:5s}") Duration journalReadTimeout,
+            @Value("${card-engine.fineract.http.savings-transaction.connect-timeout:500ms}") Duration savingsConnectTimeout,
+            @Value("${card-engine.fineract.http.savings-transaction.read-timeout:5s}") Duration savingsReadTimeout) {
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnectionsPerRoute)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
+                .build())
+            .build();
+
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(keepAlive))
+            .build();
+
+        register(Operation.BALANCE_INQUIRY, connectionRequestTimeout, keepAlive,
+            balanceConnectTimeout, balanceReadTimeout);
+        register(Operation.JOURNAL_ENTRY, connectionRequestTimeout, keepAlive,
+            journalConnectTimeout, journalReadTimeout);
+        register(Operation.SAVINGS_TRANSACTION, connectionRequestTimeout, keepAlive,
+            savingsConnectTimeout, savingsReadTimeout);
+
+        log.info("Fineract transport initialized: maxConnections={}, maxPerRoute={}, keepAlive={}",
+            maxConnections, maxConnectionsPerRoute, keepAlive);
+    }
+
+    /**
+     * Rest template for an operation. All templates share the connection pool.
+     */
+    public RestTemplate restTemplate(Operation operation) {
+        return restTemplates.get(operation);
+    }
+
+    /**
+     * Run a blocking Fineract call on a virtual thread.
+     */
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, asyncExecutor);
+    }
+
+    /**
+     * Current connection pool usage (leased, pending, available, max).
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdown();
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    // RequestConfig connect timeouts are deprecated in favour of per-route ConnectionConfig,
+    // but are still honoured and are the only way to vary them per operation on one pool
+    @SuppressWarnings("deprecation")
+    private void register(Operation operation, Duration connectionRequestTimeout, Duration keepAlive,
+                          Duration connectTimeout, Duration readTimeout) {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+            .setConnectTimeout(Timeout.of(connectTimeout))
+            .setResponseTimeout(Timeout.of(readTimeout))
+            // Kept for the server's Keep-Alive hint, or keepAlive when it sends none
+            .setDefaultKeepAlive(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfig);
+            return context;
+        });
+
+        restTemplates.put(operation, new RestTemplate(requestFactory));
+    }
+}
@@ -1,8 +1,7 @@
 package com.cardengine.providers.processor;
 
 import com.cardengine.authorization.*;
-import com.cardengine.cards.Card;
-import com.cardengine.cards.CardRepository;
+import com.cardengine.cards.CardTokenIndex;
 import com.cardengine.common.Currency;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.Money;
@@ -39,7 +38,7 @@ public class SampleProcessorAdapter implements CardProcessorAdapter {
 
     private final AuthorizationService authorizationService;
     private final SettlementService settlementService;
-    private final CardRepository cardRepository;
+    private final CardTokenIndex cardTokenIndex;
     private final ProcessorTransactionMappingRepository mappingRepository;
 
     private static final String PROCESSOR_NAME = "SampleProcessor";
@@ -62,14 +61,14 @@ public class SampleProcessorAdapter implements CardProcessorAdapter {
 
         try {
             // 1. Find card by token
-            Card card = findCardByToken(webhook.getCardToken());
+            String cardId = findCardIdByToken(webhook.getCardToken());
 
             // 2. Translate to internal authorization request
             String internalAuthId = java.util.UUID.randomUUID().toString();
 
             AuthorizationRequest request = AuthorizationRequest.builder()
                 .authorizationId(internalAuthId)
-                .cardId(card.getCardId())
+                .cardId(cardId)
                 .amount(Money.of(webhook.getAmount(), Currency.valueOf(webhook.getCurrency())))
                 .merchantName(webhook.getMerchant().getName())
                 .merchantCategoryCode(webhook.getMerchant().getCategoryCode())
@@ -202,15 +201,10 @@ public class SampleProcessorAdapter implements CardProcessorAdapter {
     }
 
     /**
-     * Map card token to internal card ID.
-     * In production, card tokens would be stored in the cards table.
+     * Map card token to internal card ID via the card token index.
      */
-    private Card findCardByToken(String cardToken) {
-        // For this implementation, we'll use last4 as a simple token
-        // In production, this would be a proper tokenization system
-        return cardRepository.findAll().stream()
-            .filter(card -> card.getLast4().equals(cardToken))
-            .findFirst()
+    private String findCardIdByToken(String cardToken) {
+        return cardTokenIndex.resolve(cardToken)
             .orElseThrow(() -> new IllegalArgumentException("Card not found for token: " + cardToken));
     }
 
@@ -0,0 +1,133 @@
+package com.cardengine.reconciliation;
+
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.bank.standin.StandInHoldStatus;
+import com.cardengine.ledger.TransactionType;
+import com.cardengine.providers.fineract.FineractAuthHold.HoldStatus;
+import com.cardengine.reconciliation.ReconciliationSources.AuthorizationRow;
+import com.cardengine.reconciliation.ReconciliationSources.HoldRow;
+import com.cardengine.reconciliation.ReconciliationSources.ReserveRow;
+import com.cardengine.reconciliation.ReconciliationSources.StandInRow;
+
+import java.util.Set;
+
+/**
+ * Rules comparing one authorization with its reserve, bank hold, stand-in
+ * hold, pending bank outbox entries and ledger entries.
+ *
+ * A bank hold left open after clearing or release is only reported when no
+ * outbox entry is pending or being sent to close it: until then it is in
+ * flight.
+ */
+final class AuthorizationChecks {
+
+    private AuthorizationChecks() {
+    }
+
+    /**
+     * Everything known about one authorization ID across the sources.
+     * Any part may be missing.
+     */
+    record Joined(String authorizationId, AuthorizationRow authorization, ReserveRow reserve, HoldRow hold,
+                  StandInRow standIn, Set<BankOutboxOperation> pendingOutbox, Set<TransactionType> ledger) {
+    }
+
+    static void check(Joined joined, DiscrepancySink sink) {
+        AuthorizationRow authorization = joined.authorization();
+        if (authorization == null) {
+            checkOrphans(joined, sink);
+            return;
+        }
+
+        checkReserve(joined, authorization, sink);
+        checkBankHold(joined, authorization, sink);
+        checkLedger(joined, authorization, sink);
+    }
+
+    private static void checkOrphans(Joined joined, DiscrepancySink sink) {
+        String id = joined.authorizationId();
+        if (joined.reserve() != null) {
+            sink.report(DiscrepancyType.RESERVE_WITHOUT_AUTHORIZATION, id, joined.reserve().accountId(),
+                "reserve of " + joined.reserve().amount());
+        }
+        if (joined.hold() != null && joined.hold().status() == HoldStatus.ACTIVE) {
+            sink.report(DiscrepancyType.HOLD_WITHOUT_AUTHORIZATION, id, null,
+                "active hold of " + joined.hold().amount());
+        }
+        if (!joined.ledger().isEmpty()) {
+            sink.report(DiscrepancyType.LEDGER_WITHOUT_AUTHORIZATION, id, null,
+                "ledger entries " + joined.ledger());
+        }
+    }
+
+    private static void checkReserve(Joined joined, AuthorizationRow authorization, DiscrepancySink sink) {
+        ReserveRow reserve = joined.reserve();
+        String id = joined.authorizationId();
+        if (authorization.status() == AuthorizationStatus.APPROVED) {
+            if (reserve == null) {
+                if (authorization.internalAccount()) {
+                    sink.report(DiscrepancyType.APPROVED_WITHOUT_RESERVE, id, authorization.accountId(),
+                        "approved for " + authorization.amount());
+                }
+            } else if (reserve.amount().compareTo(authorization.amount()) != 0) {
+                sink.report(DiscrepancyType.RESERVE_AMOUNT_MISMATCH, id, authorization.accountId(),
+                    "reserve " + reserve.amount() + ", authorization " + authorization.amount());
+            }
+        } else if (reserve != null) {
+            sink.report(DiscrepancyType.RESERVE_NOT_RELEASED, id, authorization.accountId(),
+                "reserve of " + reserve.amount() + " on " + authorization.status() + " authorization");
+        }
+    }
+
+    private static void checkBankHold(Joined joined, AuthorizationRow authorization, DiscrepancySink sink) {
+        String id = joined.authorizationId();
+        HoldRow hold = joined.hold();
+        StandInRow standIn = joined.standIn();
+
+        if (standIn != null && standIn.status() == StandInHoldStatus.REJECTED
+                && authorization.status() == AuthorizationStatus.APPROVED) {
+            sink.report(DiscrepancyType.STAND_IN_HOLD_REJECTED, id, authorization.accountId(),
+                "approved in stand-in for " + authorization.amount());
+        }
+        if (hold == null) {
+            return;
+        }
+
+        boolean open = hold.status() != HoldStatus.COMMITTED && hold.status() != HoldStatus.RELEASED;
+        switch (authorization.status()) {
+            case APPROVED -> {
+                if (hold.status() != HoldStatus.ACTIVE) {
+                    sink.report(DiscrepancyType.HOLD_CLOSED_WHILE_APPROVED, id, authorization.accountId(),
+                        "hold " + hold.status());
+                }
+            }
+            case CLEARED -> {
+                if (open && !joined.pendingOutbox().contains(BankOutboxOperation.COMMIT_DEBIT)) {
+                    sink.report(DiscrepancyType.HOLD_NOT_CLOSED, id, authorization.accountId(),
+                        "hold " + hold.status() + " on CLEARED authorization");
+                }
+            }
+            case RELEASED, REVERSED, DECLINED -> {
+                if ((hold.status() == HoldStatus.ACTIVE || hold.status() == HoldStatus.RELEASING)
+                        && !joined.pendingOutbox().contains(BankOutboxOperation.RELEASE_HOLD)) {
+                    sink.report(DiscrepancyType.HOLD_NOT_CLOSED, id, authorization.accountId(),
+                        "hold " + hold.status() + " on " + authorization.status() + " authorization");
+                }
+            }
+        }
+    }
+
+    private static void checkLedger(Joined joined, AuthorizationRow authorization, DiscrepancySink sink) {
+        TransactionType expected = switch (authorization.status()) {
+            case APPROVED -> TransactionType.AUTH_HOLD;
+            case CLEARED -> TransactionType.CLEARING_COMMIT;
+            case RELEASED -> TransactionType.AUTH_RELEASE;
+            case DECLINED, REVERSED -> null;
+        };
+        if (expected != null && !joined.ledger().contains(expected)) {
+            sink.report(DiscrepancyType.LEDGER_ENTRY_MISSING, joined.authorizationId(), authorization.accountId(),
+                "no " + expected + " entry for " + authorization.status() + " authorization");
+        }
+    }
+}
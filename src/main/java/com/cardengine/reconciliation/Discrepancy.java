@@ -0,0 +1,48 @@
+package com.cardengine.reconciliation;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One disagreement found by a reconciliation run.
+ */
+@Entity
+@Table(name = "reconciliation_discrepancies", indexes = {
+    @Index(name = "idx_discrepancy_run_id", columnList = "run_id, id")
+})
+@Data
+@NoArgsConstructor
+public class Discrepancy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DiscrepancyType type;
+
+    /**
+     * Authorization ID, or account ID for account-level discrepancies.
+     */
+    @Column(name = "subject_id", nullable = false)
+    private String subjectId;
+
+    @Column(name = "account_id")
+    private String accountId;
+
+    @Column(length = 500)
+    private String detail;
+
+    public Discrepancy(Long runId, DiscrepancyType type, String subjectId, String accountId, String detail) {
+        this.runId = runId;
+        this.type = type;
+        this.subjectId = subjectId;
+        this.accountId = accountId;
+        this.detail = detail;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cardengine.reconciliation;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for reconciliation discrepancies.
+ */
+@Repository
+public interface DiscrepancyRepository extends JpaRepository<Discrepancy, Long> {
+
+    List<Discrepancy> findByRunIdOrderByIdAsc(Long runId, Pageable page);
+}
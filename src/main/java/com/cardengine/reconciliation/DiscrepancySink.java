@@ -0,0 +1,77 @@
+package com.cardengine.reconciliation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Collects the discrepancies of one run: counts every one, and passes them
+ * to the writer in batches until max-stored have been stored. Shared by the
+ * run's partitions.
+ */
+class DiscrepancySink {
+
+    private final Long runId;
+    private final Consumer<List<Discrepancy>> writer;
+    private final int batchSize;
+    private final long maxStored;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<DiscrepancyType, Long> counts = new EnumMap<>(DiscrepancyType.class);
+    private List<Discrepancy> batch = new ArrayList<>();
+    private long stored;
+
+    DiscrepancySink(Long runId, Consumer<List<Discrepancy>> writer, int batchSize, long maxStored,
+                    MeterRegistry meterRegistry) {
+        this.runId = runId;
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.maxStored = maxStored;
+        this.meterRegistry = meterRegistry;
+    }
+
+    void report(DiscrepancyType type, String subjectId, String accountId, String detail) {
+        Counter.builder("cardengine.reconciliation.discrepancies")
+            .description("Discrepancies found by reconciliation")
+            .tag("type", type.name().toLowerCase())
+            .register(meterRegistry)
+            .increment();
+
+        List<Discrepancy> full = null;
+        synchronized (this) {
+            counts.merge(type, 1L, Long::sum);
+            if (stored >= maxStored) {
+                return;
+            }
+            stored++;
+            batch.add(new Discrepancy(runId, type, subjectId, accountId, detail));
+            if (batch.size() >= batchSize) {
+                full = batch;
+                batch = new ArrayList<>();
+            }
+        }
+        if (full != null) {
+            writer.accept(full);
+        }
+    }
+
+    void flush() {
+        List<Discrepancy> rest;
+        synchronized (this) {
+            rest = batch;
+            batch = new ArrayList<>();
+        }
+        if (!rest.isEmpty()) {
+            writer.accept(rest);
+        }
+    }
+
+    synchronized Map<DiscrepancyType, Long> counts() {
+        return new EnumMap<>(counts);
+    }
+}
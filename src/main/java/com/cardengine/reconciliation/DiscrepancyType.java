@@ -0,0 +1,63 @@
+package com.cardengine.reconciliation;
+
+/**
+ * Kinds of disagreement found by reconciliation.
+ */
+public enum DiscrepancyType {
+    /**
+     * APPROVED authorization on an internal account without a reserve.
+     */
+    APPROVED_WITHOUT_RESERVE,
+
+    /**
+     * Reserve amount differs from the APPROVED authorization's amount.
+     */
+    RESERVE_AMOUNT_MISMATCH,
+
+    /**
+     * Reserve still open for an authorization that is not APPROVED.
+     */
+    RESERVE_NOT_RELEASED,
+
+    /**
+     * Reserve for an authorization that does not exist.
+     */
+    RESERVE_WITHOUT_AUTHORIZATION,
+
+    /**
+     * Bank hold no longer ACTIVE while the authorization is APPROVED.
+     */
+    HOLD_CLOSED_WHILE_APPROVED,
+
+    /**
+     * Bank hold still open for an authorization that was cleared, released
+     * or declined, with no bank outbox entry pending to close it.
+     */
+    HOLD_NOT_CLOSED,
+
+    /**
+     * ACTIVE bank hold for an authorization that does not exist.
+     */
+    HOLD_WITHOUT_AUTHORIZATION,
+
+    /**
+     * Bank core refused the hold for a stand-in approval; the amount is the
+     * issuer's exposure.
+     */
+    STAND_IN_HOLD_REJECTED,
+
+    /**
+     * Ledger entry expected for the authorization status is missing.
+     */
+    LEDGER_ENTRY_MISSING,
+
+    /**
+     * Ledger entries reference an authorization that does not exist.
+     */
+    LEDGER_WITHOUT_AUTHORIZATION,
+
+    /**
+     * accounts.reserved_total differs from the sum of the account's reserves.
+     */
+    RESERVED_TOTAL_MISMATCH
+}
@@ -0,0 +1,51 @@
+package com.cardengine.reconciliation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The keys one reconciliation unit covers: a range of keys (a partition of
+ * a full run) or an explicit set (a chunk of an incremental run).
+ */
+record KeyFilter(String lowerExclusive, String upperInclusive, List<String> keys) {
+
+    static KeyFilter range(String lowerExclusive, String upperInclusive) {
+        return new KeyFilter(lowerExclusive, upperInclusive, null);
+    }
+
+    static KeyFilter keys(List<String> keys) {
+        return new KeyFilter(null, null, List.copyOf(keys));
+    }
+
+    /**
+     * SQL condition on the key column, always true for an unbounded range.
+     */
+    String condition(String column) {
+        if (keys != null) {
+            return column + " in (" + String.join(",", Collections.nCopies(keys.size(), "?")) + ")";
+        }
+        List<String> conditions = new ArrayList<>(2);
+        if (lowerExclusive != null) {
+            conditions.add(column + " > ?");
+        }
+        if (upperInclusive != null) {
+            conditions.add(column + " <= ?");
+        }
+        return conditions.isEmpty() ? "1 = 1" : String.join(" and ", conditions);
+    }
+
+    Object[] args() {
+        if (keys != null) {
+            return keys.toArray();
+        }
+        List<Object> args = new ArrayList<>(2);
+        if (lowerExclusive != null) {
+            args.add(lowerExclusive);
+        }
+        if (upperInclusive != null) {
+            args.add(upperInclusive);
+        }
+        return args.toArray();
+    }
+}
@@ -0,0 +1,39 @@
+package com.cardengine.reconciliation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to read the latest reconciliation report and start runs.
+ *
+ * Not exposed over HTTP by default; add reconciliation to
+ * management.endpoints.web.exposure.include to use it.
+ */
+@Component
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationEndpoint {
+
+    private final ReconciliationService reconciliationService;
+
+    @ReadOperation
+    public ReconciliationReport latest() {
+        return reconciliationService.latestReport().orElse(null);
+    }
+
+    /**
+     * Run reconciliation now.
+     *
+     * @param mode "full", or "incremental" (the default)
+     */
+    @WriteOperation
+    public ReconciliationReport run(@Nullable String mode) {
+        return "full".equalsIgnoreCase(mode)
+            ? reconciliationService.runFull()
+            : reconciliationService.runIncremental();
+    }
+}
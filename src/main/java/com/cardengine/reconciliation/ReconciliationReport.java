@@ -0,0 +1,33 @@
+package com.cardengine.reconciliation;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a reconciliation run: counts per discrepancy type and the
+ * first stored discrepancies.
+ */
+@Value
+public class ReconciliationReport {
+
+    Long runId;
+
+    ReconciliationRun.Mode mode;
+
+    ReconciliationRun.Status status;
+
+    Instant since;
+
+    Instant startedAt;
+
+    Instant finishedAt;
+
+    long keysChecked;
+
+    Map<DiscrepancyType, Long> counts;
+
+    List<Discrepancy> samples;
+}
@@ -0,0 +1,94 @@
+package com.cardengine.reconciliation;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One reconciliation pass and its outcome.
+ *
+ * The checkpoint of a completed run is where the next incremental run
+ * starts: changes after it are reconciled.
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+@NoArgsConstructor
+public class ReconciliationRun {
+
+    public enum Mode {
+        FULL,
+        INCREMENTAL
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Mode mode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    /**
+     * Start of the changes covered by an incremental run.
+     */
+    private Instant since;
+
+    /**
+     * Changes up to this point are covered once the run completes.
+     */
+    @Column(nullable = false)
+    private Instant checkpoint;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * Authorizations and accounts compared.
+     */
+    @Column(name = "keys_checked")
+    private long keysChecked;
+
+    private long discrepancies;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "reconciliation_run_counts", joinColumns = @JoinColumn(name = "run_id"))
+    @MapKeyEnumerated(EnumType.STRING)
+    @MapKeyColumn(name = "type")
+    @Column(name = "discrepancies")
+    private Map<DiscrepancyType, Long> counts = new EnumMap<>(DiscrepancyType.class);
+
+    public ReconciliationRun(Mode mode, Instant since, Instant checkpoint) {
+        this.mode = mode;
+        this.status = Status.RUNNING;
+        this.since = since;
+        this.checkpoint = checkpoint;
+        this.startedAt = Instant.now();
+    }
+
+    public void finish(Status status, long keysChecked, Map<DiscrepancyType, Long> counts) {
+        this.status = status;
+        this.keysChecked = keysChecked;
+        this.counts = new EnumMap<>(DiscrepancyType.class);
+        this.counts.putAll(counts);
+        this.discrepancies = counts.values().stream().mapToLong(Long::longValue).sum();
+        this.finishedAt = Instant.now();
+    }
+}
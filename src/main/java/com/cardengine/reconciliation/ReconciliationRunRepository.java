@@ -0,0 +1,17 @@
+package com.cardengine.reconciliation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for reconciliation runs.
+ */
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    Optional<ReconciliationRun> findFirstByStatusOrderByIdDesc(ReconciliationRun.Status status);
+
+    Optional<ReconciliationRun> findFirstByOrderByIdDesc();
+}
@@ -0,0 +1,343 @@
+package com.cardengine.reconciliation;
+
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.ledger.TransactionType;
+import com.cardengine.reconciliation.ReconciliationSources.AccountRow;
+import com.cardengine.reconciliation.ReconciliationSources.AuthorizationRow;
+import com.cardengine.reconciliation.ReconciliationSources.HoldRow;
+import com.cardengine.reconciliation.ReconciliationSources.LedgerRow;
+import com.cardengine.reconciliation.ReconciliationSources.OutboxRow;
+import com.cardengine.reconciliation.ReconciliationSources.ReserveRow;
+import com.cardengine.reconciliation.ReconciliationSources.ReserveTotalRow;
+import com.cardengine.reconciliation.ReconciliationSources.StandInRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles authorizations, account reserves, bank holds, the bank outbox,
+ * ledger entries and account reserved totals against each other.
+ *
+ * A full run splits authorization IDs and account IDs into key ranges and
+ * reconciles the ranges in parallel. Within a range every source is
+ * streamed sorted by key from a database cursor and merge-joined, so memory
+ * use depends on the fetch size, not on the table sizes. Each range is read
+ * in one repeatable-read transaction so its sources are compared at the
+ * same point in time.
+ *
+ * An incremental run reconciles only the authorizations changed since the
+ * checkpoint of the last completed run, in chunks of chunk-size IDs.
+ * Account reserved totals are only compared by full runs.
+ *
+ * Discrepancies are stored in reconciliation_discrepancies (up to
+ * max-stored per run) and counted per type on the run.
+ */
+@Component
+@Slf4j
+public class ReconciliationService {
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private final ReconciliationSources sources;
+    private final ReconciliationRunRepository runRepository;
+    private final DiscrepancyRepository discrepancyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int partitions;
+    private final int chunkSize;
+    private final long maxStored;
+    private final Duration settleLag;
+    private final ExecutorService workers;
+
+    public ReconciliationService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ReconciliationRunRepository runRepository,
+            DiscrepancyRepository discrepancyRepository,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.reconciliation.enabled:true}") boolean enabled,
+            @Value("${card-engine.reconciliation.partitions:16}") int partitions,
+            @Value("${card-engine.reconciliation.concurrency:4}") int concurrency,
+            @Value("${card-engine.reconciliation.fetch-size:1000}") int fetchSize,
+            @Value("${card-engine.reconciliation.chunk-size:500}") int chunkSize,
+            @Value("${card-engine.reconciliation.max-stored:100000}") long maxStored,
+            @Value("${card-engine.reconciliation.settle-lag:1m}") Duration settleLag) {
+
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(fetchSize);
+        this.sources = new ReconciliationSources(streaming);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.runRepository = runRepository;
+        this.discrepancyRepository = discrepancyRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.maxStored = maxStored;
+        this.settleLag = settleLag;
+
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.readTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.workers = Executors.newFixedThreadPool(concurrency,
+            Thread.ofVirtual().name("reconciliation-", 0).factory());
+    }
+
+    @Scheduled(
+        initialDelayString = "${card-engine.reconciliation.incremental-interval:PT15M}",
+        fixedDelayString = "${card-engine.reconciliation.incremental-interval:PT15M}")
+    public void scheduledIncremental() {
+        if (enabled) {
+            runIncremental();
+        }
+    }
+
+    @Scheduled(
+        initialDelayString = "${card-engine.reconciliation.full-interval:P1D}",
+        fixedDelayString = "${card-engine.reconciliation.full-interval:P1D}")
+    public void scheduledFull() {
+        if (enabled) {
+            runFull();
+        }
+    }
+
+    /**
+     * Reconcile everything.
+     */
+    public synchronized ReconciliationReport runFull() {
+        ReconciliationRun run = start(ReconciliationRun.Mode.FULL, null);
+        DiscrepancySink sink = sink(run);
+
+        return execute(run, sink, () -> {
+            List<Callable<Long>> ranges = new ArrayList<>();
+            for (KeyFilter range : sources.ranges("authorizations", "authorization_id", partitions)) {
+                ranges.add(() -> readTemplate.execute(status -> reconcileAuthorizations(range, sink)));
+            }
+            for (KeyFilter range : sources.ranges("accounts", "account_id", partitions)) {
+                ranges.add(() -> readTemplate.execute(status -> reconcileAccounts(range, sink)));
+            }
+
+            long keys = 0;
+            for (Future<Long> result : workers.invokeAll(ranges)) {
+                keys += result.get();
+            }
+            return keys;
+        });
+    }
+
+    /**
+     * Reconcile the authorizations changed since the last completed run,
+     * or everything if there is none.
+     */
+    public synchronized ReconciliationReport runIncremental() {
+        Optional<ReconciliationRun> last = runRepository.findFirstByStatusOrderByIdDesc(
+            ReconciliationRun.Status.COMPLETED);
+        if (last.isEmpty()) {
+            return runFull();
+        }
+
+        ReconciliationRun run = start(ReconciliationRun.Mode.INCREMENTAL, last.get().getCheckpoint());
+        DiscrepancySink sink = sink(run);
+
+        return execute(run, sink, () -> readTemplate.execute(status -> {
+            long keys = 0;
+            List<String> chunk = new ArrayList<>(chunkSize);
+            try (Stream<String> changed = sources.changedAuthorizations(run.getSince())) {
+                for (String authorizationId : (Iterable<String>) changed::iterator) {
+                    chunk.add(authorizationId);
+                    if (chunk.size() == chunkSize) {
+                        keys += reconcileAuthorizations(KeyFilter.keys(chunk), sink);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                keys += reconcileAuthorizations(KeyFilter.keys(chunk), sink);
+            }
+            return keys;
+        }));
+    }
+
+    /**
+     * Report of the most recent run.
+     */
+    public Optional<ReconciliationReport> latestReport() {
+        return runRepository.findFirstByOrderByIdDesc().map(this::report);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private long reconcileAuthorizations(KeyFilter filter, DiscrepancySink sink) {
+        try (Stream<AuthorizationRow> authorizations = sources.authorizations(filter);
+             Stream<ReserveRow> reserves = sources.reserves(filter);
+             Stream<HoldRow> holds = sources.bankHolds(filter);
+             Stream<StandInRow> standIns = sources.standInHolds(filter);
+             Stream<OutboxRow> outbox = sources.pendingOutbox(filter);
+             Stream<LedgerRow> ledger = sources.ledgerEntries(filter)) {
+
+            SortedSource<AuthorizationRow> authorizationSource =
+                new SortedSource<>("authorizations", authorizations.iterator(), AuthorizationRow::authorizationId);
+            SortedSource<ReserveRow> reserveSource =
+                new SortedSource<>("account_reserves", reserves.iterator(), ReserveRow::authorizationId);
+            SortedSource<HoldRow> holdSource =
+                new SortedSource<>("fineract_auth_holds", holds.iterator(), HoldRow::authorizationId);
+            SortedSource<StandInRow> standInSource =
+                new SortedSource<>("stand_in_holds", standIns.iterator(), StandInRow::authorizationId);
+            SortedSource<OutboxRow> outboxSource =
+                new SortedSource<>("bank_outbox", outbox.iterator(), OutboxRow::referenceId);
+            SortedSource<LedgerRow> ledgerSource =
+                new SortedSource<>("ledger_entries", ledger.iterator(), LedgerRow::authorizationId);
+            List<SortedSource<?>> all = List.of(
+                authorizationSource, reserveSource, holdSource, standInSource, outboxSource, ledgerSource);
+
+            long keys = 0;
+            for (String key = SortedSource.minKey(all); key != null; key = SortedSource.minKey(all)) {
+                Set<BankOutboxOperation> pending = EnumSet.noneOf(BankOutboxOperation.class);
+                outboxSource.take(key).forEach(row -> pending.add(row.operation()));
+                Set<TransactionType> ledgerTypes = EnumSet.noneOf(TransactionType.class);
+                ledgerSource.take(key).forEach(row -> ledgerTypes.add(row.transactionType()));
+
+                AuthorizationChecks.check(new AuthorizationChecks.Joined(key,
+                    first(authorizationSource.take(key)),
+                    first(reserveSource.take(key)),
+                    first(holdSource.take(key)),
+                    first(standInSource.take(key)),
+                    pending,
+                    ledgerTypes), sink);
+                keys++;
+            }
+            return keys;
+        }
+    }
+
+    private long reconcileAccounts(KeyFilter filter, DiscrepancySink sink) {
+        try (Stream<AccountRow> accounts = sources.accounts(filter);
+             Stream<ReserveTotalRow> totals = sources.reserveTotals(filter)) {
+
+            SortedSource<AccountRow> accountSource =
+                new SortedSource<>("accounts", accounts.iterator(), AccountRow::accountId);
+            SortedSource<ReserveTotalRow> totalSource =
+                new SortedSource<>("account_reserves", totals.iterator(), ReserveTotalRow::accountId);
+            List<SortedSource<?>> all = List.of(accountSource, totalSource);
+
+            long keys = 0;
+            for (String key = SortedSource.minKey(all); key != null; key = SortedSource.minKey(all)) {
+                AccountRow account = first(accountSource.take(key));
+                ReserveTotalRow total = first(totalSource.take(key));
+                BigDecimal reserved = account != null && account.reservedTotal() != null
+                    ? account.reservedTotal() : BigDecimal.ZERO;
+                BigDecimal sum = total != null ? total.total() : BigDecimal.ZERO;
+                if (reserved.compareTo(sum) != 0) {
+                    sink.report(DiscrepancyType.RESERVED_TOTAL_MISMATCH, key, key,
+                        "reserved_total " + reserved + ", sum of reserves " + sum);
+                }
+                keys++;
+            }
+            return keys;
+        }
+    }
+
+    private ReconciliationRun start(ReconciliationRun.Mode mode, Instant since) {
+        ReconciliationRun run = new ReconciliationRun(mode, since, Instant.now().minus(settleLag));
+        return writeTemplate.execute(status -> runRepository.save(run));
+    }
+
+    private DiscrepancySink sink(ReconciliationRun run) {
+        return new DiscrepancySink(run.getId(), this::write, WRITE_BATCH_SIZE, maxStored, meterRegistry);
+    }
+
+    private ReconciliationReport execute(ReconciliationRun run, DiscrepancySink sink, Callable<Long> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ReconciliationRun.Status outcome = ReconciliationRun.Status.FAILED;
+        long keys = 0;
+        try {
+            Long checked = work.call();
+            keys = checked != null ? checked : 0;
+            outcome = ReconciliationRun.Status.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Reconciliation run {} interrupted", run.getId());
+        } catch (ExecutionException e) {
+            log.error("Reconciliation run {} failed", run.getId(), e.getCause());
+        } catch (Exception e) {
+            log.error("Reconciliation run {} failed", run.getId(), e);
+        } finally {
+            sink.flush();
+        }
+
+        run.finish(outcome, keys, sink.counts());
+        writeTemplate.executeWithoutResult(status -> runRepository.save(run));
+        sample.stop(Timer.builder("cardengine.reconciliation.duration")
+            .description("Duration of reconciliation runs")
+            .tag("mode", run.getMode().name().toLowerCase())
+            .tag("status", outcome.name().toLowerCase())
+            .register(meterRegistry));
+
+        if (run.getDiscrepancies() > 0) {
+            log.warn("Reconciliation run {} ({}) found {} discrepancies over {} keys: {}",
+                run.getId(), run.getMode(), run.getDiscrepancies(), keys, run.getCounts());
+        } else {
+            log.info("Reconciliation run {} ({}) {} over {} keys, no discrepancies",
+                run.getId(), run.getMode(), outcome, keys);
+        }
+        return report(run);
+    }
+
+    private void write(List<Discrepancy> discrepancies) {
+        writeTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "insert into reconciliation_discrepancies (run_id, type, subject_id, account_id, detail)"
+                + " values (?, ?, ?, ?, ?)",
+            discrepancies, discrepancies.size(), (ps, discrepancy) -> {
+                ps.setLong(1, discrepancy.getRunId());
+                ps.setString(2, discrepancy.getType().name());
+                ps.setString(3, discrepancy.getSubjectId());
+                ps.setString(4, discrepancy.getAccountId());
+                ps.setString(5, discrepancy.getDetail());
+            }));
+    }
+
+    private ReconciliationReport report(ReconciliationRun run) {
+        return new ReconciliationReport(run.getId(), run.getMode(), run.getStatus(), run.getSince(),
+            run.getStartedAt(), run.getFinishedAt(), run.getKeysChecked(), run.getCounts(),
+            discrepancyRepository.findByRunIdOrderByIdAsc(run.getId(), PageRequest.of(0, SAMPLE_SIZE)));
+    }
+
+    private static <T> T first(List<T> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
@@ -0,0 +1,170 @@
+package com.cardengine.reconciliation;
+
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.bank.standin.StandInHoldStatus;
+import com.cardengine.ledger.TransactionType;
+import com.cardengine.providers.fineract.FineractAuthHold;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * SQL for the tables reconciliation compares. Every query returns rows
+ * sorted by key, read from a cursor in fetch-size batches.
+ *
+ * Keys are compared bytewise by the merge join. On PostgreSQL the sort is
+ * done in the "C" collation so it agrees whatever the database collation.
+ */
+class ReconciliationSources {
+
+    record AuthorizationRow(String authorizationId, String accountId, AuthorizationStatus status,
+                            BigDecimal amount, boolean internalAccount) {
+    }
+
+    record ReserveRow(String authorizationId, String accountId, BigDecimal amount) {
+    }
+
+    record HoldRow(String authorizationId, FineractAuthHold.HoldStatus status, BigDecimal amount) {
+    }
+
+    record StandInRow(String authorizationId, StandInHoldStatus status) {
+    }
+
+    record OutboxRow(String referenceId, BankOutboxOperation operation) {
+    }
+
+    record LedgerRow(String authorizationId, TransactionType transactionType) {
+    }
+
+    record AccountRow(String accountId, BigDecimal reservedTotal) {
+    }
+
+    record ReserveTotalRow(String accountId, BigDecimal total) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String collation;
+
+    ReconciliationSources(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    Stream<AuthorizationRow> authorizations(KeyFilter filter) {
+        return query("select a.authorization_id, a.account_id, a.status, a.amount,"
+                + " case when ac.account_id is null then 0 else 1 end as internal_account"
+                + " from authorizations a left join accounts ac on ac.account_id = a.account_id"
+                + " where " + filter.condition("a.authorization_id")
+                + " order by " + sorted("a.authorization_id"),
+            filter, (rs, rowNum) -> new AuthorizationRow(rs.getString(1), rs.getString(2),
+                AuthorizationStatus.valueOf(rs.getString(3)), rs.getBigDecimal(4), rs.getInt(5) == 1));
+    }
+
+    Stream<ReserveRow> reserves(KeyFilter filter) {
+        return query("select authorization_id, account_id, reserved_amount from account_reserves"
+                + " where " + filter.condition("authorization_id")
+                + " order by " + sorted("authorization_id"),
+            filter, (rs, rowNum) -> new ReserveRow(rs.getString(1), rs.getString(2), rs.getBigDecimal(3)));
+    }
+
+    Stream<HoldRow> bankHolds(KeyFilter filter) {
+        return query("select authorization_id, status, hold_amount from fineract_auth_holds"
+                + " where " + filter.condition("authorization_id")
+                + " order by " + sorted("authorization_id"),
+            filter, (rs, rowNum) -> new HoldRow(rs.getString(1),
+                FineractAuthHold.HoldStatus.valueOf(rs.getString(2)), rs.getBigDecimal(3)));
+    }
+
+    Stream<StandInRow> standInHolds(KeyFilter filter) {
+        return query("select authorization_id, status from stand_in_holds"
+                + " where " + filter.condition("authorization_id")
+                + " order by " + sorted("authorization_id"),
+            filter, (rs, rowNum) -> new StandInRow(rs.getString(1), StandInHoldStatus.valueOf(rs.getString(2))));
+    }
+
+    Stream<OutboxRow> pendingOutbox(KeyFilter filter) {
+        return query("select reference_id, operation from bank_outbox"
+                + " where status in ('PENDING', 'IN_FLIGHT') and " + filter.condition("reference_id")
+                + " order by " + sorted("reference_id"),
+            filter, (rs, rowNum) -> new OutboxRow(rs.getString(1), BankOutboxOperation.valueOf(rs.getString(2))));
+    }
+
+    Stream<LedgerRow> ledgerEntries(KeyFilter filter) {
+        return query("select authorization_id, transaction_type from ledger_entries"
+                + " where authorization_id is not null and " + filter.condition("authorization_id")
+                + " order by " + sorted("authorization_id"),
+            filter, (rs, rowNum) -> new LedgerRow(rs.getString(1), TransactionType.valueOf(rs.getString(2))));
+    }
+
+    Stream<AccountRow> accounts(KeyFilter filter) {
+        return query("select account_id, reserved_total from accounts"
+                + " where " + filter.condition("account_id")
+                + " order by " + sorted("account_id"),
+            filter, (rs, rowNum) -> new AccountRow(rs.getString(1), rs.getBigDecimal(2)));
+    }
+
+    Stream<ReserveTotalRow> reserveTotals(KeyFilter filter) {
+        return query("select account_id, sum(reserved_amount) from account_reserves"
+                + " where " + filter.condition("account_id")
+                + " group by account_id order by " + sorted("account_id"),
+            filter, (rs, rowNum) -> new ReserveTotalRow(rs.getString(1), rs.getBigDecimal(2)));
+    }
+
+    /**
+     * Authorization IDs with a change after the given time, each once.
+     * Status changes are found through the ledger entries and bank calls
+     * they produce.
+     */
+    Stream<String> changedAuthorizations(Instant since) {
+        Timestamp after = Timestamp.from(since);
+        return jdbcTemplate.queryForStream(
+            "select authorization_id from authorizations where created_at > ?"
+                + " union select authorization_id from ledger_entries"
+                + " where created_at > ? and authorization_id is not null"
+                + " union select authorization_id from fineract_auth_holds where updated_at > ?"
+                + " union select authorization_id from stand_in_holds where updated_at > ?"
+                + " union select reference_id from bank_outbox where updated_at > ?",
+            (rs, row) -> rs.getString(1), after, after, after, after, after);
+    }
+
+    /**
+     * Split a table's keys into contiguous ranges of about equal size.
+     */
+    List<KeyFilter> ranges(String table, String column, int partitions) {
+        List<String> upperBounds = jdbcTemplate.queryForList(
+            "select max(" + column + ") from (select " + column + ", ntile(" + partitions + ")"
+                + " over (order by " + column + ") as bucket from " + table + ") t"
+                + " group by bucket order by 1",
+            String.class);
+
+        List<KeyFilter> ranges = new ArrayList<>(partitions);
+        String lower = null;
+        for (int i = 0; i < upperBounds.size() - 1; i++) {
+            ranges.add(KeyFilter.range(lower, upperBounds.get(i)));
+            lower = upperBounds.get(i);
+        }
+        // Open-ended last range: keys only in other tables may sort after the table's last key
+        ranges.add(KeyFilter.range(lower, null));
+        return ranges;
+    }
+
+    private <T> Stream<T> query(String sql, KeyFilter filter, RowMapper<T> rowMapper) {
+        return jdbcTemplate.queryForStream(sql, rowMapper, filter.args());
+    }
+
+    private String sorted(String column) {
+        if (collation == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            collation = "PostgreSQL".equalsIgnoreCase(product) ? " collate \"C\"" : "";
+        }
+        return column + collation;
+    }
+}
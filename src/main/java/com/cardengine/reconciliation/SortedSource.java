@@ -0,0 +1,83 @@
+package com.cardengine.reconciliation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One side of a merge join: rows of a source read in key order.
+ *
+ * The join relies on every source being sorted the same way as
+ * String.compareTo; a key lower than the previous one fails the run
+ * rather than producing false discrepancies.
+ */
+final class SortedSource<T> {
+
+    private final String name;
+    private final Iterator<T> rows;
+    private final Function<T, String> key;
+    private T head;
+    private String headKey;
+    private long read;
+
+    SortedSource(String name, Iterator<T> rows, Function<T, String> key) {
+        this.name = name;
+        this.rows = rows;
+        this.key = key;
+        advance();
+    }
+
+    /**
+     * Key of the next row, null once the source is exhausted.
+     */
+    String peekKey() {
+        return headKey;
+    }
+
+    /**
+     * Take the rows with the given key; empty if the next row has another key.
+     */
+    List<T> take(String wanted) {
+        List<T> taken = new ArrayList<>(1);
+        while (head != null && headKey.equals(wanted)) {
+            taken.add(head);
+            advance();
+        }
+        return taken;
+    }
+
+    long getRead() {
+        return read;
+    }
+
+    private void advance() {
+        if (!rows.hasNext()) {
+            head = null;
+            headKey = null;
+            return;
+        }
+        String previous = headKey;
+        head = rows.next();
+        headKey = key.apply(head);
+        read++;
+        if (previous != null && headKey.compareTo(previous) < 0) {
+            throw new IllegalStateException("Reconciliation source " + name + " is not sorted by key: "
+                + headKey + " after " + previous + " (the database must sort keys bytewise)");
+        }
+    }
+
+    /**
+     * Smallest next key among the sources, null when all are exhausted.
+     */
+    static String minKey(List<SortedSource<?>> sources) {
+        String min = null;
+        for (SortedSource<?> source : sources) {
+            String next = source.peekKey();
+            if (next != null && (min == null || next.compareTo(min) < 0)) {
+                min = next;
+            }
+        }
+        return min;
+    }
+}
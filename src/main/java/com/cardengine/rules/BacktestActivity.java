@@ -0,0 +1,72 @@
+package com.cardengine.rules;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Card activity rebuilt from replayed authorizations, owned by one backtest
+ * partition (single-threaded).
+ *
+ * Rules ask for activity "now"; here now is the creation time of the
+ * authorization being replayed, set with {@link #advanceTo}. Only cards seen
+ * today (or in the last minute) can affect a rule, so cards idle for longer
+ * are dropped whenever the replay crosses midnight UTC: memory is bounded by
+ * the cards active in one day, however long the replayed period.
+ */
+final class BacktestActivity implements CardActivity {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private static final class Entry {
+        final CardActivityWindow window = new CardActivityWindow();
+        long lastSecond;
+    }
+
+    private final Map<String, Entry> cards = new HashMap<>();
+    private Instant now = Instant.EPOCH;
+    private long day = Long.MIN_VALUE;
+
+    void advanceTo(Instant at) {
+        now = at;
+        long today = Math.floorDiv(at.getEpochSecond(), SECONDS_PER_DAY);
+        if (today != day) {
+            day = today;
+            long idleBefore = today * SECONDS_PER_DAY - CardActivityWindow.WINDOW_SECONDS;
+            for (Iterator<Entry> it = cards.values().iterator(); it.hasNext(); ) {
+                if (it.next().lastSecond < idleBefore) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record an authorization at the current replay time; approved ones count as spend.
+     */
+    void record(String cardId, long amountMinorUnits, boolean approved) {
+        Entry entry = cards.computeIfAbsent(cardId, id -> new Entry());
+        entry.lastSecond = now.getEpochSecond();
+        entry.window.recordAttempt(now);
+        if (approved) {
+            entry.window.adjustSpend(now, amountMinorUnits);
+        }
+    }
+
+    int size() {
+        return cards.size();
+    }
+
+    @Override
+    public int countInLastMinute(String cardId, Instant ignored) {
+        Entry entry = cards.get(cardId);
+        return entry != null ? entry.window.countInLastMinute(now) : 0;
+    }
+
+    @Override
+    public long spentToday(String cardId, Instant ignored) {
+        Entry entry = cards.get(cardId);
+        return entry != null ? entry.window.spentOn(now) : 0;
+    }
+}
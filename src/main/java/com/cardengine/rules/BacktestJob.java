@@ -0,0 +1,33 @@
+package com.cardengine.rules;
+
+import java.time.Instant;
+
+/**
+ * A backtest submitted with {@link RuleBacktester#submit}, as last seen:
+ * queued, running, or finished with its report or the reason it failed.
+ */
+public record BacktestJob(
+    String jobId,
+    Status status,
+    BacktestRequest request,
+    Instant submittedAt,
+    Instant finishedAt,
+    BacktestReport report,
+    String error) {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    BacktestJob running() {
+        return new BacktestJob(jobId, Status.RUNNING, request, submittedAt, null, null, null);
+    }
+
+    BacktestJob completed(BacktestReport report) {
+        return new BacktestJob(jobId, Status.COMPLETED, request, submittedAt, Instant.now(), report, null);
+    }
+
+    BacktestJob failed(String error) {
+        return new BacktestJob(jobId, Status.FAILED, request, submittedAt, Instant.now(), null, error);
+    }
+}
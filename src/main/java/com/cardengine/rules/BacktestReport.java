@@ -0,0 +1,37 @@
+package com.cardengine.rules;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Outcome of replaying history through the current and the proposed rule sets.
+ *
+ * Deltas are proposed minus current; a positive decline delta means the
+ * proposal declines more with that rule.
+ *
+ * @param approvalsLost   approved by the current rules, declined by the proposal
+ * @param approvalsGained declined by the current rules, approved by the proposal
+ * @param failures        authorizations on which a rule threw (left out of the outcomes)
+ */
+public record BacktestReport(
+    Instant from,
+    Instant to,
+    long authorizations,
+    double historicalApprovalRate,
+    RuleSetOutcome current,
+    RuleSetOutcome proposed,
+    double approvalRateDelta,
+    Map<String, Long> declineDeltasByRule,
+    long approvalsLost,
+    long approvalsGained,
+    long failures,
+    Duration duration) {
+
+    /**
+     * @param declinesByRule declines by the first rule that declined
+     */
+    public record RuleSetOutcome(long approved, long declined, double approvalRate,
+                                 Map<String, Long> declinesByRule) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.cardengine.rules;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A proposed rule configuration to replay over authorizations created in [from, to).
+ *
+ * Null limits keep the current (live) limits. Proposed limits apply to every
+ * card, replacing card and program overrides.
+ *
+ * @param shadowRules evaluate the challenger rule set ({@link ShadowRule}s swapped in)
+ */
+public record BacktestRequest(
+    Instant from,
+    Instant to,
+    BigDecimal transactionLimit,
+    BigDecimal dailyLimit,
+    Integer velocityMaxPerMinute,
+    boolean shadowRules) {
+}
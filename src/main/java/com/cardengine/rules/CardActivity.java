@@ -0,0 +1,19 @@
+package com.cardengine.rules;
+
+import java.time.Instant;
+
+/**
+ * Per-card activity read by the velocity and daily spend rules.
+ *
+ * Live rules read the {@link CardActivityStore}; backtests read activity
+ * rebuilt from the replayed history.
+ */
+public interface CardActivity {
+
+    int countInLastMinute(String cardId, Instant now);
+
+    /**
+     * Approved spend today in minor units.
+     */
+    long spentToday(String cardId, Instant now);
+}
@@ -0,0 +1,176 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationActivity;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.common.MinorUnits;
+import com.cardengine.common.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Incremental per-card activity aggregates used by velocity and daily spend rules.
+ *
+ * Authorization services push every approval, decline, release and reversal here
+ * once the owning transaction commits, so rules can answer "how many attempts in
+ * the last minute" and "how much spent today" without querying the authorizations
+ * table. The store is rebuilt from the authorizations table at startup.
+ *
+ * Daily spend counts authorizations created today that are APPROVED or CLEARED;
+ * releases and reversals subtract the authorized amount again. Spend is kept
+ * in minor units; like the authorizations it is summed per card regardless of
+ * currency.
+ *
+ * Windows of cards with no attempt in the last minute and no spend today no
+ * longer affect any rule; they are evicted every
+ * card-engine.rules.activity.sweep-interval, so the store only holds recently
+ * active cards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardActivityStore implements CardActivity {
+
+    private final AuthorizationRepository authorizationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, CardActivityWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Record a newly persisted authorization (approved or declined).
+     */
+    public void recordAuthorization(Authorization authorization) {
+        TransactionCallbacks.afterCommit(() -> apply(authorization));
+    }
+
+    /**
+     * Record that an approved authorization was released without clearing.
+     */
+    public void recordRelease(Authorization authorization) {
+        TransactionCallbacks.afterCommit(() -> refund(authorization));
+    }
+
+    /**
+     * Record that a cleared authorization was reversed.
+     */
+    public void recordReversal(Authorization authorization) {
+        TransactionCallbacks.afterCommit(() -> refund(authorization));
+    }
+
+    @Override
+    public int countInLastMinute(String cardId, Instant now) {
+        CardActivityWindow window = windows.get(cardId);
+        return window != null ? window.countInLastMinute(now) : 0;
+    }
+
+    @Override
+    public long spentToday(String cardId, Instant now) {
+        CardActivityWindow window = windows.get(cardId);
+        return window != null ? window.spentOn(now) : 0;
+    }
+
+    /**
+     * Evict the windows of idle cards.
+     *
+     * @return number of windows evicted
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.rules.activity.sweep-interval:PT10M}",
+        fixedDelayString = "${card-engine.rules.activity.sweep-interval:PT10M}")
+    public int evictIdle() {
+        return evictIdle(Instant.now());
+    }
+
+    int evictIdle(Instant now) {
+        int before = windows.size();
+        for (String cardId : windows.keySet()) {
+            // Atomic with update(): a card recorded concurrently is not evicted
+            windows.computeIfPresent(cardId, (id, window) -> window.isIdle(now) ? null : window);
+        }
+        int evicted = Math.max(before - windows.size(), 0);
+        if (evicted > 0) {
+            log.debug("Evicted {} idle card activity windows, {} remaining", evicted, windows.size());
+        }
+        return evicted;
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    /**
+     * Rebuild all windows from the authorizations created in the current day
+     * (or the last minute, if that reaches into the previous day), streamed
+     * so only the resulting windows are held in memory.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Instant now = Instant.now();
+        Instant startOfDay = now.truncatedTo(ChronoUnit.DAYS);
+        Instant oneMinuteAgo = now.minus(1, ChronoUnit.MINUTES);
+        Instant since = startOfDay.isBefore(oneMinuteAgo) ? startOfDay : oneMinuteAgo;
+
+        windows.clear();
+        long replayed = transactionTemplate.execute(status -> {
+            long count = 0;
+            try (Stream<AuthorizationActivity> recent = authorizationRepository.streamActivityCreatedAfter(since)) {
+                Iterator<AuthorizationActivity> activities = recent.iterator();
+                while (activities.hasNext()) {
+                    AuthorizationActivity activity = activities.next();
+                    apply(activity.cardId(), activity.createdAt(), activity.status(),
+                        MinorUnits.fromDecimal(activity.amount(), activity.currency()));
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        log.info("Rebuilt card activity store from {} authorizations across {} cards",
+            replayed, windows.size());
+    }
+
+    private void apply(Authorization authorization) {
+        apply(authorization.getCardId(), authorization.getCreatedAt(), authorization.getStatus(),
+            authorization.getAmount().toMinorUnits());
+    }
+
+    private void apply(String cardId, Instant createdAt, AuthorizationStatus status, long minorUnits) {
+        update(cardId, window -> {
+            window.recordAttempt(createdAt);
+
+            if (status == AuthorizationStatus.APPROVED || status == AuthorizationStatus.CLEARED) {
+                window.adjustSpend(createdAt, minorUnits);
+            }
+        });
+    }
+
+    private void refund(Authorization authorization) {
+        update(authorization.getCardId(), window ->
+            window.adjustSpend(authorization.getCreatedAt(), -authorization.getAmount().toMinorUnits()));
+    }
+
+    /**
+     * Apply a change to a card's window, creating it if needed, under the map's
+     * per-key lock so the sweep cannot evict it in between.
+     */
+    private void update(String cardId, Consumer<CardActivityWindow> change) {
+        windows.compute(cardId, (id, window) -> {
+            CardActivityWindow target = window != null ? window : new CardActivityWindow();
+            change.accept(target);
+            return target;
+        });
+    }
+}
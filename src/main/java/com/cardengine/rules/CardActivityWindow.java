@@ -0,0 +1,83 @@
+package com.cardengine.rules;
+
+import java.time.Instant;
+
+/**
+ * Rolling activity aggregate for a single card.
+ *
+ * Holds a ring buffer of one-second buckets covering the last minute
+ * (authorization attempts, used by velocity checks) and a running sum of
+ * approved spend for the current UTC day in minor units (used by daily limit
+ * checks).
+ * All reads and writes are O(1) and never touch the database.
+ */
+public class CardActivityWindow {
+
+    static final int WINDOW_SECONDS = 60;
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final long[] bucketSecond = new long[WINDOW_SECONDS];
+    private final int[] bucketCount = new int[WINDOW_SECONDS];
+
+    private long spendDay = Long.MIN_VALUE;
+    private long spendToday;
+
+    /**
+     * Record an authorization attempt (approved or declined) at the given time.
+     */
+    public synchronized void recordAttempt(Instant at) {
+        long second = at.getEpochSecond();
+        int index = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        if (bucketSecond[index] != second) {
+            bucketSecond[index] = second;
+            bucketCount[index] = 0;
+        }
+        bucketCount[index]++;
+    }
+
+    /**
+     * Count attempts recorded within the minute ending at {@code now}.
+     */
+    public synchronized int countInLastMinute(Instant now) {
+        long nowSecond = now.getEpochSecond();
+        int count = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            long age = nowSecond - bucketSecond[i];
+            if (age >= 0 && age < WINDOW_SECONDS) {
+                count += bucketCount[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adjust the daily spend for an authorization created at {@code createdAt}.
+     * Adjustments for a day older than the one currently tracked are ignored.
+     */
+    public synchronized void adjustSpend(Instant createdAt, long delta) {
+        long day = Math.floorDiv(createdAt.getEpochSecond(), SECONDS_PER_DAY);
+        if (day > spendDay) {
+            spendDay = day;
+            spendToday = 0;
+        }
+        if (day == spendDay) {
+            spendToday = Math.max(spendToday + delta, 0);
+        }
+    }
+
+    /**
+     * Approved spend in minor units for the UTC day containing {@code now}.
+     */
+    public synchronized long spentOn(Instant now) {
+        long day = Math.floorDiv(now.getEpochSecond(), SECONDS_PER_DAY);
+        return day == spendDay ? spendToday : 0;
+    }
+
+    /**
+     * True if no attempt falls in the minute ending at {@code now} and nothing
+     * was spent on its UTC day, i.e. the window no longer affects any rule.
+     */
+    public synchronized boolean isIdle(Instant now) {
+        return countInLastMinute(now) == 0 && spentOn(now) == 0;
+    }
+}
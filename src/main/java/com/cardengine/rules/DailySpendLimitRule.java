@@ -1,51 +1,39 @@
 package com.cardengine.rules;
 
-import com.cardengine.authorization.AuthorizationRepository;
 import com.cardengine.authorization.AuthorizationRequest;
-import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.common.MinorUnits;
 import com.cardengine.common.Money;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
 /**
  * Rule that enforces daily spending limits per card.
+ * Spend and limit are compared in minor units.
  */
 @Component
 @RequiredArgsConstructor
 public class DailySpendLimitRule implements Rule {
 
-    private final AuthorizationRepository authorizationRepository;
-
-    @Value("${card-engine.rules.daily-limit-default:5000.00}")
-    private BigDecimal dailyLimit;
+    private final CardActivity cardActivity;
+    private final RuleLimitSource ruleLimitSource;
 
     @Override
     public RuleResult evaluate(AuthorizationRequest request) {
-        // Calculate start of current day
-        Instant startOfDay = Instant.now().truncatedTo(ChronoUnit.DAYS);
-
-        // Get all approved authorizations for this card today
-        var todaysAuthorizations = authorizationRepository
-            .findByCardIdAndCreatedAtAfter(request.getCardId(), startOfDay);
+        Money amount = request.getAmount();
+        RuleLimits limits = ruleLimitSource.limitsFor(request);
 
-        // Sum up approved amounts
-        BigDecimal spentToday = todaysAuthorizations.stream()
-            .filter(auth -> auth.getStatus() == AuthorizationStatus.APPROVED)
-            .map(auth -> auth.getAmount().getAmount())
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Running total of today's approved spend for this card
+        long spentToday = cardActivity.spentToday(request.getCardId(), Instant.now());
 
         // Add current transaction amount
-        BigDecimal totalWithCurrent = spentToday.add(request.getAmount().getAmount());
+        long totalWithCurrent = spentToday + amount.toMinorUnits();
 
-        if (totalWithCurrent.compareTo(dailyLimit) > 0) {
+        if (totalWithCurrent > limits.getDailyLimitMinorUnits(amount.getCurrency())) {
             return RuleResult.decline(
                 String.format("Daily spend limit exceeded. Spent today: %s, Limit: %s",
-                    spentToday, dailyLimit)
+                    MinorUnits.toDecimal(spentToday, amount.getCurrency()), limits.getDailyLimit())
             );
         }
 
@@ -56,4 +44,9 @@ public class DailySpendLimitRule implements Rule {
     public String getRuleName() {
         return "DailySpendLimit";
     }
+
+    @Override
+    public RuleCost getCost() {
+        return RuleCost.MEMORY;
+    }
 }
@@ -0,0 +1,42 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rule that evaluates the declarative rules defined at runtime (see
+ * {@link RuleDefinitionStore}); the first one whose expression matches
+ * declines the authorization with its reason.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeclarativeRule implements Rule {
+
+    private final RuleDefinitionStore definitionStore;
+
+    @Override
+    public RuleResult evaluate(AuthorizationRequest request) {
+        List<RuleDefinitionStore.CompiledRule> rules = definitionStore.getRules();
+        for (int i = 0; i < rules.size(); i++) {
+            RuleDefinitionStore.CompiledRule rule = rules.get(i);
+            if (rule.expression().matches(request)) {
+                rule.declines().increment();
+                return rule.decline();
+            }
+        }
+        return RuleResult.approve();
+    }
+
+    @Override
+    public String getRuleName() {
+        return "Declarative";
+    }
+
+    @Override
+    public RuleCost getCost() {
+        return RuleCost.REQUEST;
+    }
+}
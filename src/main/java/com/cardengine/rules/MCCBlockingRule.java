@@ -1,10 +1,9 @@
 package com.cardengine.rules;
 
 import com.cardengine.authorization.AuthorizationRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.util.Set;
-
 /**
  * Rule that blocks transactions based on Merchant Category Code (MCC).
  *
@@ -13,27 +12,26 @@ import java.util.Set;
  * - 6211: Securities brokers/dealers
  * - 7995: Betting/casino gambling
  * - 5967: Direct marketing - inbound teleservices
+ *
+ * Each card is checked against its own, its program's or the default
+ * policy (see {@link MccPolicyStore}); a policy is either an allow list or
+ * a block list.
  */
 @Component
+@RequiredArgsConstructor
 public class MCCBlockingRule implements Rule {
 
-    // Example blocked MCCs (can be configured per card in production)
-    private static final Set<String> BLOCKED_MCCS = Set.of(
-        "6211",  // Securities brokers
-        "7995",  // Gambling
-        "5993",  // Cigar stores
-        "5912",  // Drug stores (if prescription-only cards)
-        "9754"   // Quasi-cash (money orders, etc.)
-    );
+    private final MccPolicyStore policyStore;
 
     @Override
     public RuleResult evaluate(AuthorizationRequest request) {
         String mcc = request.getMerchantCategoryCode();
+        MccSet policy = policyStore.policyFor(request.getCardId());
 
-        if (mcc != null && BLOCKED_MCCS.contains(mcc)) {
-            return RuleResult.decline(
-                String.format("Merchant category %s is blocked", mcc)
-            );
+        if (!policy.permits(MccSet.code(mcc))) {
+            return RuleResult.decline(policy.getMode() == MccPolicyMode.BLOCK
+                ? String.format("Merchant category %s is blocked", mcc)
+                : String.format("Merchant category %s is not allowed for this card", mcc));
         }
 
         return RuleResult.approve();
@@ -43,4 +41,9 @@ public class MCCBlockingRule implements Rule {
     public String getRuleName() {
         return "MCCBlocking";
     }
+
+    @Override
+    public RuleCost getCost() {
+        return RuleCost.MEMORY;
+    }
 }
@@ -0,0 +1,50 @@
+package com.cardengine.rules;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A named merchant category allow or block list that cards and card programs
+ * can be assigned to.
+ *
+ * Codes are stored as written ("5411,5812-5814") and compiled into an
+ * {@link MccSet} by the {@link MccPolicyStore}.
+ */
+@Entity
+@Table(name = "mcc_policies", indexes = {
+    @Index(name = "idx_mcc_policy_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+public class MccPolicy {
+
+    @Id
+    private String policyId;
+
+    @Enumerated(EnumType.STRING)
+    private MccPolicyMode mode;
+
+    @Column(length = 10000)
+    private String codes;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public MccPolicy(String policyId, MccPolicyMode mode, String codes) {
+        this.policyId = policyId;
+        update(mode, codes);
+    }
+
+    public void update(MccPolicyMode mode, String codes) {
+        this.mode = mode;
+        this.codes = codes;
+        this.updatedAt = Instant.now();
+    }
+
+    public MccSet compile() {
+        return MccSet.parse(mode, codes);
+    }
+}
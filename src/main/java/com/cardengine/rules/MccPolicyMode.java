@@ -0,0 +1,17 @@
+package com.cardengine.rules;
+
+/**
+ * Whether an MCC policy lists the merchant categories a card may use or the
+ * ones it may not.
+ */
+public enum MccPolicyMode {
+    /**
+     * Only the listed categories are permitted.
+     */
+    ALLOW,
+
+    /**
+     * Every category except the listed ones is permitted.
+     */
+    BLOCK
+}
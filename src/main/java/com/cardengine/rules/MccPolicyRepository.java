@@ -0,0 +1,16 @@
+package com.cardengine.rules;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for MCC policies.
+ */
+@Repository
+public interface MccPolicyRepository extends JpaRepository<MccPolicy, String> {
+
+    List<MccPolicy> findByUpdatedAtGreaterThanEqual(Instant since);
+}
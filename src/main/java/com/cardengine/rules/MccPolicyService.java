@@ -0,0 +1,91 @@
+package com.cardengine.rules;
+
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardProgram;
+import com.cardengine.cards.CardProgramRepository;
+import com.cardengine.cards.CardRepository;
+import com.cardengine.common.TransactionCallbacks;
+import com.cardengine.common.exception.CardNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for defining MCC policies and assigning them to cards and card programs.
+ *
+ * Changes take effect on this node when the transaction commits and on other
+ * nodes at their next {@link MccPolicyStore#refresh()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MccPolicyService {
+
+    private final MccPolicyRepository policyRepository;
+    private final CardProgramRepository programRepository;
+    private final CardRepository cardRepository;
+    private final MccPolicyStore policyStore;
+
+    /**
+     * Create or replace a policy.
+     *
+     * @param codes comma-separated MCCs and ranges, e.g. "5411,5812-5814"
+     */
+    @Transactional
+    public MccPolicy savePolicy(String policyId, MccPolicyMode mode, String codes) {
+        MccSet compiled = MccSet.parse(mode, codes);
+
+        MccPolicy policy = policyRepository.findById(policyId)
+            .map(existing -> {
+                existing.update(mode, codes);
+                return existing;
+            })
+            .orElseGet(() -> new MccPolicy(policyId, mode, codes));
+        policyRepository.save(policy);
+        TransactionCallbacks.afterCommit(policyStore::refresh);
+
+        log.info("Saved MCC policy {}: {}", policyId, compiled);
+        return policy;
+    }
+
+    /**
+     * Set a card's own policy, or clear it (null) to fall back to its program's.
+     */
+    @Transactional
+    public Card assignToCard(String cardId, String policyId) {
+        requirePolicy(policyId);
+        Card card = cardRepository.findByCardId(cardId)
+            .orElseThrow(() -> new CardNotFoundException(cardId));
+
+        card.assignMccPolicy(policyId);
+        cardRepository.save(card);
+        policyStore.cardChanged(card);
+
+        log.info("Assigned MCC policy {} to card {}", policyId, cardId);
+        return card;
+    }
+
+    /**
+     * Set a program's policy, or clear it (null) to fall back to the default.
+     */
+    @Transactional
+    public CardProgram assignToProgram(String programId, String policyId) {
+        requirePolicy(policyId);
+        CardProgram program = programRepository.findById(programId)
+            .orElseGet(() -> new CardProgram(programId));
+
+        program.assignMccPolicy(policyId);
+        programRepository.save(program);
+        TransactionCallbacks.afterCommit(policyStore::refresh);
+
+        log.info("Assigned MCC policy {} to program {}", policyId, programId);
+        return program;
+    }
+
+    private void requirePolicy(String policyId) {
+        if (policyId != null && !policyRepository.existsById(policyId)) {
+            throw new IllegalArgumentException("Unknown MCC policy: " + policyId);
+        }
+    }
+}
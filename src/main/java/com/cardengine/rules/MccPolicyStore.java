@@ -0,0 +1,242 @@
+package com.cardengine.rules;
+
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardMccAssignment;
+import com.cardengine.cards.CardProgram;
+import com.cardengine.cards.CardProgramRepository;
+import com.cardengine.cards.CardRepository;
+import com.cardengine.common.TransactionCallbacks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory MCC policy for every card, used by {@link MCCBlockingRule}.
+ *
+ * A card's policy is its own (cards.mcc_policy_id), else its program's
+ * (card_programs.mcc_policy_id), else the default block list
+ * (card-engine.rules.mcc.blocked). Policies are compiled into {@link MccSet}
+ * bitsets and interned by content, so cards share one instance per distinct
+ * list. Only cards whose policy differs from the default get an entry
+ * (cardId → shared set); a lookup is one map read and a bit test.
+ *
+ * The store is loaded at startup. Changes made on this node apply once the
+ * transaction commits; changes made elsewhere are picked up by a periodic
+ * refresh that reads policies, programs and cards updated since the last
+ * refresh (re-reading a short overlap to tolerate clock skew between nodes).
+ *
+ * Size is reported as cardengine.rules.mcc.cards, cardengine.rules.mcc.policies
+ * (distinct sets) and cardengine.rules.mcc.memory (estimated bytes).
+ */
+@Component
+@Slf4j
+public class MccPolicyStore {
+
+    /**
+     * Approximate heap cost of one card entry: map node and table slot plus
+     * the 36-character card ID string it keeps alive.
+     */
+    static final long CARD_ENTRY_BYTES = 120;
+
+    private static final Duration SKEW = Duration.ofMinutes(1);
+    private static final int PAGE_SIZE = 10_000;
+
+    private final MccPolicyRepository policyRepository;
+    private final CardProgramRepository programRepository;
+    private final CardRepository cardRepository;
+    private final MccSet defaultPolicy;
+
+    private final Map<MccSet, MccSet> interned = new ConcurrentHashMap<>();
+    private final Map<String, MccSet> policies = new ConcurrentHashMap<>();
+    private final Map<String, String> programPolicies = new ConcurrentHashMap<>();
+    private final Map<String, MccSet> cards = new ConcurrentHashMap<>();
+    private Instant watermark = Instant.EPOCH;
+
+    public MccPolicyStore(
+            MccPolicyRepository policyRepository,
+            CardProgramRepository programRepository,
+            CardRepository cardRepository,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.rules.mcc.blocked:6211,7995,5993,5912,9754}") String blocked) {
+        this.policyRepository = policyRepository;
+        this.programRepository = programRepository;
+        this.cardRepository = cardRepository;
+        this.defaultPolicy = intern(MccSet.parse(MccPolicyMode.BLOCK, blocked));
+
+        Gauge.builder("cardengine.rules.mcc.cards", cards, Map::size)
+            .description("Cards with an MCC policy other than the default")
+            .register(meterRegistry);
+        Gauge.builder("cardengine.rules.mcc.policies", interned, Map::size)
+            .description("Distinct MCC policy bitsets held in memory")
+            .register(meterRegistry);
+        Gauge.builder("cardengine.rules.mcc.memory", this, MccPolicyStore::estimatedBytes)
+            .description("Estimated heap used by MCC policies and card assignments")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The MCC policy that applies to a card.
+     */
+    public MccSet policyFor(String cardId) {
+        MccSet policy = cards.get(cardId);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /**
+     * Re-resolve a card whose program or policy was set, once the transaction commits.
+     */
+    public void cardChanged(Card card) {
+        String cardId = card.getCardId();
+        String programId = card.getProgramId();
+        String policyId = card.getMccPolicyId();
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                assign(cardId, programId, policyId);
+            }
+        });
+    }
+
+    public long estimatedBytes() {
+        return interned.size() * MccSet.BYTES + cards.size() * CARD_ENTRY_BYTES;
+    }
+
+    /**
+     * Load all policies, programs and card assignments.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        Instant started = Instant.now();
+        for (MccPolicy policy : policyRepository.findAll()) {
+            policies.put(policy.getPolicyId(), intern(policy.compile()));
+        }
+        for (CardProgram program : programRepository.findAll()) {
+            if (program.getMccPolicyId() != null) {
+                programPolicies.put(program.getProgramId(), program.getMccPolicyId());
+            }
+        }
+        cards.clear();
+        int loaded = reassign(cardRepository::findMccAssignments);
+        watermark = started;
+
+        log.info("Loaded MCC policies: {} distinct policies, {} cards assigned, ~{} KB",
+            interned.size(), loaded, estimatedBytes() / 1024);
+    }
+
+    /**
+     * Apply policy, program and card changes made since the last refresh.
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.rules.mcc.refresh-interval:PT30S}",
+        fixedDelayString = "${card-engine.rules.mcc.refresh-interval:PT30S}")
+    public synchronized void refresh() {
+        Instant started = Instant.now();
+        Instant since = watermark.minus(SKEW);
+
+        Set<String> changedPolicies = new HashSet<>();
+        for (MccPolicy policy : policyRepository.findByUpdatedAtGreaterThanEqual(since)) {
+            MccSet compiled = intern(policy.compile());
+            if (policies.put(policy.getPolicyId(), compiled) != compiled) {
+                changedPolicies.add(policy.getPolicyId());
+            }
+        }
+
+        Set<String> changedPrograms = new HashSet<>();
+        for (CardProgram program : programRepository.findByUpdatedAtGreaterThanEqual(since)) {
+            String previous = program.getMccPolicyId() != null
+                ? programPolicies.put(program.getProgramId(), program.getMccPolicyId())
+                : programPolicies.remove(program.getProgramId());
+            if (!Objects.equals(previous, program.getMccPolicyId())) {
+                changedPrograms.add(program.getProgramId());
+            }
+        }
+        programPolicies.forEach((programId, policyId) -> {
+            if (changedPolicies.contains(policyId)) {
+                changedPrograms.add(programId);
+            }
+        });
+
+        int reassigned = reassign((after, page) ->
+            cardRepository.findMccAssignmentsUpdatedSince(since, after, page));
+        if (!changedPolicies.isEmpty()) {
+            reassigned += reassign((after, page) ->
+                cardRepository.findMccAssignmentsByPolicy(changedPolicies, after, page));
+        }
+        if (!changedPrograms.isEmpty()) {
+            reassigned += reassign((after, page) ->
+                cardRepository.findMccAssignmentsByProgram(changedPrograms, after, page));
+        }
+
+        // Sets no policy uses any more are only referenced by the cards just reassigned
+        Set<MccSet> live = new HashSet<>(policies.values());
+        live.add(defaultPolicy);
+        interned.keySet().retainAll(live);
+        watermark = started;
+
+        if (!changedPolicies.isEmpty() || !changedPrograms.isEmpty()) {
+            log.info("Refreshed MCC policies: {} policies and {} programs changed, {} cards reassigned",
+                changedPolicies.size(), changedPrograms.size(), reassigned);
+        }
+    }
+
+    private int reassign(BiFunction<String, Pageable, List<CardMccAssignment>> query) {
+        int count = 0;
+        String after = "";
+        while (true) {
+            List<CardMccAssignment> page = query.apply(after, PageRequest.of(0, PAGE_SIZE));
+            for (CardMccAssignment card : page) {
+                assign(card.cardId(), card.programId(), card.mccPolicyId());
+            }
+            count += page.size();
+            if (page.size() < PAGE_SIZE) {
+                return count;
+            }
+            after = page.get(page.size() - 1).cardId();
+        }
+    }
+
+    private void assign(String cardId, String programId, String policyId) {
+        MccSet policy = resolve(programId, policyId);
+        if (policy == defaultPolicy) {
+            cards.remove(cardId);
+        } else {
+            cards.put(cardId, policy);
+        }
+    }
+
+    private MccSet resolve(String programId, String policyId) {
+        String effective = policyId != null ? policyId
+            : programId != null ? programPolicies.get(programId)
+            : null;
+        if (effective == null) {
+            return defaultPolicy;
+        }
+        MccSet policy = policies.get(effective);
+        if (policy == null) {
+            log.warn("Unknown MCC policy {}, using the default", effective);
+            return defaultPolicy;
+        }
+        return policy;
+    }
+
+    private MccSet intern(MccSet set) {
+        MccSet existing = interned.putIfAbsent(set, set);
+        return existing != null ? existing : set;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cardengine.rules;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of merchant category codes, stored as a 10,000-bit bitset
+ * (one bit per code 0000-9999, about 1.3 KB).
+ *
+ * Codes are looked up as ints parsed from the request's four digits, so a
+ * check is one array read and a bit test. Sets compare equal by mode and
+ * bits, which lets the {@link MccPolicyStore} intern them: every card with
+ * the same list shares one instance.
+ */
+public final class MccSet {
+
+    static final int CODES = 10_000;
+
+    /**
+     * Approximate heap size of one set: object header and fields plus the
+     * long[] of 157 words.
+     */
+    static final long BYTES = 24 + 16 + ((CODES + 63) / 64) * 8L;
+
+    private final MccPolicyMode mode;
+    private final long[] bits;
+    private final int hash;
+
+    private MccSet(MccPolicyMode mode, long[] bits) {
+        this.mode = mode;
+        this.bits = bits;
+        this.hash = 31 * mode.hashCode() + Arrays.hashCode(bits);
+    }
+
+    /**
+     * Parse comma-separated codes and ranges, e.g. "5411,5812-5814".
+     */
+    public static MccSet parse(MccPolicyMode mode, String codes) {
+        long[] bits = new long[(CODES + 63) / 64];
+        for (String entry : codes.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] range = entry.trim().split("-", 2);
+            int low = require(range[0]);
+            int high = range.length == 2 ? require(range[1]) : low;
+            if (low > high) {
+                throw new IllegalArgumentException("Empty MCC range: " + entry);
+            }
+            for (int code = low; code <= high; code++) {
+                bits[code >>> 6] |= 1L << code;
+            }
+        }
+        return new MccSet(mode, bits);
+    }
+
+    /**
+     * The numeric value of a four-digit MCC, or -1 if it is missing or malformed.
+     */
+    public static int code(CharSequence mcc) {
+        if (mcc == null || mcc.length() != 4) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = mcc.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            code = code * 10 + digit;
+        }
+        return code;
+    }
+
+    /**
+     * Whether a merchant with this code (from {@link #code}) may be paid.
+     * Unknown codes (-1) are on no list: block lists permit them, allow lists do not.
+     */
+    public boolean permits(int code) {
+        boolean listed = code >= 0 && (bits[code >>> 6] & (1L << code)) != 0;
+        return mode == MccPolicyMode.ALLOW ? listed : !listed;
+    }
+
+    public MccPolicyMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Number of listed codes.
+     */
+    public int size() {
+        int size = 0;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    private static int require(String mcc) {
+        int code = code(mcc.trim());
+        if (code < 0) {
+            throw new IllegalArgumentException("MCC must be 4 digits: " + mcc);
+        }
+        return code;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MccSet other
+            && hash == other.hash
+            && mode == other.mode
+            && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return mode + "(" + size() + " codes)";
+    }
+}
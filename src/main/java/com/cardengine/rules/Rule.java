@@ -2,11 +2,16 @@ package com.cardengine.rules;
 
 import com.cardengine.authorization.AuthorizationRequest;
 
+import java.util.Set;
+
 /**
  * Interface for authorization rules.
  *
  * Each rule evaluates an authorization request and returns a result
  * indicating whether the transaction should be approved or declined.
+ *
+ * Rules declare their cost and the rules they must run after; the
+ * {@link RulesEngine} orders them accordingly.
  */
 public interface Rule {
 
@@ -22,4 +27,21 @@ public interface Rule {
      * Get the name of this rule.
      */
     String getRuleName();
+
+    /**
+     * Cost class of this rule. Rules that do not say run on the calling
+     * thread, inside its transaction, like any rule reading in-memory state.
+     * Only rules returning {@link RuleCost#IO} are run concurrently off the
+     * calling thread, so that must be declared explicitly.
+     */
+    default RuleCost getCost() {
+        return RuleCost.MEMORY;
+    }
+
+    /**
+     * Names of the rules that must be evaluated (and approve) before this one.
+     */
+    default Set<String> getDependencies() {
+        return Set.of();
+    }
 }
@@ -0,0 +1,454 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Replays stored authorizations through the current rules and a proposed
+ * configuration, to see what the proposal would have changed.
+ *
+ * One reader streams the authorizations table in created_at order from a
+ * cursor and deals the rows out by card to partitions, each on its own
+ * virtual thread. A partition owns the activity (velocity and daily spend)
+ * of its cards, rebuilt from its replayed decisions, separately for the
+ * current and the proposed rules, and evaluates both rule sets on every row.
+ * Partition queues are bounded and idle cards are dropped daily (see
+ * {@link BacktestActivity}), so memory stays bounded however many rows are
+ * replayed.
+ *
+ * The reader hands chunks over with a bounded offer and checks the
+ * partitions between attempts, so a partition that dies fails the backtest
+ * instead of leaving the reader blocked on its full queue; the remaining
+ * partitions are then cancelled.
+ *
+ * Backtests can take minutes, so the API runs them as jobs ({@link #submit},
+ * {@link #job}): one at a time, in submission order, on a background thread.
+ * The most recent job-history jobs are kept in memory.
+ *
+ * The built-in limit and activity rules are rebuilt over the replayed
+ * activity; other rules are evaluated as they are, against current state.
+ * Releases and reversals are not replayed, so spend only grows within a day.
+ */
+@Component
+@Slf4j
+public class RuleBacktester {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final String AUTHORIZATIONS = "select a.authorization_id, a.card_id, c.program_id,"
+        + " a.amount, a.currency, a.merchant_name, a.merchant_category_code, a.merchant_city,"
+        + " a.merchant_country, a.status, a.created_at"
+        + " from authorizations a left join cards c on c.card_id = a.card_id"
+        + " where a.created_at >= ? and a.created_at < ?"
+        + " order by a.created_at, a.authorization_id";
+
+    private record Replayed(AuthorizationRequest request, boolean historicallyApproved, Instant createdAt) {
+    }
+
+    private final List<Rule> rules;
+    private final RuleLimitStore ruleLimitStore;
+    private final JdbcTemplate streaming;
+    private final TransactionTemplate readTemplate;
+    private final int partitions;
+    private final int queueCapacity;
+    private final int jobHistory;
+
+    // A platform thread: the reader holds the run() monitor and would pin a virtual
+    // thread's carrier while it waits on the partitions
+    private final ExecutorService jobs = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("backtest-job-", 0).daemon().factory());
+    // Most recently submitted last
+    private final Map<String, BacktestJob> submitted = new LinkedHashMap<>();
+
+    public RuleBacktester(
+            List<Rule> rules,
+            RuleLimitStore ruleLimitStore,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${card-engine.rules.backtest.partitions:8}") int partitions,
+            @Value("${card-engine.rules.backtest.queue-capacity:16}") int queueCapacity,
+            @Value("${card-engine.rules.backtest.fetch-size:1000}") int fetchSize,
+            @Value("${card-engine.rules.backtest.job-history:20}") int jobHistory) {
+        this.rules = rules;
+        this.ruleLimitStore = ruleLimitStore;
+        this.partitions = partitions;
+        this.queueCapacity = queueCapacity;
+        this.jobHistory = Math.max(1, jobHistory);
+
+        this.streaming = new JdbcTemplate(dataSource);
+        this.streaming.setFetchSize(fetchSize);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Queue a backtest and return at once; poll {@link #job} for its report.
+     */
+    public BacktestJob submit(BacktestRequest request) {
+        validate(request);
+        BacktestJob job = new BacktestJob(UUID.randomUUID().toString(), BacktestJob.Status.QUEUED, request,
+            Instant.now(), null, null, null);
+        update(job);
+        jobs.execute(() -> {
+            update(job.running());
+            try {
+                update(job.running().completed(run(request)));
+            } catch (RuntimeException | Error e) {
+                log.error("Backtest job {} failed", job.jobId(), e);
+                update(job.running().failed(e.getMessage()));
+            }
+        });
+        return job;
+    }
+
+    /**
+     * A submitted job, while it is among the most recent job-history.
+     *
+     * @throws IllegalArgumentException if the job is unknown or has been dropped
+     */
+    public BacktestJob job(String jobId) {
+        synchronized (submitted) {
+            BacktestJob job = submitted.get(jobId);
+            if (job == null) {
+                throw new IllegalArgumentException("Backtest job not found: " + jobId);
+            }
+            return job;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdownNow();
+    }
+
+    private void update(BacktestJob job) {
+        synchronized (submitted) {
+            submitted.put(job.jobId(), job);
+            var oldest = submitted.keySet().iterator();
+            while (submitted.size() > jobHistory) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private static void validate(BacktestRequest request) {
+        if (!request.from().isBefore(request.to())) {
+            throw new IllegalArgumentException("Backtest period is empty: " + request.from() + " - " + request.to());
+        }
+    }
+
+    /**
+     * Replay authorizations created in [from, to). Runs one backtest at a time.
+     */
+    public synchronized BacktestReport run(BacktestRequest request) {
+        validate(request);
+        Instant started = Instant.now();
+        log.info("Backtest of {} to {} started: {}", request.from(), request.to(), request);
+
+        List<Rule> currentRules = rules.stream().filter(rule -> !(rule instanceof ShadowRule)).toList();
+        List<Rule> proposedRules = request.shadowRules() ? ShadowRuleEvaluator.challengerSet(rules) : currentRules;
+        RuleLimitSource proposedLimits = proposedLimits(request);
+
+        List<BlockingQueue<List<Replayed>>> queues = new ArrayList<>(partitions);
+        List<Partition> workers = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            workers.add(new Partition(queues.get(i),
+                activity -> ruleSet(currentRules, activity, ruleLimitStore),
+                activity -> ruleSet(proposedRules, activity, proposedLimits)));
+        }
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("backtest-", 0).factory())) {
+            List<Future<?>> running = new ArrayList<>(partitions);
+            try {
+                for (Partition worker : workers) {
+                    running.add(executor.submit(worker));
+                }
+                readTemplate.executeWithoutResult(status -> read(request, queues, running));
+                for (BlockingQueue<List<Replayed>> queue : queues) {
+                    offer(queue, List.of(), running);
+                }
+                for (Future<?> partition : running) {
+                    partition.get();
+                }
+            } finally {
+                // Stops the other partitions after a failure; finished ones are unaffected
+                running.forEach(partition -> partition.cancel(true));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backtest interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest partition failed", e.getCause());
+        }
+
+        Tally total = new Tally();
+        workers.forEach(worker -> total.add(worker.tally));
+        BacktestReport report = total.report(request, Duration.between(started, Instant.now()));
+        log.info("Backtest of {} to {} finished: {} authorizations, approval rate {} -> {}, decline deltas {}",
+            request.from(), request.to(), report.authorizations(), report.current().approvalRate(),
+            report.proposed().approvalRate(), report.declineDeltasByRule());
+        return report;
+    }
+
+    private void read(BacktestRequest request, List<BlockingQueue<List<Replayed>>> queues,
+                      List<Future<?>> running) {
+        List<List<Replayed>> chunks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            chunks.add(new ArrayList<>(CHUNK_SIZE));
+        }
+        try (Stream<Replayed> rows = streaming.queryForStream(AUTHORIZATIONS, (rs, rowNum) -> {
+            Instant createdAt = rs.getTimestamp("created_at").toInstant();
+            AuthorizationRequest replayed = AuthorizationRequest.builder()
+                .authorizationId(rs.getString("authorization_id"))
+                .cardId(rs.getString("card_id"))
+                .programId(rs.getString("program_id"))
+                .amount(Money.of(rs.getBigDecimal("amount"), Currency.valueOf(rs.getString("currency"))))
+                .merchantName(rs.getString("merchant_name"))
+                .merchantCategoryCode(rs.getString("merchant_category_code"))
+                .merchantCity(rs.getString("merchant_city"))
+                .merchantCountry(rs.getString("merchant_country"))
+                .build();
+            boolean approved = AuthorizationStatus.valueOf(rs.getString("status")) != AuthorizationStatus.DECLINED;
+            return new Replayed(replayed, approved, createdAt);
+        }, Timestamp.from(request.from()), Timestamp.from(request.to()))) {
+            rows.forEach(row -> {
+                int partition = Math.floorMod(row.request().getCardId().hashCode(), partitions);
+                List<Replayed> chunk = chunks.get(partition);
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    offer(queues.get(partition), chunk, running);
+                    chunks.set(partition, new ArrayList<>(CHUNK_SIZE));
+                }
+            });
+        }
+        for (int i = 0; i < partitions; i++) {
+            if (!chunks.get(i).isEmpty()) {
+                offer(queues.get(i), chunks.get(i), running);
+            }
+        }
+    }
+
+    private RuleLimitSource proposedLimits(BacktestRequest request) {
+        if (request.transactionLimit() == null && request.dailyLimit() == null
+                && request.velocityMaxPerMinute() == null) {
+            return ruleLimitStore;
+        }
+        RuleLimitOverride proposal = new RuleLimitOverride(RuleLimitScope.GLOBAL, null);
+        proposal.update(request.transactionLimit(), request.dailyLimit(), request.velocityMaxPerMinute());
+        return replayed -> ruleLimitStore.limitsFor(replayed).with(proposal);
+    }
+
+    /**
+     * The rules in evaluation order, with the built-in limit and activity rules
+     * reading the partition's replayed activity.
+     */
+    private static List<Rule> ruleSet(List<Rule> base, CardActivity activity, RuleLimitSource limits) {
+        Map<String, Rule> byName = new LinkedHashMap<>();
+        for (Rule rule : base) {
+            byName.put(rule.getRuleName(), switch (rule) {
+                case ShadowRule shadow -> shadow;
+                case TransactionLimitRule live -> new TransactionLimitRule(limits);
+                case DailySpendLimitRule live -> new DailySpendLimitRule(activity, limits);
+                case VelocityRule live -> new VelocityRule(activity, limits);
+                default -> rule;
+            });
+        }
+        return RulePipeline.compile(List.copyOf(byName.values())).getStages().stream()
+            .flatMap(List::stream)
+            .toList();
+    }
+
+    /**
+     * Hand a chunk to a partition, failing if any partition has stopped
+     * rather than waiting forever for a queue nobody drains.
+     */
+    private static void offer(BlockingQueue<List<Replayed>> queue, List<Replayed> chunk, List<Future<?>> running) {
+        try {
+            while (!queue.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                for (Future<?> partition : running) {
+                    if (partition.isDone()) {
+                        partition.get();
+                        throw new IllegalStateException("Backtest partition stopped before the end of the replay");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backtest interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest partition failed", e.getCause());
+        }
+    }
+
+    /**
+     * Replays one partition's cards; an empty chunk ends the replay.
+     */
+    private static final class Partition implements Runnable {
+
+        private final BlockingQueue<List<Replayed>> queue;
+        private final BacktestActivity currentActivity = new BacktestActivity();
+        private final BacktestActivity proposedActivity = new BacktestActivity();
+        private final List<Rule> currentRules;
+        private final List<Rule> proposedRules;
+        private final Tally tally = new Tally();
+
+        Partition(BlockingQueue<List<Replayed>> queue,
+                  Function<CardActivity, List<Rule>> current,
+                  Function<CardActivity, List<Rule>> proposed) {
+            this.queue = queue;
+            this.currentRules = current.apply(currentActivity);
+            this.proposedRules = proposed.apply(proposedActivity);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (List<Replayed> chunk = queue.take(); !chunk.isEmpty(); chunk = queue.take()) {
+                    for (Replayed row : chunk) {
+                        replay(row);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void replay(Replayed row) {
+            AuthorizationRequest request = row.request();
+            currentActivity.advanceTo(row.createdAt());
+            proposedActivity.advanceTo(row.createdAt());
+
+            String currentDecline;
+            String proposedDecline;
+            try {
+                currentDecline = firstDecline(currentRules, request);
+                proposedDecline = firstDecline(proposedRules, request);
+            } catch (RuntimeException e) {
+                tally.failures++;
+                return;
+            }
+
+            long amount = request.getAmount().toMinorUnits();
+            currentActivity.record(request.getCardId(), amount, currentDecline == null);
+            proposedActivity.record(request.getCardId(), amount, proposedDecline == null);
+            tally.count(row.historicallyApproved(), currentDecline, proposedDecline);
+        }
+
+        private static String firstDecline(List<Rule> rules, AuthorizationRequest request) {
+            for (Rule rule : rules) {
+                if (!rule.evaluate(request).isApproved()) {
+                    return rule.getRuleName();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Counts for one partition, merged into the report at the end.
+     */
+    private static final class Tally {
+
+        long authorizations;
+        long historicalApprovals;
+        long currentApprovals;
+        long proposedApprovals;
+        long approvalsLost;
+        long approvalsGained;
+        long failures;
+        final Map<String, Long> currentDeclines = new HashMap<>();
+        final Map<String, Long> proposedDeclines = new HashMap<>();
+
+        void count(boolean historicallyApproved, String currentDecline, String proposedDecline) {
+            authorizations++;
+            if (historicallyApproved) {
+                historicalApprovals++;
+            }
+            if (currentDecline == null) {
+                currentApprovals++;
+            } else {
+                currentDeclines.merge(currentDecline, 1L, Long::sum);
+            }
+            if (proposedDecline == null) {
+                proposedApprovals++;
+            } else {
+                proposedDeclines.merge(proposedDecline, 1L, Long::sum);
+            }
+            if (currentDecline == null && proposedDecline != null) {
+                approvalsLost++;
+            } else if (currentDecline != null && proposedDecline == null) {
+                approvalsGained++;
+            }
+        }
+
+        void add(Tally other) {
+            authorizations += other.authorizations;
+            historicalApprovals += other.historicalApprovals;
+            currentApprovals += other.currentApprovals;
+            proposedApprovals += other.proposedApprovals;
+            approvalsLost += other.approvalsLost;
+            approvalsGained += other.approvalsGained;
+            failures += other.failures;
+            other.currentDeclines.forEach((rule, count) -> currentDeclines.merge(rule, count, Long::sum));
+            other.proposedDeclines.forEach((rule, count) -> proposedDeclines.merge(rule, count, Long::sum));
+        }
+
+        BacktestReport report(BacktestRequest request, Duration duration) {
+            BacktestReport.RuleSetOutcome current = outcome(currentApprovals, currentDeclines);
+            BacktestReport.RuleSetOutcome proposed = outcome(proposedApprovals, proposedDeclines);
+
+            Map<String, Long> deltas = new TreeMap<>();
+            currentDeclines.forEach((rule, count) -> deltas.merge(rule, -count, Long::sum));
+            proposedDeclines.forEach((rule, count) -> deltas.merge(rule, count, Long::sum));
+            deltas.values().removeIf(delta -> delta == 0);
+
+            return new BacktestReport(request.from(), request.to(), authorizations,
+                rate(historicalApprovals), current, proposed,
+                proposed.approvalRate() - current.approvalRate(), deltas,
+                approvalsLost, approvalsGained, failures, duration);
+        }
+
+        private BacktestReport.RuleSetOutcome outcome(long approvals, Map<String, Long> declines) {
+            return new BacktestReport.RuleSetOutcome(approvals, authorizations - approvals, rate(approvals),
+                new TreeMap<>(declines));
+        }
+
+        private double rate(long approvals) {
+            return authorizations > 0 ? (double) approvals / authorizations : 0.0;
+        }
+    }
+}
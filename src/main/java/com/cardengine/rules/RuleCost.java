@@ -0,0 +1,24 @@
+package com.cardengine.rules;
+
+/**
+ * How expensive a rule is to evaluate. The rules engine runs cheaper rules
+ * first, so a decline is usually found before expensive rules are reached.
+ */
+public enum RuleCost {
+    /**
+     * Looks only at the request (amount, merchant category).
+     */
+    REQUEST,
+
+    /**
+     * Reads in-memory state, e.g. the card's activity window.
+     */
+    MEMORY,
+
+    /**
+     * Waits on I/O (database, remote service). Independent I/O rules are
+     * evaluated concurrently, off the calling thread and outside its
+     * transaction.
+     */
+    IO
+}
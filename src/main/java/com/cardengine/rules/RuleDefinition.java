@@ -0,0 +1,51 @@
+package com.cardengine.rules;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A rule written in the {@link RuleExpression} language: authorizations
+ * matching the expression are declined with the given reason.
+ *
+ * Definitions are stored as written and compiled by the {@link RuleDefinitionStore}.
+ */
+@Entity
+@Table(name = "rule_definitions")
+@Data
+@NoArgsConstructor
+public class RuleDefinition {
+
+    @Id
+    private String name;
+
+    @Version
+    private Long version;
+
+    @Column(length = 4000, nullable = false)
+    private String expression;
+
+    private String reason;
+
+    private boolean enabled;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public RuleDefinition(String name) {
+        this.name = name;
+    }
+
+    public void update(String expression, String reason, boolean enabled) {
+        this.expression = expression;
+        this.reason = reason;
+        this.enabled = enabled;
+        this.updatedAt = Instant.now();
+    }
+
+    public RuleExpression compile() {
+        return RuleExpression.compile(expression);
+    }
+}
@@ -0,0 +1,16 @@
+package com.cardengine.rules;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for declarative rule definitions.
+ */
+@Repository
+public interface RuleDefinitionRepository extends JpaRepository<RuleDefinition, String> {
+
+    @Query("select new com.cardengine.rules.TableFingerprint("
+        + "count(d), coalesce(sum(d.version), 0L), max(d.updatedAt)) from RuleDefinition d")
+    TableFingerprint fingerprint();
+}
@@ -0,0 +1,61 @@
+package com.cardengine.rules;
+
+import com.cardengine.common.TransactionCallbacks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Service for defining declarative rules at runtime.
+ *
+ * Expressions are compiled before they are saved, so a rule that does not
+ * compile is rejected here. Changes take effect on this node when the
+ * transaction commits and on other nodes at their next
+ * {@link RuleDefinitionStore#refresh()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RuleDefinitionService {
+
+    private final RuleDefinitionRepository definitionRepository;
+    private final RuleDefinitionStore definitionStore;
+
+    /**
+     * Create or replace a rule.
+     *
+     * @param expression condition under which authorizations are declined,
+     *                   e.g. {@code mcc in [7995] and amount > 500}
+     * @param reason     decline reason; defaults to "Declined by rule {name}"
+     */
+    @Transactional
+    public RuleDefinition saveRule(String name, String expression, String reason, boolean enabled) {
+        RuleExpression.compile(expression);
+
+        RuleDefinition definition = definitionRepository.findById(name)
+            .orElseGet(() -> new RuleDefinition(name));
+        definition.update(expression, reason, enabled);
+        definitionRepository.save(definition);
+        TransactionCallbacks.afterCommit(definitionStore::refresh);
+
+        log.info("Saved declarative rule {} ({}): {}", name, enabled ? "enabled" : "disabled", expression);
+        return definition;
+    }
+
+    @Transactional
+    public void deleteRule(String name) {
+        definitionRepository.findById(name).ifPresent(definition -> {
+            definitionRepository.delete(definition);
+            TransactionCallbacks.afterCommit(definitionStore::refresh);
+            log.info("Deleted declarative rule {}", name);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<RuleDefinition> getRules() {
+        return definitionRepository.findAll();
+    }
+}
@@ -0,0 +1,106 @@
+package com.cardengine.rules;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiled declarative rules, evaluated by {@link DeclarativeRule}.
+ *
+ * Enabled rows of rule_definitions are compiled into {@link RuleExpression}s
+ * (with their decline result and decline counter) and published as one
+ * immutable list, replaced as a whole when the definitions change. A
+ * definition that no longer compiles is skipped and logged rather than
+ * failing the others.
+ *
+ * Every node polls a fingerprint of the table every
+ * card-engine.rules.declarative.refresh-interval, so rules saved on any node
+ * go live across the fleet within seconds, without a redeploy.
+ */
+@Component
+@Slf4j
+public class RuleDefinitionStore {
+
+    /**
+     * A compiled definition. Declines are counted as
+     * cardengine.rules.declarative.declines, tagged by rule.
+     */
+    record CompiledRule(String name, RuleExpression expression, RuleResult decline, Counter declines) {
+    }
+
+    private final RuleDefinitionRepository definitionRepository;
+    private final MeterRegistry meterRegistry;
+
+    private volatile List<CompiledRule> rules = List.of();
+    private TableFingerprint fingerprint;
+
+    public RuleDefinitionStore(RuleDefinitionRepository definitionRepository, MeterRegistry meterRegistry) {
+        this.definitionRepository = definitionRepository;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("cardengine.rules.declarative.rules", this, store -> store.rules.size())
+            .description("Enabled declarative rules")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Enabled rules in name order.
+     */
+    List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        rebuild(definitionRepository.fingerprint());
+    }
+
+    /**
+     * Recompile the rules if the definitions changed since they were compiled.
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.rules.declarative.refresh-interval:PT5S}",
+        fixedDelayString = "${card-engine.rules.declarative.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        TableFingerprint current = definitionRepository.fingerprint();
+        if (!current.equals(fingerprint)) {
+            rebuild(current);
+        }
+    }
+
+    private void rebuild(TableFingerprint current) {
+        List<RuleDefinition> definitions = new ArrayList<>(definitionRepository.findAll());
+        definitions.sort(Comparator.comparing(RuleDefinition::getName));
+
+        List<CompiledRule> compiled = new ArrayList<>(definitions.size());
+        for (RuleDefinition definition : definitions) {
+            if (!definition.isEnabled()) {
+                continue;
+            }
+            try {
+                compiled.add(new CompiledRule(definition.getName(), definition.compile(),
+                    RuleResult.decline(definition.getReason() != null
+                        ? definition.getReason()
+                        : "Declined by rule " + definition.getName()),
+                    Counter.builder("cardengine.rules.declarative.declines")
+                        .description("Authorizations declined by a declarative rule")
+                        .tag("rule", definition.getName())
+                        .register(meterRegistry)));
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping declarative rule {}: {}", definition.getName(), e.getMessage());
+            }
+        }
+
+        rules = List.copyOf(compiled);
+        fingerprint = current;
+        log.info("Loaded {} declarative rules ({} defined)", compiled.size(), definitions.size());
+    }
+}
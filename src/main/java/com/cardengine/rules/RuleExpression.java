@@ -0,0 +1,384 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A condition over an authorization request, written in a small rule language
+ * and compiled once into a tree of lambdas.
+ *
+ * <pre>
+ * mcc in [7995, 6211, "3000-3350"] or (amount &gt; 500 and country != "US")
+ * </pre>
+ *
+ * Fields: amount, currency, mcc, country, city, merchant, card, program.
+ * Every field supports =, !=, in [...] and not in [...]; amount also supports
+ * &gt;, &gt;=, &lt; and &lt;=. Conditions combine with and, or, not and parentheses.
+ * A missing field (e.g. no merchant country) equals nothing and is in no list.
+ *
+ * Literals are resolved at compile time: amounts to minor units per currency,
+ * MCC lists to an {@link MccSet}, other lists to immutable sets, and each node
+ * reads one getter directly. Evaluation is still slower than the equivalent
+ * hand-written rule: every node is an interface call, and the shared and/or/not
+ * call sites go megamorphic once several rules are compiled. DeclarativeRuleBenchmark
+ * measured about 0.75x the hand-written throughput, and about 0.5x with ten
+ * other rules warmed up (see benchmarks/README.md).
+ */
+public final class RuleExpression {
+
+    private enum Field {
+        AMOUNT, CURRENCY, MCC, COUNTRY, CITY, MERCHANT, CARD, PROGRAM
+    }
+
+    private final String source;
+    private final Predicate<AuthorizationRequest> condition;
+
+    private RuleExpression(String source, Predicate<AuthorizationRequest> condition) {
+        this.source = source;
+        this.condition = condition;
+    }
+
+    /**
+     * @throws IllegalArgumentException on syntax errors, unknown fields or invalid values
+     */
+    public static RuleExpression compile(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("Rule expression is empty");
+        }
+        return new RuleExpression(source, new Parser(source).parse());
+    }
+
+    public boolean matches(AuthorizationRequest request) {
+        return condition.test(request);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Recursive descent over the tokens; builds the predicate as it parses.
+     *
+     * <pre>
+     * or         := and ("or" and)*
+     * and        := unary ("and" unary)*
+     * unary      := "not" unary | "(" or ")" | comparison
+     * comparison := field op literal | field ["not"] "in" "[" literal ("," literal)* "]"
+     * </pre>
+     */
+    private static final class Parser {
+
+        private final String source;
+        private final List<String> tokens;
+        private final List<Integer> positions;
+        private int next;
+
+        Parser(String source) {
+            this.source = source;
+            this.tokens = new ArrayList<>();
+            this.positions = new ArrayList<>();
+            tokenize();
+        }
+
+        Predicate<AuthorizationRequest> parse() {
+            Predicate<AuthorizationRequest> condition = or();
+            if (next < tokens.size()) {
+                throw error("Unexpected '" + tokens.get(next) + "'");
+            }
+            return condition;
+        }
+
+        private Predicate<AuthorizationRequest> or() {
+            Predicate<AuthorizationRequest> left = and();
+            while (accept("or")) {
+                Predicate<AuthorizationRequest> first = left;
+                Predicate<AuthorizationRequest> second = and();
+                left = request -> first.test(request) || second.test(request);
+            }
+            return left;
+        }
+
+        private Predicate<AuthorizationRequest> and() {
+            Predicate<AuthorizationRequest> left = unary();
+            while (accept("and")) {
+                Predicate<AuthorizationRequest> first = left;
+                Predicate<AuthorizationRequest> second = unary();
+                left = request -> first.test(request) && second.test(request);
+            }
+            return left;
+        }
+
+        private Predicate<AuthorizationRequest> unary() {
+            if (accept("not")) {
+                Predicate<AuthorizationRequest> negated = unary();
+                return request -> !negated.test(request);
+            }
+            if (accept("(")) {
+                Predicate<AuthorizationRequest> grouped = or();
+                expect(")");
+                return grouped;
+            }
+            return comparison();
+        }
+
+        private Predicate<AuthorizationRequest> comparison() {
+            Field field = field();
+            if (accept("not")) {
+                expect("in");
+                Predicate<AuthorizationRequest> in = in(field, list());
+                return request -> !in.test(request);
+            }
+            if (accept("in")) {
+                return in(field, list());
+            }
+
+            String op = take("an operator");
+            String literal = literal();
+            return switch (op) {
+                case "=", "==" -> equalTo(field, literal);
+                case "!=" -> {
+                    Predicate<AuthorizationRequest> equal = equalTo(field, literal);
+                    yield request -> !equal.test(request);
+                }
+                case ">", ">=", "<", "<=" -> {
+                    if (field != Field.AMOUNT) {
+                        throw error("'" + op + "' only applies to amount");
+                    }
+                    yield amount(op, literal);
+                }
+                default -> throw error("Unknown operator '" + op + "'");
+            };
+        }
+
+        private Predicate<AuthorizationRequest> amount(String op, String literal) {
+            long[] limit = amountLiteral(literal);
+            return switch (op) {
+                case ">" -> request -> request.getAmount().toMinorUnits()
+                    > limit[request.getAmount().getCurrency().ordinal()];
+                case ">=" -> request -> request.getAmount().toMinorUnits()
+                    >= limit[request.getAmount().getCurrency().ordinal()];
+                case "<" -> request -> request.getAmount().toMinorUnits()
+                    < limit[request.getAmount().getCurrency().ordinal()];
+                default -> request -> request.getAmount().toMinorUnits()
+                    <= limit[request.getAmount().getCurrency().ordinal()];
+            };
+        }
+
+        private Predicate<AuthorizationRequest> equalTo(Field field, String literal) {
+            return switch (field) {
+                case AMOUNT -> {
+                    long[] amount = amountLiteral(literal);
+                    yield request -> request.getAmount().toMinorUnits()
+                        == amount[request.getAmount().getCurrency().ordinal()];
+                }
+                case CURRENCY -> {
+                    Currency currency = currency(literal);
+                    yield request -> request.getAmount().getCurrency() == currency;
+                }
+                case MCC -> {
+                    int code = MccSet.code(literal);
+                    if (code < 0) {
+                        throw error("Invalid merchant category code '" + literal + "'");
+                    }
+                    yield request -> MccSet.code(request.getMerchantCategoryCode()) == code;
+                }
+                case COUNTRY -> request -> literal.equals(request.getMerchantCountry());
+                case CITY -> request -> literal.equals(request.getMerchantCity());
+                case MERCHANT -> request -> literal.equals(request.getMerchantName());
+                case CARD -> request -> literal.equals(request.getCardId());
+                case PROGRAM -> request -> literal.equals(request.getProgramId());
+            };
+        }
+
+        private Predicate<AuthorizationRequest> in(Field field, List<String> literals) {
+            return switch (field) {
+                case AMOUNT -> {
+                    List<long[]> amounts = new ArrayList<>();
+                    for (String literal : literals) {
+                        amounts.add(amountLiteral(literal));
+                    }
+                    long[][] values = amounts.toArray(long[][]::new);
+                    yield request -> {
+                        long amount = request.getAmount().toMinorUnits();
+                        int currency = request.getAmount().getCurrency().ordinal();
+                        for (long[] value : values) {
+                            if (value[currency] == amount) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    };
+                }
+                case CURRENCY -> {
+                    Set<Currency> currencies = EnumSet.noneOf(Currency.class);
+                    for (String literal : literals) {
+                        currencies.add(currency(literal));
+                    }
+                    yield request -> currencies.contains(request.getAmount().getCurrency());
+                }
+                case MCC -> {
+                    MccSet codes;
+                    try {
+                        codes = MccSet.parse(MccPolicyMode.ALLOW, String.join(",", literals));
+                    } catch (IllegalArgumentException e) {
+                        throw error(e.getMessage());
+                    }
+                    yield request -> codes.permits(MccSet.code(request.getMerchantCategoryCode()));
+                }
+                case COUNTRY -> {
+                    Set<String> values = Set.copyOf(literals);
+                    yield request -> contains(values, request.getMerchantCountry());
+                }
+                case CITY -> {
+                    Set<String> values = Set.copyOf(literals);
+                    yield request -> contains(values, request.getMerchantCity());
+                }
+                case MERCHANT -> {
+                    Set<String> values = Set.copyOf(literals);
+                    yield request -> contains(values, request.getMerchantName());
+                }
+                case CARD -> {
+                    Set<String> values = Set.copyOf(literals);
+                    yield request -> contains(values, request.getCardId());
+                }
+                case PROGRAM -> {
+                    Set<String> values = Set.copyOf(literals);
+                    yield request -> contains(values, request.getProgramId());
+                }
+            };
+        }
+
+        private static boolean contains(Set<String> values, String value) {
+            // Immutable sets throw on null lookups
+            return value != null && values.contains(value);
+        }
+
+        private Field field() {
+            String name = take("a field");
+            try {
+                return Field.valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw error("Unknown field '" + name + "'");
+            }
+        }
+
+        private List<String> list() {
+            expect("[");
+            List<String> literals = new ArrayList<>();
+            do {
+                literals.add(literal());
+            } while (accept(","));
+            expect("]");
+            return literals;
+        }
+
+        /**
+         * A number as written, or a string without its quotes.
+         */
+        private String literal() {
+            String token = take("a value");
+            if (token.startsWith("\"")) {
+                return token.substring(1, token.length() - 1);
+            }
+            if (!Character.isDigit(token.charAt(0))) {
+                throw error("Expected a value but found '" + token + "'");
+            }
+            return token;
+        }
+
+        /**
+         * The amount in minor units of each currency.
+         */
+        private long[] amountLiteral(String literal) {
+            try {
+                return MinorUnits.forEachCurrency(new BigDecimal(literal));
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw error("Invalid amount '" + literal + "'");
+            }
+        }
+
+        private Currency currency(String literal) {
+            try {
+                return Currency.valueOf(literal);
+            } catch (IllegalArgumentException e) {
+                throw error("Unknown currency '" + literal + "'");
+            }
+        }
+
+        private boolean accept(String token) {
+            if (next < tokens.size() && tokens.get(next).equals(token)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        private String take(String expected) {
+            if (next >= tokens.size()) {
+                throw error("Expected " + expected);
+            }
+            return tokens.get(next++);
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (c == '"') {
+                    i = source.indexOf('"', i + 1);
+                    if (i < 0) {
+                        throw new IllegalArgumentException(
+                            "Unterminated string at " + start + " in rule expression: " + source);
+                    }
+                    i++;
+                } else if (Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                    while (i < source.length()
+                            && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_'
+                                || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                } else if ((c == '!' || c == '=' || c == '<' || c == '>')
+                        && i + 1 < source.length() && source.charAt(i + 1) == '=') {
+                    i += 2;
+                } else if ("()[],=<>".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    throw new IllegalArgumentException(
+                        "Unexpected '" + c + "' at " + start + " in rule expression: " + source);
+                }
+                tokens.add(source.substring(start, i));
+                positions.add(start);
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            // Position of the last token read, i.e. the one in error
+            int at = next > 0 && next <= positions.size() ? positions.get(next - 1) : source.length();
+            return new IllegalArgumentException(message + " at " + at + " in rule expression: " + source);
+        }
+    }
+}
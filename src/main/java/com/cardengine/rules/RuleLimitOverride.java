@@ -0,0 +1,66 @@
+package com.cardengine.rules;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Rule limits for one card, one card program or the whole fleet, replacing
+ * the configured defaults.
+ *
+ * Each limit is optional: a null limit is inherited from the next scope
+ * (card → program → global → card-engine.rules.* properties).
+ */
+@Entity
+@Table(name = "rule_limit_overrides")
+@Data
+@NoArgsConstructor
+public class RuleLimitOverride {
+
+    /**
+     * "GLOBAL", "PROGRAM:{programId}" or "CARD:{cardId}".
+     */
+    @Id
+    private String overrideId;
+
+    @Version
+    private Long version;
+
+    @Enumerated(EnumType.STRING)
+    private RuleLimitScope scope;
+
+    /**
+     * Card or program ID; null for the global override.
+     */
+    private String subjectId;
+
+    private BigDecimal transactionLimit;
+
+    private BigDecimal dailyLimit;
+
+    private Integer velocityMaxPerMinute;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public RuleLimitOverride(RuleLimitScope scope, String subjectId) {
+        this.overrideId = idOf(scope, subjectId);
+        this.scope = scope;
+        this.subjectId = scope == RuleLimitScope.GLOBAL ? null : subjectId;
+        this.updatedAt = Instant.now();
+    }
+
+    public static String idOf(RuleLimitScope scope, String subjectId) {
+        return scope == RuleLimitScope.GLOBAL ? scope.name() : scope.name() + ":" + subjectId;
+    }
+
+    public void update(BigDecimal transactionLimit, BigDecimal dailyLimit, Integer velocityMaxPerMinute) {
+        this.transactionLimit = transactionLimit;
+        this.dailyLimit = dailyLimit;
+        this.velocityMaxPerMinute = velocityMaxPerMinute;
+        this.updatedAt = Instant.now();
+    }
+}
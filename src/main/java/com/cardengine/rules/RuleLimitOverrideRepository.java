@@ -0,0 +1,16 @@
+package com.cardengine.rules;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for rule limit overrides.
+ */
+@Repository
+public interface RuleLimitOverrideRepository extends JpaRepository<RuleLimitOverride, String> {
+
+    @Query("select new com.cardengine.rules.TableFingerprint("
+        + "count(o), coalesce(sum(o.version), 0L), max(o.updatedAt)) from RuleLimitOverride o")
+    TableFingerprint fingerprint();
+}
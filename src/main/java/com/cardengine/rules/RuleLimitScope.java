@@ -0,0 +1,11 @@
+package com.cardengine.rules;
+
+/**
+ * What a rule limit override applies to. More specific scopes win:
+ * card, then program, then global, then the configured defaults.
+ */
+public enum RuleLimitScope {
+    GLOBAL,
+    PROGRAM,
+    CARD
+}
@@ -0,0 +1,77 @@
+package com.cardengine.rules;
+
+import com.cardengine.common.TransactionCallbacks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * Service for changing rule limits at runtime.
+ *
+ * Changes take effect on this node when the transaction commits and on other
+ * nodes at their next {@link RuleLimitStore#refresh()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RuleLimitService {
+
+    private final RuleLimitOverrideRepository overrideRepository;
+    private final RuleLimitStore ruleLimitStore;
+
+    /**
+     * Set the limits for a scope; null limits are inherited from the next scope.
+     *
+     * @param subjectId card or program ID (ignored for GLOBAL)
+     */
+    @Transactional
+    public RuleLimitOverride setOverride(RuleLimitScope scope, String subjectId, BigDecimal transactionLimit,
+                                         BigDecimal dailyLimit, Integer velocityMaxPerMinute) {
+        if (scope != RuleLimitScope.GLOBAL && subjectId == null) {
+            throw new IllegalArgumentException(scope + " override requires a subject ID");
+        }
+        requirePositive("Transaction limit", transactionLimit);
+        requirePositive("Daily limit", dailyLimit);
+        if (velocityMaxPerMinute != null && velocityMaxPerMinute <= 0) {
+            throw new IllegalArgumentException("Velocity limit must be positive: " + velocityMaxPerMinute);
+        }
+
+        RuleLimitOverride override = overrideRepository.findById(RuleLimitOverride.idOf(scope, subjectId))
+            .orElseGet(() -> new RuleLimitOverride(scope, subjectId));
+        override.update(transactionLimit, dailyLimit, velocityMaxPerMinute);
+        try {
+            // Resolve it as every node will, so a limit that does not fit in minor units is never stored
+            ruleLimitStore.getGlobalLimits().with(override);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Limit too large: " + e.getMessage(), e);
+        }
+        overrideRepository.save(override);
+        TransactionCallbacks.afterCommit(ruleLimitStore::refresh);
+
+        log.info("Set rule limits for {}: transaction={}, daily={}, velocity={}",
+            override.getOverrideId(), transactionLimit, dailyLimit, velocityMaxPerMinute);
+        return override;
+    }
+
+    /**
+     * Remove the override for a scope, inheriting all limits again.
+     */
+    @Transactional
+    public void clearOverride(RuleLimitScope scope, String subjectId) {
+        String overrideId = RuleLimitOverride.idOf(scope, subjectId);
+        overrideRepository.findById(overrideId).ifPresent(override -> {
+            overrideRepository.delete(override);
+            TransactionCallbacks.afterCommit(ruleLimitStore::refresh);
+            log.info("Cleared rule limits for {}", overrideId);
+        });
+    }
+
+    private static void requirePositive(String name, BigDecimal limit) {
+        if (limit != null && limit.signum() <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + limit);
+        }
+    }
+}
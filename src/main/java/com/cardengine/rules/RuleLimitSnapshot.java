@@ -0,0 +1,62 @@
+package com.cardengine.rules;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of all rule limits at one point in time.
+ *
+ * Programs are fully resolved when the snapshot is built. Card overrides
+ * are applied on top of the program the request names, at lookup time, so
+ * a card that moves to another program (or is issued after its override)
+ * inherits from its current program. The result is cached per card until
+ * its program changes, so a lookup is usually three map reads.
+ */
+final class RuleLimitSnapshot {
+
+    private final RuleLimits global;
+    private final Map<String, RuleLimits> programs;
+    private final Map<String, RuleLimitOverride> cards;
+    private final TableFingerprint fingerprint;
+    private final Map<String, CardLimits> resolvedCards = new ConcurrentHashMap<>();
+
+    RuleLimitSnapshot(RuleLimits global, Map<String, RuleLimits> programs,
+                      Map<String, RuleLimitOverride> cards, TableFingerprint fingerprint) {
+        this.global = global;
+        this.programs = Map.copyOf(programs);
+        this.cards = Map.copyOf(cards);
+        this.fingerprint = fingerprint;
+    }
+
+    RuleLimits resolve(String cardId, String programId) {
+        RuleLimits base = programId != null ? programs.getOrDefault(programId, global) : global;
+        RuleLimitOverride override = cardId != null ? cards.get(cardId) : null;
+        if (override == null) {
+            return base;
+        }
+        CardLimits resolved = resolvedCards.get(cardId);
+        if (resolved == null || resolved.base() != base) {
+            resolved = new CardLimits(base, base.with(override));
+            resolvedCards.put(cardId, resolved);
+        }
+        return resolved.limits();
+    }
+
+    RuleLimits getGlobal() {
+        return global;
+    }
+
+    int size() {
+        return programs.size() + cards.size();
+    }
+
+    TableFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * A card's limits and the program (or global) limits they were resolved from.
+     */
+    private record CardLimits(RuleLimits base, RuleLimits limits) {
+    }
+}
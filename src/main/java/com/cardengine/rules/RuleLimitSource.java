@@ -0,0 +1,14 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+
+/**
+ * Where the limit rules get the limits for a request.
+ *
+ * Live rules read the {@link RuleLimitStore}; backtests may substitute
+ * proposed limits.
+ */
+public interface RuleLimitSource {
+
+    RuleLimits limitsFor(AuthorizationRequest request);
+}
@@ -0,0 +1,131 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits used by the transaction limit, daily spend and velocity rules.
+ *
+ * The card-engine.rules.* properties are the defaults; rows in
+ * rule_limit_overrides replace them for the whole fleet, a card program or a
+ * single card. All limits are held in an immutable {@link RuleLimitSnapshot}
+ * that is replaced as a whole when the overrides change, so rules read it
+ * without locking and always see one consistent version. A card override is
+ * applied to the program named by the request, not the one the card had
+ * when the snapshot was built.
+ *
+ * Every node polls a fingerprint of the table (row count, summed versions,
+ * last update) every card-engine.rules.limits.refresh-interval and rebuilds
+ * its snapshot when it differs, so changes reach the fleet within seconds.
+ */
+@Component
+@Slf4j
+public class RuleLimitStore implements RuleLimitSource {
+
+    private final RuleLimitOverrideRepository overrideRepository;
+    private final RuleLimits defaults;
+
+    private volatile RuleLimitSnapshot snapshot;
+
+    public RuleLimitStore(
+            RuleLimitOverrideRepository overrideRepository,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.rules.transaction-limit-default:1000.00}") BigDecimal transactionLimit,
+            @Value("${card-engine.rules.daily-limit-default:5000.00}") BigDecimal dailyLimit,
+            @Value("${card-engine.rules.velocity-max-per-minute:5}") int velocityMaxPerMinute) {
+        this.overrideRepository = overrideRepository;
+        this.defaults = new RuleLimits(transactionLimit, dailyLimit, velocityMaxPerMinute);
+        this.snapshot = new RuleLimitSnapshot(defaults, Map.of(), Map.of(), null);
+
+        Gauge.builder("cardengine.rules.limits.overrides", this, store -> store.snapshot.size())
+            .description("Cards and programs with rule limit overrides")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The limits that apply to the request's card.
+     */
+    @Override
+    public RuleLimits limitsFor(AuthorizationRequest request) {
+        return snapshot.resolve(request.getCardId(), request.getProgramId());
+    }
+
+    /**
+     * Fleet-wide limits: the defaults with the global override applied.
+     */
+    public RuleLimits getGlobalLimits() {
+        return snapshot.getGlobal();
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        rebuild(overrideRepository.fingerprint());
+    }
+
+    /**
+     * Rebuild the snapshot if the overrides changed since it was built.
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.rules.limits.refresh-interval:PT5S}",
+        fixedDelayString = "${card-engine.rules.limits.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        TableFingerprint fingerprint = overrideRepository.fingerprint();
+        if (!fingerprint.equals(snapshot.getFingerprint())) {
+            rebuild(fingerprint);
+        }
+    }
+
+    private void rebuild(TableFingerprint fingerprint) {
+        // Read after the fingerprint: a change in between is picked up by the next refresh
+        List<RuleLimitOverride> overrides = overrideRepository.findAll();
+
+        RuleLimits global = defaults;
+        Map<String, RuleLimitOverride> programOverrides = new HashMap<>();
+        Map<String, RuleLimitOverride> cardOverrides = new HashMap<>();
+        for (RuleLimitOverride override : overrides) {
+            if (!isValid(override)) {
+                continue;
+            }
+            switch (override.getScope()) {
+                case GLOBAL -> global = defaults.with(override);
+                case PROGRAM -> programOverrides.put(override.getSubjectId(), override);
+                case CARD -> cardOverrides.put(override.getSubjectId(), override);
+            }
+        }
+
+        Map<String, RuleLimits> programs = new HashMap<>();
+        for (RuleLimitOverride override : programOverrides.values()) {
+            programs.put(override.getSubjectId(), global.with(override));
+        }
+
+        snapshot = new RuleLimitSnapshot(global, programs, cardOverrides, fingerprint);
+        log.info("Loaded rule limits: global {}, {} program and {} card overrides",
+            global, programs.size(), cardOverrides.size());
+    }
+
+    /**
+     * Whether the override's limits can be resolved. A row written around
+     * {@link RuleLimitService} (or before it validated) may not fit in minor
+     * units; it is skipped rather than failing the whole snapshot.
+     */
+    private boolean isValid(RuleLimitOverride override) {
+        try {
+            defaults.with(override);
+            return true;
+        } catch (ArithmeticException e) {
+            log.error("Skipping rule limit override {}: {}", override.getOverrideId(), e.getMessage());
+            return false;
+        }
+    }
+}
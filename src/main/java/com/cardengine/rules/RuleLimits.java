@@ -0,0 +1,63 @@
+package com.cardengine.rules;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.MinorUnits;
+
+import java.math.BigDecimal;
+
+/**
+ * Effective limits for a card, resolved from the overrides that apply to it.
+ * Immutable; amount limits are pre-converted to minor units per currency.
+ */
+public final class RuleLimits {
+
+    private final BigDecimal transactionLimit;
+    private final BigDecimal dailyLimit;
+    private final int velocityMaxPerMinute;
+    private final long[] transactionLimitMinorUnits;
+    private final long[] dailyLimitMinorUnits;
+
+    public RuleLimits(BigDecimal transactionLimit, BigDecimal dailyLimit, int velocityMaxPerMinute) {
+        this.transactionLimit = transactionLimit;
+        this.dailyLimit = dailyLimit;
+        this.velocityMaxPerMinute = velocityMaxPerMinute;
+        this.transactionLimitMinorUnits = MinorUnits.forEachCurrency(transactionLimit);
+        this.dailyLimitMinorUnits = MinorUnits.forEachCurrency(dailyLimit);
+    }
+
+    /**
+     * These limits with the override's non-null limits applied on top.
+     */
+    RuleLimits with(RuleLimitOverride override) {
+        return new RuleLimits(
+            override.getTransactionLimit() != null ? override.getTransactionLimit() : transactionLimit,
+            override.getDailyLimit() != null ? override.getDailyLimit() : dailyLimit,
+            override.getVelocityMaxPerMinute() != null ? override.getVelocityMaxPerMinute() : velocityMaxPerMinute);
+    }
+
+    public BigDecimal getTransactionLimit() {
+        return transactionLimit;
+    }
+
+    public long getTransactionLimitMinorUnits(Currency currency) {
+        return transactionLimitMinorUnits[currency.ordinal()];
+    }
+
+    public BigDecimal getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public long getDailyLimitMinorUnits(Currency currency) {
+        return dailyLimitMinorUnits[currency.ordinal()];
+    }
+
+    public int getVelocityMaxPerMinute() {
+        return velocityMaxPerMinute;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleLimits(transaction=" + transactionLimit + ", daily=" + dailyLimit
+            + ", velocity=" + velocityMaxPerMinute + "/min)";
+    }
+}
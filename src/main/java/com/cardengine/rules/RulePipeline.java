@@ -0,0 +1,118 @@
+package com.cardengine.rules;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Evaluation order of a set of rules, worked out once at startup.
+ *
+ * Rules are sorted cheapest first (see {@link RuleCost}), ties broken by
+ * name so the order does not depend on bean registration, while every rule
+ * still comes after the rules it depends on. Consecutive I/O rules that do
+ * not depend on each other are grouped into one stage and evaluated
+ * concurrently; every other stage holds a single rule.
+ */
+final class RulePipeline {
+
+    private static final Comparator<Rule> CHEAPEST_FIRST = Comparator
+        .comparing(Rule::getCost)
+        .thenComparing(Rule::getRuleName);
+
+    private final List<List<Rule>> stages;
+
+    private RulePipeline(List<List<Rule>> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @throws IllegalStateException on duplicate rule names, unknown
+     *                               dependencies or dependency cycles
+     */
+    static RulePipeline compile(List<Rule> rules) {
+        Map<String, Rule> byName = new HashMap<>();
+        for (Rule rule : rules) {
+            if (byName.put(rule.getRuleName(), rule) != null) {
+                throw new IllegalStateException("Duplicate rule name: " + rule.getRuleName());
+            }
+        }
+
+        // Kahn's algorithm, always taking the cheapest rule whose dependencies have run
+        Map<String, Integer> waitingOn = new HashMap<>();
+        Map<String, List<Rule>> dependents = new HashMap<>();
+        PriorityQueue<Rule> ready = new PriorityQueue<>(CHEAPEST_FIRST);
+        for (Rule rule : rules) {
+            for (String dependency : rule.getDependencies()) {
+                if (!byName.containsKey(dependency)) {
+                    throw new IllegalStateException(
+                        "Rule " + rule.getRuleName() + " depends on unknown rule " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, name -> new ArrayList<>()).add(rule);
+            }
+            waitingOn.put(rule.getRuleName(), rule.getDependencies().size());
+            if (rule.getDependencies().isEmpty()) {
+                ready.add(rule);
+            }
+        }
+
+        List<Rule> ordered = new ArrayList<>(rules.size());
+        while (!ready.isEmpty()) {
+            Rule rule = ready.poll();
+            ordered.add(rule);
+            for (Rule dependent : dependents.getOrDefault(rule.getRuleName(), List.of())) {
+                if (waitingOn.merge(dependent.getRuleName(), -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() < rules.size()) {
+            throw new IllegalStateException("Rule dependencies form a cycle");
+        }
+
+        List<List<Rule>> stages = new ArrayList<>();
+        List<Rule> concurrent = new ArrayList<>();
+        Set<String> concurrentNames = new HashSet<>();
+        for (Rule rule : ordered) {
+            boolean joins = rule.getCost() == RuleCost.IO
+                && rule.getDependencies().stream().noneMatch(concurrentNames::contains);
+            if (!joins && !concurrent.isEmpty()) {
+                stages.add(List.copyOf(concurrent));
+                concurrent.clear();
+                concurrentNames.clear();
+            }
+            if (rule.getCost() == RuleCost.IO) {
+                concurrent.add(rule);
+                concurrentNames.add(rule.getRuleName());
+            } else {
+                stages.add(List.of(rule));
+            }
+        }
+        if (!concurrent.isEmpty()) {
+            stages.add(List.copyOf(concurrent));
+        }
+        return new RulePipeline(List.copyOf(stages));
+    }
+
+    List<List<Rule>> getStages() {
+        return stages;
+    }
+
+    boolean hasConcurrentStages() {
+        return stages.stream().anyMatch(stage -> stage.size() > 1);
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>(stages.size());
+        for (List<Rule> stage : stages) {
+            List<String> stageNames = stage.stream().map(Rule::getRuleName).toList();
+            names.add(stage.size() == 1 ? stageNames.get(0) : String.join(" | ", stageNames));
+        }
+        return String.join(" -> ", names);
+    }
+}
@@ -10,8 +10,10 @@ public class RuleResult {
     boolean approved;
     String reason;
 
+    private static final RuleResult APPROVED = new RuleResult(true, null);
+
     public static RuleResult approve() {
-        return new RuleResult(true, null);
+        return APPROVED;
     }
 
     public static RuleResult decline(String reason) {
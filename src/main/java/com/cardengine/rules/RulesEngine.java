@@ -1,24 +1,74 @@
 package com.cardengine.rules;
 
 import com.cardengine.authorization.AuthorizationRequest;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Rules engine that evaluates all configured rules against authorization requests.
  *
- * Rules are evaluated in order, and the first rule that declines the transaction
- * will cause the entire authorization to be declined.
+ * The rules are compiled into a {@link RulePipeline} at startup: cheapest
+ * first, after the rules they depend on. The first rule that declines the
+ * transaction declines the entire authorization, and the rules after it are
+ * not evaluated. Independent I/O rules are evaluated concurrently on virtual
+ * threads; if several decline, the one earliest in the pipeline is reported.
+ *
+ * Each rule's evaluation time and declines are recorded as
+ * cardengine.rules.latency and cardengine.rules.declines, tagged by rule.
+ *
+ * {@link ShadowRule}s are left out; every decision is handed to the
+ * {@link ShadowRuleEvaluator} (if any) to compare against the challenger set.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RulesEngine {
 
-    private final List<Rule> rules;
+    private final RulePipeline pipeline;
+    private final Map<Rule, Timer> latency = new HashMap<>();
+    private final Map<Rule, Counter> declines = new HashMap<>();
+    private final ExecutorService concurrentRules;
+    private final ShadowRuleEvaluator shadowRuleEvaluator;
+
+    public RulesEngine(List<Rule> rules, MeterRegistry meterRegistry) {
+        this(rules, meterRegistry, null);
+    }
+
+    @Autowired
+    public RulesEngine(List<Rule> rules, MeterRegistry meterRegistry, ShadowRuleEvaluator shadowRuleEvaluator) {
+        List<Rule> live = rules.stream().filter(rule -> !(rule instanceof ShadowRule)).toList();
+        this.pipeline = RulePipeline.compile(live);
+        this.shadowRuleEvaluator = shadowRuleEvaluator;
+        for (Rule rule : live) {
+            latency.put(rule, Timer.builder("cardengine.rules.latency")
+                .description("Time to evaluate an authorization rule")
+                .tag("rule", rule.getRuleName())
+                .register(meterRegistry));
+            declines.put(rule, Counter.builder("cardengine.rules.declines")
+                .description("Authorizations declined by a rule")
+                .tag("rule", rule.getRuleName())
+                .register(meterRegistry));
+        }
+        this.concurrentRules = pipeline.hasConcurrentStages()
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("rule-", 0).factory())
+            : null;
+
+        log.info("Rules pipeline: {}", pipeline);
+    }
 
     /**
      * Evaluate all rules against an authorization request.
@@ -27,20 +77,72 @@ public class RulesEngine {
      * @return the result of the rules evaluation
      */
     public RuleResult evaluateRules(AuthorizationRequest request) {
-        log.debug("Evaluating {} rules for authorization on card {}", rules.size(), request.getCardId());
+        RuleResult result = evaluatePipeline(request);
+        if (shadowRuleEvaluator != null) {
+            shadowRuleEvaluator.submit(request, result);
+        }
+        return result;
+    }
 
-        for (Rule rule : rules) {
-            RuleResult result = rule.evaluate(request);
+    @PreDestroy
+    public void shutdown() {
+        if (concurrentRules != null) {
+            concurrentRules.shutdown();
+        }
+    }
 
+    private RuleResult evaluatePipeline(AuthorizationRequest request) {
+        for (List<Rule> stage : pipeline.getStages()) {
+            RuleResult result = stage.size() == 1
+                ? evaluate(stage.get(0), request)
+                : evaluateConcurrently(stage, request);
             if (!result.isApproved()) {
-                log.info("Rule {} declined authorization: {}", rule.getRuleName(), result.getReason());
                 return result;
             }
+        }
+        return RuleResult.approve();
+    }
 
-            log.debug("Rule {} approved", rule.getRuleName());
+    private RuleResult evaluate(Rule rule, AuthorizationRequest request) {
+        long start = System.nanoTime();
+        RuleResult result = rule.evaluate(request);
+        latency.get(rule).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!result.isApproved()) {
+            declines.get(rule).increment();
+            log.debug("Rule {} declined authorization on card {}: {}",
+                rule.getRuleName(), request.getCardId(), result.getReason());
         }
+        return result;
+    }
 
-        log.debug("All rules approved for card {}", request.getCardId());
-        return RuleResult.approve();
+    private RuleResult evaluateConcurrently(List<Rule> stage, AuthorizationRequest request) {
+        List<Future<RuleResult>> results = new ArrayList<>(stage.size());
+        for (Rule rule : stage) {
+            results.add(concurrentRules.submit(() -> evaluate(rule, request)));
+        }
+
+        try {
+            for (Future<RuleResult> future : results) {
+                RuleResult result = future.get();
+                if (!result.isApproved()) {
+                    return result;
+                }
+            }
+            return RuleResult.approve();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating rules", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Rule evaluation failed", e.getCause());
+        } finally {
+            // Rules still running after a decline are no longer needed
+            for (Future<RuleResult> future : results) {
+                future.cancel(true);
+            }
+        }
     }
 }
@@ -0,0 +1,11 @@
+package com.cardengine.rules;
+
+/**
+ * A challenger rule, evaluated only in shadow mode and never for the live decision.
+ *
+ * The challenger rule set is the live rule set with each shadow rule
+ * replacing the live rule of the same name (to try a different threshold)
+ * or added to it (to try a new rule). See {@link ShadowRuleEvaluator}.
+ */
+public interface ShadowRule extends Rule {
+}
@@ -0,0 +1,63 @@
+package com.cardengine.rules;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The challenger rule set's decision on an authorization, next to the live one.
+ */
+@Entity
+@Table(name = "shadow_rule_decisions", indexes = {
+    @Index(name = "idx_shadow_decision_authorization_id", columnList = "authorization_id"),
+    @Index(name = "idx_shadow_decision_evaluated_at", columnList = "evaluated_at")
+})
+@Data
+@NoArgsConstructor
+public class ShadowRuleDecision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "authorization_id", nullable = false)
+    private String authorizationId;
+
+    @Column(name = "card_id")
+    private String cardId;
+
+    @Column(name = "live_approved", nullable = false)
+    private boolean liveApproved;
+
+    @Column(name = "live_reason", length = 500)
+    private String liveReason;
+
+    @Column(name = "shadow_approved", nullable = false)
+    private boolean shadowApproved;
+
+    /**
+     * Challenger rule that declined, if any.
+     */
+    @Column(name = "shadow_rule")
+    private String shadowRule;
+
+    @Column(name = "shadow_reason", length = 500)
+    private String shadowReason;
+
+    @Column(name = "evaluated_at", nullable = false)
+    private Instant evaluatedAt;
+
+    public ShadowRuleDecision(String authorizationId, String cardId, RuleResult live,
+                              String shadowRule, RuleResult shadow, Instant evaluatedAt) {
+        this.authorizationId = authorizationId;
+        this.cardId = cardId;
+        this.liveApproved = live.isApproved();
+        this.liveReason = live.getReason();
+        this.shadowApproved = shadow.isApproved();
+        this.shadowRule = shadowRule;
+        this.shadowReason = shadow.getReason();
+        this.evaluatedAt = evaluatedAt;
+    }
+}
@@ -0,0 +1,310 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Champion/challenger evaluation: runs the challenger rule set (the live
+ * rules with any {@link ShadowRule}s swapped in) against every request the
+ * live rules decided, off the authorization path.
+ *
+ * {@link #submit} only hands the request to a bounded executor; when its
+ * queue is full the request is dropped and counted rather than slowing the
+ * live path. Decisions are buffered (also bounded) and written in batches to
+ * shadow_rule_decisions next to the live outcome. Agreement is counted as
+ * cardengine.rules.shadow.decisions tagged agree, shadow_declined (live
+ * approved) or shadow_approved (live declined); see {@link #getStats()}.
+ *
+ * Shadow mode is active when at least one ShadowRule bean exists and
+ * card-engine.rules.shadow.enabled is true. Challenger rules run after the
+ * live decision, by which time the request may have been changed and the
+ * card's activity has recorded it. So {@link #submit} copies the request
+ * and snapshots the card's activity (spend today, count in the last
+ * minute) as the live rules saw it; the built-in velocity and daily spend
+ * rules of the challenger set read that snapshot. Shadow rules of their own
+ * read whatever they were built with.
+ */
+@Component
+@Slf4j
+public class ShadowRuleEvaluator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final CardActivity cardActivity;
+
+    // Challenger rules in evaluation order, given the activity snapshot to read
+    private final List<Function<CardActivity, Rule>> challenger;
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<ShadowRuleDecision> unrecorded;
+
+    private final Counter agreed;
+    private final Counter shadowDeclined;
+    private final Counter shadowApproved;
+    private final Counter droppedEvaluations;
+    private final Counter droppedRecords;
+    private final Counter failures;
+    private final Map<String, Counter> declinesByRule = new ConcurrentHashMap<>();
+
+    public ShadowRuleEvaluator(
+            List<Rule> rules,
+            CardActivity cardActivity,
+            RuleLimitSource ruleLimitSource,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.rules.shadow.enabled:true}") boolean enabled,
+            @Value("${card-engine.rules.shadow.concurrency:2}") int concurrency,
+            @Value("${card-engine.rules.shadow.queue-capacity:10000}") int queueCapacity,
+            @Value("${card-engine.rules.shadow.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.cardActivity = cardActivity;
+
+        this.agreed = decisions("agree");
+        this.shadowDeclined = decisions("shadow_declined");
+        this.shadowApproved = decisions("shadow_approved");
+        this.droppedEvaluations = dropped("evaluation");
+        this.droppedRecords = dropped("recording");
+        this.failures = Counter.builder("cardengine.rules.shadow.failures")
+            .description("Challenger rule evaluations that threw")
+            .register(meterRegistry);
+
+        if (!enabled || rules.stream().noneMatch(rule -> rule instanceof ShadowRule)) {
+            this.challenger = List.of();
+            this.executor = null;
+            this.unrecorded = null;
+            return;
+        }
+
+        RulePipeline pipeline = RulePipeline.compile(challengerSet(rules));
+        this.challenger = pipeline.getStages().stream()
+            .flatMap(List::stream)
+            .map(rule -> readingSnapshot(rule, ruleLimitSource))
+            .toList();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            Thread.ofVirtual().name("shadow-rule-", 0).factory(),
+            (task, pool) -> droppedEvaluations.increment());
+        this.unrecorded = new ArrayBlockingQueue<>(queueCapacity);
+
+        log.info("Shadow rules pipeline: {}", pipeline);
+    }
+
+    /**
+     * The live rules with each shadow rule replacing the live rule of the same
+     * name or, if there is none, added.
+     */
+    static List<Rule> challengerSet(List<Rule> rules) {
+        Map<String, Rule> byName = new TreeMap<>();
+        for (Rule rule : rules) {
+            if (!(rule instanceof ShadowRule)) {
+                byName.put(rule.getRuleName(), rule);
+            }
+        }
+        for (Rule rule : rules) {
+            if (rule instanceof ShadowRule) {
+                byName.put(rule.getRuleName(), rule);
+            }
+        }
+        return List.copyOf(byName.values());
+    }
+
+    /**
+     * The rule as a function of the activity snapshot: the built-in activity
+     * rules are rebuilt to read it, every other rule is used as is.
+     */
+    private static Function<CardActivity, Rule> readingSnapshot(Rule rule, RuleLimitSource limits) {
+        return switch (rule) {
+            case ShadowRule shadow -> activity -> shadow;
+            case DailySpendLimitRule live -> activity -> new DailySpendLimitRule(activity, limits);
+            case VelocityRule live -> activity -> new VelocityRule(activity, limits);
+            default -> activity -> rule;
+        };
+    }
+
+    public boolean isActive() {
+        return executor != null;
+    }
+
+    /**
+     * Queue the request for challenger evaluation; never blocks. Call before
+     * the live decision is recorded in the card's activity.
+     */
+    public void submit(AuthorizationRequest request, RuleResult live) {
+        if (executor != null) {
+            AuthorizationRequest copy = copyOf(request);
+            Instant now = Instant.now();
+            ActivitySnapshot activity = new ActivitySnapshot(
+                cardActivity.countInLastMinute(copy.getCardId(), now),
+                cardActivity.spentToday(copy.getCardId(), now));
+            executor.execute(() -> evaluate(copy, activity, live));
+        }
+    }
+
+    private static AuthorizationRequest copyOf(AuthorizationRequest request) {
+        Money amount = request.getAmount();
+        return request.toBuilder()
+            .amount(amount != null ? new Money(amount.getAmount(), amount.getCurrency()) : null)
+            .build();
+    }
+
+    /**
+     * Write buffered decisions.
+     *
+     * @return number of decisions written
+     */
+    @Scheduled(
+        initialDelayString = "${card-engine.rules.shadow.flush-interval:PT1S}",
+        fixedDelayString = "${card-engine.rules.shadow.flush-interval:PT1S}")
+    public int flush() {
+        if (unrecorded == null) {
+            return 0;
+        }
+        int written = 0;
+        List<ShadowRuleDecision> batch = new ArrayList<>(batchSize);
+        while (unrecorded.drainTo(batch, batchSize) > 0) {
+            try {
+                write(batch);
+                written += batch.size();
+            } catch (RuntimeException e) {
+                droppedRecords.increment(batch.size());
+                log.error("Failed to record {} shadow rule decisions", batch.size(), e);
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+        return written;
+    }
+
+    public ShadowStats getStats() {
+        long agree = (long) agreed.count();
+        long declined = (long) shadowDeclined.count();
+        long approved = (long) shadowApproved.count();
+        long evaluated = agree + declined + approved;
+
+        Map<String, Long> byRule = new TreeMap<>();
+        declinesByRule.forEach((rule, counter) -> byRule.put(rule, (long) counter.count()));
+
+        return new ShadowStats(isActive(), evaluated, agree, declined, approved,
+            evaluated > 0 ? (double) agree / evaluated : 1.0, byRule,
+            (long) (droppedEvaluations.count() + droppedRecords.count()), (long) failures.count());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void evaluate(AuthorizationRequest request, CardActivity activity, RuleResult live) {
+        String decidedBy = null;
+        RuleResult shadow = RuleResult.approve();
+        try {
+            for (Function<CardActivity, Rule> challengerRule : challenger) {
+                Rule rule = challengerRule.apply(activity);
+                RuleResult result = rule.evaluate(request);
+                if (!result.isApproved()) {
+                    decidedBy = rule.getRuleName();
+                    shadow = result;
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.debug("Challenger rules failed on authorization {}", request.getAuthorizationId(), e);
+            return;
+        }
+
+        if (decidedBy != null) {
+            declinesByRule.computeIfAbsent(decidedBy, rule -> Counter.builder("cardengine.rules.shadow.declines")
+                .description("Authorizations declined by a challenger rule")
+                .tag("rule", rule)
+                .register(meterRegistry)).increment();
+        }
+        if (live.isApproved() == shadow.isApproved()) {
+            agreed.increment();
+        } else if (live.isApproved()) {
+            shadowDeclined.increment();
+        } else {
+            shadowApproved.increment();
+        }
+
+        ShadowRuleDecision decision = new ShadowRuleDecision(request.getAuthorizationId(), request.getCardId(),
+            live, decidedBy, shadow, Instant.now());
+        if (!unrecorded.offer(decision)) {
+            droppedRecords.increment();
+        }
+    }
+
+    private void write(List<ShadowRuleDecision> decisions) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "insert into shadow_rule_decisions (authorization_id, card_id, live_approved, live_reason,"
+                + " shadow_approved, shadow_rule, shadow_reason, evaluated_at) values (?, ?, ?, ?, ?, ?, ?, ?)",
+            decisions, decisions.size(), (ps, decision) -> {
+                ps.setString(1, decision.getAuthorizationId());
+                ps.setString(2, decision.getCardId());
+                ps.setBoolean(3, decision.isLiveApproved());
+                ps.setString(4, decision.getLiveReason());
+                ps.setBoolean(5, decision.isShadowApproved());
+                ps.setString(6, decision.getShadowRule());
+                ps.setString(7, decision.getShadowReason());
+                ps.setTimestamp(8, Timestamp.from(decision.getEvaluatedAt()));
+            }));
+    }
+
+    /**
+     * The card's activity when the request was submitted; the only card asked about.
+     */
+    private record ActivitySnapshot(int recentCount, long spent) implements CardActivity {
+
+        @Override
+        public int countInLastMinute(String cardId, Instant ignored) {
+            return recentCount;
+        }
+
+        @Override
+        public long spentToday(String cardId, Instant ignored) {
+            return spent;
+        }
+    }
+
+    private Counter decisions(String outcome) {
+        return Counter.builder("cardengine.rules.shadow.decisions")
+            .description("Challenger rule set decisions, by agreement with the live decision")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Counter dropped(String stage) {
+        return Counter.builder("cardengine.rules.shadow.dropped")
+            .description("Shadow evaluations or decision records dropped under overload")
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+}
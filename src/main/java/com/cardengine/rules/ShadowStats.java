@@ -0,0 +1,23 @@
+package com.cardengine.rules;
+
+import java.util.Map;
+
+/**
+ * Agreement between the live and the challenger rule sets since startup.
+ *
+ * @param shadowDeclined       live approved, challenger declined
+ * @param shadowApproved       live declined, challenger approved
+ * @param shadowDeclinesByRule challenger declines by the rule that declined
+ * @param dropped              requests not evaluated, or decisions not recorded, under overload
+ */
+public record ShadowStats(
+    boolean active,
+    long evaluated,
+    long agreed,
+    long shadowDeclined,
+    long shadowApproved,
+    double agreementRate,
+    Map<String, Long> shadowDeclinesByRule,
+    long dropped,
+    long failed) {
+}
@@ -0,0 +1,11 @@
+package com.cardengine.rules;
+
+import java.time.Instant;
+
+/**
+ * Summary of a versioned table that changes whenever a row is inserted,
+ * updated (version) or deleted (count). Stores that cache a table poll it and
+ * rebuild only when it differs from the one their snapshot was built from.
+ */
+public record TableFingerprint(Long count, Long versions, Instant lastUpdated) {
+}
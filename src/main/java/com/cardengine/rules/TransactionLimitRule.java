@@ -3,29 +3,27 @@ package com.cardengine.rules;
 import com.cardengine.authorization.AuthorizationRequest;
 import com.cardengine.common.Money;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-
 /**
  * Rule that enforces per-transaction spending limits.
+ * The limit comes from the card's {@link RuleLimits}, already in minor units.
  */
 @Component
 @RequiredArgsConstructor
 public class TransactionLimitRule implements Rule {
 
-    @Value("${card-engine.rules.transaction-limit-default:1000.00}")
-    private BigDecimal transactionLimit;
+    private final RuleLimitSource ruleLimitSource;
 
     @Override
     public RuleResult evaluate(AuthorizationRequest request) {
-        Money limitMoney = Money.of(transactionLimit, request.getAmount().getCurrency());
+        Money amount = request.getAmount();
+        RuleLimits limits = ruleLimitSource.limitsFor(request);
 
-        if (request.getAmount().isGreaterThan(limitMoney)) {
+        if (amount.toMinorUnits() > limits.getTransactionLimitMinorUnits(amount.getCurrency())) {
             return RuleResult.decline(
                 String.format("Transaction amount %s exceeds limit %s",
-                    request.getAmount().getAmount(), transactionLimit)
+                    amount.getAmount(), limits.getTransactionLimit())
             );
         }
 
@@ -36,4 +34,9 @@ public class TransactionLimitRule implements Rule {
     public String getRuleName() {
         return "TransactionLimit";
     }
+
+    @Override
+    public RuleCost getCost() {
+        return RuleCost.REQUEST;
+    }
 }
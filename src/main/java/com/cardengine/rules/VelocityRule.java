@@ -1,13 +1,10 @@
 package com.cardengine.rules;
 
-import com.cardengine.authorization.AuthorizationRepository;
 import com.cardengine.authorization.AuthorizationRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
 /**
  * Rule that prevents too many transactions in a short time period.
@@ -17,18 +14,14 @@ import java.time.temporal.ChronoUnit;
 @RequiredArgsConstructor
 public class VelocityRule implements Rule {
 
-    private final AuthorizationRepository authorizationRepository;
-
-    @Value("${card-engine.rules.velocity-max-per-minute:5}")
-    private int maxTransactionsPerMinute;
+    private final CardActivity cardActivity;
+    private final RuleLimitSource ruleLimitSource;
 
     @Override
     public RuleResult evaluate(AuthorizationRequest request) {
-        Instant oneMinuteAgo = Instant.now().minus(1, ChronoUnit.MINUTES);
-
-        long recentTransactionCount = authorizationRepository
-            .findByCardIdAndCreatedAtAfter(request.getCardId(), oneMinuteAgo)
-            .size();
+        int maxTransactionsPerMinute = ruleLimitSource.limitsFor(request).getVelocityMaxPerMinute();
+        int recentTransactionCount = cardActivity
+            .countInLastMinute(request.getCardId(), Instant.now());
 
         if (recentTransactionCount >= maxTransactionsPerMinute) {
             return RuleResult.decline(
@@ -44,4 +37,9 @@ public class VelocityRule implements Rule {
     public String getRuleName() {
         return "Velocity";
     }
+
+    @Override
+    public RuleCost getCost() {
+        return RuleCost.MEMORY;
+    }
 }
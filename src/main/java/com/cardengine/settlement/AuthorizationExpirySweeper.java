@@ -0,0 +1,506 @@
+package com.cardengine.settlement;
+
+import com.cardengine.accounts.AccountRepository;
+import com.cardengine.accounts.BaseAccount;
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.BankSettlementService;
+import com.cardengine.common.TransactionCallbacks;
+import com.cardengine.ledger.LedgerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Releases approved authorizations that never cleared.
+ *
+ * An authorization expires once it is older than the hold lifetime of its
+ * merchant category (see {@link HoldLifetimes}). Expired authorizations are
+ * released with {@link SettlementService#releaseAuthorization} semantics
+ * when their account is local, and with
+ * {@link BankSettlementService#releaseAuthorization} semantics (bank hold
+ * released through the outbox) when it is a bank account.
+ *
+ * The sweep is split into shards, each a range of account buckets (see
+ * Authorization.accountBucket). A node sweeps a shard only while holding its
+ * lease in authorization_expiry_shards, so several nodes share the work
+ * without releasing the same authorization twice; a swept shard is left
+ * alone by every node until the next interval. Shards are swept in parallel,
+ * concurrency at a time.
+ *
+ * Within a shard, expired authorizations are found in pages through the
+ * (status, created_at) index, and each page is released in one transaction
+ * like a clearing file chunk: authorizations and accounts are loaded in one
+ * query each, and account updates, reserve deletes and ledger inserts go out
+ * as JDBC batches. If the page fails as a whole (e.g. an optimistic lock
+ * conflict with a concurrent authorization), its authorizations are retried
+ * one at a time. With the bank outbox disabled, a bank release calls the core
+ * inline, so bank authorizations are left out of the page's transaction and
+ * released one at a time after it, each in its own.
+ *
+ * Authorizations written before account_bucket existed have none and are
+ * swept by shard 0. Each node fills in their buckets, a page at a time, on
+ * its first sweep (docs/sql/authorization-account-bucket-backfill.sql does
+ * the same offline).
+ *
+ * Each release uses an idempotency key derived from the authorization ID.
+ * Should a node keep sweeping after losing its lease, the second release of
+ * an authorization is a duplicate ledger key and is not applied.
+ *
+ * All nodes must use the same number of shards.
+ */
+@Component
+@Slf4j
+public class AuthorizationExpirySweeper {
+
+    private static final String EXPIRY_KEY_PREFIX = "authorization-expiry:";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuthorizationRepository authorizationRepository;
+    private final AccountRepository accountRepository;
+    private final ExpiryShardRepository shardRepository;
+    private final SettlementService settlementService;
+    private final BankSettlementService bankSettlementService;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final HoldLifetimes lifetimes;
+    private final int shards;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration interval;
+    private final String node = UUID.randomUUID().toString();
+    private final ExecutorService workers;
+    private final int concurrency;
+
+    private final Counter expiredInternal;
+    private final Counter expiredBank;
+    private final Counter failures;
+    private final Timer duration;
+
+    private volatile boolean shardsCreated;
+    private volatile boolean bucketsBackfilled;
+
+    public AuthorizationExpirySweeper(
+            JdbcTemplate jdbcTemplate,
+            AuthorizationRepository authorizationRepository,
+            AccountRepository accountRepository,
+            ExpiryShardRepository shardRepository,
+            SettlementService settlementService,
+            BankSettlementService bankSettlementService,
+            LedgerService ledgerService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.settlement.expiry.enabled:true}") boolean enabled,
+            @Value("${card-engine.settlement.expiry.default-lifetime:7d}") Duration defaultLifetime,
+            @Value("${card-engine.settlement.expiry.mcc-lifetimes:3351-3999=31d,4411=31d,7011=31d,7512=31d,7513=31d}")
+                String mccLifetimes,
+            @Value("${card-engine.settlement.expiry.shards:16}") int shards,
+            @Value("${card-engine.settlement.expiry.concurrency:4}") int concurrency,
+            @Value("${card-engine.settlement.expiry.batch-size:200}") int batchSize,
+            @Value("${card-engine.settlement.expiry.lease:5m}") Duration lease,
+            @Value("${card-engine.settlement.expiry.interval:PT5M}") Duration interval) {
+
+        if (shards < 1 || shards > Authorization.ACCOUNT_BUCKETS) {
+            throw new IllegalArgumentException(
+                "Expiry shards must be between 1 and " + Authorization.ACCOUNT_BUCKETS + ": " + shards);
+        }
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.authorizationRepository = authorizationRepository;
+        this.accountRepository = accountRepository;
+        this.shardRepository = shardRepository;
+        this.settlementService = settlementService;
+        this.bankSettlementService = bankSettlementService;
+        this.ledgerService = ledgerService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.lifetimes = HoldLifetimes.parse(defaultLifetime, mccLifetimes);
+        this.shards = shards;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.interval = interval;
+        this.workers = Executors.newFixedThreadPool(concurrency,
+            Thread.ofVirtual().name("authorization-expiry-", 0).factory());
+
+        this.expiredInternal = expired(meterRegistry, "internal");
+        this.expiredBank = expired(meterRegistry, "bank");
+        this.failures = Counter.builder("cardengine.authorizations.expiry.failures")
+            .description("Expired authorizations that could not be released")
+            .register(meterRegistry);
+        this.duration = Timer.builder("cardengine.authorizations.expiry.duration")
+            .description("Time taken by an authorization expiry sweep")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${card-engine.settlement.expiry.interval:PT5M}",
+        fixedDelayString = "${card-engine.settlement.expiry.interval:PT5M}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep(Instant.now());
+        }
+    }
+
+    /**
+     * Release the authorizations expired at the given time, in every shard
+     * this node can lease.
+     *
+     * @return number of authorizations released
+     */
+    public synchronized int sweep(Instant now) {
+        createShards();
+        if (!bucketsBackfilled) {
+            try {
+                backfillAccountBuckets();
+                bucketsBackfilled = true;
+            } catch (RuntimeException e) {
+                log.warn("Could not backfill authorization account buckets, retrying next sweep: {}",
+                    e.getMessage());
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            order.add(shard);
+        }
+        // Nodes starting together try the shards in different orders
+        Collections.shuffle(order);
+        Queue<Integer> due = new ConcurrentLinkedQueue<>(order);
+
+        List<Callable<Integer>> tasks = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            tasks.add(() -> {
+                int released = 0;
+                Integer shard;
+                while ((shard = due.poll()) != null) {
+                    released += sweepShard(shard, now);
+                }
+                return released;
+            });
+        }
+
+        long start = System.nanoTime();
+        int released = 0;
+        try {
+            for (Future<Integer> result : workers.invokeAll(tasks)) {
+                released += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Authorization expiry sweep failed", e.getCause());
+        }
+        duration.record(Duration.ofNanos(System.nanoTime() - start));
+
+        if (released > 0) {
+            log.info("Released {} expired authorizations", released);
+        }
+        return released;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Idempotency key of the release that expires an authorization.
+     */
+    static String expiryKey(String authorizationId) {
+        return UUID.nameUUIDFromBytes((EXPIRY_KEY_PREFIX + authorizationId).getBytes(StandardCharsets.UTF_8))
+            .toString();
+    }
+
+    private int sweepShard(int shard, Instant now) {
+        Instant claimedAt = Instant.now();
+        if (shardRepository.claim(shard, node, claimedAt, claimedAt.plus(lease)) == 0) {
+            return 0;
+        }
+
+        int released = 0;
+        boolean swept = false;
+        try {
+            int firstBucket = shard * Authorization.ACCOUNT_BUCKETS / shards;
+            int lastBucket = (shard + 1) * Authorization.ACCOUNT_BUCKETS / shards - 1;
+            Expired after = null;
+
+            while (true) {
+                List<Expired> page = findExpired(firstBucket, lastBucket, shard == 0, now, after);
+                if (page.isEmpty()) {
+                    swept = true;
+                    break;
+                }
+                Instant renewedAt = Instant.now();
+                if (shardRepository.renew(shard, node, renewedAt, renewedAt.plus(lease)) == 0) {
+                    log.warn("Lost lease on authorization expiry shard {}, stopping", shard);
+                    break;
+                }
+
+                released += release(page.stream()
+                    .filter(expired -> lifetimes.isExpired(expired.mcc(), expired.createdAt(), now))
+                    .map(Expired::authorizationId)
+                    .toList(), now);
+
+                after = page.get(page.size() - 1);
+                if (page.size() < batchSize) {
+                    swept = true;
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Authorization expiry sweep of shard {} failed", shard, e);
+        } finally {
+            Instant finishedAt = Instant.now();
+            shardRepository.release(shard, node, finishedAt, swept ? finishedAt.plus(interval) : finishedAt);
+        }
+        return released;
+    }
+
+    /**
+     * Next page of approved authorizations in a bucket range that have expired,
+     * oldest first.
+     */
+    private List<Expired> findExpired(int firstBucket, int lastBucket, boolean withoutBucket,
+                                      Instant now, Expired after) {
+        StringBuilder sql = new StringBuilder(
+            "select authorization_id, merchant_category_code, created_at from authorizations"
+                + " where status = ? and created_at <= ?"
+                + " and (account_bucket between ? and ?" + (withoutBucket ? " or account_bucket is null)" : ")"));
+        List<Object> args = new ArrayList<>();
+        args.add(AuthorizationStatus.APPROVED.name());
+        args.add(Timestamp.from(now.minus(lifetimes.shortest())));
+        args.add(firstBucket);
+        args.add(lastBucket);
+
+        // Expired for its merchant category; HoldLifetimes has the final say on overlapping ranges
+        StringBuilder categories = new StringBuilder();
+        StringBuilder listed = new StringBuilder();
+        for (HoldLifetimes.Range range : lifetimes.getRanges()) {
+            categories.append("(merchant_category_code between ? and ? and created_at <= ?) or ");
+            args.add(range.low());
+            args.add(range.high());
+            args.add(Timestamp.from(now.minus(range.lifetime())));
+            listed.append(listed.isEmpty() ? "" : " or ").append("merchant_category_code between ? and ?");
+        }
+        categories.append("(created_at <= ?");
+        args.add(Timestamp.from(now.minus(lifetimes.getDefaultLifetime())));
+        if (!listed.isEmpty()) {
+            categories.append(" and (merchant_category_code is null or not (").append(listed).append("))");
+            for (HoldLifetimes.Range range : lifetimes.getRanges()) {
+                args.add(range.low());
+                args.add(range.high());
+            }
+        }
+        categories.append(")");
+        sql.append(" and (").append(categories).append(")");
+
+        if (after != null) {
+            sql.append(" and (created_at > ? or (created_at = ? and authorization_id > ?))");
+            args.add(Timestamp.from(after.createdAt()));
+            args.add(Timestamp.from(after.createdAt()));
+            args.add(after.authorizationId());
+        }
+        sql.append(" order by created_at, authorization_id limit ?");
+        args.add(batchSize);
+
+        return jdbcTemplate.query(sql.toString(), (rs, row) -> new Expired(
+            rs.getString("authorization_id"),
+            rs.getString("merchant_category_code"),
+            rs.getTimestamp("created_at").toInstant()), args.toArray());
+    }
+
+    private int release(List<String> authorizationIds, Instant now) {
+        if (authorizationIds.isEmpty()) {
+            return 0;
+        }
+        List<String> inline = new ArrayList<>();
+        int released;
+        try {
+            released = transactionTemplate.execute(status -> releaseBatch(authorizationIds, now, inline));
+        } catch (RuntimeException e) {
+            log.warn("Releasing {} expired authorizations failed, retrying individually: {}",
+                authorizationIds.size(), e.getMessage());
+            released = 0;
+            for (String authorizationId : authorizationIds) {
+                released += releaseIndividually(authorizationId, now);
+            }
+            return released;
+        }
+        // Bank releases that call the core inline: one transaction each, not the page's
+        for (String authorizationId : inline) {
+            released += releaseIndividually(authorizationId, now);
+        }
+        return released;
+    }
+
+    /**
+     * Release a page in the current transaction; bank authorizations whose
+     * release would call the core inline are added to {@code inline} instead.
+     */
+    private int releaseBatch(List<String> authorizationIds, Instant now, List<String> inline) {
+        List<Authorization> authorizations = authorizationRepository.findByAuthorizationIdIn(authorizationIds);
+        Set<String> accountIds = new HashSet<>();
+        for (Authorization authorization : authorizations) {
+            accountIds.add(authorization.getAccountId());
+        }
+        Map<String, BaseAccount> accounts = accountRepository.findByAccountIdIn(accountIds).stream()
+            .collect(Collectors.toMap(BaseAccount::getAccountId, Function.identity()));
+
+        int internal = 0;
+        int bank = 0;
+        for (Authorization authorization : authorizations) {
+            // Cleared or released since the page was read
+            if (!isExpired(authorization, now)) {
+                continue;
+            }
+            String idempotencyKey = expiryKey(authorization.getAuthorizationId());
+            if (ledgerService.findTransactionId(idempotencyKey).isPresent()) {
+                continue;
+            }
+
+            BaseAccount account = accounts.get(authorization.getAccountId());
+            if (account != null) {
+                settlementService.applyRelease(authorization, account, idempotencyKey);
+                internal++;
+            } else if (!bankSettlementService.queuesBankCalls()) {
+                inline.add(authorization.getAuthorizationId());
+            } else {
+                bankSettlementService.applyRelease(authorization, idempotencyKey);
+                bank++;
+            }
+        }
+
+        int internalReleased = internal;
+        int bankReleased = bank;
+        TransactionCallbacks.afterCommit(() -> {
+            expiredInternal.increment(internalReleased);
+            expiredBank.increment(bankReleased);
+        });
+        return internal + bank;
+    }
+
+    private int releaseIndividually(String authorizationId, Instant now) {
+        try {
+            Authorization authorization = authorizationRepository.findByAuthorizationId(authorizationId)
+                .orElse(null);
+            String idempotencyKey = expiryKey(authorizationId);
+            if (authorization == null || !isExpired(authorization, now)
+                    || ledgerService.findTransactionId(idempotencyKey).isPresent()) {
+                return 0;
+            }
+
+            if (accountRepository.existsById(authorization.getAccountId())) {
+                settlementService.releaseAuthorization(authorizationId, idempotencyKey);
+                expiredInternal.increment();
+            } else {
+                bankSettlementService.releaseAuthorization(authorizationId, idempotencyKey);
+                expiredBank.increment();
+            }
+            return 1;
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Could not release expired authorization {}: {}", authorizationId, e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean isExpired(Authorization authorization, Instant now) {
+        return authorization.getStatus() == AuthorizationStatus.APPROVED
+            && lifetimes.isExpired(authorization.getMerchantCategoryCode(), authorization.getCreatedAt(), now);
+    }
+
+    /**
+     * Fill in account_bucket on authorizations written before it existed, a
+     * page at a time, so each is swept by the shard of its account instead
+     * of shard 0. Nodes doing this at once write the same values.
+     *
+     * @return number of authorizations filled in
+     */
+    int backfillAccountBuckets() {
+        int filled = 0;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query("select authorization_id, account_id from authorizations"
+                    + " where account_bucket is null and account_id is not null limit ?",
+                (rs, row) -> new Object[]{Authorization.accountBucket(rs.getString(2)), rs.getString(1)},
+                batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate("update authorizations set account_bucket = ? where authorization_id = ?", page);
+            filled += page.size();
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+        if (filled > 0) {
+            log.info("Backfilled account buckets of {} authorizations", filled);
+        }
+        return filled;
+    }
+
+    /**
+     * Insert the lease rows of any shards that do not have one yet.
+     */
+    private void createShards() {
+        if (shardsCreated) {
+            return;
+        }
+        Set<Integer> existing = new HashSet<>();
+        shardRepository.findAll().forEach(shard -> existing.add(shard.getShard()));
+        for (int shard = 0; shard < shards; shard++) {
+            if (!existing.contains(shard)) {
+                try {
+                    // Free and due; a plain insert so a row another node just created is left alone
+                    Timestamp epoch = Timestamp.from(Instant.EPOCH);
+                    jdbcTemplate.update("insert into authorization_expiry_shards (shard, lease_until, next_sweep_at)"
+                        + " values (?, ?, ?)", shard, epoch, epoch);
+                } catch (DataIntegrityViolationException e) {
+                    // Another node created it first
+                }
+            }
+        }
+        shardsCreated = true;
+    }
+
+    private static Counter expired(MeterRegistry meterRegistry, String account) {
+        return Counter.builder("cardengine.authorizations.expired")
+            .description("Expired authorizations released")
+            .tag("account", account)
+            .register(meterRegistry);
+    }
+
+    private record Expired(String authorizationId, String mcc, Instant createdAt) {
+    }
+}
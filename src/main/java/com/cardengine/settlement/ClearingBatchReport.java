@@ -0,0 +1,78 @@
+package com.cardengine.settlement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-record result report for a clearing file.
+ *
+ * Results are written as CSV lines as soon as they are known (in completion
+ * order, keyed by line number), so the report never holds more than one
+ * line in memory. Only the counts per status are kept.
+ */
+public class ClearingBatchReport {
+
+    static final String HEADER = "line,authorization_id,idempotency_key,status,message";
+
+    private final BufferedWriter out;
+    private final Map<ClearingRecordStatus, Long> counts = new EnumMap<>(ClearingRecordStatus.class);
+
+    ClearingBatchReport(Writer out) {
+        this.out = new BufferedWriter(out);
+        for (ClearingRecordStatus status : ClearingRecordStatus.values()) {
+            counts.put(status, 0L);
+        }
+        writeLine(HEADER);
+    }
+
+    synchronized void add(long lineNumber, String authorizationId, String idempotencyKey,
+                          ClearingRecordStatus status, String message) {
+        counts.merge(status, 1L, Long::sum);
+        writeLine(lineNumber + "," + csv(authorizationId) + "," + csv(idempotencyKey) + ","
+            + status + "," + csv(message));
+    }
+
+    synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write clearing report", e);
+        }
+    }
+
+    public synchronized long getCount(ClearingRecordStatus status) {
+        return counts.get(status);
+    }
+
+    public synchronized long getTotal() {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ClearingBatchReport" + counts;
+    }
+
+    private void writeLine(String line) {
+        try {
+            out.write(line);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write clearing report", e);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,394 @@
+package com.cardengine.settlement;
+
+import com.cardengine.accounts.AccountLaneExecutor;
+import com.cardengine.accounts.AccountRepository;
+import com.cardengine.accounts.BaseAccount;
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming ingestion of processor clearing files.
+ *
+ * File format (CSV, optional header):
+ * authorization_id,amount,currency,idempotency_key
+ *
+ * The file is read line by line. Records are grouped into chunks, the owning
+ * account of each chunk's authorizations is looked up in one query, and each
+ * record is handed to the worker that owns its account (hash partitioning),
+ * so one account is only ever cleared by one worker. Workers take records off
+ * bounded queues (the reader blocks when a worker falls behind) and clear a
+ * chunk at a time in a single transaction with
+ * {@link SettlementService#applyClearing} semantics; ledger inserts and
+ * authorization/account updates go out as JDBC batches.
+ *
+ * If a chunk's transaction fails as a whole (e.g. an optimistic lock conflict
+ * with a concurrent authorization), its records are retried one at a time
+ * through {@link SettlementService#clearTransaction}. With account lanes
+ * enabled, each account's records in a chunk are cleared on that account's
+ * lane (see {@link AccountLaneExecutor}), so file clearing is serialized with
+ * authorizations on the same account instead of racing them.
+ *
+ * The reader and the end-of-file markers only wait on a queue for a bounded
+ * time before checking the workers: if one has died, every worker is
+ * cancelled and processing fails instead of blocking on a queue nobody
+ * drains. A chunk that fails unexpectedly is reported as FAILED record by
+ * record, and the worker carries on.
+ *
+ * Results are streamed to a {@link ClearingBatchReport}. Memory use is bounded
+ * by the queue capacity and chunk size, independent of file size.
+ */
+@Service
+@Slf4j
+public class ClearingFileProcessor {
+
+    static final String HEADER_PREFIX = "authorization_id";
+    private static final int FIELD_COUNT = 4;
+    private static final ClearingFileRecord END = new ClearingFileRecord(-1, null, null);
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final AuthorizationRepository authorizationRepository;
+    private final AccountRepository accountRepository;
+    private final SettlementService settlementService;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountLaneExecutor accountLanes;
+    private final int workers;
+    private final int queueCapacity;
+    private final int chunkSize;
+
+    public ClearingFileProcessor(
+            AuthorizationRepository authorizationRepository,
+            AccountRepository accountRepository,
+            SettlementService settlementService,
+            LedgerService ledgerService,
+            TransactionTemplate transactionTemplate,
+            AccountLaneExecutor accountLanes,
+            @Value("${card-engine.settlement.clearing-files.workers:4}") int workers,
+            @Value("${card-engine.settlement.clearing-files.queue-capacity:1000}") int queueCapacity,
+            @Value("${card-engine.settlement.clearing-files.chunk-size:200}") int chunkSize) {
+
+        this.authorizationRepository = authorizationRepository;
+        this.accountRepository = accountRepository;
+        this.settlementService = settlementService;
+        this.ledgerService = ledgerService;
+        this.transactionTemplate = transactionTemplate;
+        this.accountLanes = accountLanes;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Clear every record in a clearing file, writing one report line per record.
+     *
+     * @return the report, with counts per status
+     */
+    public ClearingBatchReport process(Reader file, Writer reportOut) throws IOException {
+        ClearingBatchReport report = new ClearingBatchReport(reportOut);
+
+        List<BlockingQueue<ClearingFileRecord>> queues = new ArrayList<>(workers);
+        List<Future<?>> running = new ArrayList<>(workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers,
+            Thread.ofPlatform().name("clearing-worker-", 0).factory());
+
+        try {
+            for (int i = 0; i < workers; i++) {
+                BlockingQueue<ClearingFileRecord> queue = new ArrayBlockingQueue<>(queueCapacity);
+                queues.add(queue);
+                running.add(executor.submit(() -> {
+                    drain(queue, report);
+                    return null;
+                }));
+            }
+
+            read(file, queues, running, report);
+            for (BlockingQueue<ClearingFileRecord> queue : queues) {
+                offer(queue, END, running);
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing clearing file", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Clearing worker failed", e.getCause());
+        } finally {
+            // Cancels the workers if reading or any of them failed; a no-op otherwise
+            running.forEach(worker -> worker.cancel(true));
+            executor.shutdownNow();
+            report.flush();
+        }
+
+        log.info("Processed clearing file: {} records, {} cleared, {} duplicates, {} failed, {} invalid",
+            report.getTotal(),
+            report.getCount(ClearingRecordStatus.CLEARED),
+            report.getCount(ClearingRecordStatus.DUPLICATE),
+            report.getCount(ClearingRecordStatus.FAILED),
+            report.getCount(ClearingRecordStatus.INVALID));
+
+        return report;
+    }
+
+    private void read(Reader file, List<BlockingQueue<ClearingFileRecord>> queues, List<Future<?>> running,
+                      ClearingBatchReport report) throws IOException, InterruptedException, ExecutionException {
+        BufferedReader reader = new BufferedReader(file);
+        List<ClearingFileRecord> pending = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && line.startsWith(HEADER_PREFIX))) {
+                continue;
+            }
+
+            ClearingFileRecord record = parse(lineNumber, line, report);
+            if (record != null) {
+                pending.add(record);
+                if (pending.size() >= chunkSize) {
+                    partition(pending, queues, running, report);
+                    pending.clear();
+                }
+            }
+        }
+        partition(pending, queues, running, report);
+    }
+
+    private ClearingFileRecord parse(long lineNumber, String line, ClearingBatchReport report) {
+        String[] fields = line.split(",", -1);
+        String authorizationId = fields[0].trim();
+        String idempotencyKey = fields.length == FIELD_COUNT ? fields[3].trim() : null;
+
+        try {
+            if (fields.length != FIELD_COUNT) {
+                throw new IllegalArgumentException(
+                    "Expected authorization_id,amount,currency,idempotency_key");
+            }
+            if (authorizationId.isEmpty()) {
+                throw new IllegalArgumentException("Authorization ID is required");
+            }
+            IdempotencyKey.validate(idempotencyKey);
+
+            ClearingRequest request = ClearingRequest.builder()
+                .authorizationId(authorizationId)
+                .clearingAmount(Money.of(new BigDecimal(fields[1].trim()), Currency.valueOf(fields[2].trim())))
+                .idempotencyKey(idempotencyKey)
+                .build();
+            return new ClearingFileRecord(lineNumber, request, null);
+
+        } catch (IllegalArgumentException e) {
+            report.add(lineNumber, authorizationId, idempotencyKey, ClearingRecordStatus.INVALID, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Look up the owning account of each record and queue it for that account's worker.
+     */
+    private void partition(List<ClearingFileRecord> records, List<BlockingQueue<ClearingFileRecord>> queues,
+                           List<Future<?>> running, ClearingBatchReport report)
+            throws InterruptedException, ExecutionException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Set<String> authorizationIds = records.stream()
+            .map(record -> record.getRequest().getAuthorizationId())
+            .collect(Collectors.toSet());
+        Map<String, String> accountIds = authorizationRepository.findAccountIds(authorizationIds).stream()
+            .collect(Collectors.toMap(
+                AuthorizationRepository.AuthorizationAccount::getAuthorizationId,
+                AuthorizationRepository.AuthorizationAccount::getAccountId));
+
+        for (ClearingFileRecord record : records) {
+            String accountId = accountIds.get(record.getRequest().getAuthorizationId());
+            if (accountId == null) {
+                report(report, record, ClearingRecordStatus.FAILED,
+                    "Authorization not found: " + record.getRequest().getAuthorizationId());
+                continue;
+            }
+            offer(queues.get(Math.floorMod(accountId.hashCode(), queues.size())), record.withAccountId(accountId),
+                running);
+        }
+    }
+
+    /**
+     * Queue a record, checking the workers whenever the queue stays full for a while.
+     *
+     * @throws ExecutionException if a worker failed
+     * @throws IllegalStateException if a worker stopped before the end of the file
+     */
+    private static void offer(BlockingQueue<ClearingFileRecord> queue, ClearingFileRecord record,
+                              List<Future<?>> running) throws InterruptedException, ExecutionException {
+        while (!queue.offer(record, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Future<?> worker : running) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("Clearing worker stopped before the end of the file");
+                }
+            }
+        }
+    }
+
+    private void drain(BlockingQueue<ClearingFileRecord> queue, ClearingBatchReport report)
+            throws InterruptedException {
+        List<ClearingFileRecord> chunk = new ArrayList<>(chunkSize);
+        boolean finished = false;
+
+        while (!finished) {
+            chunk.add(queue.take());
+            queue.drainTo(chunk, chunkSize - 1);
+            finished = chunk.removeIf(record -> record == END);
+
+            if (!chunk.isEmpty()) {
+                for (Outcome outcome : clearOnLanes(chunk)) {
+                    report(report, outcome.record, outcome.status, outcome.message);
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Clear a chunk, one lane call per account when account lanes are enabled.
+     * Never throws for a record: unexpected failures are returned as FAILED outcomes.
+     */
+    private List<Outcome> clearOnLanes(List<ClearingFileRecord> chunk) {
+        if (!accountLanes.isEnabled()) {
+            return clearOrFail(chunk);
+        }
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        Map<String, List<ClearingFileRecord>> byAccount = chunk.stream()
+            .collect(Collectors.groupingBy(ClearingFileRecord::getAccountId));
+        byAccount.forEach((accountId, records) -> {
+            try {
+                outcomes.addAll(accountLanes.execute(accountId, () -> clear(records)));
+            } catch (RuntimeException e) {
+                outcomes.addAll(failed(records, e));
+            }
+        });
+        return outcomes;
+    }
+
+    private List<Outcome> clearOrFail(List<ClearingFileRecord> chunk) {
+        try {
+            return clear(chunk);
+        } catch (RuntimeException e) {
+            return failed(chunk, e);
+        }
+    }
+
+    private static List<Outcome> failed(List<ClearingFileRecord> records, RuntimeException e) {
+        log.error("Clearing {} records failed", records.size(), e);
+        return records.stream()
+            .map(record -> new Outcome(record, ClearingRecordStatus.FAILED, e.getMessage()))
+            .toList();
+    }
+
+    private List<Outcome> clear(List<ClearingFileRecord> chunk) {
+        try {
+            return transactionTemplate.execute(status -> clearChunk(chunk));
+        } catch (RuntimeException e) {
+            log.warn("Clearing chunk of {} records failed, retrying individually: {}",
+                chunk.size(), e.getMessage());
+            return chunk.stream().map(this::clearIndividually).toList();
+        }
+    }
+
+    private List<Outcome> clearChunk(List<ClearingFileRecord> chunk) {
+        Map<String, Authorization> authorizations = authorizationRepository
+            .findByAuthorizationIdIn(chunk.stream().map(record -> record.getRequest().getAuthorizationId()).toList())
+            .stream()
+            .collect(Collectors.toMap(Authorization::getAuthorizationId, Function.identity()));
+        Map<String, BaseAccount> accounts = accountRepository
+            .findByAccountIdIn(chunk.stream().map(ClearingFileRecord::getAccountId).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(BaseAccount::getAccountId, Function.identity()));
+
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        for (ClearingFileRecord record : chunk) {
+            outcomes.add(clearInChunk(record, authorizations, accounts));
+        }
+        return outcomes;
+    }
+
+    private Outcome clearInChunk(ClearingFileRecord record, Map<String, Authorization> authorizations,
+                                 Map<String, BaseAccount> accounts) {
+        ClearingRequest request = record.getRequest();
+
+        if (ledgerService.findTransactionId(request.getIdempotencyKey()).isPresent()) {
+            return new Outcome(record, ClearingRecordStatus.DUPLICATE, null);
+        }
+
+        Authorization authorization = authorizations.get(request.getAuthorizationId());
+        if (authorization == null) {
+            return new Outcome(record, ClearingRecordStatus.FAILED,
+                "Authorization not found: " + request.getAuthorizationId());
+        }
+        BaseAccount account = accounts.get(authorization.getAccountId());
+        if (account == null) {
+            return new Outcome(record, ClearingRecordStatus.FAILED,
+                "Account not found: " + authorization.getAccountId());
+        }
+
+        try {
+            settlementService.applyClearing(request, authorization, account);
+            return new Outcome(record, ClearingRecordStatus.CLEARED, null);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return new Outcome(record, ClearingRecordStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private Outcome clearIndividually(ClearingFileRecord record) {
+        try {
+            if (ledgerService.findTransactionId(record.getRequest().getIdempotencyKey()).isPresent()) {
+                return new Outcome(record, ClearingRecordStatus.DUPLICATE, null);
+            }
+            settlementService.clearTransaction(record.getRequest());
+            return new Outcome(record, ClearingRecordStatus.CLEARED, null);
+        } catch (RuntimeException e) {
+            return new Outcome(record, ClearingRecordStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private static void report(ClearingBatchReport report, ClearingFileRecord record,
+                               ClearingRecordStatus status, String message) {
+        report.add(record.getLineNumber(), record.getRequest().getAuthorizationId(),
+            record.getRequest().getIdempotencyKey(), status, message);
+    }
+
+    @lombok.Value
+    private static class Outcome {
+        ClearingFileRecord record;
+        ClearingRecordStatus status;
+        String message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cardengine.settlement;
+
+import lombok.Value;
+import lombok.With;
+
+/**
+ * A parsed clearing file record, tagged with its line number for the report
+ * and with the owning account once it has been partitioned.
+ */
+@Value
+class ClearingFileRecord {
+
+    long lineNumber;
+
+    ClearingRequest request;
+
+    @With
+    String accountId;
+}
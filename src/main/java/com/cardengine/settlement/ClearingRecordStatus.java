@@ -0,0 +1,11 @@
+package com.cardengine.settlement;
+
+/**
+ * Outcome of one record in a clearing file.
+ */
+public enum ClearingRecordStatus {
+    CLEARED,    // Funds committed and ledger entry written
+    DUPLICATE,  // Idempotency key already processed; nothing changed
+    FAILED,     // Rejected by clearing validation (state, amount, unknown authorization)
+    INVALID     // Record could not be parsed
+}
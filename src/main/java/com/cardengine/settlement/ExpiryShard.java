@@ -0,0 +1,40 @@
+package com.cardengine.settlement;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Lease on one shard of the authorization expiry sweep.
+ *
+ * A shard is a range of account buckets (see Authorization.accountBucket).
+ * A node sweeps a shard only while it holds its lease, so no two nodes
+ * release the same authorizations at once. Leases are taken and renewed
+ * with conditional updates (see {@link ExpiryShardRepository}); a node that
+ * dies mid-sweep loses the shard when the lease runs out.
+ */
+@Entity
+@Table(name = "authorization_expiry_shards")
+@Data
+@NoArgsConstructor
+public class ExpiryShard {
+
+    @Id
+    private Integer shard;
+
+    /**
+     * Node holding or last holding the lease.
+     */
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private Instant leaseUntil;
+
+    /**
+     * Not swept again before this, so nodes do not repeat each other's sweeps.
+     */
+    @Column(name = "next_sweep_at", nullable = false)
+    private Instant nextSweepAt;
+}
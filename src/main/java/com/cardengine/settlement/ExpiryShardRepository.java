@@ -0,0 +1,52 @@
+package com.cardengine.settlement;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Leases on the shards of the authorization expiry sweep.
+ *
+ * Each method is one conditional update and returns the rows changed: 1 if
+ * the lease was taken, kept or given back, 0 if another node has it.
+ */
+@Repository
+public interface ExpiryShardRepository extends JpaRepository<ExpiryShard, Integer> {
+
+    /**
+     * Take a free shard that is due for a sweep.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update ExpiryShard s set s.owner = :owner, s.leaseUntil = :leaseUntil
+        where s.shard = :shard and s.leaseUntil < :now and s.nextSweepAt <= :now
+        """)
+    int claim(int shard, String owner, Instant now, Instant leaseUntil);
+
+    /**
+     * Extend a lease still held by the owner.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update ExpiryShard s set s.leaseUntil = :leaseUntil
+        where s.shard = :shard and s.owner = :owner and s.leaseUntil >= :now
+        """)
+    int renew(int shard, String owner, Instant now, Instant leaseUntil);
+
+    /**
+     * Give a lease back once the shard is swept.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update ExpiryShard s set s.leaseUntil = :now, s.nextSweepAt = :nextSweepAt
+        where s.shard = :shard and s.owner = :owner
+        """)
+    int release(int shard, String owner, Instant now, Instant nextSweepAt);
+}
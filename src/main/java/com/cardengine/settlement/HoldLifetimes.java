@@ -0,0 +1,97 @@
+package com.cardengine.settlement;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How long an approved authorization may hold funds before it expires, by
+ * merchant category code.
+ *
+ * Configured as comma-separated MCC ranges with a lifetime, e.g.
+ * "3351-3999=31d,7011=31d": hotels and car rentals keep their holds for a
+ * month (the final amount is only known at check-out), everything else
+ * gets the default lifetime. The first matching range wins.
+ */
+class HoldLifetimes {
+
+    record Range(String low, String high, Duration lifetime) {
+
+        boolean contains(String mcc) {
+            return mcc != null && mcc.compareTo(low) >= 0 && mcc.compareTo(high) <= 0;
+        }
+    }
+
+    private final Duration defaultLifetime;
+    private final List<Range> ranges;
+
+    HoldLifetimes(Duration defaultLifetime, List<Range> ranges) {
+        this.defaultLifetime = defaultLifetime;
+        this.ranges = List.copyOf(ranges);
+    }
+
+    /**
+     * Parse "LOW[-HIGH]=LIFETIME,..." (lifetimes as "31d", "PT12H", ...).
+     */
+    static HoldLifetimes parse(Duration defaultLifetime, String spec) {
+        List<Range> ranges = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected MCC[-MCC]=lifetime: " + entry);
+            }
+            String[] codes = parts[0].trim().split("-", 2);
+            String low = mcc(codes[0]);
+            String high = codes.length == 2 ? mcc(codes[1]) : low;
+            if (low.compareTo(high) > 0) {
+                throw new IllegalArgumentException("Empty MCC range: " + entry);
+            }
+            ranges.add(new Range(low, high, DurationStyle.detectAndParse(parts[1].trim())));
+        }
+        return new HoldLifetimes(defaultLifetime, ranges);
+    }
+
+    Duration lifetimeFor(String mcc) {
+        for (Range range : ranges) {
+            if (range.contains(mcc)) {
+                return range.lifetime();
+            }
+        }
+        return defaultLifetime;
+    }
+
+    boolean isExpired(String mcc, Instant createdAt, Instant now) {
+        return !createdAt.plus(lifetimeFor(mcc)).isAfter(now);
+    }
+
+    Duration getDefaultLifetime() {
+        return defaultLifetime;
+    }
+
+    List<Range> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * The shortest lifetime: nothing created after now minus this has expired.
+     */
+    Duration shortest() {
+        return ranges.stream()
+            .map(Range::lifetime)
+            .reduce(defaultLifetime, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+    }
+
+    private static String mcc(String code) {
+        String mcc = code.trim();
+        if (!mcc.matches("\\d{4}")) {
+            throw new IllegalArgumentException("MCC must be 4 digits: " + code);
+        }
+        return mcc;
+    }
+}
@@ -1,6 +1,6 @@
 package com.cardengine.settlement;
 
-import com.cardengine.accounts.Account;
+import com.cardengine.accounts.AccountLaneExecutor;
 import com.cardengine.accounts.AccountRepository;
 import com.cardengine.accounts.BaseAccount;
 import com.cardengine.authorization.Authorization;
@@ -9,14 +9,13 @@ import com.cardengine.authorization.AuthorizationStatus;
 import com.cardengine.common.IdempotencyKey;
 import com.cardengine.common.Money;
 import com.cardengine.common.exception.AccountNotFoundException;
-import com.cardengine.ledger.LedgerEntry;
-import com.cardengine.ledger.LedgerRepository;
 import com.cardengine.ledger.LedgerService;
 import com.cardengine.ledger.TransactionType;
+import com.cardengine.rules.CardActivityStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -28,6 +27,10 @@ import java.util.Optional;
  * 2. Commit funds from account (for clearing) or credit funds back (for reversal)
  * 3. Record in ledger
  * 4. Update authorization status
+ *
+ * Each operation runs in one transaction on the account's lane
+ * (see {@link AccountLaneExecutor}) when this node already knows the
+ * authorization's account, and inline otherwise.
  */
 @Service
 @RequiredArgsConstructor
@@ -37,14 +40,39 @@ public class SettlementService {
     private final AuthorizationRepository authorizationRepository;
     private final AccountRepository accountRepository;
     private final LedgerService ledgerService;
-    private final LedgerRepository ledgerRepository;
+    private final CardActivityStore cardActivityStore;
+    private final AccountLaneExecutor accountLanes;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
     public void clearTransaction(ClearingRequest request) {
         IdempotencyKey.validate(request.getIdempotencyKey());
+        inAccountLane(request.getAuthorizationId(), () -> processClearing(request));
+    }
+
+    public void releaseAuthorization(String authorizationId, String idempotencyKey) {
+        IdempotencyKey.validate(idempotencyKey);
+        inAccountLane(authorizationId, () -> processRelease(authorizationId, idempotencyKey));
+    }
+
+    public void reverseTransaction(ReversalRequest request) {
+        IdempotencyKey.validate(request.getIdempotencyKey());
+        inAccountLane(request.getAuthorizationId(), () -> processReversal(request));
+    }
+
+    private void inAccountLane(String authorizationId, Runnable operation) {
+        accountLanes.execute(
+            accountLanes.accountOfAuthorization(authorizationId),
+            () -> transactionTemplate.execute(status -> {
+                operation.run();
+                return null;
+            })
+        );
+    }
+
+    private void processClearing(ClearingRequest request) {
 
         // Check for duplicate
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(request.getIdempotencyKey());
+        Optional<String> existing = ledgerService.findTransactionId(request.getIdempotencyKey());
         if (existing.isPresent()) {
             log.info("Duplicate clearing request for authorization {}", request.getAuthorizationId());
             return;
@@ -55,12 +83,35 @@ public class SettlementService {
             request.getClearingAmount().getAmount(),
             request.getClearingAmount().getCurrency());
 
-        // Get authorization
+        // Get authorization and account
         Authorization authorization = authorizationRepository
             .findByAuthorizationId(request.getAuthorizationId())
             .orElseThrow(() -> new IllegalArgumentException(
                 "Authorization not found: " + request.getAuthorizationId()));
+        accountLanes.rememberAuthorization(authorization.getAuthorizationId(), authorization.getAccountId());
 
+        BaseAccount account = accountRepository.findByAccountId(authorization.getAccountId())
+            .orElseThrow(() -> new AccountNotFoundException(authorization.getAccountId()));
+
+        applyClearing(request, authorization, account);
+        accountRepository.save(account);
+        authorizationRepository.save(authorization);
+
+        log.info("Cleared authorization {} for {} {}",
+            request.getAuthorizationId(),
+            request.getClearingAmount().getAmount(),
+            request.getClearingAmount().getCurrency());
+    }
+
+    /**
+     * Validate a clearing and apply it to an already loaded authorization and
+     * account: commit the reserved funds, record the ledger entry and mark the
+     * authorization cleared. Nothing is changed if validation fails.
+     *
+     * Shared by single clearing requests and clearing files
+     * (see {@link ClearingFileProcessor}); the caller owns the transaction.
+     */
+    void applyClearing(ClearingRequest request, Authorization authorization, BaseAccount account) {
         // Validate authorization state
         if (authorization.getStatus() != AuthorizationStatus.APPROVED) {
             throw new IllegalStateException(
@@ -73,13 +124,8 @@ public class SettlementService {
                 "Clearing amount cannot exceed authorization amount");
         }
 
-        // Get account
-        BaseAccount account = accountRepository.findByAccountId(authorization.getAccountId())
-            .orElseThrow(() -> new AccountNotFoundException(authorization.getAccountId()));
-
         // Commit funds (moves money out of account)
         account.commit(request.getClearingAmount(), request.getAuthorizationId());
-        accountRepository.save(account);
 
         // Record in ledger
         ledgerService.recordClearing(
@@ -92,20 +138,11 @@ public class SettlementService {
 
         // Update authorization
         authorization.clear(request.getClearingAmount());
-        authorizationRepository.save(authorization);
-
-        log.info("Cleared authorization {} for {} {}",
-            request.getAuthorizationId(),
-            request.getClearingAmount().getAmount(),
-            request.getClearingAmount().getCurrency());
     }
 
-    @Transactional
-    public void releaseAuthorization(String authorizationId, String idempotencyKey) {
-        IdempotencyKey.validate(idempotencyKey);
-
+    private void processRelease(String authorizationId, String idempotencyKey) {
         // Check for duplicate
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(idempotencyKey);
+        Optional<String> existing = ledgerService.findTransactionId(idempotencyKey);
         if (existing.isPresent()) {
             log.info("Duplicate release request for authorization {}", authorizationId);
             return;
@@ -113,47 +150,58 @@ public class SettlementService {
 
         log.info("Releasing authorization {}", authorizationId);
 
-        // Get authorization
+        // Get authorization and account
         Authorization authorization = authorizationRepository
             .findByAuthorizationId(authorizationId)
             .orElseThrow(() -> new IllegalArgumentException(
                 "Authorization not found: " + authorizationId));
+        accountLanes.rememberAuthorization(authorization.getAuthorizationId(), authorization.getAccountId());
+
+        BaseAccount account = accountRepository.findByAccountId(authorization.getAccountId())
+            .orElseThrow(() -> new AccountNotFoundException(authorization.getAccountId()));
+
+        applyRelease(authorization, account, idempotencyKey);
+        accountRepository.save(account);
+        authorizationRepository.save(authorization);
+
+        log.info("Released authorization {}", authorizationId);
+    }
 
+    /**
+     * Validate a release and apply it to an already loaded authorization and
+     * account: release the reserved funds, record the ledger entry and mark
+     * the authorization released. Nothing is changed if validation fails.
+     *
+     * Shared by single release requests and the expiry sweep
+     * (see {@link AuthorizationExpirySweeper}); the caller owns the transaction.
+     */
+    void applyRelease(Authorization authorization, BaseAccount account, String idempotencyKey) {
         // Validate authorization state
         if (authorization.getStatus() != AuthorizationStatus.APPROVED) {
             throw new IllegalStateException(
                 "Cannot release authorization in state: " + authorization.getStatus());
         }
 
-        // Get account and release funds
-        BaseAccount account = accountRepository.findByAccountId(authorization.getAccountId())
-            .orElseThrow(() -> new AccountNotFoundException(authorization.getAccountId()));
-
-        account.release(authorization.getAmount(), authorizationId);
-        accountRepository.save(account);
+        // Release funds
+        account.release(authorization.getAmount(), authorization.getAuthorizationId());
 
         // Record in ledger
         ledgerService.recordAuthRelease(
             authorization.getAccountId(),
             authorization.getCardId(),
             authorization.getAmount(),
-            authorizationId,
+            authorization.getAuthorizationId(),
             idempotencyKey
         );
 
         // Update authorization
         authorization.release();
-        authorizationRepository.save(authorization);
-
-        log.info("Released authorization {}", authorizationId);
+        cardActivityStore.recordRelease(authorization);
     }
 
-    @Transactional
-    public void reverseTransaction(ReversalRequest request) {
-        IdempotencyKey.validate(request.getIdempotencyKey());
-
+    private void processReversal(ReversalRequest request) {
         // Check for duplicate
-        Optional<LedgerEntry> existing = ledgerRepository.findByIdempotencyKey(request.getIdempotencyKey());
+        Optional<String> existing = ledgerService.findTransactionId(request.getIdempotencyKey());
         if (existing.isPresent()) {
             log.info("Duplicate reversal request for authorization {}", request.getAuthorizationId());
             return;
@@ -169,6 +217,7 @@ public class SettlementService {
             .findByAuthorizationId(request.getAuthorizationId())
             .orElseThrow(() -> new IllegalArgumentException(
                 "Authorization not found: " + request.getAuthorizationId()));
+        accountLanes.rememberAuthorization(authorization.getAuthorizationId(), authorization.getAccountId());
 
         // Validate authorization state
         if (authorization.getStatus() != AuthorizationStatus.CLEARED) {
@@ -201,6 +250,7 @@ public class SettlementService {
         // Update authorization
         authorization.reverse();
         authorizationRepository.save(authorization);
+        cardActivityStore.recordReversal(authorization);
 
         log.info("Reversed authorization {} for {} {}",
             request.getAuthorizationId(),
@@ -0,0 +1,240 @@
+package com.cardengine.storage;
+
+import com.cardengine.common.idempotency.BloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compressed columnar archive of the rows of one table partition.
+ *
+ * Layout:
+ * <pre>
+ * magic "CEA1", row count, column count,
+ * per column: name, block offset, block length
+ * per column: gzip block of the column's values in row order
+ * </pre>
+ * Each value is its UTF-8 length (-1 for null) followed by the bytes.
+ *
+ * Storing a column's values together compresses well (account IDs, types
+ * and currencies repeat) and lets a lookup decompress only the key column
+ * to find matching rows, then only those rows' values from the others.
+ *
+ * The first lookup on a column also builds a {@link BloomFilter} of its
+ * values (1% false positives), kept with the open file: later lookups of values the file does
+ * not contain, by far the common case across months, read nothing.
+ */
+public class ArchiveFile {
+
+    private static final int MAGIC = 0x43454131;  // "CEA1"
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path path;
+    private final long rowCount;
+    private final Map<String, Block> blocks = new LinkedHashMap<>();
+    private final Map<String, BloomFilter> filters = new ConcurrentHashMap<>();
+
+    private ArchiveFile(Path path, long rowCount) {
+        this.path = path;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Open an archive and read its header.
+     */
+    public static ArchiveFile open(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException("Not an archive file: " + path);
+            }
+            ArchiveFile file = new ArchiveFile(path, in.readLong());
+            int columnCount = in.readInt();
+            for (int i = 0; i < columnCount; i++) {
+                file.blocks.put(in.readUTF(), new Block(in.readLong(), in.readLong()));
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archive " + path, e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getColumns() {
+        return List.copyOf(blocks.keySet());
+    }
+
+    /**
+     * Rows whose key column equals the value, as column name to value.
+     * Files without a match are usually ruled out by the key column's filter.
+     */
+    public List<Map<String, String>> find(String keyColumn, String value) {
+        if (!filter(keyColumn).mightContain(value)) {
+            return List.of();
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        try (DataInputStream in = column(keyColumn)) {
+            for (int row = 0; row < rowCount; row++) {
+                if (value.equals(readValue(in))) {
+                    matches.add(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archive " + path, e);
+        }
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, String>> rows = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            rows.add(new HashMap<>());
+        }
+        for (String column : blocks.keySet()) {
+            try (DataInputStream in = column(column)) {
+                int row = 0;
+                for (int i = 0; i < matches.size(); i++) {
+                    int match = matches.get(i);
+                    for (; row < match; row++) {
+                        readValue(in);
+                    }
+                    rows.get(i).put(column, readValue(in));
+                    row++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read archive " + path, e);
+            }
+        }
+        return rows;
+    }
+
+    private BloomFilter filter(String keyColumn) {
+        // Concurrent first lookups of a column wait for one build
+        return filters.computeIfAbsent(keyColumn, column -> {
+            BloomFilter filter = new BloomFilter(Math.max(1, rowCount), FILTER_FALSE_POSITIVE_RATE);
+            try (DataInputStream in = column(column)) {
+                for (int row = 0; row < rowCount; row++) {
+                    String value = readValue(in);
+                    if (value != null) {
+                        filter.put(value);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read archive " + path, e);
+            }
+            return filter;
+        });
+    }
+
+    private DataInputStream column(String name) throws IOException {
+        Block block = blocks.get(name);
+        if (block == null) {
+            throw new IllegalArgumentException("No column " + name + " in " + path);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(block.offset);
+        InputStream limited = new BufferedInputStream(Channels.newInputStream(channel)) {
+            private long remaining = block.length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+        return new DataInputStream(new GZIPInputStream(limited, 64 * 1024));
+    }
+
+    static void writeHeader(DataOutputStream out, List<String> columns, long rowCount,
+                            List<Path> blockFiles) throws IOException {
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        DataOutputStream nameOut = new DataOutputStream(names);
+        for (String column : columns) {
+            nameOut.writeUTF(column);
+        }
+        long headerLength = 4 + 8 + 4 + names.size() + columns.size() * 16L;
+
+        out.writeInt(MAGIC);
+        out.writeLong(rowCount);
+        out.writeInt(columns.size());
+        long offset = headerLength;
+        for (int i = 0; i < columns.size(); i++) {
+            long length = Files.size(blockFiles.get(i));
+            out.writeUTF(columns.get(i));
+            out.writeLong(offset);
+            out.writeLong(length);
+            offset += length;
+        }
+    }
+
+    static void writeValue(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readValue(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (EOFException e) {
+            throw new IOException("Archive column ended early", e);
+        }
+    }
+
+    private record Block(long offset, long length) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.cardengine.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an {@link ArchiveFile}.
+ *
+ * Rows are appended one at a time; each column is compressed into its own
+ * temporary file as rows arrive, so memory use does not depend on the
+ * number of rows. {@link #close()} assembles the header and column blocks
+ * into the target file, syncs it to disk and moves it into place
+ * atomically, then syncs the directory so the move survives a crash: once
+ * close() returns, the source rows can be dropped.
+ */
+public class ArchiveFileWriter implements Closeable {
+
+    private final Path target;
+    private final List<String> columns;
+    private final List<Path> blockFiles = new ArrayList<>();
+    private final List<DataOutputStream> blocks = new ArrayList<>();
+    private long rowCount;
+    private boolean closed;
+
+    public ArchiveFileWriter(Path target, List<String> columns) {
+        this.target = target;
+        this.columns = List.copyOf(columns);
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            for (int i = 0; i < columns.size(); i++) {
+                Path blockFile = Files.createTempFile(target.toAbsolutePath().getParent(), "column-", ".tmp");
+                blockFiles.add(blockFile);
+                blocks.add(new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(blockFile)), 64 * 1024)));
+            }
+        } catch (IOException e) {
+            deleteBlockFiles();
+            throw new UncheckedIOException("Cannot create archive " + target, e);
+        }
+    }
+
+    /**
+     * Append a row; values are in column order and may be null.
+     */
+    public void append(String[] values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException(
+                "Expected " + columns.size() + " values, got " + values.length);
+        }
+        try {
+            for (int i = 0; i < values.length; i++) {
+                ArchiveFile.writeValue(blocks.get(i), values[i]);
+            }
+            rowCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write archive " + target, e);
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        try {
+            for (DataOutputStream block : blocks) {
+                block.close();
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial)))) {
+                ArchiveFile.writeHeader(out, columns, rowCount, blockFiles);
+                for (Path blockFile : blockFiles) {
+                    copy(blockFile, out);
+                }
+            }
+            sync(partial, StandardOpenOption.WRITE);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            sync(target.toAbsolutePath().getParent(), StandardOpenOption.READ);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write archive " + target, e);
+        } finally {
+            deleteBlockFiles();
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // Left for the next run to overwrite
+            }
+        }
+    }
+
+    private static void sync(Path path, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+        }
+    }
+
+    private static void copy(Path source, OutputStream out) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source))) {
+            in.transferTo(out);
+        }
+    }
+
+    private void deleteBlockFiles() {
+        for (Path blockFile : blockFiles) {
+            try {
+                Files.deleteIfExists(blockFile);
+            } catch (IOException ignored) {
+                // Temporary file; nothing else to do
+            }
+        }
+    }
+}
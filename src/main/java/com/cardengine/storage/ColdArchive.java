@@ -0,0 +1,124 @@
+package com.cardengine.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Archive files of partitions detached from the database.
+ *
+ * One {@link ArchiveFile} per partition, under
+ * {@code <archive-dir>/<table>/<partition>.cea}. Lookups go through every
+ * archive of the table, newest month first; with no archives they return at
+ * once. Files stay open with their key filters, so a month without the
+ * value costs a few bit probes rather than decompressing its key column.
+ */
+@Component
+@Slf4j
+public class ColdArchive {
+
+    static final String EXTENSION = ".cea";
+
+    private final Path directory;
+    private final Map<Path, ArchiveFile> openFiles = new ConcurrentHashMap<>();
+
+    public ColdArchive(@Value("${card-engine.partitioning.archive-dir:archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Start writing the archive of a partition, replacing any earlier one.
+     */
+    public ArchiveFileWriter writer(PartitionedTable table, String partition, List<String> columns) {
+        Path file = file(table, partition);
+        openFiles.remove(file);
+        return new ArchiveFileWriter(file, columns);
+    }
+
+    /**
+     * Row count of a partition's archive, or -1 if it has none.
+     */
+    public long archivedRows(PartitionedTable table, String partition) {
+        Path file = file(table, partition);
+        return Files.exists(file) ? open(file).getRowCount() : -1;
+    }
+
+    /**
+     * Archived rows of a table whose column equals the value, newest month first.
+     */
+    public List<Map<String, String>> find(PartitionedTable table, String column, String value) {
+        return findByFile(table, column, value).flatMap(List::stream).toList();
+    }
+
+    /**
+     * Archived rows of a table whose column equals the value, one list per
+     * archive file, newest month first. Each file is read only when the
+     * stream reaches it, so at most one month of matches is in memory.
+     */
+    public Stream<List<Map<String, String>>> findByFile(PartitionedTable table, String column, String value) {
+        return findByFile(table, column, value, Instant.MIN);
+    }
+
+    /**
+     * Like {@link #findByFile(PartitionedTable, String, String)}, but archives
+     * of months that ended at or before the given time are not read.
+     */
+    public Stream<List<Map<String, String>>> findByFile(PartitionedTable table, String column, String value,
+                                                        Instant since) {
+        if (value == null) {
+            return Stream.empty();
+        }
+        return files(table).stream()
+            .filter(file -> endsAfter(file, since))
+            .map(file -> open(file).find(column, value))
+            .filter(rows -> !rows.isEmpty());
+    }
+
+    private List<Path> files(PartitionedTable table) {
+        Path tableDirectory = directory.resolve(table.getTableName());
+        if (!Files.isDirectory(tableDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(tableDirectory)) {
+            // Partition names end in _pYYYY_MM, so name order is month order
+            return listing
+                .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list archives in " + tableDirectory, e);
+        }
+    }
+
+    private static boolean endsAfter(Path file, Instant since) {
+        String name = file.getFileName().toString();
+        YearMonth month = PartitionMaintenance.monthOf(name.substring(0, name.length() - EXTENSION.length()));
+        return month == null
+            || month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().isAfter(since);
+    }
+
+    private ArchiveFile open(Path file) {
+        return openFiles.computeIfAbsent(file, ArchiveFile::open);
+    }
+
+    private Path file(PartitionedTable table, String partition) {
+        return directory.resolve(table.getTableName()).resolve(partition + EXTENSION);
+    }
+}
@@ -0,0 +1,301 @@
+package com.cardengine.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the monthly partitions of ledger_entries and authorizations on PostgreSQL.
+ *
+ * Each run, per table:
+ * 1. Creates the partitions for the current month and the next
+ *    premake-months, so inserts never lack a partition.
+ * 2. Archives partitions older than retention-months: exports the rows to a
+ *    {@link ColdArchive} file, checks the row count, detaches the partition
+ *    concurrently and drops it. A partition left detached by an interrupted
+ *    run is archived and dropped by the next one.
+ *
+ * Runs hold a PostgreSQL advisory lock, so only one node maintains the
+ * partitions at a time; the others skip the run. The archive is synced to
+ * disk before a partition is dropped, and archive-dir must be storage every
+ * node reads (a shared volume), since the rows are then only in the archive.
+ *
+ * Tables must already be partitioned (see docs/sql/partition-tables.sql);
+ * unpartitioned tables are skipped with a warning. Disabled by default.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenance {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+    private static final long LOCK_KEY = "card-engine.partitioning".hashCode();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ColdArchive coldArchive;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int premakeMonths;
+    private final int retentionMonths;
+
+    @Autowired
+    public PartitionMaintenance(
+            DataSource dataSource,
+            TransactionTemplate transactionTemplate,
+            ColdArchive coldArchive,
+            MeterRegistry meterRegistry,
+            @Value("${card-engine.partitioning.enabled:false}") boolean enabled,
+            @Value("${card-engine.partitioning.premake-months:3}") int premakeMonths,
+            @Value("${card-engine.partitioning.retention-months:24}") int retentionMonths) {
+
+        this(new JdbcTemplate(dataSource), exportTemplate(dataSource), transactionTemplate, coldArchive,
+            meterRegistry, enabled, premakeMonths, retentionMonths);
+    }
+
+    PartitionMaintenance(JdbcTemplate jdbcTemplate, JdbcTemplate exportJdbcTemplate,
+                         TransactionTemplate transactionTemplate, ColdArchive coldArchive,
+                         MeterRegistry meterRegistry, boolean enabled, int premakeMonths,
+                         int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.exportJdbcTemplate = exportJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.coldArchive = coldArchive;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        if (enabled && !coldArchive.getDirectory().isAbsolute()) {
+            log.warn("Archive directory {} is relative: archived partitions are only readable on this node",
+                coldArchive.getDirectory());
+        }
+    }
+
+    /**
+     * Make sure this month's and the upcoming partitions exist before traffic starts.
+     */
+    @PostConstruct
+    public void createUpcomingPartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        for (PartitionedTable table : PartitionedTable.values()) {
+            if (isPartitioned(table)) {
+                createPartitions(table, now);
+            }
+        }
+    }
+
+    @Scheduled(
+        initialDelayString = "${card-engine.partitioning.interval:PT6H}",
+        fixedDelayString = "${card-engine.partitioning.interval:PT6H}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintain(YearMonth now) {
+        // Session lock on a connection of its own, held while the other statements run on theirs
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+                return false;
+            }
+            try {
+                maintainTables(now);
+            } finally {
+                advisoryLock(connection, "pg_advisory_unlock");
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(ran)) {
+            log.info("Partition maintenance is running on another node, skipping");
+        }
+    }
+
+    private void maintainTables(YearMonth now) {
+        YearMonth oldestRetained = now.minusMonths(retentionMonths);
+        for (PartitionedTable table : PartitionedTable.values()) {
+            if (!isPartitioned(table)) {
+                log.warn("Table {} is not partitioned, skipping partition maintenance", table.getTableName());
+                continue;
+            }
+            try {
+                createPartitions(table, now);
+                for (String partition : detachedPartitions(table)) {
+                    archive(table, partition, false);
+                }
+                for (String partition : attachedPartitions(table)) {
+                    YearMonth month = monthOf(partition);
+                    if (month != null && month.isBefore(oldestRetained)) {
+                        archive(table, partition, true);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Partition maintenance failed for {}", table.getTableName(), e);
+                count(table, "failed");
+            }
+        }
+    }
+
+    static String partitionName(PartitionedTable table, YearMonth month) {
+        return String.format("%s_p%04d_%02d", table.getTableName(), month.getYear(), month.getMonthValue());
+    }
+
+    private void createPartitions(PartitionedTable table, YearMonth now) {
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = now.plusMonths(i);
+            jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(table, month), table.getTableName(),
+                month.atDay(1) + " 00:00:00+00", month.plusMonths(1).atDay(1) + " 00:00:00+00"));
+        }
+    }
+
+    private void archive(PartitionedTable table, String partition, boolean attached) {
+        if (table.getOpenRowCondition() != null) {
+            Long open = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + partition + " WHERE " + table.getOpenRowCondition(), Long.class);
+            if (open != null && open > 0) {
+                log.warn("Not archiving {}: {} rows still open", partition, open);
+                count(table, "skipped");
+                return;
+            }
+        }
+
+        long exported = export(table, partition);
+        Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition, Long.class);
+        if (rows == null || rows != exported || coldArchive.archivedRows(table, partition) != exported) {
+            throw new IllegalStateException("Archive of " + partition + " has " + exported
+                + " rows, partition has " + rows);
+        }
+
+        if (attached) {
+            jdbcTemplate.execute("ALTER TABLE " + table.getTableName()
+                + " DETACH PARTITION " + partition + " CONCURRENTLY");
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition);
+
+        log.info("Archived partition {} ({} rows)", partition, exported);
+        count(table, "archived");
+    }
+
+    private long export(PartitionedTable table, String partition) {
+        return transactionTemplate.execute(status -> {
+            List<String> columns = new ArrayList<>();
+            ArchiveFileWriter[] writer = new ArchiveFileWriter[1];
+            try {
+                exportJdbcTemplate.query("SELECT * FROM " + partition + " ORDER BY created_at", resultSet -> {
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    if (writer[0] == null) {
+                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                            columns.add(metaData.getColumnLabel(i));
+                        }
+                        writer[0] = coldArchive.writer(table, partition, columns);
+                    }
+                    String[] values = new String[columns.size()];
+                    for (int i = 1; i <= values.length; i++) {
+                        int type = metaData.getColumnType(i);
+                        if (type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE) {
+                            Timestamp timestamp = resultSet.getTimestamp(i);
+                            values[i - 1] = timestamp != null ? timestamp.toInstant().toString() : null;
+                        } else {
+                            values[i - 1] = resultSet.getString(i);
+                        }
+                    }
+                    writer[0].append(values);
+                });
+                if (writer[0] == null) {
+                    // Empty partition: still leave an archive so the month is accounted for
+                    writer[0] = coldArchive.writer(table, partition, List.of("created_at"));
+                }
+            } finally {
+                if (writer[0] != null) {
+                    writer[0].close();
+                }
+            }
+            return writer[0].getRowCount();
+        });
+    }
+
+    private boolean isPartitioned(PartitionedTable table) {
+        Long count = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid"
+                + " WHERE c.relname = ?", Long.class, table.getTableName());
+        return count != null && count > 0;
+    }
+
+    private List<String> attachedPartitions(PartitionedTable table) {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                + " JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = ? ORDER BY c.relname",
+            String.class, table.getTableName());
+    }
+
+    /**
+     * Partition tables no longer attached to their parent (an interrupted archive).
+     */
+    private List<String> detachedPartitions(PartitionedTable table) {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_class c WHERE c.relkind = 'r' AND NOT c.relispartition"
+                + " AND c.relname ~ ? ORDER BY c.relname",
+            String.class, "^" + table.getTableName() + "_p[0-9]{4}_[0-9]{2}$");
+    }
+
+    static YearMonth monthOf(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        return matcher.find()
+            ? YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))
+            : null;
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static JdbcTemplate exportTemplate(DataSource dataSource) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        // Stream rows from a cursor instead of loading the partition into memory
+        template.setFetchSize(1000);
+        return template;
+    }
+
+    private void count(PartitionedTable table, String action) {
+        Counter.builder("cardengine.storage.partitions")
+            .description("Partition maintenance actions")
+            .tag("table", table.getTableName())
+            .tag("action", action)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,34 @@
+package com.cardengine.storage;
+
+/**
+ * Append-mostly tables range-partitioned by month on created_at.
+ */
+public enum PartitionedTable {
+
+    LEDGER_ENTRIES("ledger_entries", null),
+
+    /**
+     * Approved authorizations still hold funds and can be cleared or
+     * released, so a month containing any is not archived yet.
+     */
+    AUTHORIZATIONS("authorizations", "status = 'APPROVED'");
+
+    private final String tableName;
+    private final String openRowCondition;
+
+    PartitionedTable(String tableName, String openRowCondition) {
+        this.tableName = tableName;
+        this.openRowCondition = openRowCondition;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * SQL condition matching rows that may still change, or null if rows never change.
+     */
+    public String getOpenRowCondition() {
+        return openRowCondition;
+    }
+}
@@ -0,0 +1,142 @@
+package com.cardengine.accounts;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for account lane routing.
+ */
+class AccountLaneExecutorTest {
+
+    private AccountLaneExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testSameAccountMutationsAreSerialized() throws Exception {
+        executor = new AccountLaneExecutor(true, 4, 100);
+        int[] balance = {0};  // deliberately unsynchronized
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            futures.add(callers.submit(() -> executor.execute("account-1", () -> {
+                int current = balance[0];
+                Thread.onSpinWait();
+                balance[0] = current + 1;
+                return null;
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+
+        assertEquals(2000, balance[0]);
+    }
+
+    @Test
+    void testWorkRunsOnLaneThreadWhenEnabled() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+
+        String threadName = executor.execute("account-1", () -> Thread.currentThread().getName());
+
+        assertTrue(threadName.startsWith("account-lane-"));
+    }
+
+    @Test
+    void testWorkRunsOnPlatformThread() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+
+        boolean virtual = executor.execute("account-1", () -> Thread.currentThread().isVirtual());
+
+        assertFalse(virtual, "Lane work is JDBC and must not pin a virtual thread");
+    }
+
+    @Test
+    void testWorkRunsInlineWhenDisabled() {
+        executor = new AccountLaneExecutor(false, 4, 100);
+        executor.rememberCard("card-1", "account-1");
+
+        String threadName = executor.execute(executor.accountOfCard("card-1"),
+            () -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), threadName);
+        assertNull(executor.accountOfCard("card-1"));
+    }
+
+    @Test
+    void testUnknownAccountRunsInline() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+
+        String threadName = executor.execute(executor.accountOfAuthorization("auth-1"),
+            () -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), threadName);
+    }
+
+    @Test
+    void testRememberedRoutesUseLane() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+        executor.rememberCard("card-1", "account-1");
+        executor.rememberAuthorization("auth-1", "account-1");
+
+        assertEquals("account-1", executor.accountOfCard("card-1"));
+        String threadName = executor.execute(executor.accountOfAuthorization("auth-1"),
+            () -> Thread.currentThread().getName());
+
+        assertTrue(threadName.startsWith("account-lane-"));
+    }
+
+    @Test
+    void testRoutesAreBounded() {
+        executor = new AccountLaneExecutor(true, 4, 2);
+        executor.rememberAuthorization("auth-1", "account-1");
+        executor.rememberAuthorization("auth-2", "account-2");
+        executor.rememberAuthorization("auth-3", "account-3");
+
+        assertNull(executor.accountOfAuthorization("auth-1"));
+        assertEquals("account-3", executor.accountOfAuthorization("auth-3"));
+    }
+
+    @Test
+    void testExceptionsPropagateUnwrapped() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+            () -> executor.execute("account-1", () -> {
+                throw new IllegalStateException("boom");
+            }));
+
+        assertEquals("boom", thrown.getMessage());
+    }
+
+    @Test
+    void testOptimisticLockConflictsAreRetried() {
+        executor = new AccountLaneExecutor(true, 4, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute("account-1", () -> {
+            if (attempts.incrementAndGet() < AccountLaneExecutor.MAX_ATTEMPTS) {
+                throw new ObjectOptimisticLockingFailureException(BaseAccount.class, "account-1");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(AccountLaneExecutor.MAX_ATTEMPTS, attempts.get());
+    }
+}
@@ -0,0 +1,124 @@
+package com.cardengine.accounts;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.common.exception.InsufficientFundsException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the persisted reserved total and on-demand reserve rows.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AccountReserveTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountReserveRepository reserveRepository;
+
+    @Autowired
+    private ReservedTotalConsistencyCheck consistencyCheck;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testReserveOperationsDoNotLoadAllReserveRows() {
+        InternalLedgerAccount created = accountService.createInternalLedgerAccount(
+            "reserve-owner", Money.of("1000.00", Currency.USD));
+        for (int i = 0; i < 50; i++) {
+            created.reserve(Money.of("1.00", Currency.USD), "reserve-auth-" + i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        BaseAccount account = accountRepository.findByAccountId(created.getAccountId()).orElseThrow();
+        assertEquals(0, new BigDecimal("50.00").compareTo(account.getReservedBalance().getAmount()));
+        assertEquals(0, new BigDecimal("950.00").compareTo(account.getBalance().getAmount()));
+
+        account.reserve(Money.of("10.00", Currency.USD), "reserve-auth-new");
+        account.commit(Money.of("1.00", Currency.USD), "reserve-auth-0");
+        account.release(Money.of("1.00", Currency.USD), "reserve-auth-1");
+
+        long reserveRowsLoaded = entityManager.unwrap(Session.class).getStatistics().getEntityKeys().stream()
+            .filter(key -> ((EntityKey) key).getEntityName().equals(AccountReserve.class.getName()))
+            .count();
+        assertTrue(reserveRowsLoaded <= 3,
+            "Reserve rows should be accessed individually, not loaded as a whole: " + reserveRowsLoaded);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        BaseAccount reloaded = accountRepository.findByAccountId(created.getAccountId()).orElseThrow();
+        assertEquals(0, new BigDecimal("58.00").compareTo(reloaded.getReservedBalance().getAmount()));
+        assertEquals(0, new BigDecimal("58.00").compareTo(reserveRepository.sumByAccountId(created.getAccountId())));
+        assertEquals(0, new BigDecimal("999.00").compareTo(reloaded.getTotalBalance().getAmount()));
+        assertFalse(reserveRepository.existsById("reserve-auth-0"));
+        assertTrue(reserveRepository.existsById("reserve-auth-new"));
+    }
+
+    @Test
+    void testDuplicateReserveRejected() {
+        InternalLedgerAccount account = accountService.createInternalLedgerAccount(
+            "reserve-owner", Money.of("100.00", Currency.USD));
+        account.reserve(Money.of("10.00", Currency.USD), "reserve-dup");
+        entityManager.flush();
+        entityManager.clear();
+
+        BaseAccount reloaded = accountRepository.findByAccountId(account.getAccountId()).orElseThrow();
+
+        assertThrows(IllegalStateException.class,
+            () -> reloaded.reserve(Money.of("10.00", Currency.USD), "reserve-dup"));
+    }
+
+    @Test
+    void testReservedTotalFollowsRefresh() {
+        InternalLedgerAccount account = accountService.createInternalLedgerAccount(
+            "reserve-owner", Money.of("100.00", Currency.USD));
+        account.reserve(Money.of("10.00", Currency.USD), "reserve-refresh-1");
+        entityManager.flush();
+
+        entityManager.createQuery("update BaseAccount a set a.reservedTotal = 95 where a.accountId = :id")
+            .setParameter("id", account.getAccountId())
+            .executeUpdate();
+        entityManager.refresh(account);
+
+        assertThrows(InsufficientFundsException.class,
+            () -> account.reserve(Money.of("10.00", Currency.USD), "reserve-refresh-2"));
+        account.reserve(Money.of("5.00", Currency.USD), "reserve-refresh-3");
+        assertEquals(0, new BigDecimal("100.00").compareTo(account.getReservedBalance().getAmount()));
+    }
+
+    @Test
+    void testConsistencyCheckDetectsMismatch() {
+        InternalLedgerAccount account = accountService.createInternalLedgerAccount(
+            "reserve-owner", Money.of("100.00", Currency.USD));
+        account.reserve(Money.of("10.00", Currency.USD), "reserve-check-1");
+        entityManager.flush();
+
+        assertEquals(0, consistencyCheck.check());
+
+        entityManager.createQuery("update BaseAccount a set a.reservedTotal = 99 where a.accountId = :id")
+            .setParameter("id", account.getAccountId())
+            .executeUpdate();
+
+        assertEquals(1, consistencyCheck.check());
+    }
+}
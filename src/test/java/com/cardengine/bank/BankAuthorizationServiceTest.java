@@ -0,0 +1,152 @@
+package com.cardengine.bank;
+
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationResponse;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.fineract.FineractBankAccountAdapter;
+import com.cardengine.bank.fineract.FineractShadowBalances;
+import com.cardengine.bank.standin.StandInService;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardRepository;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.common.idempotency.IdempotencyRegistry;
+import com.cardengine.ledger.LedgerService;
+import com.cardengine.providers.fineract.FineractAuthHold;
+import com.cardengine.providers.fineract.FineractAuthHoldRepository;
+import com.cardengine.providers.fineract.FineractClient;
+import com.cardengine.providers.fineract.FineractDTOs;
+import com.cardengine.rules.CardActivityStore;
+import com.cardengine.rules.RuleResult;
+import com.cardengine.rules.RulesEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for bank authorizations that lose an idempotency race.
+ */
+@ExtendWith(MockitoExtension.class)
+class BankAuthorizationServiceTest {
+
+    private static final String ACCOUNT_REF = "100";
+
+    @Mock private CardRepository cardRepository;
+    @Mock private BankAccountMappingRepository mappingRepository;
+    @Mock private RulesEngine rulesEngine;
+    @Mock private AuthorizationRepository authorizationRepository;
+    @Mock private LedgerService ledgerService;
+    @Mock private CardActivityStore cardActivityStore;
+    @Mock private IdempotencyRegistry idempotencyRegistry;
+    @Mock private StandInService standInService;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private FineractClient fineractClient;
+    @Mock private FineractAuthHoldRepository holdRepository;
+    @Mock private FineractShadowBalances shadowBalances;
+
+    private final Map<String, FineractAuthHold> holds = new HashMap<>();
+    private BankAuthorizationService service;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        FineractBankAccountAdapter adapter = new FineractBankAccountAdapter(
+            fineractClient, holdRepository, shadowBalances, transactionManager);
+        adapter.setCardAuthHoldsGLAccountId(999L);
+        service = new BankAuthorizationService(cardRepository, mappingRepository, adapter, rulesEngine,
+            authorizationRepository, ledgerService, cardActivityStore, idempotencyRegistry,
+            new TransactionTemplate(transactionManager), standInService);
+
+        card = new Card("Race User", "4242", LocalDate.now().plusYears(2), ACCOUNT_REF, "owner");
+        when(cardRepository.findByCardId(card.getCardId())).thenReturn(Optional.of(card));
+        lenient().when(mappingRepository.findByCardId(card.getCardId())).thenReturn(Optional.of(
+            new BankAccountMapping(card.getCardId(), "client", ACCOUNT_REF, "FINERACT", "test")));
+        when(rulesEngine.evaluateRules(any())).thenReturn(RuleResult.approve());
+
+        when(holdRepository.findByAuthorizationId(any()))
+            .thenAnswer(inv -> Optional.ofNullable(holds.get(inv.<String>getArgument(0))));
+        when(holdRepository.save(any())).thenAnswer(inv -> {
+            FineractAuthHold hold = inv.getArgument(0);
+            holds.put(hold.getAuthorizationId(), hold);
+            return hold;
+        });
+        FineractDTOs.JournalEntryResponse journal = new FineractDTOs.JournalEntryResponse();
+        journal.setTransactionId(1L);
+        when(fineractClient.createJournalEntry(any())).thenReturn(journal);
+    }
+
+    @Test
+    void testDuplicateWithSameAuthorizationIdKeepsWinnersHold() {
+        AuthorizationRequest request = request("auth-1");
+        Authorization winner = approved(request);
+
+        // First request commits; the concurrent retry then fails on the unique index
+        when(authorizationRepository.save(any(Authorization.class)))
+            .thenReturn(winner)
+            .thenThrow(new DataIntegrityViolationException("duplicate idempotency key"));
+        when(authorizationRepository.findByIdempotencyKey(request.getIdempotencyKey()))
+            .thenReturn(Optional.of(winner));
+
+        assertEquals(AuthorizationStatus.APPROVED, service.authorize(request).getStatus());
+        AuthorizationResponse retry = service.authorize(request.toBuilder().build());
+
+        assertEquals(AuthorizationStatus.APPROVED, retry.getStatus());
+        assertEquals(FineractAuthHold.HoldStatus.ACTIVE, holds.get("auth-1").getStatus());
+        // Only the hold entry itself, no reversal
+        verify(fineractClient, times(1)).createJournalEntry(any());
+        verify(fineractClient, never()).createJournalEntry(any(), any());
+    }
+
+    @Test
+    void testDuplicateWithOwnAuthorizationIdReleasesItsHold() {
+        AuthorizationRequest first = request("auth-1");
+        AuthorizationRequest second = first.toBuilder().authorizationId("auth-2").build();
+        Authorization winner = approved(first);
+
+        when(authorizationRepository.save(any(Authorization.class)))
+            .thenReturn(winner)
+            .thenThrow(new DataIntegrityViolationException("duplicate idempotency key"));
+        when(authorizationRepository.findByIdempotencyKey(first.getIdempotencyKey()))
+            .thenReturn(Optional.of(winner));
+
+        service.authorize(first);
+        AuthorizationResponse lost = service.authorize(second);
+
+        assertEquals("auth-1", lost.getAuthorizationId());
+        assertEquals(FineractAuthHold.HoldStatus.ACTIVE, holds.get("auth-1").getStatus());
+        assertEquals(FineractAuthHold.HoldStatus.RELEASED, holds.get("auth-2").getStatus());
+    }
+
+    private AuthorizationRequest request(String authorizationId) {
+        return AuthorizationRequest.builder()
+            .authorizationId(authorizationId)
+            .cardId(card.getCardId())
+            .amount(Money.of("25.00", Currency.USD))
+            .merchantName("Race Merchant")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+    }
+
+    private Authorization approved(AuthorizationRequest request) {
+        return new Authorization(request.getAuthorizationId(), request.getCardId(), ACCOUNT_REF,
+            request.getAmount(), AuthorizationStatus.APPROVED, request.getMerchantName(),
+            null, null, null, request.getIdempotencyKey());
+    }
+}
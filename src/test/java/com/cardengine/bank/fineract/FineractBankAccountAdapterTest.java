@@ -0,0 +1,124 @@
+package com.cardengine.bank.fineract;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.providers.fineract.FineractAuthHold;
+import com.cardengine.providers.fineract.FineractAuthHoldRepository;
+import com.cardengine.providers.fineract.FineractClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the Fineract hold state machine around commit and release.
+ */
+@ExtendWith(MockitoExtension.class)
+class FineractBankAccountAdapterTest {
+
+    private static final String ACCOUNT_REF = "100";
+    private static final String REF = "auth-1";
+
+    @Mock private FineractClient fineractClient;
+    @Mock private FineractAuthHoldRepository holdRepository;
+    @Mock private FineractShadowBalances shadowBalances;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final Map<String, FineractAuthHold> holds = new HashMap<>();
+    private final List<FineractAuthHold.HoldStatus> recorded = new ArrayList<>();
+    private FineractBankAccountAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new FineractBankAccountAdapter(fineractClient, holdRepository, shadowBalances, transactionManager);
+        adapter.setCardAuthHoldsGLAccountId(999L);
+
+        lenient().when(holdRepository.findByAuthorizationId(any()))
+            .thenAnswer(inv -> Optional.ofNullable(holds.get(inv.<String>getArgument(0))));
+        lenient().when(holdRepository.save(any())).thenAnswer(inv -> {
+            FineractAuthHold hold = inv.getArgument(0);
+            holds.put(hold.getAuthorizationId(), hold);
+            recorded.add(hold.getStatus());
+            return hold;
+        });
+    }
+
+    @Test
+    void testCommitClaimsEachStepBeforeCallingFineract() {
+        hold(FineractAuthHold.HoldStatus.ACTIVE);
+        when(fineractClient.createJournalEntry(any(), eq(REF + "-REVERSE"))).thenAnswer(inv -> {
+            assertEquals(List.of(FineractAuthHold.HoldStatus.REVERSING), recorded);
+            return null;
+        });
+        when(fineractClient.debitAccount(eq(100L), any(), eq(REF + "-DEBIT"))).thenAnswer(inv -> {
+            assertEquals(FineractAuthHold.HoldStatus.DEBITING, recorded.get(recorded.size() - 1));
+            return null;
+        });
+
+        adapter.commitDebit(ACCOUNT_REF, usd("25.00"), REF);
+
+        assertEquals(List.of(
+            FineractAuthHold.HoldStatus.REVERSING,
+            FineractAuthHold.HoldStatus.REVERSED,
+            FineractAuthHold.HoldStatus.DEBITING,
+            FineractAuthHold.HoldStatus.COMMITTED), recorded);
+    }
+
+    @Test
+    void testCommitRetryResendsClaimedWithdrawalWithSameKey() {
+        // A previous attempt died after claiming the withdrawal
+        hold(FineractAuthHold.HoldStatus.DEBITING);
+
+        adapter.commitDebit(ACCOUNT_REF, usd("25.00"), REF);
+
+        verify(fineractClient, never()).createJournalEntry(any(), any());
+        verify(fineractClient).debitAccount(eq(100L), any(), eq(REF + "-DEBIT"));
+        assertEquals(FineractAuthHold.HoldStatus.COMMITTED, holds.get(REF).getStatus());
+    }
+
+    @Test
+    void testFailedReversalLeavesHoldClaimed() {
+        hold(FineractAuthHold.HoldStatus.ACTIVE);
+        when(fineractClient.createJournalEntry(any(), any())).thenThrow(new RuntimeException("timeout"));
+
+        assertThrows(RuntimeException.class, () -> adapter.commitDebit(ACCOUNT_REF, usd("25.00"), REF));
+
+        assertEquals(FineractAuthHold.HoldStatus.REVERSING, holds.get(REF).getStatus());
+        verify(fineractClient, never()).debitAccount(any(), any(), any());
+    }
+
+    @Test
+    void testReleaseRetryResendsReversalWithSameKey() {
+        hold(FineractAuthHold.HoldStatus.RELEASING);
+
+        adapter.releaseHold(ACCOUNT_REF, usd("25.00"), REF);
+
+        verify(fineractClient).createJournalEntry(any(), eq(REF + "-REVERSE"));
+        assertEquals(FineractAuthHold.HoldStatus.RELEASED, holds.get(REF).getStatus());
+        verify(shadowBalances).restore(100L, usd("25.00"));
+    }
+
+    private void hold(FineractAuthHold.HoldStatus status) {
+        FineractAuthHold hold = new FineractAuthHold(REF, 100L, 1L, new BigDecimal("25.00"), "USD");
+        hold.setStatus(status);
+        holds.put(REF, hold);
+    }
+
+    private static Money usd(String amount) {
+        return Money.of(amount, Currency.USD);
+    }
+}
@@ -0,0 +1,153 @@
+package com.cardengine.bank.fineract;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.common.exception.InsufficientFundsException;
+import com.cardengine.providers.fineract.FineractClient;
+import com.cardengine.providers.fineract.FineractDTOs;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the Fineract shadow balance cache.
+ */
+@ExtendWith(MockitoExtension.class)
+class FineractShadowBalancesTest {
+
+    private static final Long SAVINGS_ID = 100L;
+    private static final String ACCOUNT_REF = "100";
+
+    @Mock
+    private FineractClient fineractClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testChecksAfterFirstAreServedLocally() {
+        FineractShadowBalances shadows = shadows(true, Duration.ofMinutes(1), Duration.ofMinutes(5));
+        when(fineractClient.getAccountBalance(SAVINGS_ID)).thenReturn(balance("100.00"));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("40.00"));
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("40.00"));
+
+        verify(fineractClient, times(1)).getAccountBalance(SAVINGS_ID);
+        assertEquals(1.0, checks("core"));
+        assertEquals(1.0, checks("shadow"));
+    }
+
+    @Test
+    void testShadowDeclineIsConfirmedAgainstCore() {
+        FineractShadowBalances shadows = shadows(true, Duration.ofMinutes(1), Duration.ofMinutes(5));
+        when(fineractClient.getAccountBalance(SAVINGS_ID))
+            .thenReturn(balance("100.00"))
+            .thenReturn(balance("60.00"))    // 60 still held in the shadow, no new funds
+            .thenReturn(balance("560.00"));  // deposit made directly in the core
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("40.00"));
+
+        InsufficientFundsException declined = assertThrows(InsufficientFundsException.class,
+            () -> shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("80.00")));
+        assertTrue(declined.getMessage().contains("Available: 60.00 USD"));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("80.00"));
+        verify(fineractClient, times(3)).getAccountBalance(SAVINGS_ID);
+    }
+
+    @Test
+    void testReleaseAndCommitGiveBalanceBack() {
+        FineractShadowBalances shadows = shadows(true, Duration.ofMinutes(1), Duration.ofMinutes(5));
+        when(fineractClient.getAccountBalance(SAVINGS_ID)).thenReturn(balance("100.00"));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("50.00"));
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("50.00"));
+
+        shadows.restore(SAVINGS_ID, usd("50.00"));                   // released
+        shadows.committed(SAVINGS_ID, usd("50.00"), usd("30.00"));   // cleared for less
+
+        // 100 - 50 - 50 + 50 + 20 = 70
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("70.00"));
+        verify(fineractClient, times(1)).getAccountBalance(SAVINGS_ID);
+    }
+
+    @Test
+    void testStaleShadowIsReloadedBeforeDeciding() {
+        FineractShadowBalances shadows = shadows(true, Duration.ZERO, Duration.ZERO);
+        when(fineractClient.getAccountBalance(SAVINGS_ID)).thenReturn(balance("100.00"));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("10.00"));
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("10.00"));
+
+        verify(fineractClient, times(2)).getAccountBalance(SAVINGS_ID);
+        verify(fineractClient, never()).getAccountBalanceAsync(any());
+    }
+
+    @Test
+    void testBackgroundRefreshRecordsDrift() {
+        FineractShadowBalances shadows = shadows(true, Duration.ZERO, Duration.ofMinutes(5));
+        when(fineractClient.getAccountBalance(SAVINGS_ID)).thenReturn(balance("100.00"));
+        // Core saw our 10.00 hold and a 5.00 debit made outside the card engine
+        when(fineractClient.getAccountBalanceAsync(SAVINGS_ID))
+            .thenReturn(CompletableFuture.completedFuture(balance("85.00")));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("10.00"));
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("10.00"));
+
+        DistributionSummary drift = meterRegistry.get("cardengine.fineract.shadow_balance.drift").summary();
+        assertEquals(1, drift.count());
+        assertEquals(500.0, drift.totalAmount());
+        assertEquals(1.0, checks("shadow"));
+    }
+
+    @Test
+    void testDisabledChecksCoreEveryTime() {
+        FineractShadowBalances shadows = shadows(false, Duration.ofMinutes(1), Duration.ofMinutes(5));
+        when(fineractClient.getAccountBalance(SAVINGS_ID)).thenReturn(balance("100.00"));
+
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("60.00"));
+        shadows.reserve(SAVINGS_ID, ACCOUNT_REF, usd("60.00"));
+
+        verify(fineractClient, times(2)).getAccountBalance(SAVINGS_ID);
+        assertEquals(2.0, checks("core"));
+    }
+
+    private FineractShadowBalances shadows(boolean enabled, Duration refreshAfter, Duration maxStaleness) {
+        return new FineractShadowBalances(fineractClient, meterRegistry, enabled,
+            refreshAfter, maxStaleness, true);
+    }
+
+    private double checks(String source) {
+        return meterRegistry.get("cardengine.fineract.shadow_balance.checks")
+            .tag("source", source)
+            .counter()
+            .count();
+    }
+
+    private static Money usd(String amount) {
+        return Money.of(amount, Currency.USD);
+    }
+
+    private static FineractDTOs.AccountBalance balance(String available) {
+        FineractDTOs.AccountBalance balance = new FineractDTOs.AccountBalance();
+        balance.setSavingsId(SAVINGS_ID);
+        balance.setAvailableBalance(new BigDecimal(available));
+        balance.setCurrency("USD");
+        return balance;
+    }
+}
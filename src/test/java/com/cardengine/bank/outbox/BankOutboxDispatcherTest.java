@@ -0,0 +1,201 @@
+package com.cardengine.bank.outbox;
+
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.BankCoreException;
+import com.cardengine.bank.standin.StandInReconciler;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for delivering bank outbox entries: per-account ordering,
+ * retries with backoff and entries that fail permanently.
+ */
+@ExtendWith(MockitoExtension.class)
+class BankOutboxDispatcherTest {
+
+    private static final Money AMOUNT = Money.of("25.00", Currency.USD);
+
+    @Mock
+    private BankOutboxRepository repository;
+
+    @Mock
+    private BankAccountAdapter bankAccountAdapter;
+
+    @Mock
+    private StandInReconciler standInReconciler;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BankOutboxDispatcher dispatcher;
+    private long ids;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new BankOutboxDispatcher(repository, bankAccountAdapter, standInReconciler,
+            transactionTemplate, meterRegistry, 100, 4, 3, Duration.ofSeconds(1), Duration.ofSeconds(10),
+            Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testCommitPlacesStandInHoldFirstAndIsDelivered() {
+        runInTransaction();
+        BankOutboxEntry commit = entry(BankOutboxOperation.COMMIT_DEBIT, "ACC-1", "auth-1");
+        pending(commit);
+
+        assertEquals(1, dispatcher.dispatch());
+
+        InOrder inOrder = inOrder(standInReconciler, bankAccountAdapter);
+        inOrder.verify(standInReconciler).placeBeforeClearing("auth-1");
+        inOrder.verify(bankAccountAdapter).commitDebit("ACC-1", AMOUNT, "auth-1");
+        assertEquals(BankOutboxStatus.DELIVERED, commit.getStatus());
+        verify(repository).save(commit);
+        assertEquals(1.0, dispatched("commit_debit", "delivered"));
+        assertEquals(1, meterRegistry.get("cardengine.bank.outbox.lag")
+            .tag("operation", "commit_debit").timer().count());
+    }
+
+    @Test
+    void testFailureHoldsBackLaterEntriesOfSameAccountOnly() {
+        runInTransaction();
+        BankOutboxEntry commitA = entry(BankOutboxOperation.COMMIT_DEBIT, "ACC-A", "auth-1");
+        BankOutboxEntry releaseA = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-A", "auth-2");
+        BankOutboxEntry releaseB = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-B", "auth-3");
+        pending(commitA, releaseA, releaseB);
+        doThrow(new BankCoreException("Core down", "ACC-A", "commitDebit"))
+            .when(bankAccountAdapter).commitDebit(eq("ACC-A"), any(), eq("auth-1"));
+
+        Instant before = Instant.now();
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(BankOutboxStatus.PENDING, commitA.getStatus());
+        assertEquals(1, commitA.getAttempts());
+        assertEquals("Core down", commitA.getLastError());
+        assertFalse(commitA.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+
+        verify(bankAccountAdapter, never()).releaseHold(eq("ACC-A"), any(), any());
+        // Claimed along with the failed entry, then given back
+        assertEquals(BankOutboxStatus.PENDING, releaseA.getStatus());
+        verify(repository).save(releaseA);
+        assertEquals(BankOutboxStatus.DELIVERED, releaseB.getStatus());
+        assertEquals(1.0, dispatched("commit_debit", "retry"));
+    }
+
+    @Test
+    void testEntryBackingOffIsNotRetriedEarly() {
+        BankOutboxEntry release = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-1");
+        release.recordFailedAttempt("Core down", Instant.now().plusSeconds(60));
+        BankOutboxEntry later = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-2");
+        pending(release, later);
+
+        assertEquals(0, dispatcher.dispatch());
+
+        verifyNoInteractions(bankAccountAdapter);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testEntryClaimedByAnotherNodeIsNotSent() {
+        BankOutboxEntry commit = entry(BankOutboxOperation.COMMIT_DEBIT, "ACC-1", "auth-1");
+        BankOutboxEntry release = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-2");
+        when(repository.findDispatchable(any(), any())).thenReturn(List.of(commit, release));
+        when(repository.claim(eq(1L), any(), any(), any())).thenReturn(0);
+
+        assertEquals(0, dispatcher.dispatch());
+
+        verifyNoInteractions(bankAccountAdapter);
+        verify(repository, never()).claim(eq(2L), any(), any(), any());
+        assertEquals(BankOutboxStatus.PENDING, commit.getStatus());
+        assertEquals(BankOutboxStatus.PENDING, release.getStatus());
+    }
+
+    @Test
+    void testBackoffDoublesUpToMaximum() {
+        BankOutboxEntry release = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-1");
+        release.setAttempts(1);
+        pending(release);
+        doThrow(new BankCoreException("Core down", "ACC-1", "releaseHold"))
+            .when(bankAccountAdapter).releaseHold(any(), any(), any());
+
+        Instant before = Instant.now();
+        dispatcher.dispatch();
+
+        Duration backoff = Duration.between(before, release.getNextAttemptAt());
+        assertTrue(backoff.compareTo(Duration.ofSeconds(2)) >= 0, "Second attempt waits 2s: " + backoff);
+        assertTrue(backoff.compareTo(Duration.ofSeconds(3)) < 0, "Second attempt waits 2s: " + backoff);
+    }
+
+    @Test
+    void testEntryFailsPermanentlyAfterMaxAttempts() {
+        BankOutboxEntry release = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-1");
+        release.setAttempts(2);
+        BankOutboxEntry later = entry(BankOutboxOperation.RELEASE_HOLD, "ACC-1", "auth-2");
+        pending(release, later);
+        doThrow(new BankCoreException("Hold unknown", "ACC-1", "releaseHold"))
+            .when(bankAccountAdapter).releaseHold("ACC-1", AMOUNT, "auth-1");
+
+        dispatcher.dispatch();
+
+        assertEquals(BankOutboxStatus.FAILED, release.getStatus());
+        assertEquals(3, release.getAttempts());
+        assertEquals(1.0, dispatched("release_hold", "failed"));
+
+        // The failed entry no longer holds up the account
+        pending(later);
+        assertEquals(1, dispatcher.dispatch());
+        assertEquals(BankOutboxStatus.DELIVERED, later.getStatus());
+    }
+
+    private BankOutboxEntry entry(BankOutboxOperation operation, String accountRef, String referenceId) {
+        BankOutboxEntry entry = new BankOutboxEntry(operation, accountRef, referenceId, AMOUNT);
+        entry.setId(++ids);
+        return entry;
+    }
+
+    private void pending(BankOutboxEntry... entries) {
+        when(repository.findDispatchable(any(), any())).thenReturn(List.of(entries));
+        lenient().when(repository.claim(any(), any(), any(), any())).thenReturn(1);
+    }
+
+    private void runInTransaction() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private double dispatched(String operation, String outcome) {
+        return meterRegistry.get("cardengine.bank.outbox.dispatched")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .counter()
+            .count();
+    }
+}
@@ -0,0 +1,173 @@
+package com.cardengine.bank.resilience;
+
+import com.cardengine.bank.BankAccountAdapter;
+import com.cardengine.bank.BankCoreException;
+import com.cardengine.bank.BankCoreUnavailableException;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.common.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the circuit breaker, bulkheads and health probe around a
+ * bank account adapter.
+ */
+@ExtendWith(MockitoExtension.class)
+class ResilientBankAccountAdapterTest {
+
+    private static final Money AMOUNT = Money.of("10.00", Currency.USD);
+
+    @Mock
+    private BankAccountAdapter delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(delegate.getAdapterName()).thenReturn("Test");
+    }
+
+    @Test
+    void testCircuitOpensOnFailureRateAndFailsFast() {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofSeconds(5), Duration.ofMinutes(10), 8);
+        doThrow(new BankCoreException("Core down", "ACC-1", "placeHold"))
+            .when(delegate).placeHold(anyString(), any(), anyString());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(BankCoreException.class, () -> adapter.placeHold("ACC-1", AMOUNT, "auth"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, adapter.getCircuitState());
+
+        BankCoreUnavailableException rejected = assertThrows(BankCoreUnavailableException.class,
+            () -> adapter.placeHold("ACC-1", AMOUNT, "auth"));
+        assertEquals(BankCoreUnavailableException.Reason.CIRCUIT_OPEN, rejected.getReason());
+        verify(delegate, times(4)).placeHold(anyString(), any(), anyString());
+        assertEquals(1.0, calls("placeHold", "circuit_open"));
+        assertEquals(2.0, meterRegistry.get("cardengine.bank.circuit.state").gauge().value());
+    }
+
+    @Test
+    void testBusinessDeclinesDoNotOpenCircuit() {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofSeconds(5), Duration.ofMinutes(10), 8);
+        doThrow(new InsufficientFundsException("ACC-1", AMOUNT, Money.zero(Currency.USD)))
+            .when(delegate).placeHold(anyString(), any(), anyString());
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(InsufficientFundsException.class, () -> adapter.placeHold("ACC-1", AMOUNT, "auth"));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, adapter.getCircuitState());
+        assertEquals(10.0, calls("placeHold", "success"));
+    }
+
+    @Test
+    void testHalfOpenClosesAfterSuccessfulTrialCalls() {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofSeconds(5), Duration.ZERO, 8);
+        doThrow(new BankCoreException("Core down", "ACC-1", "commitDebit"))
+            .doThrow(new BankCoreException("Core down", "ACC-1", "commitDebit"))
+            .doThrow(new BankCoreException("Core down", "ACC-1", "commitDebit"))
+            .doThrow(new BankCoreException("Core down", "ACC-1", "commitDebit"))
+            .doNothing()
+            .when(delegate).commitDebit(anyString(), any(), anyString());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(BankCoreException.class, () -> adapter.commitDebit("ACC-1", AMOUNT, "auth"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, adapter.getCircuitState());
+
+        // Open duration has passed: two trial calls are let through and succeed
+        adapter.commitDebit("ACC-1", AMOUNT, "auth");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, adapter.getCircuitState());
+        adapter.commitDebit("ACC-1", AMOUNT, "auth");
+        assertEquals(CircuitBreaker.State.CLOSED, adapter.getCircuitState());
+    }
+
+    @Test
+    void testSlowCallsCountAsFailures() {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofNanos(1), Duration.ofMinutes(10), 8);
+        when(delegate.getAvailableBalance("ACC-1")).thenReturn(AMOUNT);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(AMOUNT, adapter.getAvailableBalance("ACC-1"));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, adapter.getCircuitState());
+    }
+
+    @Test
+    void testBulkheadRejectsWhenFull() throws Exception {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofSeconds(5), Duration.ofMinutes(10), 1);
+        CountDownLatch inCore = new CountDownLatch(1);
+        CountDownLatch coreAnswers = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inCore.countDown();
+            coreAnswers.await();
+            return null;
+        }).when(delegate).placeHold(anyString(), any(), anyString());
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(
+            () -> adapter.placeHold("ACC-1", AMOUNT, "auth-1"));
+        assertTrue(inCore.await(5, TimeUnit.SECONDS));
+
+        BankCoreUnavailableException rejected = assertThrows(BankCoreUnavailableException.class,
+            () -> adapter.placeHold("ACC-2", AMOUNT, "auth-2"));
+        assertEquals(BankCoreUnavailableException.Reason.BULKHEAD_FULL, rejected.getReason());
+
+        coreAnswers.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        adapter.placeHold("ACC-2", AMOUNT, "auth-2");
+
+        verify(delegate, times(2)).placeHold(anyString(), any(), anyString());
+        assertEquals(1.0, calls("placeHold", "bulkhead_full"));
+    }
+
+    @Test
+    void testHealthProbeOpensCircuitAndRecovers() {
+        ResilientBankAccountAdapter adapter = adapter(Duration.ofSeconds(5), Duration.ofMinutes(10), 8);
+        when(delegate.isHealthy()).thenReturn(false, false, true);
+
+        assertFalse(adapter.probe());
+        assertTrue(adapter.isHealthy(), "One failed probe is below the threshold");
+
+        assertFalse(adapter.probe());
+        assertFalse(adapter.isHealthy());
+        assertEquals(CircuitBreaker.State.OPEN, adapter.getCircuitState());
+
+        assertTrue(adapter.probe());
+        assertTrue(adapter.isHealthy());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, adapter.getCircuitState());
+    }
+
+    private ResilientBankAccountAdapter adapter(Duration slowCallThreshold, Duration openDuration,
+                                                int concurrency) {
+        BankResilienceSettings settings = new BankResilienceSettings(
+            true, 50, slowCallThreshold, 10, 4, openDuration, 2,
+            concurrency, concurrency, concurrency, concurrency, Duration.ZERO,
+            Duration.ofSeconds(1), 2);
+        return new ResilientBankAccountAdapter(delegate, settings, meterRegistry);
+    }
+
+    private double calls(String operation, String outcome) {
+        return meterRegistry.get("cardengine.bank.calls")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .counter()
+            .count();
+    }
+}
@@ -0,0 +1,324 @@
+package com.cardengine.bank.standin;
+
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.mock.MockBankAccountAdapter;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for latency-budgeted hold placement, stand-in decisions and
+ * reconciliation of stand-in holds.
+ */
+@ExtendWith(MockitoExtension.class)
+class StandInServiceTest {
+
+    private static final String ACCOUNT_REF = "BANK_ACCOUNT_1";
+
+    @Mock
+    private StandInHoldRepository holdRepository;
+
+    @Mock
+    private AuthorizationRepository authorizationRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private MockBankAccountAdapter bankAdapter;
+    private SimpleMeterRegistry meterRegistry;
+    private StandInService standInService;
+
+    @BeforeEach
+    void setUp() {
+        bankAdapter = new MockBankAccountAdapter();
+        bankAdapter.createAccount(ACCOUNT_REF, new BigDecimal("1000.00"));
+        meterRegistry = new SimpleMeterRegistry();
+        standInService = new StandInService(bankAdapter, holdRepository, transactionTemplate, meterRegistry,
+            true, Duration.ofSeconds(1), Duration.ofMillis(50), Duration.ofMinutes(5),
+            new BigDecimal("100.00"), new BigDecimal("250.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        standInService.shutdown();
+    }
+
+    @Test
+    void testHoldPlacedWithinBudget() {
+        boolean placed = standInService.placeHold(ACCOUNT_REF, usd("10.00"), "auth-1", budget());
+
+        assertTrue(placed);
+        assertTrue(bankAdapter.getActiveHoldReferences().contains("auth-1"));
+        assertEquals(1, holdTimerCount("placed"));
+    }
+
+    @Test
+    void testSlowBankCoreTimesOutAndLateHoldIsReleased() throws InterruptedException {
+        runTransactionCallbacks();
+        when(holdRepository.findById("auth-1")).thenReturn(Optional.empty());
+        bankAdapter.setLatency(Duration.ofMillis(300));
+
+        boolean placed = standInService.placeHold(ACCOUNT_REF, usd("10.00"), "auth-1", budget());
+
+        assertFalse(placed);
+        assertEquals(1, holdTimerCount("timeout"));
+
+        // The late hold belongs to a declined authorization and must not stick
+        awaitReconciliations("late_released", 1);
+        assertFalse(bankAdapter.getActiveHoldReferences().contains("auth-1"));
+    }
+
+    @Test
+    void testFailureSettlingLateHoldIsCounted() throws InterruptedException {
+        runTransactionCallbacks();
+        when(holdRepository.findById("auth-1")).thenThrow(new IllegalStateException("database unavailable"));
+        bankAdapter.setLatency(Duration.ofMillis(300));
+
+        assertFalse(standInService.placeHold(ACCOUNT_REF, usd("10.00"), "auth-1", budget()));
+
+        awaitReconciliations("late_failed", 1);
+    }
+
+    @Test
+    void testStandInLimits() {
+        trackPendingHolds();
+        StandInDecision overTransactionLimit = standInService.decide(ACCOUNT_REF, usd("150.00"), "auth-0");
+        assertFalse(overTransactionLimit.isApproved());
+
+        assertTrue(standInService.decide(ACCOUNT_REF, usd("100.00"), "auth-1").isApproved());
+        assertTrue(standInService.decide(ACCOUNT_REF, usd("100.00"), "auth-2").isApproved());
+
+        StandInDecision overAccountLimit = standInService.decide(ACCOUNT_REF, usd("100.00"), "auth-3");
+        assertFalse(overAccountLimit.isApproved());
+        assertTrue(overAccountLimit.getReason().contains("exposure"));
+
+        // Another account has its own exposure
+        assertTrue(standInService.decide("BANK_ACCOUNT_2", usd("100.00"), "auth-4").isApproved());
+
+        verify(holdRepository, times(3)).save(any(StandInHold.class));
+        assertEquals(3, decisionCount("approved"));
+        assertEquals(2, decisionCount("declined"));
+    }
+
+    @Test
+    void testCachedBalanceBoundsStandIn() {
+        trackPendingHolds();
+        standInService.updateBalance(ACCOUNT_REF, usd("80.00"));
+
+        assertTrue(standInService.decide(ACCOUNT_REF, usd("50.00"), "auth-1").isApproved());
+
+        // 80.00 cached, 50.00 already approved in stand-in
+        StandInDecision decision = standInService.decide(ACCOUNT_REF, usd("40.00"), "auth-2");
+        assertFalse(decision.isApproved());
+        assertTrue(decision.getReason().contains("Insufficient funds"));
+    }
+
+    @Test
+    void testExposureIncludesHoldsPendingOnOtherNodes() {
+        // Approved in stand-in by other nodes, not yet placed
+        when(holdRepository.sumPending(ACCOUNT_REF, Currency.USD)).thenReturn(new BigDecimal("200.00"));
+
+        StandInDecision decision = standInService.decide(ACCOUNT_REF, usd("100.00"), "auth-1");
+
+        assertFalse(decision.isApproved());
+        assertTrue(decision.getReason().contains("exposure"));
+        verify(holdRepository, never()).save(any(StandInHold.class));
+    }
+
+    @Test
+    void testExposureGaugeReadsPendingHolds() {
+        when(holdRepository.sumAllPending(any())).thenReturn(BigDecimal.ZERO);
+        when(holdRepository.sumAllPending(Currency.USD)).thenReturn(new BigDecimal("150.00"));
+
+        assertEquals(15000.0, meterRegistry.get("cardengine.bank.stand_in.exposure").gauge().value());
+    }
+
+    @Test
+    void testReconcilerPlacesPendingHold() {
+        runTransactionCallbacks();
+        StandInReconciler reconciler = reconciler();
+        StandInHold hold = new StandInHold("auth-1", ACCOUNT_REF, usd("100.00"));
+        when(holdRepository.findByStatusOrderByCreatedAtAsc(eq(StandInHoldStatus.PENDING), any()))
+            .thenReturn(List.of(hold));
+        when(holdRepository.findById("auth-1")).thenReturn(Optional.of(hold));
+        when(authorizationRepository.findByAuthorizationId("auth-1"))
+            .thenReturn(Optional.of(authorization("auth-1", AuthorizationStatus.APPROVED)));
+        claimable("auth-1");
+
+        assertEquals(1, reconciler.reconcile());
+
+        assertEquals(StandInHoldStatus.PLACED, hold.getStatus());
+        assertTrue(bankAdapter.getActiveHoldReferences().contains("auth-1"));
+        assertEquals(1.0, reconciliations("placed"));
+    }
+
+    @Test
+    void testReconcilerHandlesRejectionsAndReleasedAuthorizations() {
+        runTransactionCallbacks();
+        StandInReconciler reconciler = reconciler();
+        StandInHold tooLarge = new StandInHold("auth-1", ACCOUNT_REF, usd("5000.00"));
+        StandInHold released = new StandInHold("auth-2", ACCOUNT_REF, usd("10.00"));
+        when(holdRepository.findByStatusOrderByCreatedAtAsc(eq(StandInHoldStatus.PENDING), any()))
+            .thenReturn(List.of(tooLarge, released));
+        when(holdRepository.findById("auth-1")).thenReturn(Optional.of(tooLarge));
+        when(holdRepository.findById("auth-2")).thenReturn(Optional.of(released));
+        when(authorizationRepository.findByAuthorizationId("auth-1"))
+            .thenReturn(Optional.of(authorization("auth-1", AuthorizationStatus.APPROVED)));
+        when(authorizationRepository.findByAuthorizationId("auth-2"))
+            .thenReturn(Optional.of(authorization("auth-2", AuthorizationStatus.RELEASED)));
+        claimable("auth-1", "auth-2");
+
+        assertEquals(2, reconciler.reconcile());
+
+        assertEquals(StandInHoldStatus.REJECTED, tooLarge.getStatus());
+        assertEquals(StandInHoldStatus.CANCELLED, released.getStatus());
+        assertTrue(bankAdapter.getActiveHoldReferences().isEmpty());
+    }
+
+    @Test
+    void testReconcilerRetriesWhenBankCoreFails() {
+        runTransactionCallbacks();
+        StandInReconciler reconciler = reconciler();
+        StandInHold hold = new StandInHold("auth-1", "UNKNOWN_ACCOUNT", usd("10.00"));
+        when(holdRepository.findByStatusOrderByCreatedAtAsc(eq(StandInHoldStatus.PENDING), any()))
+            .thenReturn(List.of(hold));
+        when(holdRepository.findById("auth-1")).thenReturn(Optional.of(hold));
+        when(authorizationRepository.findByAuthorizationId("auth-1"))
+            .thenReturn(Optional.of(authorization("auth-1", AuthorizationStatus.APPROVED)));
+        claimable("auth-1");
+
+        assertEquals(0, reconciler.reconcile());
+
+        assertEquals(StandInHoldStatus.PENDING, hold.getStatus());
+        assertEquals(1, hold.getAttempts());
+        assertNull(hold.getLeaseUntil());
+        assertEquals(1.0, reconciliations("retry"));
+    }
+
+    @Test
+    void testReconcilerSkipsHoldClaimedByAnotherNode() {
+        StandInReconciler reconciler = reconciler();
+        StandInHold hold = new StandInHold("auth-1", ACCOUNT_REF, usd("10.00"));
+        when(holdRepository.findByStatusOrderByCreatedAtAsc(eq(StandInHoldStatus.PENDING), any()))
+            .thenReturn(List.of(hold));
+
+        assertEquals(0, reconciler.reconcile());
+
+        assertEquals(StandInHoldStatus.PENDING, hold.getStatus());
+        assertTrue(bankAdapter.getActiveHoldReferences().isEmpty());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void testHoldCancelledWhilePlacingIsReleasedAgain() {
+        StandInReconciler reconciler = reconciler();
+        StandInHold hold = new StandInHold("auth-1", ACCOUNT_REF, usd("10.00"));
+        StandInHold cancelled = new StandInHold("auth-1", ACCOUNT_REF, usd("10.00"));
+        cancelled.markCancelled();
+        when(holdRepository.findByStatusOrderByCreatedAtAsc(eq(StandInHoldStatus.PENDING), any()))
+            .thenReturn(List.of(hold));
+        claimable("auth-1");
+        // The release committed first: placing succeeded, saving PLACED hits the version check
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            bankAdapter.placeHold(ACCOUNT_REF, usd("10.00"), "auth-1");
+            throw new OptimisticLockingFailureException("stale stand-in hold");
+        });
+        when(holdRepository.findById("auth-1")).thenReturn(Optional.of(cancelled));
+
+        assertEquals(0, reconciler.reconcile());
+
+        assertFalse(bankAdapter.getActiveHoldReferences().contains("auth-1"));
+    }
+
+    private StandInReconciler reconciler() {
+        return new StandInReconciler(holdRepository, authorizationRepository, bankAdapter,
+            standInService, transactionTemplate, 100, Duration.ofMinutes(1));
+    }
+
+    private void claimable(String... authorizationIds) {
+        for (String authorizationId : authorizationIds) {
+            when(holdRepository.claim(eq(authorizationId), any(), any(), any())).thenReturn(1);
+        }
+    }
+
+    /**
+     * Answer exposure queries from the holds saved so far (no transaction, so each commits at once).
+     */
+    private void trackPendingHolds() {
+        List<StandInHold> saved = new ArrayList<>();
+        lenient().when(holdRepository.save(any(StandInHold.class))).thenAnswer(invocation -> {
+            saved.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        lenient().when(holdRepository.sumPending(any(), any())).thenAnswer(invocation -> saved.stream()
+            .filter(hold -> hold.getAccountRef().equals(invocation.getArgument(0)) && hold.isPending())
+            .map(hold -> hold.getAmount().getAmount())
+            .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    private void runTransactionCallbacks() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    private LatencyBudget budget() {
+        return LatencyBudget.start(Duration.ofSeconds(1));
+    }
+
+    private void awaitReconciliations(String outcome, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (reconciliations(outcome) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, reconciliations(outcome));
+    }
+
+    private long holdTimerCount(String outcome) {
+        return meterRegistry.get("cardengine.bank.hold.duration").tag("outcome", outcome).timer().count();
+    }
+
+    private double decisionCount(String decision) {
+        return meterRegistry.get("cardengine.bank.stand_in.decisions").tag("decision", decision)
+            .counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private double reconciliations(String outcome) {
+        var counter = meterRegistry.find("cardengine.bank.stand_in.reconciliations")
+            .tag("outcome", outcome).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static Money usd(String amount) {
+        return Money.of(amount, Currency.USD);
+    }
+
+    private static Authorization authorization(String authorizationId, AuthorizationStatus status) {
+        Authorization authorization = new Authorization(authorizationId, "card-1", ACCOUNT_REF,
+            usd("10.00"), AuthorizationStatus.APPROVED, "Merchant", "5411", "City", "US", "key-" + authorizationId);
+        if (status == AuthorizationStatus.RELEASED) {
+            authorization.release();
+        }
+        return authorization;
+    }
+}
@@ -0,0 +1,55 @@
+package com.cardengine.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for minor-unit conversions and the cached value on {@link Money}.
+ */
+class MinorUnitsTest {
+
+    @Test
+    void testRoundTripThroughMinorUnits() {
+        Money money = Money.of("1234.56", Currency.USD);
+
+        assertEquals(123_456L, money.toMinorUnits());
+        assertEquals(money, Money.ofMinorUnits(123_456L, Currency.USD));
+        assertEquals(new BigDecimal("-0.05"), MinorUnits.toDecimal(-5, Currency.EUR));
+    }
+
+    @Test
+    void testConversionRoundsHalfUpLikeMoney() {
+        assertEquals(1_235L, MinorUnits.fromDecimal(new BigDecimal("12.345"), Currency.USD));
+        assertEquals(1_200L, MinorUnits.fromDecimal(new BigDecimal("12"), Currency.USD));
+        assertEquals(Money.of("12.345", Currency.USD).toMinorUnits(),
+            MinorUnits.fromDecimal(new BigDecimal("12.345"), Currency.USD));
+    }
+
+    @Test
+    void testCachedValueFollowsSetters() {
+        Money money = Money.of("10.00", Currency.USD);
+        assertEquals(1_000L, money.toMinorUnits());
+
+        money.setAmount(new BigDecimal("25.50"));
+
+        assertEquals(2_550L, money.toMinorUnits());
+    }
+
+    @Test
+    void testCachedValueIgnoredByEquality() {
+        Money converted = Money.of("10.00", Currency.USD);
+        converted.toMinorUnits();
+
+        assertEquals(Money.of("10.00", Currency.USD), converted);
+        assertEquals(Money.of("10.00", Currency.USD).hashCode(), converted.hashCode());
+    }
+
+    @Test
+    void testOverflowRejected() {
+        assertThrows(ArithmeticException.class,
+            () -> MinorUnits.fromDecimal(new BigDecimal("1e20"), Currency.USD));
+    }
+}
@@ -0,0 +1,163 @@
+package com.cardengine.common.idempotency;
+
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.ledger.LedgerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the idempotency fast path.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyRegistryTest {
+
+    @Mock
+    private AuthorizationRepository authorizationRepository;
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new IdempotencyRegistry(authorizationRepository, ledgerRepository,
+            transactionTemplate, meterRegistry, 10_000, 0.01, 100, Duration.ofDays(1));
+    }
+
+    @Test
+    void testFirstTimeKeySkipsDatabase() {
+        AtomicInteger loads = new AtomicInteger();
+
+        Optional<String> result = registry.find(IdempotencyScope.LEDGER, IdempotencyKey.generate(),
+            String.class, key -> {
+                loads.incrementAndGet();
+                return Optional.empty();
+            });
+
+        assertTrue(result.isEmpty());
+        assertEquals(0, loads.get());
+        assertEquals(1.0, lookups("ledger", "filter_miss"));
+    }
+
+    @Test
+    void testRecordedKeyServedFromRecentResults() {
+        String key = IdempotencyKey.generate();
+        registry.record(IdempotencyScope.LEDGER, key, "txn-1");
+
+        Optional<String> result = registry.find(IdempotencyScope.LEDGER, key, String.class,
+            k -> fail("Recent result should not hit the database"));
+
+        assertEquals(Optional.of("txn-1"), result);
+        assertEquals(1.0, lookups("ledger", "cache_hit"));
+    }
+
+    @Test
+    void testScopesAreIndependent() {
+        String key = IdempotencyKey.generate();
+        registry.record(IdempotencyScope.AUTHORIZATION, key, "auth-1");
+
+        Optional<String> result = registry.find(IdempotencyScope.LEDGER, key, String.class,
+            k -> fail("Key recorded in another scope should not reach the database"));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testRebuiltKeysFallBackToDatabase() {
+        String existingKey = IdempotencyKey.generate();
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(authorizationRepository.countByCreatedAtAfter(any())).thenReturn(1L);
+        when(authorizationRepository.streamIdempotencyKeysCreatedAfter(any())).thenReturn(Stream.of(existingKey));
+        when(ledgerRepository.streamIdempotencyKeysCreatedAfter(any())).thenReturn(Stream.empty());
+
+        registry.rebuild();
+
+        Optional<String> result = registry.find(IdempotencyScope.AUTHORIZATION, existingKey,
+            String.class, key -> Optional.of("auth-from-db"));
+
+        assertEquals(Optional.of("auth-from-db"), result);
+        assertEquals(1.0, lookups("authorization", "database_hit"));
+
+        // Second lookup is served from recent results
+        registry.find(IdempotencyScope.AUTHORIZATION, existingKey, String.class,
+            key -> fail("Loaded result should be cached"));
+        assertEquals(1.0, lookups("authorization", "cache_hit"));
+    }
+
+    @Test
+    void testKeysLastOneFullWindow() {
+        String key = IdempotencyKey.generate();
+        registry.record(IdempotencyScope.LEDGER, key, "txn-1");
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Optional<String>> loader = k -> {
+            loads.incrementAndGet();
+            return Optional.of("txn-1");
+        };
+
+        registry.rotate();
+        registry.find(IdempotencyScope.LEDGER, key, String.class, loader);
+        assertEquals(0.0, lookups("ledger", "filter_miss"), "Still in the previous window's filter");
+
+        registry.rotate();
+        assertTrue(registry.find(IdempotencyScope.LEDGER, key, String.class, loader).isEmpty());
+        assertEquals(1.0, lookups("ledger", "filter_miss"), "Left to the unique index after two windows");
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String key = IdempotencyKey.generate();
+            keys.add(key);
+            filter.put(key);
+        }
+
+        for (String key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(IdempotencyKey.generate())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "False positive rate too high: " + falsePositives);
+    }
+
+    private double lookups(String scope, String result) {
+        return meterRegistry.get("cardengine.idempotency.lookups")
+            .tag("scope", scope)
+            .tag("result", result)
+            .counter()
+            .count();
+    }
+}
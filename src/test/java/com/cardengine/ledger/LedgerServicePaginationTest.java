@@ -0,0 +1,186 @@
+package com.cardengine.ledger;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.projection.LedgerProjections;
+import com.cardengine.ledger.projection.LedgerSummary;
+import com.cardengine.storage.ColdArchive;
+import com.cardengine.storage.PartitionedTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for keyset pages and streams of ledger history, including the
+ * step from live entries into the cold archive.
+ */
+@ExtendWith(MockitoExtension.class)
+class LedgerServicePaginationTest {
+
+    private static final String ACCOUNT = "account-1";
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private ColdArchive coldArchive;
+
+    @Mock
+    private LedgerProjections ledgerProjections;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(coldArchive.findByFile(any(), any(), any())).thenAnswer(invocation -> Stream.empty());
+    }
+
+    @Test
+    void testFirstPageReturnsCursorWhenMoreEntriesExist() {
+        List<LedgerEntry> live = List.of(entry("e3", 3), entry("e2", 2), entry("e1", 1));
+        when(ledgerRepository.findAccountPage(eq(ACCOUNT), any(Pageable.class))).thenReturn(live);
+
+        LedgerPage page = ledgerService.getAccountLedgerPage(ACCOUNT, null, 2);
+
+        assertEquals(List.of("e3", "e2"), ids(page.getEntries()));
+        assertNotNull(page.getNextCursor());
+        assertEquals(new LedgerCursor(Instant.ofEpochSecond(2), "e2"), LedgerCursor.decode(page.getNextCursor()));
+        verify(coldArchive, never()).findByFile(any(), any(), any());
+    }
+
+    @Test
+    void testNextPageSeeksFromCursor() {
+        LedgerCursor cursor = new LedgerCursor(Instant.ofEpochSecond(2), "e2");
+        when(ledgerRepository.findAccountPageAfter(eq(ACCOUNT), eq(cursor.createdAt()), eq("e2"), any(Pageable.class)))
+            .thenReturn(List.of(entry("e1", 1)));
+
+        LedgerPage page = ledgerService.getAccountLedgerPage(ACCOUNT, cursor.encode(), 2);
+
+        assertEquals(List.of("e1"), ids(page.getEntries()));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testLastLivePageContinuesIntoArchive() {
+        when(ledgerRepository.findAccountPage(eq(ACCOUNT), any(Pageable.class)))
+            .thenReturn(List.of(entry("e9", 9)));
+        when(coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", ACCOUNT))
+            .thenAnswer(invocation -> Stream.of(List.of(archived("a1", 1), archived("a3", 3), archived("a2", 2))));
+
+        LedgerPage first = ledgerService.getAccountLedgerPage(ACCOUNT, null, 2);
+        assertEquals(List.of("e9", "a3"), ids(first.getEntries()));
+
+        when(ledgerRepository.findAccountPageAfter(eq(ACCOUNT), any(), eq("a3"), any(Pageable.class)))
+            .thenReturn(List.of());
+        LedgerPage second = ledgerService.getAccountLedgerPage(ACCOUNT, first.getNextCursor(), 2);
+        assertEquals(List.of("a2", "a1"), ids(second.getEntries()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testRejectsPageSizeOutOfRangeAndBadCursor() {
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.getAccountLedgerPage(ACCOUNT, null, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> ledgerService.getAccountLedgerPage(ACCOUNT, null, LedgerService.MAX_PAGE_SIZE + 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> ledgerService.getAccountLedgerPage(ACCOUNT, "not a cursor", 10));
+    }
+
+    @Test
+    void testStreamReadsPagesInSeparateTransactionsThenArchiveFiles() {
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        List<LedgerEntry> firstPage = new ArrayList<>();
+        for (int i = LedgerService.MAX_PAGE_SIZE; i > 0; i--) {
+            firstPage.add(entry("e" + i, 100 + i));
+        }
+        when(ledgerRepository.findAccountPage(eq(ACCOUNT), any(Pageable.class))).thenReturn(firstPage);
+        when(ledgerRepository.findAccountPageAfter(eq(ACCOUNT), eq(Instant.ofEpochSecond(101)), eq("e1"),
+                any(Pageable.class)))
+            .thenReturn(List.of(entry("e0", 100)));
+        // The older month's file comes second; a row also still live is skipped
+        when(coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", ACCOUNT))
+            .thenAnswer(invocation -> Stream.of(
+                List.of(archived("e0", 100), archived("a2", 50), archived("a3", 60)),
+                List.of(archived("a1", 10))));
+
+        List<LedgerEntry> received = new ArrayList<>();
+        long count = ledgerService.streamAccountLedger(ACCOUNT, received::add);
+
+        assertEquals(LedgerService.MAX_PAGE_SIZE + 4, count);
+        assertEquals(List.of("e0", "a3", "a2", "a1"), ids(received.subList(LedgerService.MAX_PAGE_SIZE, received.size())));
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    @Test
+    void testSummaryAddsArchivedTotalsOnce() {
+        when(ledgerRepository.totalsByAccount(ACCOUNT)).thenReturn(List.of(new LedgerTotal(
+            TransactionType.WITHDRAWAL, Currency.USD, new BigDecimal("2.00"), 2L,
+            Instant.ofEpochSecond(300), Instant.ofEpochSecond(400))));
+        // e3 is in a partition being archived: exported but not yet dropped
+        when(coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", ACCOUNT))
+            .thenAnswer(invocation -> Stream.of(List.of(archived("e3", 300), archived("a2", 200)),
+                List.of(archived("a1", 100))));
+
+        LedgerSummary summary = ledgerService.getAccountSummary(ACCOUNT);
+
+        assertEquals(4, summary.getEntryCount());
+        assertEquals(Instant.ofEpochSecond(100), summary.getFirstEntryAt());
+        assertEquals(Instant.ofEpochSecond(400), summary.getLastEntryAt());
+        assertEquals(0, new BigDecimal("4.00").compareTo(
+            summary.getTotals().get(Currency.USD).get(TransactionType.WITHDRAWAL)));
+        assertEquals(0, new BigDecimal("-4.00").compareTo(summary.getPostedBalance().get(Currency.USD)));
+    }
+
+    private static LedgerEntry entry(String entryId, long epochSecond) {
+        LedgerEntry entry = new LedgerEntry("txn-" + entryId, ACCOUNT, LedgerEntry.EntryType.DEBIT,
+            Money.of("1.00", Currency.USD), TransactionType.WITHDRAWAL, null, null, "test",
+            IdempotencyKey.generate());
+        entry.setEntryId(entryId);
+        entry.setCreatedAt(Instant.ofEpochSecond(epochSecond));
+        return entry;
+    }
+
+    private static Map<String, String> archived(String entryId, long epochSecond) {
+        Map<String, String> row = new HashMap<>();
+        row.put("entry_id", entryId);
+        row.put("transaction_id", "txn-" + entryId);
+        row.put("account_id", ACCOUNT);
+        row.put("entry_type", "DEBIT");
+        row.put("amount", "1.00");
+        row.put("currency", "USD");
+        row.put("transaction_type", "WITHDRAWAL");
+        row.put("description", "archived");
+        row.put("idempotency_key", "key-" + entryId);
+        row.put("created_at", Instant.ofEpochSecond(epochSecond).toString());
+        return row;
+    }
+
+    private static List<String> ids(List<LedgerEntry> entries) {
+        return entries.stream().map(LedgerEntry::getEntryId).toList();
+    }
+}
@@ -0,0 +1,285 @@
+package com.cardengine.ledger.projection;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerRepository;
+import com.cardengine.ledger.LedgerTotal;
+import com.cardengine.ledger.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the account and card ledger projections: loading views
+ * from the table, the live stream, and polling by entry sequence.
+ */
+@ExtendWith(MockitoExtension.class)
+class LedgerProjectionsTest {
+
+    private static final String ACCOUNT = "account-1";
+    private static final String CARD = "card-1";
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerProjections projections;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        projections = projections(3, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testViewIsLoadedFromTableOnFirstRead() {
+        LedgerEntry deposit = entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "100.00", null, 0);
+        LedgerEntry hold = entry(TransactionType.AUTH_HOLD, LedgerEntry.EntryType.DEBIT, "30.00", CARD, 1);
+        LedgerEntry clearing = entry(TransactionType.CLEARING_COMMIT, LedgerEntry.EntryType.DEBIT, "25.00", CARD, 2);
+        startAt(10);
+        table(ACCOUNT, List.of(clearing, hold, deposit), List.of());
+
+        LedgerSummary summary = projections.accountSummary(ACCOUNT).orElseThrow();
+        assertEquals(3, summary.getEntryCount());
+        assertEquals(deposit.getCreatedAt(), summary.getFirstEntryAt());
+        assertEquals(clearing.getCreatedAt(), summary.getLastEntryAt());
+        assertEquals(new BigDecimal("30.00"), summary.getTotals().get(Currency.USD).get(TransactionType.AUTH_HOLD));
+        assertEquals(new BigDecimal("75.00"), summary.getPostedBalance().get(Currency.USD));
+        assertEquals(List.of(clearing, hold, deposit), projections.accountHistory(ACCOUNT).orElseThrow());
+
+        // Later reads are served from memory
+        verify(ledgerRepository, times(1)).totalsByAccount(ACCOUNT);
+    }
+
+    @Test
+    void testLiveAppendsAreAppliedToHeldViewsInCreationOrder() {
+        startAt(0);
+        table(ACCOUNT, List.of(), List.of());
+        projections.accountSummary(ACCOUNT);
+
+        LedgerEntry later = entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "5.00", null, 5);
+        LedgerEntry earlier = entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "7.00", null, 4);
+        projections.onAppend(later);
+        projections.onAppend(earlier);
+
+        assertEquals(List.of(later, earlier), projections.accountHistory(ACCOUNT).orElseThrow());
+        assertEquals(new BigDecimal("12.00"),
+            projections.accountSummary(ACCOUNT).orElseThrow().getPostedBalance().get(Currency.USD));
+    }
+
+    @Test
+    void testEntryCommittedLongAfterItsCreationIsPolledThroughItsGap() {
+        startAt(10);
+        table(ACCOUNT, List.of(), List.of());
+        projections.accountSummary(ACCOUNT);
+
+        // Sequence 11 is taken by a clearing chunk that commits after 12 and 13
+        LedgerEntry chunk = sequenced(entry(TransactionType.CLEARING_COMMIT, LedgerEntry.EntryType.DEBIT,
+            "40.00", null, 0), 11);
+        LedgerEntry deposit = sequenced(entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT,
+            "100.00", null, 60), 12);
+        LedgerEntry withdrawal = sequenced(entry(TransactionType.WITHDRAWAL, LedgerEntry.EntryType.DEBIT,
+            "10.00", null, 61), 13);
+        when(ledgerRepository.findSequencedAfter(eq(10L), any())).thenReturn(List.of(deposit, withdrawal));
+
+        assertEquals(2, projections.poll());
+        assertEquals(13, projections.getCursor());
+        assertEquals(1, projections.getGapCount());
+
+        when(ledgerRepository.findBySequenceIn(List.of(11L))).thenReturn(List.of(chunk));
+
+        assertEquals(1, projections.poll());
+        assertEquals(0, projections.getGapCount());
+        assertEquals(new BigDecimal("50.00"),
+            projections.accountSummary(ACCOUNT).orElseThrow().getPostedBalance().get(Currency.USD));
+    }
+
+    @Test
+    void testGapOfRolledBackInsertIsGivenUpAfterTimeout() throws InterruptedException {
+        projections = projections(3, 100, Duration.ofMillis(1));
+        startAt(10);
+        when(ledgerRepository.findSequencedAfter(eq(10L), any())).thenReturn(List.of(
+            sequenced(entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 0), 12)));
+        projections.poll();
+        assertEquals(1, projections.getGapCount());
+
+        Thread.sleep(10);
+        projections.poll();
+
+        assertEquals(0, projections.getGapCount());
+        assertEquals(1.0, meterRegistry.counter("cardengine.ledger.projection.expired_gaps").count());
+        verify(ledgerRepository, never()).findBySequenceIn(any());
+    }
+
+    @Test
+    void testEntrySeenByStreamAndPollIsAppliedOnce() {
+        startAt(10);
+        table(ACCOUNT, List.of(), List.of());
+        projections.accountSummary(ACCOUNT);
+
+        LedgerEntry local = sequenced(entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT,
+            "10.00", null, 1), 11);
+        LedgerEntry remote = sequenced(entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT,
+            "20.00", null, 2), 12);
+        projections.onAppend(local);
+        when(ledgerRepository.findSequencedAfter(eq(10L), any())).thenReturn(List.of(local, remote));
+
+        assertEquals(1, projections.poll());
+
+        assertEquals(List.of(remote, local), projections.accountHistory(ACCOUNT).orElseThrow());
+        assertEquals(new BigDecimal("30.00"),
+            projections.accountSummary(ACCOUNT).orElseThrow().getPostedBalance().get(Currency.USD));
+    }
+
+    @Test
+    void testSnapshotEntryNotYetPolledIsCountedOnce() {
+        startAt(10);
+        // A late clearing chunk, older than the history kept, committed after the last poll:
+        // it is in the snapshot and read again by the next poll
+        LedgerEntry chunk = sequenced(entry(TransactionType.CLEARING_COMMIT, LedgerEntry.EntryType.DEBIT,
+            "10.00", null, 0), 11);
+        table(ACCOUNT, List.of(
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "100.00", null, 3),
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "100.00", null, 2),
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "100.00", null, 1),
+            chunk), List.of(chunk.getEntryId()));
+        projections.accountSummary(ACCOUNT);
+
+        when(ledgerRepository.findSequencedAfter(eq(10L), any())).thenReturn(List.of(chunk));
+        assertEquals(1, projections.poll());
+
+        LedgerSummary summary = projections.accountSummary(ACCOUNT).orElseThrow();
+        assertEquals(4, summary.getEntryCount());
+        assertEquals(new BigDecimal("290.00"), summary.getPostedBalance().get(Currency.USD));
+    }
+
+    @Test
+    void testHistoryBeyondLimitFallsBackButTotalsRemain() {
+        startAt(0);
+        table(ACCOUNT, List.of(
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 0),
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 1),
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 2),
+            entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 3)), List.of());
+
+        assertTrue(projections.accountHistory(ACCOUNT).isEmpty());
+        assertEquals(new BigDecimal("4.00"),
+            projections.accountSummary(ACCOUNT).orElseThrow().getPostedBalance().get(Currency.USD));
+    }
+
+    @Test
+    void testLeastRecentlyReadViewsAreDroppedBeyondMaxKeys() {
+        projections = projections(3, 2, Duration.ofMinutes(10));
+        startAt(0);
+        lenient().when(ledgerRepository.totalsByAccount(any())).thenReturn(List.of());
+        lenient().when(ledgerRepository.findAccountPage(any(), any())).thenReturn(List.of());
+        lenient().when(ledgerRepository.findAccountEntryIdsSequencedAfter(any(), anyLong())).thenReturn(List.of());
+
+        projections.accountSummary("a");
+        projections.accountSummary("b");
+        projections.accountSummary("c");
+        projections.accountSummary("a");
+        projections.poll();
+
+        // b was read least recently and is loaded again
+        projections.accountSummary("a");
+        projections.accountSummary("c");
+        projections.accountSummary("b");
+        verify(ledgerRepository, times(1)).totalsByAccount("a");
+        verify(ledgerRepository, times(1)).totalsByAccount("c");
+        verify(ledgerRepository, times(2)).totalsByAccount("b");
+        assertEquals(1.0, meterRegistry.counter("cardengine.ledger.projection.evictions",
+            "projection", "account").count());
+    }
+
+    @Test
+    void testReadsBeforeStartFallBackToTable() {
+        assertTrue(projections.accountHistory(ACCOUNT).isEmpty());
+        assertTrue(projections.accountSummary(ACCOUNT).isEmpty());
+        assertEquals(0, projections.poll());
+        verifyNoInteractions(ledgerRepository);
+    }
+
+    @Test
+    void testDisabledProjectionsServeNothing() {
+        LedgerProjections disabled = new LedgerProjections(ledgerRepository, entityManager, transactionManager,
+            meterRegistry, false, 3, 100, Duration.ofMinutes(10), 100);
+
+        disabled.start();
+        disabled.onAppend(entry(TransactionType.DEPOSIT, LedgerEntry.EntryType.CREDIT, "1.00", null, 0));
+
+        assertTrue(disabled.accountHistory(ACCOUNT).isEmpty());
+        assertTrue(disabled.accountSummary(ACCOUNT).isEmpty());
+        assertEquals(0, disabled.poll());
+        verifyNoInteractions(ledgerRepository);
+    }
+
+    private LedgerProjections projections(int historyLimit, int maxKeys, Duration gapTimeout) {
+        return new LedgerProjections(ledgerRepository, entityManager, transactionManager,
+            meterRegistry, true, historyLimit, maxKeys, gapTimeout, 100);
+    }
+
+    private void startAt(long sequence) {
+        when(ledgerRepository.findNewestSequences(any())).thenReturn(sequence > 0 ? List.of(sequence) : List.of());
+        lenient().when(ledgerRepository.findSequencedAfter(anyLong(), any())).thenReturn(List.of());
+        projections.start();
+    }
+
+    /**
+     * Table contents of an account: its entries newest first, and the IDs of
+     * those the poll has yet to read.
+     */
+    private void table(String accountId, List<LedgerEntry> newestFirst, List<String> unpolledIds) {
+        List<LedgerTotal> totals = newestFirst.stream()
+            .collect(Collectors.groupingBy(LedgerEntry::getTransactionType))
+            .entrySet().stream()
+            .map(group -> new LedgerTotal(group.getKey(), Currency.USD,
+                group.getValue().stream().map(e -> e.getAmount().getAmount()).reduce(BigDecimal.ZERO, BigDecimal::add),
+                (long) group.getValue().size(),
+                group.getValue().stream().map(LedgerEntry::getCreatedAt).min(Instant::compareTo).orElseThrow(),
+                group.getValue().stream().map(LedgerEntry::getCreatedAt).max(Instant::compareTo).orElseThrow()))
+            .toList();
+        when(ledgerRepository.totalsByAccount(accountId)).thenReturn(totals);
+        when(ledgerRepository.findAccountPage(eq(accountId), any()))
+            .thenReturn(newestFirst.subList(0, Math.min(3, newestFirst.size())));
+        when(ledgerRepository.findAccountEntryIdsSequencedAfter(eq(accountId), anyLong())).thenReturn(unpolledIds);
+    }
+
+    private static LedgerEntry sequenced(LedgerEntry entry, long sequence) {
+        entry.setEntrySequence(sequence);
+        return entry;
+    }
+
+    private static LedgerEntry entry(TransactionType type, LedgerEntry.EntryType entryType, String amount,
+                                     String cardId, int secondsAfterEpoch) {
+        LedgerEntry entry = new LedgerEntry("txn-" + secondsAfterEpoch, ACCOUNT, entryType,
+            Money.of(amount, Currency.USD), type, null, cardId, type.name(), IdempotencyKey.generate());
+        entry.setCreatedAt(Instant.ofEpochSecond(1_700_000_000L + secondsAfterEpoch));
+        return entry;
+    }
+}
@@ -0,0 +1,255 @@
+package com.cardengine.ledger.snapshot;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerCursor;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.LedgerRepository;
+import com.cardengine.ledger.TransactionType;
+import com.cardengine.storage.ColdArchive;
+import com.cardengine.storage.PartitionedTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for account balance snapshots and balance reconstruction on top of them.
+ */
+@ExtendWith(MockitoExtension.class)
+class LedgerSnapshotServiceTest {
+
+    private static final String ACCOUNT = "account-1";
+    private static final Instant T0 = Instant.ofEpochSecond(1_700_000_000L);
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private LedgerSnapshotRepository snapshotRepository;
+
+    @Mock
+    private LedgerSnapshotWatermarkRepository watermarkRepository;
+
+    @Mock
+    private ColdArchive coldArchive;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private LedgerSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(coldArchive.findByFile(any(), any(), any(), any())).thenAnswer(invocation -> Stream.empty());
+        service = new LedgerSnapshotService(ledgerRepository, snapshotRepository, watermarkRepository,
+            coldArchive, entityManager,
+            transactionTemplate, new SimpleMeterRegistry(), true, Duration.ofMinutes(1), 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testSnapshotFoldsBalanceAndReservedTotals() {
+        Instant through = T0.plusSeconds(60);
+        List<LedgerEntry> entries = List.of(
+            entry(TransactionType.DEPOSIT, "100.00", null, 1),
+            entry(TransactionType.AUTH_HOLD, "30.00", "auth-1", 2),
+            entry(TransactionType.CLEARING_COMMIT, "25.00", "auth-1", 3),
+            entry(TransactionType.AUTH_HOLD, "20.00", "auth-2", 4));
+        when(snapshotRepository.findLatestPosition()).thenReturn(Optional.empty());
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(Instant.EPOCH, through)).thenReturn(List.of(ACCOUNT));
+        when(snapshotRepository.findLatest(ACCOUNT, through)).thenReturn(Optional.empty());
+        when(ledgerRepository.countAccountEntriesBetween(ACCOUNT, Instant.EPOCH, "", through)).thenReturn(4L);
+        when(ledgerRepository.streamAccountEntriesBetween(ACCOUNT, Instant.EPOCH, "", through))
+            .thenReturn(entries.stream());
+
+        assertEquals(1, service.snapshot(through));
+
+        ArgumentCaptor<LedgerSnapshot> saved = ArgumentCaptor.forClass(LedgerSnapshot.class);
+        verify(snapshotRepository).save(saved.capture());
+        LedgerSnapshot snapshot = saved.getValue();
+        // Clearing 25.00 of a 30.00 hold frees all 30.00
+        assertEquals(0, snapshot.getBalance().compareTo(new BigDecimal("75.00")));
+        assertEquals(0, snapshot.getReserved().compareTo(new BigDecimal("20.00")));
+        assertEquals(List.of("auth-2"), List.copyOf(snapshot.getOpenHolds().keySet()));
+        assertEquals(0, snapshot.getOpenHolds().get("auth-2").compareTo(new BigDecimal("20.00")));
+        assertEquals(Currency.USD, snapshot.getCurrency());
+        assertEquals(4, snapshot.getEntryCount());
+        assertEquals(entries.get(3).getEntryId(), snapshot.getThroughEntryId());
+        verify(entityManager, times(4)).detach(any());
+    }
+
+    @Test
+    void testAccountBelowMinEntriesIsNotSnapshotted() {
+        Instant through = T0.plusSeconds(60);
+        when(snapshotRepository.findLatestPosition()).thenReturn(Optional.empty());
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(Instant.EPOCH, through)).thenReturn(List.of(ACCOUNT));
+        when(snapshotRepository.findLatest(ACCOUNT, through)).thenReturn(Optional.empty());
+        when(ledgerRepository.countAccountEntriesBetween(ACCOUNT, Instant.EPOCH, "", through)).thenReturn(2L);
+
+        assertEquals(0, service.snapshot(through));
+
+        verify(ledgerRepository, never()).streamAccountEntriesBetween(anyString(), any(), anyString(), any());
+        verify(snapshotRepository, never()).save(any());
+    }
+
+    @Test
+    void testRunsAreIncremental() {
+        Instant first = T0.plusSeconds(60);
+        Instant second = T0.plusSeconds(120);
+        when(snapshotRepository.findLatestPosition()).thenReturn(Optional.of(T0));
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(any(), any())).thenReturn(List.of());
+
+        service.snapshot(first);
+        service.snapshot(second);
+
+        verify(ledgerRepository).findAccountIdsWithEntriesBetween(T0, first);
+        verify(ledgerRepository).findAccountIdsWithEntriesBetween(first, second);
+        verify(snapshotRepository, times(1)).findLatestPosition();
+        ArgumentCaptor<LedgerSnapshotWatermark> saved = ArgumentCaptor.forClass(LedgerSnapshotWatermark.class);
+        verify(watermarkRepository, times(2)).save(saved.capture());
+        assertEquals(second, saved.getValue().getThrough());
+    }
+
+    @Test
+    void testRestartResumesFromSavedWatermark() {
+        Instant saved = T0.plusSeconds(30);
+        Instant through = T0.plusSeconds(60);
+        when(watermarkRepository.findById(LedgerSnapshotWatermark.SNAPSHOTS))
+            .thenReturn(Optional.of(new LedgerSnapshotWatermark(LedgerSnapshotWatermark.SNAPSHOTS, saved)));
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(saved, through)).thenReturn(List.of());
+
+        service.snapshot(through);
+
+        verify(snapshotRepository, never()).findLatestPosition();
+        verify(ledgerRepository).findAccountIdsWithEntriesBetween(saved, through);
+    }
+
+    @Test
+    void testClearingOfHoldFromSnapshotFreesWholeHold() {
+        LedgerEntry last = entry(TransactionType.AUTH_HOLD, "40.00", "auth-1", 10);
+        LedgerSnapshot snapshot = new LedgerSnapshot(ACCOUNT, Currency.USD, 100_00, 40_00,
+            Map.of("auth-1", 40_00L), 2, LedgerCursor.after(last));
+        Instant at = T0.plusSeconds(100);
+        when(snapshotRepository.findLatest(ACCOUNT, at)).thenReturn(Optional.of(snapshot));
+        when(ledgerRepository.streamAccountEntriesBetween(ACCOUNT, last.getCreatedAt(), last.getEntryId(), at))
+            .thenReturn(Stream.of(entry(TransactionType.CLEARING_COMMIT, "15.00", "auth-1", 11)));
+
+        LedgerBalance balance = service.balanceAt(ACCOUNT, Currency.USD, at);
+
+        assertEquals(Money.of("85.00", Currency.USD), balance.getBalance());
+        assertEquals(Money.of("0.00", Currency.USD), balance.getReserved());
+    }
+
+    @Test
+    void testArchivedEntriesAreReplayedBeforeLiveOnes() {
+        Instant at = T0.plusSeconds(100);
+        LedgerEntry archivedDeposit = entry(TransactionType.DEPOSIT, "50.00", null, 1);
+        LedgerEntry archivedHold = entry(TransactionType.AUTH_HOLD, "10.00", "auth-1", 2);
+        when(snapshotRepository.findLatest(ACCOUNT, at)).thenReturn(Optional.empty());
+        when(coldArchive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", ACCOUNT, Instant.EPOCH))
+            .thenAnswer(invocation -> Stream.of(List.of(row(archivedHold), row(archivedDeposit))));
+        when(ledgerRepository.streamAccountEntriesBetween(ACCOUNT, archivedHold.getCreatedAt(),
+                archivedHold.getEntryId(), at))
+            .thenReturn(Stream.of(entry(TransactionType.CLEARING_COMMIT, "8.00", "auth-1", 50)));
+
+        LedgerBalance balance = service.balanceAt(ACCOUNT, Currency.USD, at);
+
+        assertEquals(Money.of("42.00", Currency.USD), balance.getBalance());
+        assertEquals(Money.of("0.00", Currency.USD), balance.getReserved());
+        assertEquals(3, balance.getEntriesReplayed());
+    }
+
+    @Test
+    void testBalanceAtReplaysOnlyEntriesAfterSnapshot() {
+        LedgerEntry last = entry(TransactionType.DEPOSIT, "1.00", null, 10);
+        LedgerSnapshot snapshot = new LedgerSnapshot(ACCOUNT, Currency.USD, 50_00, 10_00, Map.of(), 500,
+            LedgerCursor.after(last));
+        Instant at = T0.plusSeconds(100);
+        when(snapshotRepository.findLatest(ACCOUNT, at)).thenReturn(Optional.of(snapshot));
+        when(ledgerRepository.streamAccountEntriesBetween(ACCOUNT, last.getCreatedAt(), last.getEntryId(), at))
+            .thenReturn(Stream.of(
+                entry(TransactionType.AUTH_RELEASE, "10.00", "auth-1", 11),
+                entry(TransactionType.REVERSAL, "5.00", "auth-0", 12)));
+
+        LedgerBalance balance = service.balanceAt(ACCOUNT, Currency.USD, at);
+
+        assertEquals(Money.of("55.00", Currency.USD), balance.getBalance());
+        assertEquals(Money.of("0.00", Currency.USD), balance.getReserved());
+        assertEquals(last.getCreatedAt(), balance.getSnapshotAt());
+        assertEquals(2, balance.getEntriesReplayed());
+    }
+
+    @Test
+    void testFailedAccountIsRetriedOnNextRun() {
+        Instant first = T0.plusSeconds(60);
+        Instant second = T0.plusSeconds(120);
+        when(snapshotRepository.findLatestPosition()).thenReturn(Optional.of(T0));
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(T0, first)).thenReturn(List.of(ACCOUNT));
+        when(ledgerRepository.findAccountIdsWithEntriesBetween(first, second)).thenReturn(List.of());
+        when(snapshotRepository.findLatest(eq(ACCOUNT), any()))
+            .thenThrow(new IllegalStateException("Database unavailable"))
+            .thenReturn(Optional.empty());
+        when(ledgerRepository.countAccountEntriesBetween(eq(ACCOUNT), any(), anyString(), any())).thenReturn(0L);
+
+        assertEquals(0, service.snapshot(first));
+        service.snapshot(second);
+
+        verify(snapshotRepository, times(2)).findLatest(eq(ACCOUNT), any());
+    }
+
+    private static Map<String, String> row(LedgerEntry entry) {
+        Map<String, String> row = new HashMap<>();
+        row.put("entry_id", entry.getEntryId());
+        row.put("transaction_id", entry.getTransactionId());
+        row.put("account_id", ACCOUNT);
+        row.put("entry_type", entry.getEntryType().name());
+        row.put("amount", entry.getAmount().getAmount().toPlainString());
+        row.put("currency", entry.getAmount().getCurrency().name());
+        row.put("transaction_type", entry.getTransactionType().name());
+        row.put("authorization_id", entry.getAuthorizationId());
+        row.put("description", entry.getDescription());
+        row.put("idempotency_key", entry.getIdempotencyKey());
+        row.put("created_at", entry.getCreatedAt().toString());
+        return row;
+    }
+
+    private static LedgerEntry entry(TransactionType type, String amount, String authorizationId, int seconds) {
+        LedgerEntry entry = new LedgerEntry("txn-" + seconds, ACCOUNT, LedgerEntry.EntryType.DEBIT,
+            Money.of(amount, Currency.USD), type, authorizationId, null, type.name(), IdempotencyKey.generate());
+        entry.setCreatedAt(T0.plusSeconds(seconds));
+        return entry;
+    }
+}
@@ -0,0 +1,149 @@
+package com.cardengine.providers.fineract;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FineractClient over the pooled transport, against a local stub
+ * of the Fineract API.
+ */
+class FineractClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private FineractTransport transport;
+    private FineractClient client;
+
+    private final AtomicLong responseDelayMillis = new AtomicLong();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<String> lastAuthorization = new AtomicReference<>();
+    private final AtomicReference<String> lastTenant = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/savingsaccounts/", exchange -> respond(exchange,
+            exchange.getRequestURI().getQuery() == null
+                ? "{\"savingsId\":100,\"availableBalance\":900.00,\"accountBalance\":1000.00,\"currency\":\"USD\"}"
+                : "{\"savingsId\":100,\"resourceId\":7}"));
+        server.createContext("/api/journalentries", exchange ->
+            respond(exchange, "{\"transactionId\":42}"));
+        server.start();
+
+        transport = new FineractTransport(8, 8, Duration.ofMillis(500), Duration.ofSeconds(30),
+            Duration.ofSeconds(2),
+            Duration.ofMillis(500), Duration.ofMillis(200),
+            Duration.ofMillis(500), Duration.ofSeconds(2),
+            Duration.ofMillis(500), Duration.ofSeconds(2));
+        client = new FineractClient(transport,
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/api", "default", "mifos", "password");
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testSequentialCallsReuseOneConnection() {
+        for (int i = 0; i < 20; i++) {
+            FineractDTOs.AccountBalance balance = client.getAccountBalance(100L);
+            assertEquals(0, new BigDecimal("900.00").compareTo(balance.getAvailableBalance()));
+        }
+
+        assertEquals(1, clientPorts.size(), "Keep-alive connection should be reused");
+        assertEquals(0, transport.getPoolStats().getLeased());
+        assertEquals("default", lastTenant.get());
+        assertEquals("Basic bWlmb3M6cGFzc3dvcmQ=", lastAuthorization.get());
+    }
+
+    @Test
+    void testAsyncCallsRunConcurrentlyWithinPoolBound() {
+        responseDelayMillis.set(50);
+
+        List<CompletableFuture<FineractDTOs.AccountBalance>> balances = IntStream.range(0, 16)
+            .mapToObj(i -> client.getAccountBalanceAsync(100L))
+            .toList();
+        CompletableFuture<FineractDTOs.JournalEntryResponse> journal =
+            client.createJournalEntryAsync(new FineractDTOs.JournalEntryRequest());
+        CompletableFuture<FineractDTOs.SavingsTransactionResponse> debit =
+            client.debitAccountAsync(100L, new FineractDTOs.SavingsTransactionRequest());
+        CompletableFuture<FineractDTOs.SavingsTransactionResponse> credit =
+            client.creditAccountAsync(100L, new FineractDTOs.SavingsTransactionRequest());
+
+        balances.forEach(future -> assertEquals(100L, future.join().getSavingsId()));
+        assertEquals(42L, journal.join().getTransactionId());
+        assertEquals(7L, debit.join().getResourceId());
+        assertEquals(7L, credit.join().getResourceId());
+
+        assertTrue(clientPorts.size() > 1, "Async calls should use several connections");
+        assertTrue(clientPorts.size() <= 8, "Connections should not exceed the pool bound");
+    }
+
+    @Test
+    void testReadTimeoutIsPerOperation() {
+        responseDelayMillis.set(500);
+
+        // Balance inquiries time out after 200 ms, savings transactions wait up to 2 s
+        assertThrows(RuntimeException.class, () -> client.getAccountBalance(100L));
+        assertEquals(7L, client.debitAccount(100L, new FineractDTOs.SavingsTransactionRequest()).getResourceId());
+    }
+
+    @Test
+    void testAsyncFailureCompletesExceptionally() {
+        responseDelayMillis.set(500);
+
+        CompletionException thrown = assertThrows(CompletionException.class,
+            () -> client.getAccountBalanceAsync(100L).join());
+        assertEquals("Failed to fetch account balance", thrown.getCause().getMessage());
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        lastAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+        lastTenant.set(exchange.getRequestHeaders().getFirst("Fineract-Platform-TenantId"));
+        exchange.getRequestBody().readAllBytes();
+
+        try {
+            Thread.sleep(responseDelayMillis.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException e) {
+            // Client gave up waiting (read timeout)
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -260,6 +260,54 @@ class SampleProcessorAdapterTest {
             .compareTo(availableBalance.getAmount()));
     }
 
+    @Test
+    void testAuthorizationWebhook_ResolvesIssuedCardToken() {
+        Card tokenizedCard = cardService.issueCard(
+            "Tokenized User",
+            "5678",
+            LocalDate.now().plusYears(2),
+            testAccount.getAccountId(),
+            "processor-test-owner",
+            "tok_processor_5678"
+        );
+
+        SampleProcessorWebhooks.ProcessorResponse response = processorAdapter.handleAuthorizationWebhook(
+            createAuthWebhook("proc-txn-010", "tok_processor_5678", "25.00", "Store", "5411"));
+
+        assertEquals("APPROVED", response.getStatus());
+        assertEquals(tokenizedCard.getCardId(),
+            authorizationService.getAuthorization(response.getAuthorizationCode()).getCardId());
+    }
+
+    @Test
+    void testAuthorizationWebhook_UnknownToken() {
+        SampleProcessorWebhooks.AuthorizationWebhook webhook =
+            createAuthWebhook("proc-txn-011", "tok_unknown", "25.00", "Store", "5411");
+
+        SampleProcessorWebhooks.ProcessorResponse response =
+            processorAdapter.handleAuthorizationWebhook(webhook);
+
+        assertEquals("DECLINED", response.getStatus());
+        assertTrue(response.getDeclineReason().contains("Card not found for token"));
+    }
+
+    @Test
+    void testAuthorizationWebhook_AmbiguousLast4() {
+        cardService.issueCard(
+            "Second Card User",
+            "1234",
+            LocalDate.now().plusYears(2),
+            testAccount.getAccountId(),
+            "processor-test-owner"
+        );
+
+        SampleProcessorWebhooks.ProcessorResponse response = processorAdapter.handleAuthorizationWebhook(
+            createAuthWebhook("proc-txn-012", "1234", "25.00", "Store", "5411"));
+
+        assertEquals("DECLINED", response.getStatus());
+        assertTrue(response.getDeclineReason().contains("ambiguous"));
+    }
+
     private SampleProcessorWebhooks.AuthorizationWebhook createAuthWebhook(
             String processorTxnId, String cardToken, String amount,
             String merchantName, String mcc) {
@@ -0,0 +1,186 @@
+package com.cardengine.reconciliation;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationService;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.bank.outbox.BankOutboxEntry;
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.bank.outbox.BankOutboxRepository;
+import com.cardengine.bank.outbox.BankOutboxStatus;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerService;
+import com.cardengine.providers.fineract.FineractAuthHold;
+import com.cardengine.providers.fineract.FineractAuthHoldRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for full and incremental reconciliation runs.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReconciliationServiceTest {
+
+    private static final Money AMOUNT = Money.of("50.00", Currency.USD);
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private DiscrepancyRepository discrepancyRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private AuthorizationRepository authorizationRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private FineractAuthHoldRepository holdRepository;
+
+    @Autowired
+    private BankOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InternalLedgerAccount account;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        account = accountService.createInternalLedgerAccount("recon-owner", Money.of("1000.00", Currency.USD));
+        card = cardService.issueCard("Recon User", "4321", LocalDate.now().plusYears(2),
+            account.getAccountId(), "recon-owner");
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Leave the shared database consistent for other tests' checks
+        jdbcTemplate.update("delete from account_reserves where account_id = ?", account.getAccountId());
+        jdbcTemplate.update("update accounts set reserved_total = 0 where account_id = ?", account.getAccountId());
+        jdbcTemplate.update("delete from fineract_auth_holds where authorization_id like 'recon-%'");
+        jdbcTemplate.update("delete from bank_outbox where reference_id like 'recon-%'");
+    }
+
+    @Test
+    void testFullRunReportsDiscrepancies() {
+        String consistent = authorize();
+        String reserveLost = authorize();
+        jdbcTemplate.update("delete from account_reserves where authorization_id = ?", reserveLost);
+
+        String holdLeftOpen = clearedBankAuthorization(null);
+        String commitPending = clearedBankAuthorization(BankOutboxStatus.PENDING);
+        String commitSending = clearedBankAuthorization(BankOutboxStatus.IN_FLIGHT);
+
+        ReconciliationReport report = reconciliationService.runFull();
+
+        assertEquals(ReconciliationRun.Status.COMPLETED, report.getStatus());
+        assertEquals(ReconciliationRun.Mode.FULL, report.getMode());
+        Map<String, Set<DiscrepancyType>> found = discrepancies(report);
+        assertNull(found.get(consistent));
+        assertEquals(EnumSet.of(DiscrepancyType.APPROVED_WITHOUT_RESERVE), found.get(reserveLost));
+        assertEquals(EnumSet.of(DiscrepancyType.RESERVED_TOTAL_MISMATCH), found.get(account.getAccountId()));
+        assertEquals(EnumSet.of(DiscrepancyType.HOLD_NOT_CLOSED), found.get(holdLeftOpen));
+        assertNull(found.get(commitPending), "Hold with a pending commit is in flight");
+        assertNull(found.get(commitSending), "Hold with a commit being sent is in flight");
+        assertTrue(report.getCounts().get(DiscrepancyType.HOLD_NOT_CLOSED) >= 1);
+    }
+
+    @Test
+    void testIncrementalRunCoversChangesSinceLastRun() {
+        reconciliationService.runFull();
+
+        String reserveLost = authorize();
+        jdbcTemplate.update("delete from account_reserves where authorization_id = ?", reserveLost);
+
+        ReconciliationReport report = reconciliationService.runIncremental();
+
+        assertEquals(ReconciliationRun.Status.COMPLETED, report.getStatus());
+        assertEquals(ReconciliationRun.Mode.INCREMENTAL, report.getMode());
+        assertNotNull(report.getSince());
+        Map<String, Set<DiscrepancyType>> found = discrepancies(report);
+        assertEquals(EnumSet.of(DiscrepancyType.APPROVED_WITHOUT_RESERVE), found.get(reserveLost));
+        assertNull(found.get(account.getAccountId()), "Account totals are only compared by full runs");
+    }
+
+    private String authorize() {
+        String authorizationId = "recon-" + UUID.randomUUID();
+        AuthorizationRequest request = AuthorizationRequest.builder()
+            .authorizationId(authorizationId)
+            .cardId(card.getCardId())
+            .amount(AMOUNT)
+            .merchantName("Test Merchant")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+        assertEquals(AuthorizationStatus.APPROVED, authorizationService.authorize(request).getStatus());
+        return authorizationId;
+    }
+
+    private String clearedBankAuthorization(BankOutboxStatus commitQueued) {
+        String authorizationId = "recon-bank-" + UUID.randomUUID();
+        Authorization authorization = new Authorization(authorizationId, card.getCardId(), "BANK-1", AMOUNT,
+            AuthorizationStatus.APPROVED, "Test Merchant", null, null, null, IdempotencyKey.generate());
+        authorization.clear(AMOUNT);
+        authorizationRepository.save(authorization);
+        ledgerService.recordClearing("BANK-1", card.getCardId(), AMOUNT, authorizationId, IdempotencyKey.generate());
+        holdRepository.save(new FineractAuthHold(authorizationId, 1L, 10L, new BigDecimal("50.00"), "USD"));
+
+        if (commitQueued != null) {
+            BankOutboxEntry entry = new BankOutboxEntry(
+                BankOutboxOperation.COMMIT_DEBIT, "BANK-1", authorizationId, AMOUNT);
+            // Not due, so the dispatcher leaves it alone
+            entry.setNextAttemptAt(Instant.now().plus(1, ChronoUnit.DAYS));
+            if (commitQueued == BankOutboxStatus.IN_FLIGHT) {
+                entry.claimed("other-node", Instant.now().plus(1, ChronoUnit.DAYS));
+            }
+            outboxRepository.save(entry);
+        }
+        return authorizationId;
+    }
+
+    private Map<String, Set<DiscrepancyType>> discrepancies(ReconciliationReport report) {
+        Map<String, Set<DiscrepancyType>> found = new HashMap<>();
+        for (Discrepancy discrepancy : discrepancyRepository.findByRunIdOrderByIdAsc(
+                report.getRunId(), PageRequest.of(0, 10_000))) {
+            found.computeIfAbsent(discrepancy.getSubjectId(), id -> EnumSet.noneOf(DiscrepancyType.class))
+                .add(discrepancy.getType());
+        }
+        return found;
+    }
+}
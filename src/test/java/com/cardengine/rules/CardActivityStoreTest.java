@@ -0,0 +1,148 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationActivity;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the per-card sliding-window aggregates.
+ */
+@ExtendWith(MockitoExtension.class)
+class CardActivityStoreTest {
+
+    private static final String CARD_ID = "card-1";
+
+    @Mock
+    private AuthorizationRepository authorizationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardActivityStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CardActivityStore(authorizationRepository, new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void testVelocityWindowExpiresAfterOneMinute() {
+        CardActivityWindow window = new CardActivityWindow();
+        Instant start = Instant.parse("2026-01-01T10:00:00Z");
+
+        window.recordAttempt(start);
+        window.recordAttempt(start.plusSeconds(30));
+
+        assertEquals(2, window.countInLastMinute(start.plusSeconds(59)));
+        assertEquals(1, window.countInLastMinute(start.plusSeconds(60)));
+        assertEquals(0, window.countInLastMinute(start.plusSeconds(120)));
+    }
+
+    @Test
+    void testDailySpendResetsAtUtcMidnight() {
+        CardActivityWindow window = new CardActivityWindow();
+        Instant lateEvening = Instant.parse("2026-01-01T23:59:00Z");
+
+        window.adjustSpend(lateEvening, 10_000);
+        assertEquals(10_000, window.spentOn(lateEvening));
+        assertEquals(0, window.spentOn(lateEvening.plus(2, ChronoUnit.MINUTES)));
+
+        // A release of yesterday's authorization must not reduce today's spend
+        Instant nextMorning = Instant.parse("2026-01-02T08:00:00Z");
+        window.adjustSpend(nextMorning, 4_000);
+        window.adjustSpend(lateEvening, -10_000);
+        assertEquals(4_000, window.spentOn(nextMorning));
+    }
+
+    @Test
+    void testApprovalsDeclinesAndReleases() {
+        Authorization approved = authorization("auth-1", "100.00", AuthorizationStatus.APPROVED);
+        Authorization declined = authorization("auth-2", "900.00", AuthorizationStatus.DECLINED);
+
+        store.recordAuthorization(approved);
+        store.recordAuthorization(declined);
+
+        Instant now = Instant.now();
+        assertEquals(2, store.countInLastMinute(CARD_ID, now));
+        assertEquals(10_000, store.spentToday(CARD_ID, now));
+
+        approved.release();
+        store.recordRelease(approved);
+
+        assertEquals(2, store.countInLastMinute(CARD_ID, now));
+        assertEquals(0, store.spentToday(CARD_ID, now));
+    }
+
+    @Test
+    void testIdleWindowsAreEvicted() {
+        Authorization approved = authorization("auth-1", "100.00", AuthorizationStatus.APPROVED);
+        Authorization declined = authorization("auth-2", "900.00", AuthorizationStatus.DECLINED);
+        declined.setCardId("other-card");
+        store.recordAuthorization(approved);
+        store.recordAuthorization(declined);
+
+        Instant now = Instant.now();
+        assertEquals(0, store.evictIdle(now));
+
+        // A minute later the declined card has nothing left that a rule reads
+        assertEquals(1, store.evictIdle(now.plusSeconds(61)));
+        assertEquals(1, store.size());
+        assertEquals(10_000, store.spentToday(CARD_ID, now.plusSeconds(61)));
+
+        // The next day the approved card's spend no longer counts either
+        assertEquals(1, store.evictIdle(now.plus(1, ChronoUnit.DAYS)));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testRebuildFromAuthorizationsTable() {
+        Authorization approved = authorization("auth-1", "25.00", AuthorizationStatus.APPROVED);
+        Authorization cleared = authorization("auth-2", "75.00", AuthorizationStatus.CLEARED);
+        Authorization released = authorization("auth-3", "500.00", AuthorizationStatus.RELEASED);
+        when(authorizationRepository.streamActivityCreatedAfter(any()))
+            .thenReturn(Stream.of(approved, cleared, released).map(CardActivityStoreTest::activity));
+
+        store.rebuild();
+
+        Instant now = Instant.now();
+        assertEquals(3, store.countInLastMinute(CARD_ID, now));
+        assertEquals(10_000, store.spentToday(CARD_ID, now));
+        assertEquals(0, store.countInLastMinute("other-card", now));
+    }
+
+    private static AuthorizationActivity activity(Authorization authorization) {
+        return new AuthorizationActivity(authorization.getCardId(), authorization.getCreatedAt(),
+            authorization.getStatus(), authorization.getAmount().getAmount(), authorization.getAmount().getCurrency());
+    }
+
+    private Authorization authorization(String authorizationId, String amount, AuthorizationStatus status) {
+        Authorization authorization = new Authorization(
+            authorizationId, CARD_ID, "account-1",
+            Money.of(amount, Currency.USD), status,
+            "Merchant", "5411", "City", "US",
+            "key-" + authorizationId
+        );
+        if (status == AuthorizationStatus.DECLINED) {
+            authorization.decline("test");
+        }
+        return authorization;
+    }
+}
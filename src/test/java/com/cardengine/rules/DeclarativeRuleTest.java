@@ -0,0 +1,146 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for rules defined at runtime in the rule expression language.
+ *
+ * Not transactional: the store recompiles after commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DeclarativeRuleTest {
+
+    @Autowired
+    private RuleDefinitionService ruleDefinitionService;
+
+    @Autowired
+    private RuleDefinitionStore ruleDefinitionStore;
+
+    @Autowired
+    private DeclarativeRule declarativeRule;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from rule_definitions");
+        ruleDefinitionStore.refresh();
+    }
+
+    @Test
+    void testSavedRulesDeclineMatchingAuthorizations() {
+        ruleDefinitionService.saveRule("high-risk-abroad",
+            "mcc in [7995, \"3000-3350\"] or (amount > 500 and country != \"US\")",
+            "High risk purchase abroad", true);
+
+        assertTrue(evaluate("600.00", Currency.USD, "5411", "US").isApproved());
+        assertTrue(evaluate("500.00", Currency.EUR, "5411", "FR").isApproved());
+
+        RuleResult abroad = evaluate("500.01", Currency.EUR, "5411", "FR");
+        assertFalse(abroad.isApproved());
+        assertEquals("High risk purchase abroad", abroad.getReason());
+        assertFalse(evaluate("10.00", Currency.USD, "7995", "US").isApproved());
+        assertFalse(evaluate("10.00", Currency.USD, "3100", "US").isApproved());
+
+        // A missing country is not "US"
+        assertFalse(evaluate("600.00", Currency.USD, "5411", null).isApproved());
+
+        ruleDefinitionService.saveRule("high-risk-abroad", "mcc = 7995", null, false);
+        assertTrue(evaluate("10.00", Currency.USD, "7995", "US").isApproved());
+
+        ruleDefinitionService.saveRule("high-risk-abroad", "mcc = 7995", null, true);
+        assertEquals("Declined by rule high-risk-abroad",
+            evaluate("10.00", Currency.USD, "7995", "US").getReason());
+
+        ruleDefinitionService.deleteRule("high-risk-abroad");
+        assertTrue(evaluate("10.00", Currency.USD, "7995", "US").isApproved());
+    }
+
+    @Test
+    void testChangesFromAnotherNodeApplyOnRefresh() {
+        ruleDefinitionService.saveRule("no-euro", "currency = \"EUR\"", null, true);
+        assertTrue(evaluate("10.00", Currency.GBP, "5411", "GB").isApproved());
+
+        // Another node widens the rule
+        jdbcTemplate.update("update rule_definitions set expression = ?, version = version + 1, updated_at = ?"
+                + " where name = ?",
+            "currency in [\"EUR\", \"GBP\"]", Timestamp.from(Instant.now()), "no-euro");
+        assertTrue(evaluate("10.00", Currency.GBP, "5411", "GB").isApproved());
+
+        ruleDefinitionStore.refresh();
+        assertFalse(evaluate("10.00", Currency.GBP, "5411", "GB").isApproved());
+    }
+
+    @Test
+    void testInvalidExpressionsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ruleDefinitionService.saveRule("broken", "amount >", null, true));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("colour = \"red\""));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("country > \"US\""));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("mcc = 54a1"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("currency = \"XYZ\""));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("(amount > 5"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("amount > 5 amount"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> RuleExpression.compile("amount > 5 and colour = \"red\""));
+        assertEquals("Unknown field 'colour' at 15 in rule expression: amount > 5 and colour = \"red\"",
+            error.getMessage());
+        assertTrue(ruleDefinitionService.getRules().isEmpty());
+    }
+
+    @Test
+    void testOperatorsAndPrecedence() {
+        RuleExpression expression = RuleExpression.compile(
+            "not merchant in [\"Shop A\", \"Shop B\"] and amount >= 100 or city = \"Paris\"");
+
+        assertTrue(expression.matches(request("100.00", Currency.USD, "5411", "US")));
+        assertFalse(expression.matches(request("99.99", Currency.USD, "5411", "US")));
+
+        AuthorizationRequest paris = request("1.00", Currency.EUR, "5411", "FR");
+        paris.setMerchantCity("Paris");
+        assertTrue(expression.matches(paris));
+
+        AuthorizationRequest shopA = request("500.00", Currency.USD, "5411", "US");
+        shopA.setMerchantName("Shop A");
+        assertFalse(expression.matches(shopA));
+
+        assertTrue(RuleExpression.compile("program not in [\"gold\"]")
+            .matches(request("1.00", Currency.USD, "5411", "US")));
+        assertFalse(RuleExpression.compile("mcc in [5411] and not (amount < 1 or amount == 2)")
+            .matches(request("2.00", Currency.USD, "5411", "US")));
+    }
+
+    private RuleResult evaluate(String amount, Currency currency, String mcc, String country) {
+        return declarativeRule.evaluate(request(amount, currency, mcc, country));
+    }
+
+    private static AuthorizationRequest request(String amount, Currency currency, String mcc, String country) {
+        return AuthorizationRequest.builder()
+            .authorizationId("dsl-" + UUID.randomUUID())
+            .cardId(UUID.randomUUID().toString())
+            .amount(Money.of(amount, currency))
+            .merchantName("Test Merchant")
+            .merchantCategoryCode(mcc)
+            .merchantCountry(country)
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.cardengine.rules;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for per-card and per-program MCC policies.
+ *
+ * Not transactional: the store applies changes after commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MccPolicyStoreTest {
+
+    @Autowired
+    private MccPolicyService mccPolicyService;
+
+    @Autowired
+    private MccPolicyStore mccPolicyStore;
+
+    @Autowired
+    private MCCBlockingRule mccBlockingRule;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InternalLedgerAccount account;
+    private String suffix;
+
+    @BeforeEach
+    void setUp() {
+        account = accountService.createInternalLedgerAccount("mcc-owner", Money.of("100.00", Currency.USD));
+        suffix = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void testCardPolicyOverridesProgramPolicyOverridesDefault() {
+        String groceries = mccPolicyService.savePolicy("groceries-" + suffix, MccPolicyMode.ALLOW, "5411,5412")
+            .getPolicyId();
+        String noTravel = mccPolicyService.savePolicy("no-travel-" + suffix, MccPolicyMode.BLOCK, "3000-3350,4511")
+            .getPolicyId();
+        mccPolicyService.assignToProgram("food-" + suffix, groceries);
+
+        Card plain = issue(null);
+        Card food = issue("food-" + suffix);
+        Card overridden = issue("food-" + suffix);
+        mccPolicyService.assignToCard(overridden.getCardId(), noTravel);
+
+        // Default block list
+        assertFalse(evaluate(plain, "7995").isApproved());
+        assertTrue(evaluate(plain, "5411").isApproved());
+        assertTrue(evaluate(plain, null).isApproved());
+
+        // Program allow list
+        assertTrue(evaluate(food, "5412").isApproved());
+        RuleResult restaurant = evaluate(food, "5812");
+        assertFalse(restaurant.isApproved());
+        assertEquals("Merchant category 5812 is not allowed for this card", restaurant.getReason());
+        assertFalse(evaluate(food, null).isApproved(), "Allow lists decline unknown categories");
+
+        // Card block list wins over the program
+        assertTrue(evaluate(overridden, "5812").isApproved());
+        assertFalse(evaluate(overridden, "3100").isApproved());
+
+        mccPolicyService.assignToCard(overridden.getCardId(), null);
+        assertFalse(evaluate(overridden, "5812").isApproved());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> mccPolicyService.assignToCard(plain.getCardId(), "missing-" + suffix));
+    }
+
+    @Test
+    void testIdenticalPoliciesShareOneBitset() {
+        mccPolicyService.savePolicy("fuel-a-" + suffix, MccPolicyMode.ALLOW, "5541,5542");
+        mccPolicyService.savePolicy("fuel-b-" + suffix, MccPolicyMode.ALLOW, "5542,5541-5541");
+        mccPolicyService.assignToProgram("fleet-a-" + suffix, "fuel-a-" + suffix);
+        mccPolicyService.assignToProgram("fleet-b-" + suffix, "fuel-b-" + suffix);
+
+        Card first = issue("fleet-a-" + suffix);
+        Card second = issue("fleet-b-" + suffix);
+
+        assertSame(mccPolicyStore.policyFor(first.getCardId()), mccPolicyStore.policyFor(second.getCardId()));
+        assertEquals(2, mccPolicyStore.policyFor(first.getCardId()).size());
+        assertTrue(mccPolicyStore.estimatedBytes() >= MccSet.BYTES + 2 * MccPolicyStore.CARD_ENTRY_BYTES);
+
+        // A policy matching the default needs no per-card entry
+        mccPolicyService.savePolicy("same-" + suffix, MccPolicyMode.BLOCK, "5912,5993,6211,7995,9754");
+        Card plain = issue(null);
+        long before = mccPolicyStore.estimatedBytes();
+        mccPolicyService.assignToCard(plain.getCardId(), "same-" + suffix);
+        assertEquals(before, mccPolicyStore.estimatedBytes());
+    }
+
+    @Test
+    void testChangesFromAnotherNodeApplyOnRefresh() {
+        mccPolicyService.savePolicy("office-" + suffix, MccPolicyMode.ALLOW, "5111,5943");
+        mccPolicyService.assignToProgram("staff-" + suffix, "office-" + suffix);
+        Card card = issue("staff-" + suffix);
+        assertFalse(evaluate(card, "5812").isApproved());
+
+        // Another node widens the policy
+        jdbcTemplate.update("update mcc_policies set codes = ?, updated_at = ? where policy_id = ?",
+            "5111,5943,5812", Timestamp.from(Instant.now()), "office-" + suffix);
+        assertFalse(evaluate(card, "5812").isApproved());
+
+        mccPolicyStore.refresh();
+        assertTrue(evaluate(card, "5812").isApproved());
+    }
+
+    @Test
+    void testMerchantCategoryCodesParseWithoutHashing() {
+        assertEquals(5411, MccSet.code("5411"));
+        assertEquals(0, MccSet.code("0000"));
+        assertEquals(-1, MccSet.code("54a1"));
+        assertEquals(-1, MccSet.code("541"));
+        assertEquals(-1, MccSet.code(null));
+
+        MccSet set = MccSet.parse(MccPolicyMode.BLOCK, "0000,9999,4000-4002");
+        assertEquals(5, set.size());
+        assertFalse(set.permits(9999));
+        assertFalse(set.permits(4001));
+        assertTrue(set.permits(4003));
+        assertThrows(IllegalArgumentException.class, () -> MccSet.parse(MccPolicyMode.BLOCK, "5999-5000"));
+    }
+
+    private Card issue(String programId) {
+        return cardService.issueCard("MCC User", "4242", LocalDate.now().plusYears(2),
+            account.getAccountId(), "mcc-owner", null, programId);
+    }
+
+    private RuleResult evaluate(Card card, String merchantCategoryCode) {
+        return mccBlockingRule.evaluate(AuthorizationRequest.builder()
+            .authorizationId("mcc-" + UUID.randomUUID())
+            .cardId(card.getCardId())
+            .amount(Money.of("10.00", Currency.USD))
+            .merchantName("Test Merchant")
+            .merchantCategoryCode(merchantCategoryCode)
+            .idempotencyKey(IdempotencyKey.generate())
+            .build());
+    }
+}
@@ -0,0 +1,207 @@
+package com.cardengine.rules;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.Authorization;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.authorization.AuthorizationRepository;
+import com.cardengine.authorization.AuthorizationStatus;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for replaying stored authorizations through proposed rules.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RuleBacktesterTest {
+
+    private static final Instant FROM = Instant.parse("2020-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2020-01-03T00:00:00Z");
+
+    @Autowired
+    private RuleBacktester ruleBacktester;
+
+    @Autowired
+    private AuthorizationRepository authorizationRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RuleLimitStore ruleLimitStore;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Card busy;
+    private Card large;
+
+    @BeforeEach
+    void setUp() {
+        InternalLedgerAccount account = accountService.createInternalLedgerAccount(
+            "backtest-owner", Money.of("100000.00", Currency.USD));
+        busy = cardService.issueCard("Busy User", "1111", LocalDate.now().plusYears(2),
+            account.getAccountId(), "backtest-owner");
+        large = cardService.issueCard("Large User", "2222", LocalDate.now().plusYears(2),
+            account.getAccountId(), "backtest-owner");
+
+        // Six attempts within one minute, then one large purchase and a small one the next day
+        for (int i = 0; i < 6; i++) {
+            history(busy, "100.00", "2020-01-01T10:00:0" + i + "Z", AuthorizationStatus.APPROVED);
+        }
+        history(large, "800.00", "2020-01-01T12:00:00Z", AuthorizationStatus.CLEARED);
+        history(large, "100.00", "2020-01-02T09:00:00Z", AuthorizationStatus.DECLINED);
+        // Outside the period
+        history(large, "900.00", "2020-01-03T00:00:00Z", AuthorizationStatus.APPROVED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from authorizations where authorization_id like 'backtest-%'");
+    }
+
+    @Test
+    void testReportsApprovalAndDeclineDeltas() {
+        BacktestReport report = ruleBacktester.run(new BacktestRequest(
+            FROM, TO, new BigDecimal("500.00"), null, 3, false));
+
+        assertEquals(8, report.authorizations());
+        assertEquals(7.0 / 8, report.historicalApprovalRate());
+
+        // Current limits: 1000 per transaction, 5 per minute
+        assertEquals(7, report.current().approved());
+        assertEquals(Map.of("Velocity", 1L), report.current().declinesByRule());
+
+        // Proposed: 500 per transaction, 3 per minute
+        assertEquals(4, report.proposed().approved());
+        assertEquals(Map.of("TransactionLimit", 1L, "Velocity", 3L), report.proposed().declinesByRule());
+
+        assertEquals(4.0 / 8 - 7.0 / 8, report.approvalRateDelta(), 1e-9);
+        assertEquals(Map.of("TransactionLimit", 1L, "Velocity", 2L), report.declineDeltasByRule());
+        assertEquals(3, report.approvalsLost());
+        assertEquals(0, report.approvalsGained());
+        assertEquals(0, report.failures());
+    }
+
+    @Test
+    void testDailySpendIsRebuiltFromReplayedApprovals() {
+        // 800.00 on day one and 100.00 on day two only trip 850.00 if spend leaked across days
+        BacktestReport report = ruleBacktester.run(new BacktestRequest(
+            FROM, TO, null, new BigDecimal("850.00"), null, false));
+        assertEquals(Map.of(), report.declineDeltasByRule());
+
+        BacktestReport tight = ruleBacktester.run(new BacktestRequest(
+            FROM, TO, null, new BigDecimal("250.00"), null, false));
+
+        // Busy card: the 3rd to 6th attempts exceed 250.00, and the daily check runs before velocity;
+        // large card: the 800.00
+        assertEquals(Map.of("DailySpendLimit", 5L), tight.proposed().declinesByRule());
+        assertEquals(Map.of("DailySpendLimit", 5L, "Velocity", -1L), tight.declineDeltasByRule());
+        assertEquals(3, tight.proposed().approved());
+    }
+
+    @Test
+    void testRejectsEmptyPeriod() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ruleBacktester.run(new BacktestRequest(TO, FROM, null, null, null, false)));
+    }
+
+    @Test
+    void testSubmittedJobCompletesWithReport() throws InterruptedException {
+        BacktestJob job = ruleBacktester.submit(new BacktestRequest(
+            FROM, TO, new BigDecimal("500.00"), null, 3, false));
+        assertNotNull(job.jobId());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (ruleBacktester.job(job.jobId()).status() != BacktestJob.Status.COMPLETED
+                && System.nanoTime() < deadline) {
+            assertNotEquals(BacktestJob.Status.FAILED, ruleBacktester.job(job.jobId()).status());
+            Thread.sleep(20);
+        }
+
+        BacktestJob completed = ruleBacktester.job(job.jobId());
+        assertEquals(BacktestJob.Status.COMPLETED, completed.status());
+        assertNotNull(completed.finishedAt());
+        assertEquals(8, completed.report().authorizations());
+        assertEquals(3, completed.report().approvalsLost());
+    }
+
+    @Test
+    void testUnknownJobIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ruleBacktester.job("no-such-job"));
+        assertThrows(IllegalArgumentException.class,
+            () -> ruleBacktester.submit(new BacktestRequest(TO, FROM, null, null, null, false)));
+    }
+
+    @Test
+    void testDeadPartitionFailsInsteadOfBlockingTheReader() {
+        // Enough rows for two chunks: the partition dies on the first, the second fills
+        // its one-slot queue and the end marker has nowhere to go
+        for (int i = 0; i < 300; i++) {
+            history(busy, "1.00", "2020-01-02T10:00:00Z", AuthorizationStatus.APPROVED);
+        }
+        Rule broken = new Rule() {
+            @Override
+            public RuleResult evaluate(AuthorizationRequest request) {
+                throw new AssertionError("broken rule");
+            }
+
+            @Override
+            public String getRuleName() {
+                return "Broken";
+            }
+        };
+        RuleBacktester backtester = new RuleBacktester(List.of(broken), ruleLimitStore,
+            dataSource, transactionManager, 1, 1, 1000, 1);
+        try {
+            IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IllegalStateException.class,
+                    () -> backtester.run(new BacktestRequest(FROM, TO, null, null, null, false))));
+            assertInstanceOf(AssertionError.class, e.getCause());
+        } finally {
+            backtester.shutdown();
+        }
+    }
+
+    private void history(Card card, String amount, String createdAt, AuthorizationStatus status) {
+        String authorizationId = "backtest-" + UUID.randomUUID();
+        authorizationRepository.save(new Authorization(authorizationId, card.getCardId(),
+            card.getFundingAccountId(), Money.of(amount, Currency.USD), status, "Test Merchant",
+            null, null, null, IdempotencyKey.generate()));
+        jdbcTemplate.update("update authorizations set created_at = ? where authorization_id = ?",
+            Timestamp.from(Instant.parse(createdAt)), authorizationId);
+    }
+}
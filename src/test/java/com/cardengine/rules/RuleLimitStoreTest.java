@@ -0,0 +1,204 @@
+package com.cardengine.rules;
+
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for runtime rule limit overrides.
+ *
+ * Not transactional: snapshots are rebuilt after commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RuleLimitStoreTest {
+
+    @Autowired
+    private RuleLimitService ruleLimitService;
+
+    @Autowired
+    private RuleLimitStore ruleLimitStore;
+
+    @Autowired
+    private TransactionLimitRule transactionLimitRule;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InternalLedgerAccount account;
+    private String programId;
+
+    @BeforeEach
+    void setUp() {
+        account = accountService.createInternalLedgerAccount("limits-owner", Money.of("100.00", Currency.USD));
+        programId = "limits-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from rule_limit_overrides");
+        ruleLimitStore.refresh();
+    }
+
+    @Test
+    void testCardOverridesProgramOverridesGlobal() {
+        Card plain = issue(null);
+        Card member = issue(programId);
+        Card vip = issue(programId);
+
+        ruleLimitService.setOverride(RuleLimitScope.GLOBAL, null, new BigDecimal("200.00"), null, 3);
+        ruleLimitService.setOverride(RuleLimitScope.PROGRAM, programId, new BigDecimal("50.00"), null, null);
+        ruleLimitService.setOverride(RuleLimitScope.CARD, vip.getCardId(), null, new BigDecimal("9000.00"), null);
+
+        RuleLimits global = ruleLimitStore.limitsFor(request(plain, "1.00"));
+        assertEquals(new BigDecimal("200.00"), global.getTransactionLimit());
+        assertAmount("5000.00", global.getDailyLimit(), "Inherited from the properties");
+        assertEquals(3, global.getVelocityMaxPerMinute());
+
+        RuleLimits program = ruleLimitStore.limitsFor(request(member, "1.00"));
+        assertEquals(new BigDecimal("50.00"), program.getTransactionLimit());
+        assertEquals(3, program.getVelocityMaxPerMinute(), "Inherited from the global override");
+
+        RuleLimits card = ruleLimitStore.limitsFor(request(vip, "1.00"));
+        assertEquals(new BigDecimal("50.00"), card.getTransactionLimit(), "Inherited from the program");
+        assertEquals(new BigDecimal("9000.00"), card.getDailyLimit());
+        assertEquals(900_000, card.getDailyLimitMinorUnits(Currency.USD));
+
+        assertTrue(transactionLimitRule.evaluate(request(plain, "150.00")).isApproved());
+        RuleResult declined = transactionLimitRule.evaluate(request(member, "150.00"));
+        assertFalse(declined.isApproved());
+        assertEquals("Transaction amount 150.00 exceeds limit 50.00", declined.getReason());
+
+        ruleLimitService.clearOverride(RuleLimitScope.PROGRAM, programId);
+        assertTrue(transactionLimitRule.evaluate(request(member, "150.00")).isApproved());
+        assertEquals(new BigDecimal("200.00"),
+            ruleLimitStore.limitsFor(request(vip, "1.00")).getTransactionLimit());
+    }
+
+    @Test
+    void testCardOverrideFollowsCurrentProgram() {
+        String otherProgram = "limits-" + UUID.randomUUID();
+        ruleLimitService.setOverride(RuleLimitScope.PROGRAM, programId, new BigDecimal("50.00"), null, null);
+        ruleLimitService.setOverride(RuleLimitScope.PROGRAM, otherProgram, new BigDecimal("70.00"), null, null);
+
+        // Override set before the card exists
+        String cardId = UUID.randomUUID().toString();
+        ruleLimitService.setOverride(RuleLimitScope.CARD, cardId, null, new BigDecimal("9000.00"), null);
+
+        RuleLimits inProgram = ruleLimitStore.limitsFor(request(cardId, programId));
+        assertEquals(new BigDecimal("50.00"), inProgram.getTransactionLimit());
+        assertEquals(new BigDecimal("9000.00"), inProgram.getDailyLimit());
+        assertSame(inProgram, ruleLimitStore.limitsFor(request(cardId, programId)), "Cached per card");
+
+        // The card moves program: no refresh needed
+        RuleLimits moved = ruleLimitStore.limitsFor(request(cardId, otherProgram));
+        assertEquals(new BigDecimal("70.00"), moved.getTransactionLimit());
+        assertEquals(new BigDecimal("9000.00"), moved.getDailyLimit());
+    }
+
+    @Test
+    void testChangesFromAnotherNodeApplyOnRefresh() {
+        Card card = issue(null);
+        RuleLimits before = ruleLimitStore.limitsFor(request(card, "1.00"));
+
+        // Another node inserts a card override
+        jdbcTemplate.update("insert into rule_limit_overrides (override_id, version, scope, subject_id,"
+                + " transaction_limit, updated_at) values (?, 0, 'CARD', ?, 25.00, ?)",
+            "CARD:" + card.getCardId(), card.getCardId(), Timestamp.from(Instant.now()));
+        assertSame(before, ruleLimitStore.limitsFor(request(card, "1.00")), "Snapshot unchanged until refresh");
+
+        ruleLimitStore.refresh();
+        assertAmount("25.00", ruleLimitStore.limitsFor(request(card, "1.00")).getTransactionLimit(), "Card override");
+
+        // ... and deletes it again
+        jdbcTemplate.update("delete from rule_limit_overrides where override_id = ?", "CARD:" + card.getCardId());
+        ruleLimitStore.refresh();
+        assertAmount("1000.00", ruleLimitStore.limitsFor(request(card, "1.00")).getTransactionLimit(), "Default");
+    }
+
+    @Test
+    void testRejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> ruleLimitService.setOverride(
+            RuleLimitScope.GLOBAL, null, BigDecimal.ZERO, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ruleLimitService.setOverride(
+            RuleLimitScope.CARD, null, null, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> ruleLimitService.setOverride(
+            RuleLimitScope.PROGRAM, programId, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> ruleLimitService.setOverride(
+            RuleLimitScope.PROGRAM, programId, new BigDecimal("1E+30"), null, null));
+    }
+
+    @Test
+    void testSkipsOverridesThatDoNotFit() {
+        Card card = issue(programId);
+        ruleLimitService.setOverride(RuleLimitScope.PROGRAM, programId, new BigDecimal("50.00"), null, null);
+
+        // Written directly, bypassing the service's validation
+        jdbcTemplate.update("insert into rule_limit_overrides (override_id, version, scope, subject_id,"
+                + " daily_limit, updated_at) values (?, 0, 'CARD', ?, 1E+30, ?)",
+            "CARD:" + card.getCardId(), card.getCardId(), Timestamp.from(Instant.now()));
+        ruleLimitStore.refresh();
+
+        RuleLimits limits = ruleLimitStore.limitsFor(request(card, "1.00"));
+        assertAmount("50.00", limits.getTransactionLimit(), "Program override still applies");
+        assertAmount("5000.00", limits.getDailyLimit(), "Oversized card override skipped");
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual, String message) {
+        // Limits from YAML properties may lose trailing zeros
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), message + ": " + actual);
+    }
+
+    private Card issue(String programId) {
+        return cardService.issueCard("Limits User", "4242", LocalDate.now().plusYears(2),
+            account.getAccountId(), "limits-owner", null, programId);
+    }
+
+    private AuthorizationRequest request(String cardId, String programId) {
+        return AuthorizationRequest.builder()
+            .authorizationId("limits-" + UUID.randomUUID())
+            .cardId(cardId)
+            .programId(programId)
+            .amount(Money.of("1.00", Currency.USD))
+            .merchantName("Test Merchant")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+    }
+
+    private AuthorizationRequest request(Card card, String amount) {
+        return AuthorizationRequest.builder()
+            .authorizationId("limits-" + UUID.randomUUID())
+            .cardId(card.getCardId())
+            .programId(card.getProgramId())
+            .amount(Money.of(amount, Currency.USD))
+            .merchantName("Test Merchant")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+    }
+}
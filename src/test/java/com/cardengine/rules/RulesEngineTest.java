@@ -0,0 +1,171 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for rule ordering, short-circuiting, concurrent I/O rules and
+ * rule metrics.
+ */
+class RulesEngineTest {
+
+    private static final AuthorizationRequest REQUEST = AuthorizationRequest.builder()
+        .authorizationId("auth-1")
+        .cardId("card-1")
+        .amount(Money.of("10.00", Currency.USD))
+        .build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<String> evaluated;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        evaluated = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    void testCheapestRulesRunFirstAndDeclineShortCircuits() {
+        RulesEngine engine = new RulesEngine(List.of(
+            new TestRule("Remote", RuleCost.IO, true),
+            new TestRule("Window", RuleCost.MEMORY, true),
+            new TestRule("Amount", RuleCost.REQUEST, false)), meterRegistry);
+
+        RuleResult result = engine.evaluateRules(REQUEST);
+
+        assertFalse(result.isApproved());
+        assertEquals("Amount declined", result.getReason());
+        assertEquals(List.of("Amount"), evaluated);
+        assertEquals(1.0, meterRegistry.get("cardengine.rules.declines").tag("rule", "Amount").counter().count());
+        assertEquals(1, meterRegistry.get("cardengine.rules.latency").tag("rule", "Amount").timer().count());
+        assertEquals(0, meterRegistry.get("cardengine.rules.latency").tag("rule", "Remote").timer().count());
+    }
+
+    @Test
+    void testDependenciesRunFirst() {
+        RulesEngine engine = new RulesEngine(List.of(
+            new TestRule("Amount", RuleCost.REQUEST, true, "Remote"),
+            new TestRule("Remote", RuleCost.IO, true),
+            new TestRule("Window", RuleCost.MEMORY, true)), meterRegistry);
+
+        assertTrue(engine.evaluateRules(REQUEST).isApproved());
+        assertEquals(List.of("Window", "Remote", "Amount"), evaluated);
+    }
+
+    @Test
+    void testIndependentIoRulesRunConcurrently() {
+        // Each rule waits for the other to start, so sequential evaluation would time out
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        RulesEngine engine = new RulesEngine(List.of(
+            new WaitingRule("FraudScore", bothStarted, false),
+            new WaitingRule("Sanctions", bothStarted, false)), meterRegistry);
+
+        RuleResult result = engine.evaluateRules(REQUEST);
+
+        assertFalse(result.isApproved());
+        assertEquals("FraudScore declined", result.getReason(), "Earliest rule in the pipeline is reported");
+        assertTrue(evaluated.contains("FraudScore"));
+    }
+
+    @Test
+    void testRulesWithoutDeclaredCostRunOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        Rule undeclared = new Rule() {
+            @Override
+            public RuleResult evaluate(AuthorizationRequest request) {
+                threads.add(Thread.currentThread());
+                return RuleResult.approve();
+            }
+
+            @Override
+            public String getRuleName() {
+                return "Undeclared";
+            }
+        };
+        RulesEngine engine = new RulesEngine(List.of(undeclared, new TestRule("Other", RuleCost.MEMORY, true)),
+            meterRegistry);
+
+        assertTrue(engine.evaluateRules(REQUEST).isApproved());
+        assertEquals(RuleCost.MEMORY, undeclared.getCost());
+        assertEquals(List.of(caller), threads);
+    }
+
+    @Test
+    void testDependencyCycleIsRejected() {
+        List<Rule> rules = List.of(
+            new TestRule("A", RuleCost.REQUEST, true, "B"),
+            new TestRule("B", RuleCost.REQUEST, true, "A"));
+
+        assertThrows(IllegalStateException.class, () -> new RulesEngine(rules, meterRegistry));
+    }
+
+    private class TestRule implements Rule {
+
+        private final String name;
+        private final RuleCost cost;
+        private final boolean approves;
+        private final Set<String> dependencies;
+
+        TestRule(String name, RuleCost cost, boolean approves, String... dependencies) {
+            this.name = name;
+            this.cost = cost;
+            this.approves = approves;
+            this.dependencies = Set.of(dependencies);
+        }
+
+        @Override
+        public RuleResult evaluate(AuthorizationRequest request) {
+            evaluated.add(name);
+            return approves ? RuleResult.approve() : RuleResult.decline(name + " declined");
+        }
+
+        @Override
+        public String getRuleName() {
+            return name;
+        }
+
+        @Override
+        public RuleCost getCost() {
+            return cost;
+        }
+
+        @Override
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+    }
+
+    private class WaitingRule extends TestRule {
+
+        private final CountDownLatch bothStarted;
+
+        WaitingRule(String name, CountDownLatch bothStarted, boolean approves) {
+            super(name, RuleCost.IO, approves);
+            this.bothStarted = bothStarted;
+        }
+
+        @Override
+        public RuleResult evaluate(AuthorizationRequest request) {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.evaluate(request);
+        }
+    }
+}
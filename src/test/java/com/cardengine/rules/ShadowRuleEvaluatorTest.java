@@ -0,0 +1,233 @@
+package com.cardengine.rules;
+
+import com.cardengine.authorization.AuthorizationRequest;
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for champion/challenger rule evaluation.
+ */
+class ShadowRuleEvaluatorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private CardActivity cardActivity;
+    private RuleLimitSource ruleLimitSource;
+    private ShadowRuleEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = mock(JdbcTemplate.class);
+        cardActivity = mock(CardActivity.class);
+        ruleLimitSource = request -> new RuleLimits(new BigDecimal("1000.00"), new BigDecimal("5000.00"), 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (evaluator != null) {
+            evaluator.shutdown();
+        }
+    }
+
+    @Test
+    void testChallengerDecisionsAreComparedAndRecorded() throws Exception {
+        // Live: amounts up to 100; challenger: up to 50, and not exactly 40
+        List<Rule> rules = List.of(
+            new LimitRule("100.00"),
+            new ChallengerLimitRule("50.00"),
+            new UnusualAmountRule("40.00"));
+        evaluator = evaluator(rules, 2, 100);
+        RulesEngine engine = new RulesEngine(rules, meterRegistry, evaluator);
+
+        assertTrue(engine.evaluateRules(request("10.00")).isApproved());
+        assertTrue(engine.evaluateRules(request("40.00")).isApproved());
+        assertTrue(engine.evaluateRules(request("60.00")).isApproved());
+        assertFalse(engine.evaluateRules(request("150.00")).isApproved());
+
+        ShadowStats stats = awaitEvaluated(4);
+        assertEquals(2, stats.agreed());
+        assertEquals(2, stats.shadowDeclined());
+        assertEquals(0, stats.shadowApproved());
+        assertEquals(0.5, stats.agreementRate());
+        assertEquals(Map.of("Amount", 2L, "Unusual", 1L), stats.shadowDeclinesByRule());
+
+        assertEquals(4, evaluator.flush());
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into shadow_rule_decisions"),
+            argThat((Collection<ShadowRuleDecision> batch) -> batch.size() == 4), eq(4), any());
+    }
+
+    @Test
+    void testOverloadDropsRequestsWithoutDelayingLiveDecisions() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Rule> rules = List.of(new LimitRule("100.00"), new BlockingRule(release));
+        evaluator = evaluator(rules, 1, 1);
+        RulesEngine engine = new RulesEngine(rules, meterRegistry, evaluator);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(engine.evaluateRules(request("10.00")).isApproved());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+
+        // One request running, one queued, the rest dropped
+        assertTrue(evaluator.getStats().dropped() >= 8);
+        release.countDown();
+        assertTrue(awaitEvaluated(2).evaluated() <= 2);
+    }
+
+    @Test
+    void testChallengersSeeRequestAndActivityAsSubmitted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // Evaluated in name order after the request-only rules: Slow, Unusual, Velocity
+        List<Rule> rules = List.of(
+            new VelocityRule(cardActivity, ruleLimitSource),
+            new BlockingRule(release),
+            new UnusualAmountRule("40.00") {
+                @Override
+                public RuleCost getCost() {
+                    return RuleCost.MEMORY;
+                }
+            });
+        evaluator = evaluator(rules, 1, 10);
+        when(cardActivity.countInLastMinute(eq("card-1"), any())).thenReturn(0);
+
+        AuthorizationRequest request = request("10.00");
+        evaluator.submit(request, RuleResult.approve());
+        // The live path records the authorization and may reuse the request
+        when(cardActivity.countInLastMinute(eq("card-1"), any())).thenReturn(100);
+        request.getAmount().setAmount(new BigDecimal("40.00"));
+        request.setAmount(Money.of("40.00", Currency.USD));
+        release.countDown();
+
+        ShadowStats stats = awaitEvaluated(1);
+        assertEquals(1, stats.agreed());
+        assertEquals(Map.of(), stats.shadowDeclinesByRule());
+    }
+
+    @Test
+    void testInactiveWithoutShadowRules() {
+        evaluator = evaluator(List.of(new LimitRule("100.00")), 1, 1);
+        evaluator.submit(request("10.00"), RuleResult.approve());
+
+        assertFalse(evaluator.isActive());
+        assertEquals(0, evaluator.getStats().evaluated());
+        assertEquals(0, evaluator.flush());
+    }
+
+    private ShadowRuleEvaluator evaluator(List<Rule> rules, int concurrency, int queueCapacity) {
+        return new ShadowRuleEvaluator(rules, cardActivity, ruleLimitSource, jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry,
+            true, concurrency, queueCapacity, 100);
+    }
+
+    private ShadowStats awaitEvaluated(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ShadowStats stats = evaluator.getStats();
+        while (stats.evaluated() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stats = evaluator.getStats();
+        }
+        assertTrue(stats.evaluated() >= count, "Evaluated " + stats.evaluated());
+        return stats;
+    }
+
+    private static AuthorizationRequest request(String amount) {
+        return AuthorizationRequest.builder()
+            .authorizationId("auth-" + amount)
+            .cardId("card-1")
+            .amount(Money.of(amount, Currency.USD))
+            .build();
+    }
+
+    private static class LimitRule implements Rule {
+        private final long limit;
+
+        LimitRule(String limit) {
+            this.limit = Money.of(limit, Currency.USD).toMinorUnits();
+        }
+
+        @Override
+        public RuleResult evaluate(AuthorizationRequest request) {
+            return request.getAmount().toMinorUnits() > limit
+                ? RuleResult.decline("Over limit")
+                : RuleResult.approve();
+        }
+
+        @Override
+        public String getRuleName() {
+            return "Amount";
+        }
+
+        @Override
+        public RuleCost getCost() {
+            return RuleCost.REQUEST;
+        }
+    }
+
+    private static class ChallengerLimitRule extends LimitRule implements ShadowRule {
+        ChallengerLimitRule(String limit) {
+            super(limit);
+        }
+    }
+
+    private static class UnusualAmountRule implements ShadowRule {
+        private final Money amount;
+
+        UnusualAmountRule(String amount) {
+            this.amount = Money.of(amount, Currency.USD);
+        }
+
+        @Override
+        public RuleResult evaluate(AuthorizationRequest request) {
+            return request.getAmount().equals(amount) ? RuleResult.decline("Unusual amount") : RuleResult.approve();
+        }
+
+        @Override
+        public String getRuleName() {
+            return "Unusual";
+        }
+
+        @Override
+        public RuleCost getCost() {
+            return RuleCost.REQUEST;
+        }
+    }
+
+    private record BlockingRule(CountDownLatch release) implements ShadowRule {
+
+        @Override
+        public RuleResult evaluate(AuthorizationRequest request) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RuleResult.approve();
+        }
+
+        @Override
+        public String getRuleName() {
+            return "Slow";
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.cardengine.settlement;
+
+import com.cardengine.accounts.AccountRepository;
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.*;
+import com.cardengine.bank.outbox.BankOutboxOperation;
+import com.cardengine.bank.outbox.BankOutboxRepository;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the authorization expiry sweep.
+ *
+ * Not transactional: shards are leased and released in their own transactions.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AuthorizationExpirySweeperTest {
+
+    private static final Money AMOUNT = Money.of("25.00", Currency.USD);
+    private static final Duration AGE = Duration.ofDays(8);
+
+    @Autowired
+    private AuthorizationExpirySweeper sweeper;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private AuthorizationRepository authorizationRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private BankOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InternalLedgerAccount account;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        account = accountService.createInternalLedgerAccount("expiry-owner", Money.of("1000.00", Currency.USD));
+        card = cardService.issueCard("Expiry User", "5555", LocalDate.now().plusYears(2),
+            account.getAccountId(), "expiry-owner");
+        // Nothing has expired as of the epoch; creates the shard leases
+        sweeper.sweep(Instant.EPOCH);
+        freeShards();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from bank_outbox where reference_id like 'expiry-%'");
+        freeShards();
+    }
+
+    @Test
+    void testReleasesExpiredAuthorizationsByMerchantCategory() {
+        String expired = authorize(null);
+        String hotel = authorize("7011");
+        String recent = authorize(null);
+        String bank = bankAuthorization();
+        backdate(expired);
+        backdate(hotel);
+        backdate(bank);
+
+        assertTrue(sweeper.sweep(Instant.now()) >= 2);
+
+        assertEquals(AuthorizationStatus.RELEASED, status(expired));
+        assertEquals(AuthorizationStatus.APPROVED, status(hotel), "Hotel holds last 31 days");
+        assertEquals(AuthorizationStatus.APPROVED, status(recent));
+        assertEquals(AuthorizationStatus.RELEASED, status(bank));
+
+        assertEquals(Money.of("50.00", Currency.USD),
+            accountRepository.findByAccountId(account.getAccountId()).orElseThrow().getReservedBalance());
+        assertTrue(ledgerService.findTransactionId(AuthorizationExpirySweeper.expiryKey(expired)).isPresent());
+        assertTrue(outboxRepository.findByReferenceIdAndOperation(bank, BankOutboxOperation.RELEASE_HOLD)
+            .isPresent());
+    }
+
+    @Test
+    void testShardsLeasedByAnotherNodeAreSkipped() {
+        String expired = authorize(null);
+        backdate(expired);
+        jdbcTemplate.update("update authorization_expiry_shards set owner = 'other-node', lease_until = ?",
+            Timestamp.from(Instant.now().plus(Duration.ofHours(1))));
+
+        assertEquals(0, sweeper.sweep(Instant.now()));
+        assertEquals(AuthorizationStatus.APPROVED, status(expired));
+
+        // The other node's lease runs out
+        freeShards();
+        assertTrue(sweeper.sweep(Instant.now()) >= 1);
+        assertEquals(AuthorizationStatus.RELEASED, status(expired));
+
+        // Swept shards are not due again until the next interval
+        freeLeasesOnly();
+        assertEquals(0, sweeper.sweep(Instant.now()));
+    }
+
+    @Test
+    void testBackfillsAccountBuckets() {
+        String legacy = authorize(null);
+        jdbcTemplate.update("update authorizations set account_bucket = null where authorization_id = ?", legacy);
+
+        assertTrue(sweeper.backfillAccountBuckets() >= 1);
+
+        assertEquals(Authorization.accountBucket(account.getAccountId()),
+            authorizationRepository.findByAuthorizationId(legacy).orElseThrow().getAccountBucket());
+        assertEquals(0, sweeper.backfillAccountBuckets());
+    }
+
+    private String authorize(String merchantCategoryCode) {
+        String authorizationId = "expiry-" + UUID.randomUUID();
+        AuthorizationRequest request = AuthorizationRequest.builder()
+            .authorizationId(authorizationId)
+            .cardId(card.getCardId())
+            .amount(AMOUNT)
+            .merchantName("Test Merchant")
+            .merchantCategoryCode(merchantCategoryCode)
+            .idempotencyKey(IdempotencyKey.generate())
+            .build();
+        assertEquals(AuthorizationStatus.APPROVED, authorizationService.authorize(request).getStatus());
+        return authorizationId;
+    }
+
+    private String bankAuthorization() {
+        String authorizationId = "expiry-bank-" + UUID.randomUUID();
+        authorizationRepository.save(new Authorization(authorizationId, card.getCardId(), "BANK-EXPIRY-1",
+            AMOUNT, AuthorizationStatus.APPROVED, "Test Merchant", null, null, null, IdempotencyKey.generate()));
+        return authorizationId;
+    }
+
+    private void backdate(String authorizationId) {
+        jdbcTemplate.update("update authorizations set created_at = ? where authorization_id = ?",
+            Timestamp.from(Instant.now().minus(AGE)), authorizationId);
+    }
+
+    private AuthorizationStatus status(String authorizationId) {
+        return authorizationRepository.findByAuthorizationId(authorizationId).orElseThrow().getStatus();
+    }
+
+    private void freeShards() {
+        Timestamp epoch = Timestamp.from(Instant.EPOCH);
+        jdbcTemplate.update("update authorization_expiry_shards set lease_until = ?, next_sweep_at = ?",
+            epoch, epoch);
+    }
+
+    private void freeLeasesOnly() {
+        jdbcTemplate.update("update authorization_expiry_shards set lease_until = ?",
+            Timestamp.from(Instant.EPOCH));
+    }
+}
@@ -0,0 +1,219 @@
+package com.cardengine.settlement;
+
+import com.cardengine.accounts.AccountLaneExecutor;
+import com.cardengine.accounts.AccountRepository;
+import com.cardengine.accounts.AccountService;
+import com.cardengine.accounts.InternalLedgerAccount;
+import com.cardengine.authorization.*;
+import com.cardengine.cards.Card;
+import com.cardengine.cards.CardService;
+import com.cardengine.common.Currency;
+import com.cardengine.common.IdempotencyKey;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for clearing file ingestion.
+ *
+ * Not transactional: workers clear records in their own transactions.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ClearingFileProcessorTest {
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private AuthorizationRepository authorizationRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountLaneExecutor accountLanes;
+
+    private ClearingFileProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        // Small chunks and queues so a short file exercises partitioning and chunking
+        processor = new ClearingFileProcessor(authorizationRepository, accountRepository,
+            settlementService, ledgerService, transactionTemplate, accountLanes, 2, 4, 2);
+    }
+
+    @Test
+    void testClearsFileAndReportsEachRecord() throws IOException {
+        InternalLedgerAccount accountA = account();
+        InternalLedgerAccount accountB = account();
+        String a1 = authorize(accountA, "10.00");
+        String a2 = authorize(accountA, "10.00");
+        String b1 = authorize(accountB, "10.00");
+        String b2 = authorize(accountB, "10.00");
+        String key = IdempotencyKey.generate();
+
+        String file = String.join("\n",
+            "authorization_id,amount,currency,idempotency_key",
+            a1 + ",10.00,USD," + key,                                // line 2: cleared
+            a2 + ",5.00,USD," + IdempotencyKey.generate(),           // line 3: partial clear
+            b1 + ",10.00,USD," + IdempotencyKey.generate(),          // line 4: cleared
+            b2 + ",20.00,USD," + IdempotencyKey.generate(),          // line 5: exceeds authorization
+            a1 + ",10.00,USD," + key,                                // line 6: duplicate key
+            "unknown-auth,1.00,USD," + IdempotencyKey.generate(),    // line 7: unknown authorization
+            "not a record",                                          // line 8: unparseable
+            b2 + ",1.00,XYZ," + IdempotencyKey.generate());          // line 9: unknown currency
+
+        StringWriter out = new StringWriter();
+        ClearingBatchReport report = processor.process(new StringReader(file), out);
+
+        assertEquals(8, report.getTotal());
+        assertEquals(3, report.getCount(ClearingRecordStatus.CLEARED));
+        assertEquals(1, report.getCount(ClearingRecordStatus.DUPLICATE));
+        assertEquals(2, report.getCount(ClearingRecordStatus.FAILED));
+        assertEquals(2, report.getCount(ClearingRecordStatus.INVALID));
+
+        Map<Long, String> statusByLine = statusByLine(out.toString());
+        assertEquals("CLEARED", statusByLine.get(2L));
+        assertEquals("CLEARED", statusByLine.get(3L));
+        assertEquals("CLEARED", statusByLine.get(4L));
+        assertEquals("FAILED", statusByLine.get(5L));
+        assertEquals("DUPLICATE", statusByLine.get(6L));
+        assertEquals("FAILED", statusByLine.get(7L));
+        assertEquals("INVALID", statusByLine.get(8L));
+        assertEquals("INVALID", statusByLine.get(9L));
+
+        assertEquals(AuthorizationStatus.CLEARED, authorizationService.getAuthorization(a1).getStatus());
+        assertEquals(AuthorizationStatus.APPROVED, authorizationService.getAuthorization(b2).getStatus());
+        assertTotalBalance(accountA, "985.00");
+        assertTotalBalance(accountB, "990.00");
+    }
+
+    @Test
+    void testReprocessingFileIsIdempotent() throws IOException {
+        InternalLedgerAccount account = account();
+        String authorizationId = authorize(account, "25.00");
+        String file = authorizationId + ",25.00,USD," + IdempotencyKey.generate();
+
+        ClearingBatchReport first = processor.process(new StringReader(file), new StringWriter());
+        ClearingBatchReport second = processor.process(new StringReader(file), new StringWriter());
+
+        assertEquals(1, first.getCount(ClearingRecordStatus.CLEARED));
+        assertEquals(1, second.getCount(ClearingRecordStatus.DUPLICATE));
+        assertTotalBalance(account, "975.00");
+    }
+
+    @Test
+    void testDeadWorkerFailsProcessingInsteadOfBlocking() {
+        AuthorizationRepository authorizations = mock(AuthorizationRepository.class);
+        LedgerService ledger = mock(LedgerService.class);
+        TransactionTemplate transactions = mock(TransactionTemplate.class);
+        when(transactions.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(authorizations.findAccountIds(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> accountOf(id, "account-" + id)).toList();
+        });
+        // An Error escapes the per-record handling and kills the worker
+        when(ledger.findTransactionId(any())).thenThrow(new AssertionError("worker died"));
+
+        ClearingFileProcessor failing = new ClearingFileProcessor(authorizations, mock(AccountRepository.class),
+            mock(SettlementService.class), ledger, transactions, new AccountLaneExecutor(false, 0, 0), 2, 4, 2);
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            file.append("auth-").append(i).append(",1.00,USD,").append(IdempotencyKey.generate()).append('\n');
+        }
+
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+            assertThrows(IllegalStateException.class,
+                () -> failing.process(new StringReader(file.toString()), new StringWriter())));
+        assertEquals("worker died", e.getCause().getMessage());
+    }
+
+    private static AuthorizationRepository.AuthorizationAccount accountOf(String authorizationId, String accountId) {
+        return new AuthorizationRepository.AuthorizationAccount() {
+            @Override
+            public String getAuthorizationId() {
+                return authorizationId;
+            }
+
+            @Override
+            public String getAccountId() {
+                return accountId;
+            }
+        };
+    }
+
+    private InternalLedgerAccount account() {
+        return accountService.createInternalLedgerAccount(
+            "clearing-owner", Money.of("1000.00", Currency.USD));
+    }
+
+    private String authorize(InternalLedgerAccount account, String amount) {
+        Card card = cardService.issueCard("Clearing User", "4321", LocalDate.now().plusYears(2),
+            account.getAccountId(), "clearing-owner");
+
+        AuthorizationResponse response = authorizationService.authorize(AuthorizationRequest.builder()
+            .authorizationId(UUID.randomUUID().toString())
+            .cardId(card.getCardId())
+            .amount(Money.of(amount, Currency.USD))
+            .merchantName("Clearing Merchant")
+            .idempotencyKey(IdempotencyKey.generate())
+            .build());
+        assertEquals(AuthorizationStatus.APPROVED, response.getStatus());
+        return response.getAuthorizationId();
+    }
+
+    private void assertTotalBalance(InternalLedgerAccount account, String expected) {
+        BigDecimal actual = accountService.getAccount(account.getAccountId()).getTotalBalance().getAmount();
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "Total balance " + actual);
+    }
+
+    private static Map<Long, String> statusByLine(String report) {
+        Map<Long, String> statuses = new HashMap<>();
+        String[] lines = report.split("\n");
+        assertEquals(ClearingBatchReport.HEADER, lines[0]);
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(",");
+            statuses.put(Long.parseLong(fields[0]), fields[3]);
+        }
+        return statuses;
+    }
+}
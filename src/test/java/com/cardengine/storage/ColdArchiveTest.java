@@ -0,0 +1,130 @@
+package com.cardengine.storage;
+
+import com.cardengine.common.Currency;
+import com.cardengine.common.Money;
+import com.cardengine.ledger.LedgerEntry;
+import com.cardengine.ledger.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for writing and reading columnar archive files.
+ */
+class ColdArchiveTest {
+
+    private static final List<String> COLUMNS = List.of(
+        "entry_id", "transaction_id", "account_id", "entry_type", "amount", "currency",
+        "transaction_type", "authorization_id", "card_id", "description", "idempotency_key", "created_at");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLookupReturnsOnlyMatchingRowsWithAllColumns() {
+        ColdArchive archive = new ColdArchive(directory);
+        try (ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p2024_01", COLUMNS)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.append(row("entry-" + i, "account-" + (i % 10), i % 10 == 3 ? "card-3" : null, i));
+            }
+        }
+
+        List<Map<String, String>> rows = archive.find(PartitionedTable.LEDGER_ENTRIES, "account_id", "account-3");
+
+        assertEquals(100, rows.size());
+        assertEquals("entry-3", rows.get(0).get("entry_id"));
+        assertEquals("entry-993", rows.get(99).get("entry_id"));
+        assertEquals("card-3", rows.get(0).get("card_id"));
+        assertNull(archive.find(PartitionedTable.LEDGER_ENTRIES, "account_id", "account-1").get(0).get("card_id"));
+        assertEquals(1000, archive.archivedRows(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p2024_01"));
+        assertEquals(-1, archive.archivedRows(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p2024_02"));
+    }
+
+    @Test
+    void testNewestMonthFirstAcrossFiles() {
+        ColdArchive archive = new ColdArchive(directory);
+        try (ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p2024_01", COLUMNS)) {
+            writer.append(row("january", "account-1", null, 0));
+        }
+        try (ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p2024_02", COLUMNS)) {
+            writer.append(row("february", "account-1", null, 1));
+        }
+
+        List<Map<String, String>> rows = archive.find(PartitionedTable.LEDGER_ENTRIES, "account_id", "account-1");
+
+        assertEquals(List.of("february", "january"), rows.stream().map(row -> row.get("entry_id")).toList());
+        assertEquals(List.of("february"), archive.findByFile(PartitionedTable.LEDGER_ENTRIES, "account_id", "account-1",
+                Instant.parse("2024-02-01T00:00:00Z"))
+            .flatMap(List::stream).map(row -> row.get("entry_id")).toList());
+        assertTrue(archive.find(PartitionedTable.AUTHORIZATIONS, "authorization_id", "auth-1").isEmpty());
+    }
+
+    @Test
+    void testArchivedRowMapsToLedgerEntry() {
+        ColdArchive archive = new ColdArchive(directory);
+        try (ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p2024_01", COLUMNS)) {
+            writer.append(row("entry-1", "account-1", "card-1", 0));
+        }
+
+        LedgerEntry entry = LedgerEntry.fromArchive(
+            archive.find(PartitionedTable.LEDGER_ENTRIES, "card_id", "card-1").get(0));
+
+        assertEquals("entry-1", entry.getEntryId());
+        assertEquals(Money.of("12.50", Currency.USD), entry.getAmount());
+        assertEquals(TransactionType.CLEARING_COMMIT, entry.getTransactionType());
+        assertEquals(LedgerEntry.EntryType.DEBIT, entry.getEntryType());
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"), entry.getCreatedAt());
+        assertFalse(entry.isNew());
+    }
+
+    @Test
+    void testFilterFindsEveryValueAndSkipsMisses() {
+        ColdArchive archive = new ColdArchive(directory);
+        try (ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p2024_01", COLUMNS)) {
+            for (int i = 0; i < 300; i++) {
+                writer.append(row("entry-" + i, "account-" + (i % 10), null, i));
+            }
+        }
+
+        for (int i = 0; i < 300; i++) {
+            List<Map<String, String>> rows = archive.find(PartitionedTable.LEDGER_ENTRIES, "entry_id", "entry-" + i);
+            assertEquals(1, rows.size());
+            assertEquals("account-" + (i % 10), rows.get(0).get("account_id"));
+        }
+        assertTrue(archive.find(PartitionedTable.LEDGER_ENTRIES, "entry_id", "entry-300").isEmpty());
+        // Null card IDs are not keys
+        assertTrue(archive.find(PartitionedTable.LEDGER_ENTRIES, "card_id", "card-1").isEmpty());
+    }
+
+    @Test
+    void testArchiveAppearsOnlyWhenComplete() {
+        ColdArchive archive = new ColdArchive(directory);
+        ArchiveFileWriter writer = archive.writer(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p2024_01", COLUMNS);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.append(new String[] {"too few"}));
+
+        assertFalse(Files.exists(directory.resolve("ledger_entries").resolve("ledger_entries_p2024_01.cea")));
+        writer.close();
+        assertEquals(0, archive.archivedRows(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p2024_01"));
+    }
+
+    private static String[] row(String entryId, String accountId, String cardId, int second) {
+        return new String[] {
+            entryId, "txn-" + entryId, accountId, "DEBIT", "12.50", "USD", "CLEARING_COMMIT",
+            null, cardId, "Clearing settlement", "key-" + entryId,
+            Instant.parse("2024-01-01T00:00:00Z").plusSeconds(second).toString()
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.cardengine.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for creating and archiving monthly partitions.
+ */
+@ExtendWith(MockitoExtension.class)
+class PartitionMaintenanceTest {
+
+    private static final YearMonth NOW = YearMonth.of(2026, 10);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JdbcTemplate exportJdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path directory;
+
+    private ColdArchive coldArchive;
+    private SimpleMeterRegistry meterRegistry;
+    private PartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        coldArchive = new ColdArchive(directory);
+        meterRegistry = new SimpleMeterRegistry();
+        maintenance = new PartitionMaintenance(jdbcTemplate, exportJdbcTemplate, transactionTemplate,
+            coldArchive, meterRegistry, true, 2, 12);
+        advisoryLock(true);
+    }
+
+    @Test
+    void testCreatesCurrentAndUpcomingPartitions() {
+        partitioned(PartitionedTable.LEDGER_ENTRIES, List.of());
+        notPartitioned(PartitionedTable.AUTHORIZATIONS);
+
+        maintenance.maintain(NOW);
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS ledger_entries_p2026_10 PARTITION OF ledger_entries"
+            + " FOR VALUES FROM ('2026-10-01 00:00:00+00') TO ('2026-11-01 00:00:00+00')");
+        verify(jdbcTemplate).execute(contains("ledger_entries_p2026_11"));
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS ledger_entries_p2026_12 PARTITION OF ledger_entries"
+            + " FOR VALUES FROM ('2026-12-01 00:00:00+00') TO ('2027-01-01 00:00:00+00')");
+        verify(jdbcTemplate, never()).execute(contains("authorizations_p"));
+    }
+
+    @Test
+    void testExpiredPartitionIsArchivedThenDropped() throws Exception {
+        partitioned(PartitionedTable.LEDGER_ENTRIES, List.of("ledger_entries_p2025_09", "ledger_entries_p2025_10"));
+        notPartitioned(PartitionedTable.AUTHORIZATIONS);
+        runInTransaction();
+        exportRows(List.of(
+            Map.of("entry_id", "entry-1", "account_id", "account-1"),
+            Map.of("entry_id", "entry-2", "account_id", "account-2")));
+        when(jdbcTemplate.queryForObject("SELECT count(*) FROM ledger_entries_p2025_09", Long.class)).thenReturn(2L);
+
+        maintenance.maintain(NOW);
+
+        assertEquals(2, coldArchive.archivedRows(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p2025_09"));
+        assertEquals("entry-2", coldArchive.find(PartitionedTable.LEDGER_ENTRIES, "account_id", "account-2")
+            .get(0).get("entry_id"));
+        verify(jdbcTemplate).execute("ALTER TABLE ledger_entries DETACH PARTITION ledger_entries_p2025_09 CONCURRENTLY");
+        verify(jdbcTemplate).execute("DROP TABLE ledger_entries_p2025_09");
+        verify(jdbcTemplate, never()).execute(contains("DROP TABLE ledger_entries_p2025_10"));
+        assertEquals(1.0, partitions("ledger_entries", "archived"));
+    }
+
+    @Test
+    void testRowCountMismatchKeepsPartition() throws Exception {
+        partitioned(PartitionedTable.LEDGER_ENTRIES, List.of("ledger_entries_p2025_01"));
+        notPartitioned(PartitionedTable.AUTHORIZATIONS);
+        runInTransaction();
+        exportRows(List.of(Map.of("entry_id", "entry-1", "account_id", "account-1")));
+        when(jdbcTemplate.queryForObject("SELECT count(*) FROM ledger_entries_p2025_01", Long.class)).thenReturn(2L);
+
+        maintenance.maintain(NOW);
+
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+        assertEquals(1.0, partitions("ledger_entries", "failed"));
+    }
+
+    @Test
+    void testMonthWithApprovedAuthorizationsIsNotArchived() {
+        notPartitioned(PartitionedTable.LEDGER_ENTRIES);
+        partitioned(PartitionedTable.AUTHORIZATIONS, List.of("authorizations_p2025_01"));
+        when(jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM authorizations_p2025_01 WHERE status = 'APPROVED'", Long.class)).thenReturn(1L);
+
+        maintenance.maintain(NOW);
+
+        verifyNoInteractions(exportJdbcTemplate);
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+        assertEquals(1.0, partitions("authorizations", "skipped"));
+    }
+
+    @Test
+    void testSkipsWhileAnotherNodeHoldsTheLock() throws Exception {
+        advisoryLock(false);
+
+        maintenance.maintain(NOW);
+
+        verify(jdbcTemplate, never()).queryForObject(contains("pg_partitioned_table"), eq(Long.class), any());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testPartitionNames() {
+        assertEquals("authorizations_p2026_01",
+            PartitionMaintenance.partitionName(PartitionedTable.AUTHORIZATIONS, YearMonth.of(2026, 1)));
+    }
+
+    private void advisoryLock(boolean available) throws Exception {
+        ResultSet locked = mock(ResultSet.class);
+        lenient().when(locked.next()).thenReturn(true);
+        lenient().when(locked.getBoolean(1)).thenReturn(available);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        lenient().when(statement.executeQuery()).thenReturn(locked);
+        Connection connection = mock(Connection.class);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(statement);
+        lenient().when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+            .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    }
+
+    private void partitioned(PartitionedTable table, List<String> attached) {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Long.class), eq(table.getTableName())))
+            .thenReturn(1L);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), eq(table.getTableName())))
+            .thenReturn(attached);
+        when(jdbcTemplate.queryForList(contains("relispartition"), eq(String.class),
+            eq("^" + table.getTableName() + "_p[0-9]{4}_[0-9]{2}$")))
+            .thenReturn(List.of());
+    }
+
+    private void notPartitioned(PartitionedTable table) {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Long.class), eq(table.getTableName())))
+            .thenReturn(0L);
+    }
+
+    private void runInTransaction() {
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    private void exportRows(List<Map<String, String>> rows) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("entry_id");
+        when(metaData.getColumnLabel(2)).thenReturn("account_id");
+        when(metaData.getColumnType(anyInt())).thenReturn(Types.VARCHAR);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map<String, String> row : rows) {
+                when(resultSet.getString(1)).thenReturn(row.get("entry_id"));
+                when(resultSet.getString(2)).thenReturn(row.get("account_id"));
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(exportJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private double partitions(String table, String action) {
+        return meterRegistry.get("cardengine.storage.partitions")
+            .tag("table", table)
+            .tag("action", action)
+            .counter()
+            .count();
+    }
+}